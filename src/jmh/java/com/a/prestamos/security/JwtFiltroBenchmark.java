@@ -0,0 +1,231 @@
+package com.a.prestamos.security;
+
+import com.a.prestamos.service.impl.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.CachingUserDetailsService;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.security.Key;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de {@link JwtAuthFilter} por petición autenticada, sin el resto de la cadena de seguridad:
+ * <ul>
+ *     <li>{@code anterior}: el filtro y el JwtService de antes, copiados aquí: cuatro parseos con
+ *     verificación HMAC por petición y la clave decodificada en cada uno;</li>
+ *     <li>{@code actual}: el filtro actual con un token que ya está en la caché de verificados
+ *     (el caso normal: el cliente repite su token);</li>
+ *     <li>{@code actualSinCache}: el filtro actual con un token distinto en cada petición, así cada una
+ *     paga un parseo y una verificación.</li>
+ * </ul>
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="JwtFiltroBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtFiltroBenchmark {
+
+    private static final String USUARIO = "cajero@prestamos.pe";
+    private static final long EXPIRACION = 3_600_000;
+    private static final long RENOVACION = 86_400_000;
+    private static final int TOKENS_DISTINTOS = 4096;
+
+    private final FilterChain cadena = (request, response) -> { };
+    private final MockHttpServletResponse respuesta = new MockHttpServletResponse();
+
+    private FiltroAnterior filtroAnterior;
+    private JwtAuthFilter filtroActual;
+    private JwtAuthFilter filtroSinCache;
+    private MockHttpServletRequest peticion;
+    private MockHttpServletRequest[] peticionesDistintas;
+    private int siguiente;
+
+    @Setup
+    public void filtros() {
+        byte[] clave = new byte[32];
+        for (int i = 0; i < clave.length; i++) {
+            clave[i] = (byte) (i * 31 + 7);
+        }
+        String secreto = Base64.getEncoder().encodeToString(clave);
+        UserDetails usuario = User.withUsername(USUARIO).password("x").authorities("USER").build();
+        CachingUserDetailsService usuarios = new CachingUserDetailsService(nombre -> usuario);
+
+        JwtService jwtService = new JwtService(secreto, EXPIRACION, RENOVACION, 10_000, Duration.ofMinutes(10));
+        // Capacidad 1 con tokens rotando: ningún token se encuentra en la caché
+        JwtService sinAciertos = new JwtService(secreto, EXPIRACION, RENOVACION, 1, Duration.ofMinutes(10));
+
+        filtroActual = filtro(jwtService, usuarios);
+        filtroSinCache = filtro(sinAciertos, usuarios);
+        filtroAnterior = new FiltroAnterior(new JwtServiceAnterior(secreto, RENOVACION), usuarios);
+
+        peticion = peticion(jwtService.generateToken(usuario, new HashMap<>()));
+        peticionesDistintas = new MockHttpServletRequest[TOKENS_DISTINTOS];
+        for (int i = 0; i < TOKENS_DISTINTOS; i++) {
+            peticionesDistintas[i] = peticion(jwtService.generateToken(usuario, Map.of("n", i)));
+        }
+    }
+
+    @Benchmark
+    public Object anterior() throws Exception {
+        filtroAnterior.doFilterInternal(peticion, respuesta, cadena);
+        return autenticado();
+    }
+
+    @Benchmark
+    public Object actual() throws Exception {
+        filtroActual.doFilterInternal(peticion, respuesta, cadena);
+        return autenticado();
+    }
+
+    @Benchmark
+    public Object actualSinCache() throws Exception {
+        MockHttpServletRequest distinta = peticionesDistintas[siguiente++ & (TOKENS_DISTINTOS - 1)];
+        filtroSinCache.doFilterInternal(distinta, respuesta, cadena);
+        return autenticado();
+    }
+
+    /**
+     * Cada petición llega sin autenticación previa en el hilo.
+     */
+    private static Object autenticado() {
+        Object autenticacion = SecurityContextHolder.getContext().getAuthentication();
+        if (autenticacion == null) {
+            throw new IllegalStateException("El filtro no autenticó la petición");
+        }
+        SecurityContextHolder.clearContext();
+        return autenticacion;
+    }
+
+    private static JwtAuthFilter filtro(JwtService jwtService, CachingUserDetailsService usuarios) {
+        JwtAuthFilter filtro = new JwtAuthFilter((request, response, handler, ex) -> null);
+        ReflectionTestUtils.setField(filtro, "jwtService", jwtService);
+        ReflectionTestUtils.setField(filtro, "userDetailsService", usuarios);
+        return filtro;
+    }
+
+    private static MockHttpServletRequest peticion(String token) {
+        MockHttpServletRequest peticion = new MockHttpServletRequest("GET", "/api/v1/prestamo");
+        peticion.setServletPath("/api/v1/prestamo");
+        peticion.addHeader("Authorization", "Bearer " + token);
+        return peticion;
+    }
+
+    // ==================== IMPLEMENTACIÓN ANTERIOR ====================
+
+    /**
+     * {@code JwtAuthFilter.doFilterInternal} antes de {@link JwtService#verificar}.
+     */
+    static final class FiltroAnterior extends OncePerRequestFilter {
+        private final JwtServiceAnterior jwtService;
+        private final CachingUserDetailsService userDetailsService;
+
+        FiltroAnterior(JwtServiceAnterior jwtService, CachingUserDetailsService userDetailsService) {
+            this.jwtService = jwtService;
+            this.userDetailsService = userDetailsService;
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) {
+            String authHeader = request.getHeader("Authorization");
+            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+                return;
+            }
+            String jwt = authHeader.substring(7);
+            String userEmail = jwtService.extractUsername(jwt);
+            if (userEmail == null || SecurityContextHolder.getContext().getAuthentication() != null) {
+                return;
+            }
+            UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
+
+            boolean isTokenValid = jwtService.isTokenValid(jwt, userDetails);
+            boolean isTokenExpired = jwtService.isTokenExpired(jwt);
+            boolean canBeRenewed = jwtService.canTokenBeRenewed(jwt);
+            if (!isTokenValid || (isTokenExpired && !canBeRenewed)) {
+                SecurityContextHolder.clearContext();
+                return;
+            }
+
+            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                    userDetails, null, userDetails.getAuthorities());
+            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authToken);
+        }
+    }
+
+    /**
+     * Los métodos de {@code JwtService} que usaba el filtro: cada uno parsea y verifica el token de nuevo
+     * con una clave armada en el momento.
+     */
+    static final class JwtServiceAnterior {
+        private final String secretKey;
+        private final long refreshExpiration;
+
+        JwtServiceAnterior(String secretKey, long refreshExpiration) {
+            this.secretKey = secretKey;
+            this.refreshExpiration = refreshExpiration;
+        }
+
+        String extractUsername(String token) {
+            return extractAllClaims(token).getSubject();
+        }
+
+        boolean isTokenValid(String token, UserDetails userDetails) {
+            return extractUsername(token).equals(userDetails.getUsername());
+        }
+
+        boolean isTokenExpired(String token) {
+            return extractAllClaims(token).getExpiration().before(new Date());
+        }
+
+        boolean canTokenBeRenewed(String token) {
+            Date expiration = extractAllClaims(token).getExpiration();
+            long currentTime = System.currentTimeMillis();
+            return expiration.before(new Date(currentTime)) && expiration.getTime() + refreshExpiration > currentTime;
+        }
+
+        private Claims extractAllClaims(String token) {
+            try {
+                return Jwts.parserBuilder().setSigningKey(getSignInKey()).build().parseClaimsJws(token).getBody();
+            } catch (ExpiredJwtException e) {
+                return e.getClaims();
+            }
+        }
+
+        private Key getSignInKey() {
+            return Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.entity.Cuota;
+import com.a.prestamos.model.entity.Prestamo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cronograma y desglose del comprobante en céntimos ({@link com.a.prestamos.util.MoneyMath}) contra el
+ * cálculo anterior con BigDecimal, copiado aquí tal como estaba. La diferencia que importa es la
+ * asignación por operación: correr con {@code -prof gc} y comparar {@code gc.alloc.rate.norm}.
+ * <p>
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="DineroBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DineroBenchmark {
+
+    private static final BigDecimal DIVISOR_IGV = new BigDecimal("1.18");
+
+    @Param("36")
+    private int meses;
+
+    private final FinancialServiceImpl financialService = new FinancialServiceImpl();
+    private Prestamo prestamo;
+    private BigDecimal tem;
+
+    // Media cuota pagada: {pagado, total, interés, IGV, capital} en céntimos (campos, no constantes)
+    private long pagado = 46923, total = 93846, interes = 15906, igv = 2863, capital = 75077;
+
+    @Setup
+    public void prestamo() {
+        tem = financialService.calculateTem(new BigDecimal("0.4599"));
+        prestamo = new Prestamo();
+        prestamo.setPrincipal(new BigDecimal("123456.78"));
+        prestamo.setMonths(meses);
+        prestamo.setStartDate(LocalDate.of(2026, 1, 15));
+        prestamo.setInstallmentAmount(financialService.calculateInstallmentAmount(prestamo.getPrincipal(), tem, meses));
+
+        List<Cuota> actual = cronogramaCentimos();
+        List<Cuota> anterior = cronogramaBigDecimal();
+        for (int i = 0; i < meses; i++) {
+            if (actual.get(i).getAmount().compareTo(anterior.get(i).getAmount()) != 0
+                    || actual.get(i).getPrincipal().compareTo(anterior.get(i).getPrincipal()) != 0) {
+                throw new IllegalStateException("El cronograma en céntimos no coincide en la cuota " + (i + 1));
+            }
+        }
+    }
+
+    // ==================== CRONOGRAMA ====================
+
+    @Benchmark
+    public List<Cuota> cronogramaCentimos() {
+        return financialService.generateSchedule(prestamo, tem);
+    }
+
+    /**
+     * {@code FinancialServiceImpl.generateSchedule} antes de MoneyMath.
+     */
+    @Benchmark
+    public List<Cuota> cronogramaBigDecimal() {
+        List<Cuota> schedule = new ArrayList<>();
+        BigDecimal currentBalance = prestamo.getPrincipal();
+        BigDecimal fixedInstallment = prestamo.getInstallmentAmount();
+
+        for (int i = 1; i <= prestamo.getMonths(); i++) {
+            BigDecimal interesTotalMes = currentBalance.multiply(tem).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal interesBase = interesTotalMes.divide(DIVISOR_IGV, 2, RoundingMode.HALF_UP);
+            BigDecimal igvMes = interesTotalMes.subtract(interesBase);
+            BigDecimal capitalMes = fixedInstallment.subtract(interesTotalMes);
+            currentBalance = currentBalance.subtract(capitalMes);
+
+            if (i == prestamo.getMonths() && currentBalance.compareTo(BigDecimal.ZERO) != 0) {
+                capitalMes = capitalMes.add(currentBalance);
+                currentBalance = BigDecimal.ZERO;
+                fixedInstallment = capitalMes.add(interesTotalMes);
+            }
+
+            Cuota installment = new Cuota();
+            installment.setLoan(prestamo);
+            installment.setNum(i);
+            installment.setDueDate(prestamo.getStartDate().plusMonths(i));
+            installment.setPrincipal(capitalMes);
+            installment.setInterest(interesBase);
+            installment.setIgv(igvMes);
+            installment.setAmount(fixedInstallment);
+            installment.setBalance(fixedInstallment);
+            installment.setAmountPaid(BigDecimal.ZERO);
+            schedule.add(installment);
+        }
+        return schedule;
+    }
+
+    // ==================== DESGLOSE DEL COMPROBANTE ====================
+
+    @Benchmark
+    public long desgloseCentimos() {
+        FacturacionServiceImpl.Desglose desglose = FacturacionServiceImpl.desglosar(pagado, total, interes, igv, capital);
+        return desglose.interes() + desglose.igv() + desglose.capital();
+    }
+
+    /**
+     * Prorrateo de {@code FacturacionServiceImpl} antes de MoneyMath.
+     */
+    @Benchmark
+    public BigDecimal desgloseBigDecimal() {
+        BigDecimal montoPagado = BigDecimal.valueOf(pagado, 2);
+        BigDecimal proporcion = montoPagado.divide(BigDecimal.valueOf(total, 2), 10, RoundingMode.HALF_UP);
+
+        BigDecimal interesProporcional = BigDecimal.valueOf(interes, 2).multiply(proporcion).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal igvProporcional = BigDecimal.valueOf(igv, 2).multiply(proporcion).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal capitalProporcional = BigDecimal.valueOf(capital, 2).multiply(proporcion).setScale(2, RoundingMode.HALF_UP);
+
+        BigDecimal diferencia = montoPagado.subtract(interesProporcional.add(igvProporcional).add(capitalProporcional));
+        return capitalProporcional.add(diferencia);
+    }
+}
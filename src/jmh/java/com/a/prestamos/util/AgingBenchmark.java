@@ -0,0 +1,153 @@
+package com.a.prestamos.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cálculo del reporte de antigüedad sobre 10 millones de cuotas vencidas ya leídas (la parte en CPU de
+ * {@code ReporteAgingServiceImpl}; la lectura de la base no entra):
+ * <ul>
+ *     <li>{@code porCuota}: lo que costaría llamar a {@link MoraCalculator} cuota por cuota, con un
+ *     {@code LocalDate} y un {@code BigDecimal} por fila;</li>
+ *     <li>{@code secuencial}: {@link AgingCalculator} sobre arreglos primitivos, en bloques como el servicio;</li>
+ *     <li>{@code particionado}: lo mismo repartido en {@code particiones} hilos y combinado al final.</li>
+ * </ul>
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="AgingBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class AgingBenchmark {
+
+    private static final LocalDate HOY = LocalDate.of(2026, 10, 18);
+
+    @Param("10000000")
+    private int cuotas;
+
+    @Param("4")
+    private int particiones;
+
+    /** Igual que {@code app.reportes.aging.chunk-size}. */
+    @Param("20000")
+    private int tamanioBloque;
+
+    private int[] vencimientoDia;
+    private int[] vencimientoMes;
+    private long[] saldoCentimos;
+    private ExecutorService pool;
+
+    @Setup(Level.Trial)
+    public void cartera() {
+        vencimientoDia = new int[cuotas];
+        vencimientoMes = new int[cuotas];
+        saldoCentimos = new long[cuotas];
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        for (int i = 0; i < cuotas; i++) {
+            // Vencidas hace 1 a 720 días, saldos de S/ 1.00 a S/ 2 000.00
+            LocalDate vencimiento = HOY.minusDays(aleatorio.nextInt(1, 721));
+            vencimientoDia[i] = AgingCalculator.dia(vencimiento);
+            vencimientoMes[i] = AgingCalculator.mes(vencimiento);
+            saldoCentimos[i] = aleatorio.nextLong(100, 200_001);
+        }
+        pool = Executors.newFixedThreadPool(particiones);
+
+        // Las variantes primitivas tienen que dar la misma mora que MoraCalculator
+        int muestra = Math.min(cuotas, 100_000);
+        long esperado = moraPorCuota(muestra).movePointRight(2).longValueExact();
+        if (totalMora(particion(0, muestra)) != esperado) {
+            throw new IllegalStateException("AgingCalculator no coincide con MoraCalculator");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public BigDecimal porCuota() {
+        return moraPorCuota(cuotas);
+    }
+
+    @Benchmark
+    public long secuencial() {
+        return totalMora(particion(0, cuotas));
+    }
+
+    @Benchmark
+    public long particionado() throws Exception {
+        int ancho = (cuotas + particiones - 1) / particiones;
+        List<Future<AgingCalculator>> tareas = new ArrayList<>();
+        for (int desde = 0; desde < cuotas; desde += ancho) {
+            int inicio = desde;
+            int fin = Math.min(desde + ancho, cuotas);
+            tareas.add(pool.submit(() -> particion(inicio, fin)));
+        }
+        AgingCalculator total = new AgingCalculator(HOY);
+        for (Future<AgingCalculator> tarea : tareas) {
+            total.combinar(tarea.get());
+        }
+        return totalMora(total);
+    }
+
+    /**
+     * Recorre [desde, hasta) por bloques copiados a arreglos reutilizados, como hace el servicio con cada
+     * página de la proyección.
+     */
+    private AgingCalculator particion(int desde, int hasta) {
+        AgingCalculator calculo = new AgingCalculator(HOY);
+        int[] dia = new int[tamanioBloque];
+        int[] mes = new int[tamanioBloque];
+        long[] saldo = new long[tamanioBloque];
+        for (int inicio = desde; inicio < hasta; inicio += tamanioBloque) {
+            int n = Math.min(tamanioBloque, hasta - inicio);
+            System.arraycopy(vencimientoDia, inicio, dia, 0, n);
+            System.arraycopy(vencimientoMes, inicio, mes, 0, n);
+            System.arraycopy(saldoCentimos, inicio, saldo, 0, n);
+            calculo.acumular(dia, mes, saldo, n);
+        }
+        return calculo;
+    }
+
+    private BigDecimal moraPorCuota(int n) {
+        BigDecimal mora = BigDecimal.ZERO;
+        for (int i = 0; i < n; i++) {
+            LocalDate vencimiento = LocalDate.ofEpochDay(vencimientoDia[i]);
+            int meses = MoraCalculator.mesesAtraso(vencimiento, HOY);
+            mora = mora.add(MoraCalculator.mora(BigDecimal.valueOf(saldoCentimos[i], 2), meses));
+        }
+        return mora;
+    }
+
+    private static long totalMora(AgingCalculator calculo) {
+        long mora = 0;
+        for (int t = 0; t < AgingCalculator.TRAMOS.length; t++) {
+            mora += calculo.moraCentimos(t);
+        }
+        return mora;
+    }
+}
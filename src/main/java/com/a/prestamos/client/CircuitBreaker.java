@@ -0,0 +1,95 @@
+package com.a.prestamos.client;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+/**
+ * Circuit breaker mínimo para una API externa.
+ * <p>
+ * CERRADO: deja pasar todo y cuenta fallos consecutivos. Al llegar a {@code umbralFallos} pasa a
+ * ABIERTO y rechaza de inmediato durante {@code tiempoAbierto}, sin ocupar conexiones ni esperar
+ * timeouts. Luego deja pasar una sola llamada de prueba (SEMIABIERTO): si funciona se cierra, si falla
+ * vuelve a abrirse.
+ */
+public class CircuitBreaker {
+
+    public enum Estado { CERRADO, ABIERTO, SEMIABIERTO }
+
+    private final String nombre;
+    private final int umbralFallos;
+    private final long tiempoAbiertoNanos;
+    private final Predicate<Throwable> cuentaComoFallo;
+
+    private Estado estado = Estado.CERRADO;
+    private int fallosConsecutivos;
+    private long abiertoHasta;
+    private boolean pruebaEnCurso;
+
+    public CircuitBreaker(String nombre, int umbralFallos, Duration tiempoAbierto, Predicate<Throwable> cuentaComoFallo) {
+        this.nombre = nombre;
+        this.umbralFallos = umbralFallos;
+        this.tiempoAbiertoNanos = tiempoAbierto.toNanos();
+        this.cuentaComoFallo = cuentaComoFallo;
+    }
+
+    /**
+     * Envuelve la llamada: se suscribe a {@code llamada} solo si el circuito lo permite.
+     */
+    public <T> Mono<T> proteger(Mono<T> llamada) {
+        return Mono.defer(() -> {
+            if (!permitir()) {
+                return Mono.error(new IllegalStateException(
+                        "El servicio " + nombre + " no está disponible en este momento. Intente nuevamente en unos minutos."));
+            }
+            return llamada
+                    .doOnSuccess(v -> exito())
+                    .doOnError(e -> {
+                        if (cuentaComoFallo.test(e)) fallo();
+                        else exito();
+                    })
+                    .doOnCancel(this::liberarPrueba);
+        });
+    }
+
+    public synchronized Estado estado() {
+        return estado;
+    }
+
+    private synchronized boolean permitir() {
+        switch (estado) {
+            case CERRADO:
+                return true;
+            case ABIERTO:
+                if (System.nanoTime() - abiertoHasta < 0) return false;
+                estado = Estado.SEMIABIERTO;
+                pruebaEnCurso = true;
+                return true;
+            default:
+                // SEMIABIERTO: solo una llamada de prueba a la vez
+                if (pruebaEnCurso) return false;
+                pruebaEnCurso = true;
+                return true;
+        }
+    }
+
+    private synchronized void exito() {
+        estado = Estado.CERRADO;
+        fallosConsecutivos = 0;
+        pruebaEnCurso = false;
+    }
+
+    private synchronized void fallo() {
+        fallosConsecutivos++;
+        if (estado == Estado.SEMIABIERTO || fallosConsecutivos >= umbralFallos) {
+            estado = Estado.ABIERTO;
+            abiertoHasta = System.nanoTime() + tiempoAbiertoNanos;
+        }
+        pruebaEnCurso = false;
+    }
+
+    private synchronized void liberarPrueba() {
+        pruebaEnCurso = false;
+    }
+}
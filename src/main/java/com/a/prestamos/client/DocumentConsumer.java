@@ -2,18 +2,42 @@ package com.a.prestamos.client;
 
 import com.a.prestamos.model.dto.apiclient.ReniecResponseDto;
 import com.a.prestamos.model.dto.apiclient.SunatResponseDto;
-import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import java.io.Serial;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Cliente de las APIs de RENIEC (DNI) y SUNAT (RUC).
+ * <p>
+ * Las variantes {@code *Async} no bloquean: cada consulta tiene timeout, reintentos acotados con
+ * backoff ante fallos transitorios, un circuit breaker por API y, opcionalmente, una segunda petición
+ * (hedging) si la primera tarda más que el p95 observado. Las variantes síncronas solo bloquean sobre ellas.
+ */
 @Component
 public class DocumentConsumer {
-    @Autowired
-    private WebClient.Builder webClientBuilder;
+    /**
+     * Marca interna para "documento no existe"; se traduce a respuesta vacía.
+     */
+    private static final RuntimeException NO_ENCONTRADO = new RuntimeException("Documento no encontrado", null, false, false) {};
+
+    /**
+     * Un solo WebClient para todas las consultas: reutiliza el pool de conexiones de HttpClientConfig.
+     */
+    private final WebClient webClient;
+    private final HttpClientMetrics httpClientMetrics;
 
     @Value("${app.reniec.api-url}")
     private String reniecApiUrl;
@@ -27,31 +51,156 @@ public class DocumentConsumer {
     @Value("${app.sunat.api-key}")
     private String sunatApiKey;
 
+    @Value("${app.documentos.timeout:PT5S}")
+    private Duration timeout;
+
+    @Value("${app.documentos.retry.max-attempts:2}")
+    private int reintentos;
+
+    @Value("${app.documentos.retry.backoff:PT0.2S}")
+    private Duration backoff;
+
+    @Value("${app.documentos.circuit-breaker.failure-threshold:5}")
+    private int umbralFallos;
+
+    @Value("${app.documentos.circuit-breaker.open-duration:PT30S}")
+    private Duration tiempoAbierto;
+
+    @Value("${app.documentos.hedge.enabled:true}")
+    private boolean hedging;
+
+    @Value("${app.documentos.hedge.min-delay:PT0.5S}")
+    private Duration demoraMinimaHedge;
+
+    @Value("${app.documentos.hedge.default-delay:PT1S}")
+    private Duration demoraHedgePorDefecto;
+
+    private CircuitBreaker circuitoReniec;
+    private CircuitBreaker circuitoSunat;
+
+    public DocumentConsumer(WebClient.Builder webClientBuilder, HttpClientMetrics httpClientMetrics) {
+        this.webClient = webClientBuilder.build();
+        this.httpClientMetrics = httpClientMetrics;
+    }
+
+    @PostConstruct
+    void init() {
+        circuitoReniec = new CircuitBreaker("RENIEC", umbralFallos, tiempoAbierto, DocumentConsumer::esTransitorio);
+        circuitoSunat = new CircuitBreaker("SUNAT", umbralFallos, tiempoAbierto, DocumentConsumer::esTransitorio);
+    }
+
     public ReniecResponseDto verifyByDni(String dni) {
-        return webClientBuilder.build()
-                .get()
-                .uri(reniecApiUrl, uriBuilder -> uriBuilder.queryParam("numero", dni).build())
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + reniecApiKey)
-                .retrieve()
-                .onStatus(HttpStatusCode::isError, response ->
-                        response.bodyToMono(String.class)
-                                .flatMap(errorBody -> Mono.error(new RuntimeException("Error al llamar a la API de RENIEC: " + errorBody)))
-                )
-                .bodyToMono(ReniecResponseDto.class)
-                .block();
+        return verifyByDniAsync(dni).block();
     }
 
     public SunatResponseDto verifyByRuc(String ruc) {
-        return webClientBuilder.build()
+        return verifyByRucAsync(ruc).block();
+    }
+
+    /**
+     * Datos del DNI, o vacío si RENIEC no lo conoce.
+     */
+    public Mono<ReniecResponseDto> verifyByDniAsync(String dni) {
+        return consultar(circuitoReniec, reniecApiUrl,
+                () -> llamar(reniecApiUrl, reniecApiKey, dni, "RENIEC", ReniecResponseDto.class));
+    }
+
+    /**
+     * Datos del RUC, o vacío si SUNAT no lo conoce.
+     */
+    public Mono<SunatResponseDto> verifyByRucAsync(String ruc) {
+        return consultar(circuitoSunat, sunatApiUrl,
+                () -> llamar(sunatApiUrl, sunatApiKey, ruc, "SUNAT", SunatResponseDto.class));
+    }
+
+    public CircuitBreaker.Estado estadoCircuitoReniec() {
+        return circuitoReniec.estado();
+    }
+
+    public CircuitBreaker.Estado estadoCircuitoSunat() {
+        return circuitoSunat.estado();
+    }
+
+    private <T> Mono<T> consultar(CircuitBreaker circuito, String apiUrl, Supplier<Mono<T>> llamada) {
+        Mono<T> intento = conHedge(llamada, apiUrl).timeout(timeout);
+
+        return circuito.proteger(intento
+                .retryWhen(Retry.backoff(reintentos, backoff)
+                        .filter(DocumentConsumer::esTransitorio)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure())));
+    }
+
+    /**
+     * Si la primera petición no respondió al llegar al p95 del endpoint, lanza una segunda y se queda
+     * con la que conteste primero (la otra se cancela).
+     */
+    private <T> Mono<T> conHedge(Supplier<Mono<T>> llamada, String apiUrl) {
+        Mono<T> primera = Mono.defer(llamada);
+        if (!hedging) {
+            return primera;
+        }
+        Mono<T> segunda = Mono.delay(demoraHedge(apiUrl)).then(Mono.defer(llamada));
+        return Mono.firstWithSignal(primera, segunda);
+    }
+
+    private Duration demoraHedge(String apiUrl) {
+        long p95 = httpClientMetrics.percentilMs(HttpClientMetrics.nombre("GET", URI.create(apiUrl)), 0.95);
+        if (p95 < 0) {
+            return demoraHedgePorDefecto;
+        }
+        Duration demora = Duration.ofMillis(p95);
+        return demora.compareTo(demoraMinimaHedge) < 0 ? demoraMinimaHedge : demora;
+    }
+
+    private <T> Mono<T> llamar(String apiUrl, String apiKey, String numero, String api, Class<T> tipo) {
+        return webClient
                 .get()
-                .uri(sunatApiUrl, uriBuilder -> uriBuilder.queryParam("numero", ruc).build())
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + sunatApiKey)
+                .uri(apiUrl, uriBuilder -> uriBuilder.queryParam("numero", numero).build())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
                 .retrieve()
+                // Documento inexistente → respuesta vacía; el resto de errores sí se propaga
+                .onStatus(DocumentConsumer::esNoEncontrado, response -> response.releaseBody().then(Mono.error(NO_ENCONTRADO)))
                 .onStatus(HttpStatusCode::isError, response ->
                         response.bodyToMono(String.class)
-                                .flatMap(errorBody -> Mono.error(new RuntimeException("Error al llamar a la API de SUNAT: " + errorBody)))
+                                .defaultIfEmpty("")
+                                .flatMap(errorBody -> Mono.error(new ApiDocumentoException(
+                                        "Error al llamar a la API de " + api + ": " + errorBody, response.statusCode())))
                 )
-                .bodyToMono(SunatResponseDto.class)
-                .block();
+                .bodyToMono(tipo)
+                .onErrorResume(e -> e == NO_ENCONTRADO, e -> Mono.empty());
+    }
+
+    private static boolean esNoEncontrado(HttpStatusCode status) {
+        return status.value() == 404 || status.value() == 422;
+    }
+
+    /**
+     * Fallos que vale la pena reintentar y que cuentan para el circuit breaker: timeouts, errores de
+     * conexión, 5xx y 429. Un 4xx (token inválido, parámetro mal formado) no mejora reintentando.
+     */
+    private static boolean esTransitorio(Throwable e) {
+        if (e instanceof TimeoutException || e instanceof WebClientRequestException) {
+            return true;
+        }
+        if (e instanceof ApiDocumentoException api) {
+            return api.status >= 500 || api.status == 429;
+        }
+        return e instanceof WebClientResponseException w && w.getStatusCode().is5xxServerError();
+    }
+
+    /**
+     * Respuesta de error de RENIEC/SUNAT; conserva el status (como número, para que siga siendo
+     * serializable) para decidir si se reintenta.
+     */
+    static class ApiDocumentoException extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ApiDocumentoException(String message, HttpStatusCode status) {
+            super(message);
+            this.status = status.value();
+        }
     }
 }
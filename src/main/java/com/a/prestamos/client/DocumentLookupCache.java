@@ -0,0 +1,85 @@
+package com.a.prestamos.client;
+
+import com.a.prestamos.model.dto.apiclient.ReniecResponseDto;
+import com.a.prestamos.model.dto.apiclient.SunatResponseDto;
+import com.a.prestamos.util.LruTtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Caché de consultas a RENIEC y SUNAT delante de {@link DocumentConsumer}.
+ * <p>
+ * Guarda también los resultados negativos (DNI/RUC inexistente, RUC no activo) con un TTL más corto,
+ * para que un documento mal digitado o rechazado no vuelva a gastar cuota de la API en cada intento.
+ * Las consultas simultáneas del mismo documento comparten una sola llamada remota.
+ * Los errores de la API (caída, timeout, 5xx) no se guardan.
+ */
+@Component
+public class DocumentLookupCache {
+
+    private final DocumentConsumer documentConsumer;
+    private final LruTtlCache<String, Optional<ReniecResponseDto>> reniec;
+    private final LruTtlCache<String, Optional<SunatResponseDto>> sunat;
+
+    public DocumentLookupCache(DocumentConsumer documentConsumer,
+                               @Value("${app.documentos.cache.max-entries:10000}") int maxEntradas,
+                               @Value("${app.documentos.cache.ttl:PT24H}") Duration ttl,
+                               @Value("${app.documentos.cache.negative-ttl:PT1H}") Duration ttlNegativo) {
+        this.documentConsumer = documentConsumer;
+        this.reniec = new LruTtlCache<>(maxEntradas,
+                r -> r.filter(dto -> dto.documentNumber() != null).isPresent() ? ttl : ttlNegativo);
+        this.sunat = new LruTtlCache<>(maxEntradas,
+                r -> r.filter(dto -> dto.numeroDocumento() != null && "ACTIVO".equalsIgnoreCase(dto.estado())).isPresent()
+                        ? ttl : ttlNegativo);
+    }
+
+    /**
+     * Datos del DNI según RENIEC, o vacío si no existe.
+     */
+    public Optional<ReniecResponseDto> buscarDni(String dni) {
+        return reniec.get(dni, k -> Optional.ofNullable(documentConsumer.verifyByDni(k)));
+    }
+
+    /**
+     * Datos del RUC según SUNAT (en cualquier estado), o vacío si no existe.
+     */
+    public Optional<SunatResponseDto> buscarRuc(String ruc) {
+        return sunat.get(ruc, k -> Optional.ofNullable(documentConsumer.verifyByRuc(k)));
+    }
+
+    /**
+     * Como {@link #buscarDni(String)}, sin bloquear. Cancelar el Mono no cancela la consulta compartida.
+     */
+    public Mono<Optional<ReniecResponseDto>> buscarDniAsync(String dni) {
+        return Mono.fromFuture(() -> reniec.getAsync(dni, k -> documentConsumer.verifyByDniAsync(k)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .toFuture()), true);
+    }
+
+    public Mono<Optional<SunatResponseDto>> buscarRucAsync(String ruc) {
+        return Mono.fromFuture(() -> sunat.getAsync(ruc, k -> documentConsumer.verifyByRucAsync(k)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .toFuture()), true);
+    }
+
+    public LruTtlCache.Estadisticas estadisticasReniec() {
+        return reniec.estadisticas();
+    }
+
+    public LruTtlCache.Estadisticas estadisticasSunat() {
+        return sunat.estadisticas();
+    }
+
+    @Scheduled(fixedDelayString = "${app.documentos.cache.purge-interval:PT10M}")
+    public void purgarVencidas() {
+        reniec.purgarVencidas();
+        sunat.purgarVencidas();
+    }
+}
@@ -0,0 +1,213 @@
+package com.a.prestamos.client;
+
+import com.a.prestamos.model.dto.metricas.HttpMetricasDto;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.core.publisher.Mono;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Métricas de las llamadas HTTP salientes: latencia (histograma por cubetas), errores por endpoint
+ * y ocupación de los pools de conexiones de Reactor Netty.
+ * <p>
+ * Se alimenta desde un filtro de WebClient, un interceptor de RestTemplate y el cliente HTTP de
+ * Mercado Pago, así todas las integraciones se miden igual.
+ */
+@Component
+public class HttpClientMetrics {
+
+    /**
+     * Límites superiores (ms) de las cubetas del histograma. La última cubeta acumula el resto.
+     */
+    private static final long[] LIMITES_MS = {10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 30_000};
+
+    /**
+     * Tope de endpoints distintos; evita que URLs con IDs no normalizados hagan crecer el mapa sin fin.
+     */
+    private static final int MAX_ENDPOINTS = 200;
+    private static final String OTROS = "otros";
+
+    private static final Pattern SEGMENTO_ID = Pattern.compile("/\\d+(?=/|$)");
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Registra una llamada terminada.
+     *
+     * @param error true si falló la conexión/lectura o el remoto respondió 4xx/5xx.
+     */
+    public void registrar(String endpoint, long duracionNanos, boolean error) {
+        endpoint(endpoint).registrar(duracionNanos / 1_000_000, error);
+    }
+
+    /**
+     * Nombre del endpoint a partir de la URL: método + host + ruta, sin query y con los IDs numéricos
+     * reemplazados por {id} (p. ej. "GET api.mercadopago.com/v1/payments/{id}").
+     */
+    public static String nombre(String metodo, URI uri) {
+        String ruta = uri.getRawPath() == null ? "" : SEGMENTO_ID.matcher(uri.getRawPath()).replaceAll("/{id}");
+        return metodo + " " + uri.getHost() + ruta;
+    }
+
+    /**
+     * Percentil aproximado (límite superior de la cubeta que lo contiene), en ms.
+     * Devuelve -1 si el endpoint aún no tiene llamadas.
+     */
+    public long percentilMs(String endpoint, double percentil) {
+        Endpoint e = endpoints.get(endpoint);
+        return e == null ? -1 : e.percentil(percentil);
+    }
+
+    public ExchangeFilterFunction filtroWebClient() {
+        return (request, next) -> {
+            String endpoint = nombre(request.method().name(), request.url());
+            long inicio = System.nanoTime();
+            return next.exchange(request)
+                    .doOnNext(response -> registrar(endpoint, System.nanoTime() - inicio, response.statusCode().isError()))
+                    .doOnError(e -> registrar(endpoint, System.nanoTime() - inicio, true))
+                    .switchIfEmpty(Mono.defer(() -> {
+                        registrar(endpoint, System.nanoTime() - inicio, true);
+                        return Mono.empty();
+                    }));
+        };
+    }
+
+    public ClientHttpRequestInterceptor interceptorRestTemplate() {
+        return (request, body, execution) -> {
+            String endpoint = nombre(request.getMethod().name(), request.getURI());
+            long inicio = System.nanoTime();
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                registrar(endpoint, System.nanoTime() - inicio, response.getStatusCode().isError());
+                return response;
+            } catch (IOException | RuntimeException e) {
+                registrar(endpoint, System.nanoTime() - inicio, true);
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Registrador que Reactor Netty invoca al crear el pool de cada host remoto.
+     */
+    public ConnectionProvider.MeterRegistrar registradorPools() {
+        return new ConnectionProvider.MeterRegistrar() {
+            @Override
+            public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+                pools.put(id, new Pool(poolName, String.valueOf(remoteAddress), metrics));
+            }
+
+            @Override
+            public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+                pools.remove(id);
+            }
+        };
+    }
+
+    public HttpMetricasDto snapshot() {
+        List<HttpMetricasDto.Endpoint> listaEndpoints = new ArrayList<>();
+        endpoints.forEach((nombre, e) -> listaEndpoints.add(e.snapshot(nombre)));
+        listaEndpoints.sort(Comparator.comparing(HttpMetricasDto.Endpoint::endpoint));
+
+        List<HttpMetricasDto.Pool> listaPools = new ArrayList<>();
+        for (Pool p : pools.values()) {
+            ConnectionPoolMetrics m = p.metrics();
+            listaPools.add(new HttpMetricasDto.Pool(p.nombre(), p.host(), m.acquiredSize(), m.allocatedSize(),
+                    m.idleSize(), m.pendingAcquireSize(), m.maxAllocatedSize(), m.maxPendingAcquireSize()));
+        }
+        listaPools.sort(Comparator.comparing(HttpMetricasDto.Pool::host));
+
+        return new HttpMetricasDto(listaEndpoints, listaPools);
+    }
+
+    private Endpoint endpoint(String nombre) {
+        Endpoint e = endpoints.get(nombre);
+        if (e != null) return e;
+        if (endpoints.size() >= MAX_ENDPOINTS) {
+            return endpoints.computeIfAbsent(OTROS, k -> new Endpoint());
+        }
+        return endpoints.computeIfAbsent(nombre, k -> new Endpoint());
+    }
+
+    private record Pool(String nombre, String host, ConnectionPoolMetrics metrics) {}
+
+    /**
+     * Contadores de un endpoint. LongAdder: muchas escrituras concurrentes, lecturas ocasionales.
+     */
+    private static final class Endpoint {
+        private final LongAdder llamadas = new LongAdder();
+        private final LongAdder errores = new LongAdder();
+        private final LongAdder totalMs = new LongAdder();
+        private final LongAdder[] cubetas = new LongAdder[LIMITES_MS.length + 1];
+
+        private Endpoint() {
+            for (int i = 0; i < cubetas.length; i++) cubetas[i] = new LongAdder();
+        }
+
+        private void registrar(long ms, boolean error) {
+            llamadas.increment();
+            totalMs.add(ms);
+            if (error) errores.increment();
+            cubetas[cubeta(ms)].increment();
+        }
+
+        private static int cubeta(long ms) {
+            for (int i = 0; i < LIMITES_MS.length; i++) {
+                if (ms <= LIMITES_MS[i]) return i;
+            }
+            return LIMITES_MS.length;
+        }
+
+        private long percentil(double percentil) {
+            long[] conteos = new long[cubetas.length];
+            long total = 0;
+            for (int i = 0; i < cubetas.length; i++) {
+                conteos[i] = cubetas[i].sum();
+                total += conteos[i];
+            }
+            if (total == 0) return -1;
+
+            long objetivo = (long) Math.ceil(total * percentil);
+            long acumulado = 0;
+            for (int i = 0; i < LIMITES_MS.length; i++) {
+                acumulado += conteos[i];
+                if (acumulado >= objetivo) return LIMITES_MS[i];
+            }
+            // Cae en la cubeta abierta: no hay límite superior, se informa el último conocido
+            return LIMITES_MS[LIMITES_MS.length - 1];
+        }
+
+        private HttpMetricasDto.Endpoint snapshot(String nombre) {
+            long n = llamadas.sum();
+            long err = errores.sum();
+
+            Map<String, Long> histograma = new LinkedHashMap<>();
+            for (int i = 0; i < LIMITES_MS.length; i++) {
+                histograma.put(String.valueOf(LIMITES_MS[i]), cubetas[i].sum());
+            }
+            histograma.put("+Inf", cubetas[LIMITES_MS.length].sum());
+
+            return new HttpMetricasDto.Endpoint(nombre, n, err,
+                    n == 0 ? 0 : (double) err / n,
+                    n == 0 ? 0 : (double) totalMs.sum() / n,
+                    percentil(0.50), percentil(0.95), percentil(0.99),
+                    histograma);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.a.prestamos.client;
+
+import com.mercadopago.exceptions.MPApiException;
+import com.mercadopago.exceptions.MPException;
+import com.mercadopago.net.MPHttpClient;
+import com.mercadopago.net.MPRequest;
+import com.mercadopago.net.MPResponse;
+
+import java.net.URI;
+
+/**
+ * Envuelve el cliente HTTP del SDK de Mercado Pago (Apache HttpClient con pool propio) para medir
+ * sus llamadas en {@link HttpClientMetrics}, igual que las de WebClient y RestTemplate.
+ */
+public class InstrumentedMercadoPagoHttpClient implements MPHttpClient {
+
+    private final MPHttpClient delegate;
+    private final HttpClientMetrics metrics;
+
+    public InstrumentedMercadoPagoHttpClient(MPHttpClient delegate, HttpClientMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public MPResponse send(MPRequest request) throws MPException, MPApiException {
+        String endpoint = HttpClientMetrics.nombre(request.getMethod().name(), URI.create(request.getUri()));
+        long inicio = System.nanoTime();
+        boolean error = true;
+        try {
+            MPResponse response = delegate.send(request);
+            error = response.getStatusCode() == null || response.getStatusCode() >= 400;
+            return response;
+        } finally {
+            metrics.registrar(endpoint, System.nanoTime() - inicio, error);
+        }
+    }
+}
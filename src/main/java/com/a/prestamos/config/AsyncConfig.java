@@ -0,0 +1,76 @@
+package com.a.prestamos.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+
+    @Value("${app.facturacion.emision.pool-size:4}")
+    private int emisionPoolSize;
+
+    @Value("${app.facturacion.emision.queue-capacity:100}")
+    private int emisionQueueCapacity;
+
+    @Value("${app.reportes.aging.paralelismo:4}")
+    private int reportesPoolSize;
+
+    /**
+     * Pool acotado que drena la bandeja de emisión de comprobantes.
+     * Si está lleno rechaza la tarea: el registro sigue en la tabla y lo retoma el poller.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor emisionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("emision-");
+        executor.setCorePoolSize(emisionPoolSize);
+        executor.setMaxPoolSize(emisionPoolSize);
+        executor.setQueueCapacity(emisionQueueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool para descargar y subir los PDF mientras el worker de emisión espera a SUNAT.
+     * Sin cola: si todos los hilos están ocupados, el PDF se procesa en el hilo que emite.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor pdfExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("pdf-");
+        executor.setCorePoolSize(emisionPoolSize);
+        executor.setMaxPoolSize(emisionPoolSize);
+        executor.setQueueCapacity(0);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool para las particiones de los reportes de cartera. Cada hilo ocupa una conexión de BD mientras
+     * lee su rango, así que se mantiene por debajo del pool de conexiones.
+     * Si está lleno, la partición se calcula en el hilo que pidió el reporte.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor reporteExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("reporte-");
+        executor.setCorePoolSize(reportesPoolSize);
+        executor.setMaxPoolSize(reportesPoolSize);
+        executor.setQueueCapacity(reportesPoolSize * 4);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
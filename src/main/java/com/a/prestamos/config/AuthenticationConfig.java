@@ -1,11 +1,13 @@
 package com.a.prestamos.config;
 
 import com.a.prestamos.model.dao.UsuarioDao;
+import com.a.prestamos.security.UsuarioCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.CachingUserDetailsService;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -24,6 +26,17 @@ public class AuthenticationConfig {
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
+    /**
+     * Versión con caché para el filtro JWT, que resuelve el usuario en cada petición. El login
+     * ({@link #authenticationProvider()}) sigue usando {@link #userDetailsService()} directo.
+     */
+    @Bean
+    public CachingUserDetailsService cachingUserDetailsService(UsuarioCache usuarioCache) {
+        CachingUserDetailsService service = new CachingUserDetailsService(userDetailsService());
+        service.setUserCache(usuarioCache);
+        return service;
+    }
+
     @Bean
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
@@ -0,0 +1,121 @@
+package com.a.prestamos.config;
+
+import com.a.prestamos.client.HttpClientMetrics;
+import com.a.prestamos.client.InstrumentedMercadoPagoHttpClient;
+import com.mercadopago.MercadoPagoConfig;
+import com.mercadopago.net.MPDefaultHttpClient;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestTemplate;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * Capa HTTP saliente compartida por APIsPERU, RENIEC, SUNAT y Mercado Pago.
+ * <p>
+ * WebClient y RestTemplate usan el mismo HttpClient de Reactor Netty, con un pool de conexiones
+ * keep-alive por host, timeouts de conexión y lectura, y HTTP/2 (ALPN) cuando el remoto lo soporta.
+ * El SDK de Mercado Pago trae su propio Apache HttpClient: se le aplican los mismos límites.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class HttpClientConfig {
+
+    private final HttpClientMetrics httpClientMetrics;
+
+    @Value("${app.http.max-connections-per-host:50}")
+    private int maxConexionesPorHost;
+
+    @Value("${app.http.pending-acquire-max:200}")
+    private int maxEnEspera;
+
+    @Value("${app.http.pending-acquire-timeout:PT5S}")
+    private Duration timeoutEspera;
+
+    @Value("${app.http.max-idle-time:PT30S}")
+    private Duration maxOcioso;
+
+    @Value("${app.http.max-life-time:PT5M}")
+    private Duration maxVida;
+
+    @Value("${app.http.connect-timeout:PT3S}")
+    private Duration timeoutConexion;
+
+    @Value("${app.http.read-timeout:PT30S}")
+    private Duration timeoutLectura;
+
+    @Value("${app.http.http2:true}")
+    private boolean http2;
+
+    /**
+     * Reactor Netty mantiene un pool por dirección remota, así que {@code max-connections-per-host}
+     * limita cada integración por separado. Las conexiones ociosas o muy antiguas se cierran en segundo
+     * plano para no reutilizar sockets que el remoto o un balanceador ya cortó.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider httpConnectionProvider() {
+        return ConnectionProvider.builder("externos")
+                .maxConnections(maxConexionesPorHost)
+                .pendingAcquireMaxCount(maxEnEspera)
+                .pendingAcquireTimeout(timeoutEspera)
+                .maxIdleTime(maxOcioso)
+                .maxLifeTime(maxVida)
+                .evictInBackground(maxOcioso)
+                .metrics(true, httpClientMetrics::registradorPools)
+                .build();
+    }
+
+    @Bean
+    public HttpClient httpClient(ConnectionProvider httpConnectionProvider) {
+        HttpClient client = HttpClient.create(httpConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) timeoutConexion.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .responseTimeout(timeoutLectura);
+
+        return http2 ? client.protocol(HttpProtocol.H2, HttpProtocol.HTTP11) : client;
+    }
+
+    /**
+     * Lo aplica Spring Boot al {@code WebClient.Builder} que inyectan los clientes (DocumentConsumer).
+     */
+    @Bean
+    public WebClientCustomizer httpClientWebClientCustomizer(HttpClient httpClient) {
+        return builder -> builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(httpClientMetrics.filtroWebClient());
+    }
+
+    @Bean
+    public RestTemplate restTemplate(HttpClient httpClient) {
+        ReactorClientHttpRequestFactory factory = new ReactorClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(timeoutLectura);
+
+        RestTemplate restTemplate = new RestTemplate(factory);
+        restTemplate.getInterceptors().add(httpClientMetrics.interceptorRestTemplate());
+        return restTemplate;
+    }
+
+    /**
+     * MercadoPagoConfig es estático: se configura una sola vez al arrancar, antes de que el SDK cree
+     * su cliente por defecto.
+     */
+    @PostConstruct
+    public void configurarMercadoPago() {
+        MercadoPagoConfig.setMaxConnections(maxConexionesPorHost);
+        MercadoPagoConfig.setConnectionTimeout((int) timeoutConexion.toMillis());
+        MercadoPagoConfig.setConnectionRequestTimeout((int) timeoutEspera.toMillis());
+        MercadoPagoConfig.setSocketTimeout((int) timeoutLectura.toMillis());
+        MercadoPagoConfig.setHttpClient(new InstrumentedMercadoPagoHttpClient(new MPDefaultHttpClient(), httpClientMetrics));
+    }
+}
@@ -0,0 +1,267 @@
+package com.a.prestamos.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Aplica los scripts versionados de {@code db/migration} antes de que arranque JPA. Reemplaza a
+ * {@code ddl-auto: update}: Hibernate ya no revisa ni altera el esquema al iniciar, solo lo valida.
+ * <p>
+ * Los scripts se llaman {@code V<versión>__<descripción>.sql} y se aplican en orden de versión, una sola
+ * vez; lo aplicado queda en {@code esquema_migraciones} con su checksum. Si un script ya aplicado cambia,
+ * el arranque falla: los cambios van siempre en un script nuevo.
+ * <p>
+ * Cada script corre en su propia transacción. Los que empiezan con {@code -- migracion: sin-transaccion}
+ * corren en autocommit, necesario para {@code CREATE INDEX CONCURRENTLY} (fuera de PostgreSQL se quita
+ * el {@code CONCURRENTLY}). Los que llevan {@code -- migracion: solo-postgresql} usan SQL que H2 no soporta
+ * (p. ej. índices parciales): en otra base se registran como aplicados sin ejecutarse; su equivalente para
+ * H2, si lo hay, va en otro script con {@code -- migracion: solo-h2}, que en PostgreSQL se registra sin
+ * ejecutarse. En PostgreSQL un advisory lock evita que dos nodos migren a la vez.
+ */
+@Component(MigradorEsquema.BEAN)
+@Slf4j
+public class MigradorEsquema implements InitializingBean {
+
+    public static final String BEAN = "migradorEsquema";
+
+    private static final String UBICACION = "classpath:db/migration/V*__*.sql";
+    private static final Pattern NOMBRE = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final String DIRECTIVA = "-- migracion:";
+    private static final long CLAVE_LOCK = 0x4d49475241L; // "MIGRA"
+
+    private final DataSource dataSource;
+
+    @Value("${app.migraciones.enabled:true}")
+    private boolean habilitado;
+
+    public MigradorEsquema(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (!habilitado) {
+            log.warn("Migraciones de esquema deshabilitadas (app.migraciones.enabled=false)");
+            return;
+        }
+        List<Script> scripts = cargarScripts();
+
+        try (Connection c = dataSource.getConnection()) {
+            boolean postgres = "PostgreSQL".equalsIgnoreCase(c.getMetaData().getDatabaseProductName());
+            c.setAutoCommit(true);
+            if (postgres) {
+                ejecutar(c, "SELECT pg_advisory_lock(" + CLAVE_LOCK + ")");
+            }
+            try {
+                crearHistorial(c);
+                Map<Integer, Long> aplicadas = aplicadas(c);
+
+                int nuevas = 0;
+                for (Script script : scripts) {
+                    Long checksum = aplicadas.get(script.version());
+                    if (checksum != null) {
+                        if (checksum != script.checksum()) {
+                            throw new IllegalStateException("La migración V" + script.version() + " (" + script.descripcion()
+                                    + ") cambió después de aplicarse. Los cambios de esquema van en un script nuevo.");
+                        }
+                        continue;
+                    }
+                    aplicar(c, script, postgres);
+                    nuevas++;
+                }
+                if (nuevas == 0) {
+                    log.info("Esquema al día ({} migraciones aplicadas)", aplicadas.size());
+                }
+            } finally {
+                if (postgres) {
+                    ejecutar(c, "SELECT pg_advisory_unlock(" + CLAVE_LOCK + ")");
+                }
+            }
+        }
+    }
+
+    private void aplicar(Connection c, Script script, boolean postgres) throws SQLException {
+        long inicio = System.nanoTime();
+        if (script.soloPostgresql() && !postgres) {
+            registrar(c, script, inicio);
+            log.info("Migración V{} ({}) omitida: solo aplica en PostgreSQL", script.version(), script.descripcion());
+            return;
+        }
+        if (script.soloH2() && postgres) {
+            registrar(c, script, inicio);
+            log.info("Migración V{} ({}) omitida: solo aplica en H2", script.version(), script.descripcion());
+            return;
+        }
+        List<String> sentencias = sentencias(script.sql());
+
+        if (script.transaccional()) {
+            c.setAutoCommit(false);
+            try {
+                for (String sql : sentencias) ejecutar(c, sql);
+                registrar(c, script, inicio);
+                c.commit();
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw fallo(script, e);
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } else {
+            // Sin transacción lo ya ejecutado queda hecho; los scripts de este tipo deben ser re-ejecutables
+            try {
+                for (String sql : sentencias) {
+                    ejecutar(c, postgres ? sql : sql.replaceAll("(?i)\\s+CONCURRENTLY\\b", ""));
+                }
+                registrar(c, script, inicio);
+            } catch (SQLException | RuntimeException e) {
+                throw fallo(script, e);
+            }
+        }
+        log.info("Migración V{} ({}) aplicada en {} ms", script.version(), script.descripcion(),
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private IllegalStateException fallo(Script script, Exception e) {
+        return new IllegalStateException("Falló la migración V" + script.version() + " (" + script.descripcion() + "): "
+                + e.getMessage(), e);
+    }
+
+    private void crearHistorial(Connection c) throws SQLException {
+        ejecutar(c, """
+                CREATE TABLE IF NOT EXISTS esquema_migraciones (
+                    version     integer PRIMARY KEY,
+                    descripcion varchar(200) NOT NULL,
+                    checksum    bigint NOT NULL,
+                    aplicada_en timestamp(6) with time zone NOT NULL,
+                    duracion_ms bigint NOT NULL
+                )""");
+    }
+
+    private Map<Integer, Long> aplicadas(Connection c) throws SQLException {
+        Map<Integer, Long> aplicadas = new HashMap<>();
+        try (Statement st = c.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM esquema_migraciones")) {
+            while (rs.next()) {
+                aplicadas.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        return aplicadas;
+    }
+
+    private void registrar(Connection c, Script script, long inicio) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "INSERT INTO esquema_migraciones (version, descripcion, checksum, aplicada_en, duracion_ms) VALUES (?, ?, ?, ?, ?)")) {
+            ps.setInt(1, script.version());
+            ps.setString(2, script.descripcion());
+            ps.setLong(3, script.checksum());
+            ps.setTimestamp(4, Timestamp.from(Instant.now()));
+            ps.setLong(5, (System.nanoTime() - inicio) / 1_000_000);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void ejecutar(Connection c, String sql) throws SQLException {
+        try (Statement st = c.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private static List<Script> cargarScripts() throws IOException {
+        List<Script> scripts = new ArrayList<>();
+        for (Resource recurso : new PathMatchingResourcePatternResolver().getResources(UBICACION)) {
+            Matcher m = NOMBRE.matcher(recurso.getFilename() != null ? recurso.getFilename() : "");
+            if (!m.matches()) {
+                continue;
+            }
+            String sql = StreamUtils.copyToString(recurso.getInputStream(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+            CRC32 crc = new CRC32();
+            crc.update(sql.getBytes(StandardCharsets.UTF_8));
+            Set<String> directivas = directivas(sql);
+            scripts.add(new Script(Integer.parseInt(m.group(1)), m.group(2).replace('_', ' '), sql, crc.getValue(),
+                    !directivas.contains("sin-transaccion"), directivas.contains("solo-postgresql"),
+                    directivas.contains("solo-h2")));
+        }
+        scripts.sort(Comparator.comparingInt(Script::version));
+        for (int i = 1; i < scripts.size(); i++) {
+            if (scripts.get(i).version() == scripts.get(i - 1).version()) {
+                throw new IllegalStateException("Hay dos migraciones con la versión V" + scripts.get(i).version());
+            }
+        }
+        return scripts;
+    }
+
+    /**
+     * Directivas {@code -- migracion: <nombre>} de los comentarios al inicio del script.
+     */
+    private static Set<String> directivas(String sql) {
+        Set<String> directivas = new HashSet<>();
+        for (String linea : sql.split("\n")) {
+            String limpia = linea.strip();
+            if (limpia.startsWith(DIRECTIVA)) {
+                directivas.add(limpia.substring(DIRECTIVA.length()).strip());
+            } else if (!limpia.isEmpty() && !limpia.startsWith("--")) {
+                break;
+            }
+        }
+        return directivas;
+    }
+
+    /**
+     * Parte el script en sentencias: cada una termina con {@code ;} al final de una línea. Las líneas de
+     * comentario ({@code --}) se descartan.
+     */
+    private static List<String> sentencias(String sql) {
+        List<String> sentencias = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        for (String linea : sql.split("\n")) {
+            String limpia = linea.strip();
+            if (limpia.isEmpty() || limpia.startsWith("--")) {
+                continue;
+            }
+            actual.append(linea).append('\n');
+            if (limpia.endsWith(";")) {
+                String sentencia = actual.toString().strip();
+                sentencias.add(sentencia.substring(0, sentencia.length() - 1));
+                actual.setLength(0);
+            }
+        }
+        if (!actual.toString().isBlank()) {
+            sentencias.add(actual.toString().strip());
+        }
+        return sentencias;
+    }
+
+    /**
+     * @param transaccional   {@code false} si el script lleva {@code -- migracion: sin-transaccion}.
+     * @param soloPostgresql  {@code true} si el script lleva {@code -- migracion: solo-postgresql}.
+     * @param soloH2          {@code true} si el script lleva {@code -- migracion: solo-h2}.
+     */
+    private record Script(int version, String descripcion, String sql, long checksum, boolean transaccional,
+                          boolean soloPostgresql, boolean soloH2) {}
+}
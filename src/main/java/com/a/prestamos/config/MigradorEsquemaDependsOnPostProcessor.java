@@ -0,0 +1,16 @@
+package com.a.prestamos.config;
+
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hace que el EntityManagerFactory espere a {@link MigradorEsquema}: Hibernate valida el esquema al
+ * crearse, así que las migraciones tienen que estar aplicadas antes.
+ */
+@Component
+public class MigradorEsquemaDependsOnPostProcessor extends EntityManagerFactoryDependsOnPostProcessor {
+
+    public MigradorEsquemaDependsOnPostProcessor() {
+        super(MigradorEsquema.BEAN);
+    }
+}
@@ -9,6 +9,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
+
 @RestController
 @RequestMapping("/api/v1")
 @CrossOrigin(origins = "*")
@@ -18,17 +20,17 @@ public class CajaController {
     private final CajaServiceImpl cajaService;
 
     @PostMapping("/caja/abrir")
-    public ResponseEntity<Caja> abrirCaja(@RequestBody AperturaCajaRequest request) {
-        return ResponseEntity.ok(cajaService.abrirCaja(request));
+    public ResponseEntity<Caja> abrirCaja(@RequestBody AperturaCajaRequest request, Principal principal) {
+        return ResponseEntity.ok(cajaService.abrirCaja(request, principal.getName()));
     }
 
     @GetMapping("/caja/resumen")
-    public ResponseEntity<ResumenCajaDto> obtenerResumen() {
-        return ResponseEntity.ok(cajaService.obtenerResumenActual());
+    public ResponseEntity<ResumenCajaDto> obtenerResumen(Principal principal) {
+        return ResponseEntity.ok(cajaService.obtenerResumenActual(principal.getName()));
     }
 
     @PostMapping("/caja/cerrar")
-    public ResponseEntity<Caja> cerrarCaja(@RequestBody CierreCajaRequest request) {
-        return ResponseEntity.ok(cajaService.cerrarCaja(request));
+    public ResponseEntity<Caja> cerrarCaja(@RequestBody CierreCajaRequest request, Principal principal) {
+        return ResponseEntity.ok(cajaService.cerrarCaja(request, principal.getName()));
     }
 }
\ No newline at end of file
@@ -1,13 +1,19 @@
 package com.a.prestamos.controller;
 
 import com.a.prestamos.model.dto.cliente.ClienteDto;
+import com.a.prestamos.model.dto.cliente.VerificacionLoteDto;
 import com.a.prestamos.model.dto.cliente.VerificarClienteRequest;
-import com.a.prestamos.model.entity.Cliente;
 import com.a.prestamos.service.IClienteService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1")
@@ -18,19 +24,58 @@ public class ClienteController {
 
     /**
      * Endpoint para verificar un DNI contra un servicio externo y crear el cliente si no existe.
+     * La consulta a RENIEC/SUNAT no bloquea el hilo de Tomcat: la respuesta se completa de forma asíncrona.
      *
      * @param request El cuerpo de la solicitud conteniendo el DNI.
      * @return Una respuesta HTTP 200 OK con los datos del cliente si la verificación es exitosa.
      */
     @PostMapping("/cliente/verificar")
-    public ResponseEntity<?> verifyCustomer(@Valid @RequestBody VerificarClienteRequest request) {
-        try {
-            Cliente verifiedCustomer = clienteService.verifyByDocumentId(request.documentId());
-            ClienteDto responseDto = ClienteDto.fromEntity(verifiedCustomer);
-            return ResponseEntity.ok(responseDto);
-        } catch (Exception ex) {
-            return ResponseEntity.status(400).body("Error al verificar al cliente: " + ex.getMessage());
-        }
+    public Mono<ResponseEntity<?>> verifyCustomer(@Valid @RequestBody VerificarClienteRequest request) {
+        return clienteService.verifyByDocumentIdAsync(request.documentId())
+                .<ResponseEntity<?>>map(verifiedCustomer -> ResponseEntity.ok(ClienteDto.fromEntity(verifiedCustomer)))
+                .onErrorResume(ex -> Mono.just(
+                        ResponseEntity.status(400).body("Error al verificar al cliente: " + ex.getMessage())));
+    }
+
+    /**
+     * Verificación masiva de DNIs/RUCs (campañas). Recibe un arreglo JSON de documentos y devuelve
+     * un reporte NDJSON, una línea por documento, a medida que se resuelven.
+     *
+     * POST /api/v1/cliente/verificar/lote  (Content-Type: application/json)
+     */
+    @PostMapping(value = "/cliente/verificar/lote",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<VerificacionLoteDto> verifyCustomersBatch(@RequestBody List<String> documentIds) {
+        return clienteService.verifyBatch(documentIds);
     }
 
+    /**
+     * Igual que el anterior, recibiendo un CSV (un documento por línea o separados por coma/punto y coma).
+     * Si la primera línea es una cabecera, se ignora.
+     *
+     * POST /api/v1/cliente/verificar/lote  (Content-Type: text/csv)
+     */
+    @PostMapping(value = "/cliente/verificar/lote",
+            consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<VerificacionLoteDto> verifyCustomersBatchCsv(@RequestBody String csv) {
+        return clienteService.verifyBatch(leerCsv(csv));
+    }
+
+    private static List<String> leerCsv(String csv) {
+        List<String> documentos = new ArrayList<>();
+        String[] lineas = csv.split("\\R");
+        for (int i = 0; i < lineas.length; i++) {
+            String linea = lineas[i].replace("\"", "").trim();
+            if (linea.isEmpty()) continue;
+            if (i == 0 && !Character.isDigit(linea.charAt(0))) continue; // cabecera
+
+            for (String campo : linea.split("[,;]")) {
+                String documento = campo.trim();
+                if (!documento.isEmpty()) documentos.add(documento);
+            }
+        }
+        return documentos;
+    }
 }
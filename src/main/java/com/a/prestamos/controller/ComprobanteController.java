@@ -1,8 +1,10 @@
 package com.a.prestamos.controller;
 
 import com.a.prestamos.model.dto.comprobante.ComprobanteDto;
+import com.a.prestamos.model.dto.comprobante.ReemisionProgresoDto;
 import com.a.prestamos.model.entity.Comprobante;
 import com.a.prestamos.service.IComprobanteService;
+import com.a.prestamos.service.impl.EmisionComprobanteServiceImpl;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,9 +18,32 @@ import java.util.List;
 public class ComprobanteController {
 
     private final IComprobanteService comprobanteService;
+    private final EmisionComprobanteServiceImpl emisionComprobanteService;
 
     @GetMapping("/comprobantes/cuota/{cuotaId}")
     public ResponseEntity<List<ComprobanteDto>> listarPorCuota(@PathVariable Long cuotaId) {
         return ResponseEntity.ok(comprobanteService.buscarPorCuota(cuotaId));
     }
+
+    /**
+     * Re-emite en lote todos los pagos ACTIVO sin comprobante (backlog tras una caída de SUNAT).
+     *
+     * POST /api/v1/comprobantes/reemision?concurrencia=4&porSegundo=5
+     */
+    @PostMapping("/comprobantes/reemision")
+    public ResponseEntity<ReemisionProgresoDto> reemitirPendientes(
+            @RequestParam(required = false) Integer concurrencia,
+            @RequestParam(required = false) Double porSegundo) {
+        return ResponseEntity.accepted().body(emisionComprobanteService.reemitirPendientes(concurrencia, porSegundo));
+    }
+
+    /**
+     * Avance de la última re-emisión masiva (incluye los fallos por pago).
+     *
+     * GET /api/v1/comprobantes/reemision
+     */
+    @GetMapping("/comprobantes/reemision")
+    public ResponseEntity<ReemisionProgresoDto> obtenerProgresoReemision() {
+        return ResponseEntity.ok(emisionComprobanteService.obtenerProgresoReemision());
+    }
 }
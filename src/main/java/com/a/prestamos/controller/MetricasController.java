@@ -0,0 +1,85 @@
+package com.a.prestamos.controller;
+
+import com.a.prestamos.client.CircuitBreaker;
+import com.a.prestamos.client.DocumentConsumer;
+import com.a.prestamos.client.DocumentLookupCache;
+import com.a.prestamos.client.HttpClientMetrics;
+import com.a.prestamos.model.dto.metricas.HttpMetricasDto;
+import com.a.prestamos.security.UsuarioCache;
+import com.a.prestamos.service.impl.CajaAbiertaCache;
+import com.a.prestamos.service.impl.JwtService;
+import com.a.prestamos.service.impl.ReintentoOptimistaService;
+import com.a.prestamos.service.impl.SimulacionServiceImpl;
+import com.a.prestamos.util.LruTtlCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class MetricasController {
+
+    private final HttpClientMetrics httpClientMetrics;
+    private final DocumentLookupCache documentLookupCache;
+    private final DocumentConsumer documentConsumer;
+    private final SimulacionServiceImpl simulacionService;
+    private final ReintentoOptimistaService reintentoOptimista;
+    private final CajaAbiertaCache cajaAbiertaCache;
+    private final JwtService jwtService;
+    private final UsuarioCache usuarioCache;
+
+    /**
+     * Latencia, errores y uso de pools de las integraciones externas.
+     *
+     * GET /api/v1/metricas/http
+     */
+    @GetMapping("/metricas/http")
+    public ResponseEntity<HttpMetricasDto> metricasHttp() {
+        return ResponseEntity.ok(httpClientMetrics.snapshot());
+    }
+
+    /**
+     * Aciertos, fallos y ocupación de las caches en memoria.
+     *
+     * GET /api/v1/metricas/cache
+     */
+    @GetMapping("/metricas/cache")
+    public ResponseEntity<Map<String, LruTtlCache.Estadisticas>> metricasCache() {
+        Map<String, LruTtlCache.Estadisticas> caches = new LinkedHashMap<>();
+        caches.put("reniec", documentLookupCache.estadisticasReniec());
+        caches.put("sunat", documentLookupCache.estadisticasSunat());
+        caches.put("simulacion", simulacionService.estadisticas());
+        caches.put("cajas", cajaAbiertaCache.estadisticas());
+        caches.put("jwt", jwtService.estadisticas());
+        caches.put("usuarios", usuarioCache.estadisticas());
+        return ResponseEntity.ok(caches);
+    }
+
+    /**
+     * Estado de los circuit breakers de RENIEC y SUNAT.
+     *
+     * GET /api/v1/metricas/circuitos
+     */
+    @GetMapping("/metricas/circuitos")
+    public ResponseEntity<Map<String, CircuitBreaker.Estado>> circuitos() {
+        Map<String, CircuitBreaker.Estado> circuitos = new LinkedHashMap<>();
+        circuitos.put("reniec", documentConsumer.estadoCircuitoReniec());
+        circuitos.put("sunat", documentConsumer.estadoCircuitoSunat());
+        return ResponseEntity.ok(circuitos);
+    }
+
+    /**
+     * Conflictos de concurrencia optimista en pagos (reintentados y agotados).
+     *
+     * GET /api/v1/metricas/conflictos
+     */
+    @GetMapping("/metricas/conflictos")
+    public ResponseEntity<ReintentoOptimistaService.Estadisticas> conflictos() {
+        return ResponseEntity.ok(reintentoOptimista.estadisticas());
+    }
+}
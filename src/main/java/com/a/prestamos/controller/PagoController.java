@@ -12,6 +12,7 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.security.Principal;
 import java.util.List;
 import java.util.Map;
 
@@ -31,9 +32,9 @@ public class PagoController {
      * POST /api/v1/pagos
      */
     @PostMapping("/pagos")
-    public ResponseEntity<PagoResponse> registrarPago(@Valid @RequestBody PagoRequest request) {
+    public ResponseEntity<PagoResponse> registrarPago(@Valid @RequestBody PagoRequest request, Principal principal) {
         log.info("Registrando pago para cuota ID: {}, método: {}", request.cuotaId(), request.metodoPago());
-        PagoResponse response = pagoService.registrarPago(request);
+        PagoResponse response = pagoService.registrarPago(request, principal.getName());
         return ResponseEntity.ok(response);
     }
 
@@ -45,9 +46,10 @@ public class PagoController {
     @PostMapping("/pagos/mercadopago/preferencia")
     public ResponseEntity<MercadoPagoPreferenceResponse> crearPreferenciaMercadoPago(
             @RequestParam Long cuotaId,
-            @RequestParam BigDecimal monto) {
+            @RequestParam BigDecimal monto,
+            Principal principal) {
         log.info("Creando preferencia MP para cuota ID: {}, monto: {}", cuotaId, monto);
-        MercadoPagoPreferenceResponse response = pagoService.crearPreferenciaMercadoPago(cuotaId, monto);
+        MercadoPagoPreferenceResponse response = pagoService.crearPreferenciaMercadoPago(cuotaId, monto, principal.getName());
         return ResponseEntity.ok(response);
     }
 
@@ -1,17 +1,27 @@
 package com.a.prestamos.controller;
 
 import com.a.prestamos.model.dto.prestamo.DetallePrestamoDto;
+import com.a.prestamos.model.dto.prestamo.OriginacionLoteDto;
 import com.a.prestamos.model.dto.prestamo.PrestamoRequest;
+import com.a.prestamos.model.dto.prestamo.SimulacionDto;
+import com.a.prestamos.model.dto.prestamo.SimulacionRequest;
 import com.a.prestamos.model.entity.Prestamo;
 import com.a.prestamos.service.IPrestamoService;
+import com.a.prestamos.service.impl.OriginacionLoteServiceImpl;
+import com.a.prestamos.service.impl.SimulacionServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Pattern;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 
 @RestController
@@ -22,6 +32,15 @@ public class PrestamoController {
     @Autowired
     private IPrestamoService loanService;
 
+    @Autowired
+    private SimulacionServiceImpl simulacionService;
+
+    @Autowired
+    private OriginacionLoteServiceImpl originacionLoteService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * Endpoint para crear un nuevo préstamo.
      *
@@ -55,9 +74,36 @@ public class PrestamoController {
             @Pattern(regexp = "\\d{8}|\\d{11}", message = "DNI/RUC.")
             String documentId) {
 
-        Prestamo foundLoan = loanService.findLoanByDocumentId(documentId);
-        DetallePrestamoDto responseDto = DetallePrestamoDto.fromEntity(foundLoan);
+        DetallePrestamoDto responseDto = loanService.findLoanDetailByDocumentId(documentId);
 
         return ResponseEntity.ok(responseDto);
     }
+
+    /**
+     * Cotización sin crear el préstamo: devuelve el cronograma que generaría POST /prestamo.
+     * No valida al cliente ni escribe en la base de datos.
+     *
+     * @param request Principal, TEA, plazo y fecha de inicio (opcional, por defecto hoy).
+     * @return Respuesta HTTP 200 OK con el cronograma simulado.
+     */
+    @PostMapping("/prestamo/simulacion")
+    public ResponseEntity<SimulacionDto> simulateLoan(@Valid @RequestBody SimulacionRequest request) {
+        return ResponseEntity.ok(simulacionService.simular(request));
+    }
+
+    /**
+     * Originación masiva (migración de cartera). Recibe las solicitudes como arreglo JSON o NDJSON (una por
+     * línea), las lee a medida que avanza y devuelve un reporte NDJSON con una línea por fila.
+     * Si se interrumpe, reenviar el mismo archivo con el mismo {@code importacion} retoma donde quedó.
+     *
+     * POST /api/v1/prestamo/lote?importacion=migracion-2025-01
+     */
+    @PostMapping(value = "/prestamo/lote",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<OriginacionLoteDto> createLoansBatch(@RequestParam String importacion,
+                                                     InputStream body) throws IOException {
+        return originacionLoteService.originarLote(importacion,
+                objectMapper.readerFor(PrestamoRequest.class).readValues(body));
+    }
 }
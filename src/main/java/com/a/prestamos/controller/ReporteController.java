@@ -0,0 +1,26 @@
+package com.a.prestamos.controller;
+
+import com.a.prestamos.model.dto.reporte.AgingDto;
+import com.a.prestamos.service.impl.ReporteAgingServiceImpl;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+public class ReporteController {
+
+    private final ReporteAgingServiceImpl reporteAgingService;
+
+    /**
+     * Saldo vencido y mora de toda la cartera ACTIVO por tramo de atraso (1-30, 31-60, 61-90, 90+ días).
+     *
+     * GET /api/v1/reportes/aging
+     */
+    @GetMapping("/reportes/aging")
+    public ResponseEntity<AgingDto> aging() {
+        return ResponseEntity.ok(reporteAgingService.calcularAging());
+    }
+}
@@ -3,12 +3,15 @@ package com.a.prestamos.model.dao;
 import com.a.prestamos.model.entity.Caja;
 import com.a.prestamos.model.entity.enums.CajaState;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.List;
 import java.util.Optional;
 
 public interface CajaDao extends JpaRepository<Caja, Long> {
-    // Buscar si hay una caja abierta para un usuario (o global si es caja única)
-    Optional<Caja> findByEstado(CajaState estado);
+    // Caja abierta de un cajero: cada usuario trabaja con la suya
+    Optional<Caja> findByUsuarioAndEstado(String usuario, CajaState estado);
 
-    // Si manejas usuarios:
-    // Optional<Caja> findByUsuarioAndEstado(String usuario, CajaState estado);
+    List<Caja> findAllByEstado(CajaState estado);
+
+    // Confirma en la BD una caja leída de la caché (pudo cerrarse en otro nodo)
+    boolean existsByIdAndEstado(Long id, CajaState estado);
 }
\ No newline at end of file
@@ -2,11 +2,17 @@ package com.a.prestamos.model.dao;
 
 import com.a.prestamos.model.entity.Comprobante;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface ComprobanteDao extends JpaRepository<Comprobante, Long> {
-    long countComprobantesBySerie(String serie);
+    /**
+     * Mayor correlativo emitido en la serie. Solo se usa para inicializar el contador de la serie.
+     */
+    @Query("SELECT COALESCE(MAX(c.sequential), 0) FROM Comprobante c WHERE c.serie = :serie")
+    long findMaxSequentialBySerie(@Param("serie") String serie);
 
     boolean existsByPaymentId(Long paymentId);
 
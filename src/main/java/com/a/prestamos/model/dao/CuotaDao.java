@@ -2,7 +2,9 @@ package com.a.prestamos.model.dao;
 
 import com.a.prestamos.model.entity.Cuota;
 import com.a.prestamos.model.entity.enums.InstallmentState;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -29,11 +31,67 @@ public interface CuotaDao extends JpaRepository<Cuota, Long> {
             "AND c.dueDate < :fecha AND c.installmentState != 'PAGADO' ORDER BY c.num ASC")
     List<Cuota> findCuotasVencidas(@Param("loanId") Long loanId, @Param("fecha") LocalDate fecha);
 
+    /**
+     * Rango de IDs [min, max] de las cuotas que vencen en [desde, hasta). Una sola fila.
+     */
+    @Query("SELECT MIN(c.id), MAX(c.id) FROM Cuota c WHERE c.dueDate >= :desde AND c.dueDate < :hasta")
+    List<Object[]> findRangoIdsPorVencimiento(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    /**
+     * Pasa a VENCIDO, dentro de un bloque de IDs (desdeId, hastaId], las cuotas con saldo que vencen en
+     * [desde, hasta) y aún figuran como pendientes o pagadas parcialmente.
+     * Se ejecuta dentro de la transacción de cada bloque del job de vencimientos. Sube la versión para que
+     * un pago que leyó la cuota antes del cambio se reintente en vez de pisarlo.
+     */
+    @Modifying
+    @Query("UPDATE Cuota c SET c.installmentState = 'VENCIDO', c.version = c.version + 1 " +
+            "WHERE c.id > :desdeId AND c.id <= :hastaId AND c.dueDate >= :desde AND c.dueDate < :hasta " +
+            "AND c.balance > 0 AND c.installmentState IN ('PENDIENTE', 'PAGADO_PARCIAL')")
+    int marcarVencidasEnBloque(@Param("desdeId") Long desdeId, @Param("hastaId") Long hastaId,
+                               @Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    /**
+     * Siguiente bloque (por ID) de cuotas vencidas con saldo, para el devengo diario de mora:
+     * filas (id, dueDate, balance, mesesMora, moraAcumulada).
+     */
+    @Query("SELECT c.id, c.dueDate, c.balance, c.mesesMora, c.moraAcumulada FROM Cuota c " +
+            "WHERE c.id > :despuesDe AND c.dueDate < :fecha AND c.balance > 0 ORDER BY c.id ASC")
+    List<Object[]> findMoraVencidasDesde(@Param("despuesDe") Long despuesDe, @Param("fecha") LocalDate fecha,
+                                         Pageable pageable);
+
+    /**
+     * Guarda la mora devengada solo si el saldo sigue siendo el leído: si entretanto entró un pago,
+     * el pago ya dejó la mora al día y esta fila se omite. Sube la versión igual que el paso a VENCIDO.
+     */
+    @Modifying
+    @Query("UPDATE Cuota c SET c.moraAcumulada = :mora, c.mesesMora = :meses, c.moraCalculadaAl = :fecha, " +
+            "c.version = c.version + 1 " +
+            "WHERE c.id = :id AND c.balance = :saldo")
+    int devengarMora(@Param("id") Long id, @Param("saldo") BigDecimal saldo, @Param("meses") Integer meses,
+                     @Param("mora") BigDecimal mora, @Param("fecha") LocalDate fecha);
+
+    /**
+     * Rango de IDs [min, max] de las cuotas vencidas con saldo de préstamos ACTIVO. Una sola fila.
+     */
+    @Query("SELECT MIN(c.id), MAX(c.id) FROM Cuota c " +
+            "WHERE c.loan.loanState = 'ACTIVO' AND c.balance > 0 AND c.dueDate < :fecha")
+    List<Object[]> findRangoIdsAging(@Param("fecha") LocalDate fecha);
+
+    /**
+     * Siguiente bloque de cuotas para el reporte de antigüedad dentro de (desdeId, hastaId]:
+     * filas (id, dueDate, balance).
+     */
+    @Query("SELECT c.id, c.dueDate, c.balance FROM Cuota c " +
+            "WHERE c.id > :desdeId AND c.id <= :hastaId AND c.loan.loanState = 'ACTIVO' " +
+            "AND c.balance > 0 AND c.dueDate < :fecha ORDER BY c.id ASC")
+    List<Object[]> findAgingEnRango(@Param("desdeId") Long desdeId, @Param("hastaId") Long hastaId,
+                                    @Param("fecha") LocalDate fecha, Pageable pageable);
+
     /**
      * Busca la primera cuota pendiente o vencida de un préstamo.
      */
     @Query("SELECT c FROM Cuota c WHERE c.loan.id = :loanId " +
-            "AND c.installmentState IN ('PENDIENTE', 'VENCIDA') ORDER BY c.num ASC")
+            "AND c.installmentState IN ('PENDIENTE', 'VENCIDO') ORDER BY c.num ASC")
     List<Cuota> findCuotasPendientesOrVencidas(@Param("loanId") Long loanId);
 
     /**
@@ -64,9 +122,12 @@ public interface CuotaDao extends JpaRepository<Cuota, Long> {
     List<Cuota> findByClienteDocumentId(@Param("dni") String documentId);
 
     /**
-     * Verifica si existen cuotas anteriores pendientes.
+     * Verifica si existen cuotas anteriores pendientes. Se detiene en la primera que encuentra
+     * (SELECT ... LIMIT 1 sobre idx_cuotas_loan_num) en vez de contarlas todas.
      */
-    @Query("SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM Cuota c " +
-            "WHERE c.loan.id = :loanId AND c.num < :numCuota AND c.installmentState != 'PAGADO'")
-    boolean existenCuotasAnterioresPendientes(@Param("loanId") Long loanId, @Param("numCuota") Integer numCuota);
+    default boolean existenCuotasAnterioresPendientes(Long loanId, Integer numCuota) {
+        return existsByLoanIdAndNumLessThanAndInstallmentStateNot(loanId, numCuota, InstallmentState.PAGADO);
+    }
+
+    boolean existsByLoanIdAndNumLessThanAndInstallmentStateNot(Long loanId, Integer num, InstallmentState installmentState);
 }
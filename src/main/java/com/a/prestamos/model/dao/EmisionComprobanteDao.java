@@ -0,0 +1,116 @@
+package com.a.prestamos.model.dao;
+
+import com.a.prestamos.model.entity.EmisionComprobante;
+import com.a.prestamos.model.entity.enums.EmissionState;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface EmisionComprobanteDao extends JpaRepository<EmisionComprobante, Long> {
+    /**
+     * IDs listos para procesar: pendientes cuyo reintento ya venció, o reclamados
+     * por un worker cuyo lease expiró.
+     */
+    @Query("SELECT e.id FROM EmisionComprobante e " +
+            "WHERE (e.state = 'PENDIENTE' AND e.nextAttemptAt <= :ahora) " +
+            "OR (e.state = 'EN_PROCESO' AND e.lockedUntil < :ahora) " +
+            "ORDER BY e.nextAttemptAt ASC")
+    List<Long> findIdsListos(@Param("ahora") Instant ahora, Pageable pageable);
+
+    /**
+     * Reclama un registro de forma atómica si sigue en el intento {@code intentos} que leyó el worker.
+     * Devuelve 1 si este worker lo obtuvo, 0 si otro se adelantó. El intento reclamado ({@code intentos + 1})
+     * es el token del lease: las actualizaciones finales solo aplican si el registro sigue en ese intento.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmisionComprobante e SET e.state = 'EN_PROCESO', e.lockedUntil = :hasta, " +
+            "e.attempts = e.attempts + 1, e.updatedAt = :ahora " +
+            "WHERE e.id = :id AND e.attempts = :intentos AND ((e.state = 'PENDIENTE' AND e.nextAttemptAt <= :ahora) " +
+            "OR (e.state = 'EN_PROCESO' AND e.lockedUntil < :ahora))")
+    int reclamar(@Param("id") Long id, @Param("intentos") int intentos,
+                 @Param("ahora") Instant ahora, @Param("hasta") Instant hasta);
+
+    /**
+     * Las tres actualizaciones finales van cercadas por el intento reclamado: un worker cuyo lease venció
+     * (y que otro retomó) ya no pisa el estado. Devuelven 0 en ese caso.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmisionComprobante e SET e.state = 'EMITIDO', e.lockedUntil = null, " +
+            "e.lastError = null, e.updatedAt = :ahora " +
+            "WHERE e.id = :id AND e.state = 'EN_PROCESO' AND e.attempts = :intento")
+    int marcarEmitido(@Param("id") Long id, @Param("intento") int intento, @Param("ahora") Instant ahora);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmisionComprobante e SET e.state = 'PENDIENTE', e.lockedUntil = null, " +
+            "e.nextAttemptAt = :proximo, e.lastError = :error, e.updatedAt = :ahora " +
+            "WHERE e.id = :id AND e.state = 'EN_PROCESO' AND e.attempts = :intento")
+    int reprogramar(@Param("id") Long id, @Param("intento") int intento, @Param("proximo") Instant proximo,
+                    @Param("error") String error, @Param("ahora") Instant ahora);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmisionComprobante e SET e.state = 'FALLIDO', e.lockedUntil = null, " +
+            "e.lastError = :error, e.updatedAt = :ahora " +
+            "WHERE e.id = :id AND e.state = 'EN_PROCESO' AND e.attempts = :intento")
+    int marcarFallido(@Param("id") Long id, @Param("intento") int intento,
+                      @Param("error") String error, @Param("ahora") Instant ahora);
+
+    /**
+     * Guarda el correlativo reservado en su propia transacción: aunque la emisión haga rollback,
+     * el reintento reutiliza el mismo número.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE EmisionComprobante e SET e.serie = :serie, e.sequential = :numero WHERE e.id = :id")
+    int asignarCorrelativo(@Param("id") Long id, @Param("serie") String serie, @Param("numero") Long numero);
+
+    @Query("SELECT e.payment.id FROM EmisionComprobante e WHERE e.id = :id")
+    Long findPaymentIdById(@Param("id") Long id);
+
+    @Query("SELECT e.attempts FROM EmisionComprobante e WHERE e.id = :id")
+    Integer findAttemptsById(@Param("id") Long id);
+
+    boolean existsByPaymentId(Long paymentId);
+
+    /**
+     * Pares (pagoId, emisionId) de los pagos que ya están en la bandeja.
+     */
+    @Query("SELECT e.payment.id, e.id FROM EmisionComprobante e WHERE e.payment.id IN :pagoIds")
+    List<Object[]> findIdsByPaymentIdIn(@Param("pagoIds") Collection<Long> pagoIds);
+
+    /**
+     * Reactiva emisiones que agotaron sus reintentos (re-emisión masiva).
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmisionComprobante e SET e.state = 'PENDIENTE', e.attempts = 0, e.nextAttemptAt = :ahora, " +
+            "e.updatedAt = :ahora WHERE e.state = 'FALLIDO' AND e.id IN :ids")
+    int reactivarFallidos(@Param("ids") Collection<Long> ids, @Param("ahora") Instant ahora);
+
+    /**
+     * Adelanta al momento actual el reintento de emisiones pendientes que esperan su backoff
+     * (re-emisión masiva), sin tocar el contador de intentos.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmisionComprobante e SET e.nextAttemptAt = :ahora, e.updatedAt = :ahora " +
+            "WHERE e.state = 'PENDIENTE' AND e.nextAttemptAt > :ahora AND e.id IN :ids")
+    int adelantarPendientes(@Param("ids") Collection<Long> ids, @Param("ahora") Instant ahora);
+
+    @Query("SELECT e.state FROM EmisionComprobante e WHERE e.id = :id")
+    EmissionState findStateById(@Param("id") Long id);
+
+    Optional<EmisionComprobante> findByPaymentId(Long paymentId);
+}
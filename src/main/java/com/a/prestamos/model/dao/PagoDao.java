@@ -1,12 +1,15 @@
 package com.a.prestamos.model.dao;
 
+import com.a.prestamos.model.entity.Caja;
 import com.a.prestamos.model.entity.Pago;
 import com.a.prestamos.model.entity.enums.PaymentState;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -38,8 +41,8 @@ public interface PagoDao extends JpaRepository<Pago, Long> {
      */
     @Query("SELECT p FROM Pago p WHERE p.paymentDate BETWEEN :inicio AND :fin AND p.paymentState = :estado ORDER BY p.paymentDate")
     List<Pago> findByFechaPagoBetweenAndEstado(
-            @Param("inicio") LocalDateTime inicio,
-            @Param("fin") LocalDateTime fin,
+            @Param("inicio") Instant inicio,
+            @Param("fin") Instant fin,
             @Param("estado") PaymentState estado
     );
 
@@ -59,18 +62,35 @@ public interface PagoDao extends JpaRepository<Pago, Long> {
     @Query("SELECT COALESCE(SUM(p.amountPaid), 0) FROM Pago p " +
             "WHERE p.paymentDate BETWEEN :inicio AND :fin AND p.paymentState = 'ACTIVO'")
     java.math.BigDecimal sumMontoPagadoByFechaBetween(
-            @Param("inicio") LocalDateTime inicio,
-            @Param("fin") LocalDateTime fin
+            @Param("inicio") Instant inicio,
+            @Param("fin") Instant fin
     );
 
     /**
-     * Suma los pagos agrupados por método de pago desde una fecha dada.
-     * Útil para el arqueo de caja.
+     * Suma los pagos activos de una caja agrupados por método de pago: filas (método, monto, redondeo).
+     * Solo la usa la verificación de los totales de caja; el resumen lee {@code caja_totales}.
      */
     @Query("SELECT p.paymentMethod, SUM(p.amountPaid), SUM(p.rounding) " +
             "FROM Pago p " +
-            "WHERE p.paymentDate >= :fechaInicio " +
+            "WHERE p.caja.id = :cajaId " +
             "AND p.paymentState = 'ACTIVO' " +
             "GROUP BY p.paymentMethod")
-    List<Object[]> sumarPagosPorMetodoDesde(@Param("fechaInicio") java.time.Instant fechaInicio);
+    List<Object[]> sumarPagosPorMetodoDeCaja(@Param("cajaId") Long cajaId);
+
+    /**
+     * Asigna a la caja los pagos activos sin caja desde su apertura. Solo para una caja abierta antes de
+     * que los pagos guardaran su caja.
+     */
+    @Modifying
+    @Query("UPDATE Pago p SET p.caja = :caja " +
+            "WHERE p.caja IS NULL AND p.paymentDate >= :fechaInicio AND p.paymentState = 'ACTIVO'")
+    int asignarCajaDesde(@Param("caja") Caja caja, @Param("fechaInicio") java.time.Instant fechaInicio);
+
+    /**
+     * Siguiente página de IDs de pagos ACTIVO sin comprobante (backlog de emisión) con ID mayor a
+     * {@code despuesDe}. Keyset sobre la PK: cada página cuesta lo mismo aunque el atraso sea grande.
+     */
+    @Query("SELECT p.id FROM Pago p WHERE p.id > :despuesDe AND p.paymentState = 'ACTIVO' " +
+            "AND NOT EXISTS (SELECT c.id FROM Comprobante c WHERE c.payment = p) ORDER BY p.id ASC")
+    List<Long> findIdsActivosSinComprobanteDesde(@Param("despuesDe") Long despuesDe, Pageable pageable);
 }
@@ -2,8 +2,13 @@ package com.a.prestamos.model.dao;
 
 import com.a.prestamos.model.entity.Prestamo;
 import com.a.prestamos.model.entity.enums.LoanState;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface PrestamoDao extends JpaRepository<Prestamo, Long> {
@@ -12,5 +17,20 @@ public interface PrestamoDao extends JpaRepository<Prestamo, Long> {
 
     Optional<Prestamo> findByCustomerDocumentIdAndLoanState(String customerDocumentId, LoanState loanState);
 
+    /**
+     * Préstamo con su cliente y cronograma en una sola consulta (JOIN FETCH), para la pantalla de detalle.
+     */
+    @EntityGraph(attributePaths = {"customer", "installments"})
+    @Query("SELECT p FROM Prestamo p WHERE p.customer.documentId = :documentId AND p.loanState = :loanState")
+    Optional<Prestamo> findDetalleByDocumentIdAndLoanState(@Param("documentId") String documentId,
+                                                           @Param("loanState") LoanState loanState);
+
     boolean existsByCustomerDocumentId_AndLoanState(String customerDocumentId, LoanState loanState);
+
+    /**
+     * De los documentos dados, los que ya tienen un préstamo ACTIVO (una consulta por bloque de la originación masiva).
+     */
+    @Query("SELECT p.customer.documentId FROM Prestamo p " +
+            "WHERE p.customer.documentId IN :documentIds AND p.loanState = 'ACTIVO'")
+    List<String> findDocumentIdsConPrestamoActivo(@Param("documentIds") Collection<String> documentIds);
 }
@@ -0,0 +1,29 @@
+package com.a.prestamos.model.dao;
+
+import com.a.prestamos.model.entity.SerieCorrelativo;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface SerieCorrelativoDao extends JpaRepository<SerieCorrelativo, String> {
+    /**
+     * Lee el contador de la serie bloqueando la fila hasta el fin de la transacción.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SerieCorrelativo s WHERE s.serie = :serie")
+    Optional<SerieCorrelativo> findForUpdate(@Param("serie") String serie);
+
+    /**
+     * INSERT explícito: con el ID asignado, {@code save} haría un merge y, si otro nodo ya creó la fila,
+     * la sobrescribiría con un UPDATE en vez de fallar por PK duplicada.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO series_correlativo (serie, last_reserved, updated_at) VALUES (:serie, :ultimo, CURRENT_TIMESTAMP)",
+            nativeQuery = true)
+    int insertar(@Param("serie") String serie, @Param("ultimo") long ultimo);
+}
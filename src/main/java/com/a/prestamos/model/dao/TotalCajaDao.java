@@ -0,0 +1,44 @@
+package com.a.prestamos.model.dao;
+
+import com.a.prestamos.model.entity.TotalCaja;
+import com.a.prestamos.model.entity.enums.PaymentMethod;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface TotalCajaDao extends JpaRepository<TotalCaja, Long> {
+
+    List<TotalCaja> findByCajaId(Long cajaId);
+
+    /**
+     * Lee los totales de la caja bloqueando sus filas hasta el fin de la transacción: los pagos que
+     * intenten sumar esperan (cierre de caja y verificación).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM TotalCaja t WHERE t.caja.id = :cajaId")
+    List<TotalCaja> findByCajaIdForUpdate(@Param("cajaId") Long cajaId);
+
+    /**
+     * Suma un pago al total de su caja y método en un solo UPDATE (la suma la hace la BD, así dos pagos
+     * simultáneos no se pisan). Devuelve 0 si la caja ya se cerró: si el cierre está en curso, el UPDATE
+     * espera su bloqueo y luego ve la fila cerrada.
+     */
+    @Modifying
+    @Query("UPDATE TotalCaja t SET t.montoPagado = t.montoPagado + :monto, t.redondeo = t.redondeo + :redondeo " +
+            "WHERE t.caja.id = :cajaId AND t.paymentMethod = :metodo AND t.abierta = true")
+    int sumar(@Param("cajaId") Long cajaId, @Param("metodo") PaymentMethod metodo,
+              @Param("monto") BigDecimal monto, @Param("redondeo") BigDecimal redondeo);
+
+    /**
+     * Marca cerradas las filas de la caja. Va en la transacción de cierre, con las filas ya bloqueadas.
+     */
+    @Modifying
+    @Query("UPDATE TotalCaja t SET t.abierta = false WHERE t.caja.id = :cajaId")
+    int cerrar(@Param("cajaId") Long cajaId);
+}
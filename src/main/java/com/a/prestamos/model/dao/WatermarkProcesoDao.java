@@ -0,0 +1,56 @@
+package com.a.prestamos.model.dao;
+
+import com.a.prestamos.model.entity.WatermarkProceso;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+public interface WatermarkProcesoDao extends JpaRepository<WatermarkProceso, String> {
+    /**
+     * Toma el proceso para este nodo. Devuelve 1 si lo obtuvo, 0 si otro nodo lo está ejecutando.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE WatermarkProceso w SET w.lockedUntil = :hasta, w.updatedAt = :ahora " +
+            "WHERE w.name = :name AND (w.lockedUntil IS NULL OR w.lockedUntil < :ahora)")
+    int reclamar(@Param("name") String name, @Param("ahora") Instant ahora, @Param("hasta") Instant hasta);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE WatermarkProceso w SET w.lockedUntil = null WHERE w.name = :name")
+    int liberar(@Param("name") String name);
+
+    /**
+     * Guarda el avance de la ejecución en curso (se llama dentro de la transacción de cada bloque).
+     */
+    @Modifying
+    @Query("UPDATE WatermarkProceso w SET w.targetDate = :objetivo, w.lastId = :lastId, w.updatedAt = :ahora " +
+            "WHERE w.name = :name")
+    int registrarAvance(@Param("name") String name, @Param("objetivo") LocalDate objetivo,
+                        @Param("lastId") Long lastId, @Param("ahora") Instant ahora);
+
+    /**
+     * Guarda el último ID (o fila) confirmado y renueva el lease, para procesos largos que avanzan por bloques.
+     * Se llama dentro de la transacción de cada bloque.
+     */
+    @Modifying
+    @Query("UPDATE WatermarkProceso w SET w.lastId = :lastId, w.lockedUntil = :hasta, w.updatedAt = :ahora " +
+            "WHERE w.name = :name")
+    int avanzar(@Param("name") String name, @Param("lastId") Long lastId,
+                @Param("hasta") Instant hasta, @Param("ahora") Instant ahora);
+
+    /**
+     * Cierra la ejecución: todo lo anterior a {@code hasta} quedó procesado.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE WatermarkProceso w SET w.processedUntil = :hasta, w.targetDate = null, w.lastId = null, " +
+            "w.lastRunRows = :filas, w.lastRunMillis = :millis, w.updatedAt = :ahora WHERE w.name = :name")
+    int completar(@Param("name") String name, @Param("hasta") LocalDate hasta, @Param("filas") Long filas,
+                  @Param("millis") Long millis, @Param("ahora") Instant ahora);
+}
@@ -2,7 +2,9 @@ package com.a.prestamos.model.dto.caja;
 
 import java.math.BigDecimal;
 
+/**
+ * La caja se abre a nombre del usuario autenticado.
+ */
 public record AperturaCajaRequest(
-        BigDecimal saldoInicial,
-        String usuario // Opcional si lo sacas del token
+        BigDecimal saldoInicial
 ) {}
@@ -0,0 +1,18 @@
+package com.a.prestamos.model.dto.cliente;
+
+/**
+ * Resultado de un documento en la verificación masiva de clientes (una línea del reporte NDJSON).
+ *
+ * @param estado EXISTENTE, CREADO, NO_ENCONTRADO, RECHAZADO (p. ej. RUC no activo), INVALIDO o ERROR.
+ * @param cliente Datos del cliente si quedó registrado (EXISTENTE o CREADO).
+ */
+public record VerificacionLoteDto(
+        String documentId,
+        String estado,
+        String mensaje,
+        ClienteDto cliente
+) {
+    public static VerificacionLoteDto de(String documentId, String estado, String mensaje) {
+        return new VerificacionLoteDto(documentId, estado, mensaje, null);
+    }
+}
@@ -0,0 +1,30 @@
+package com.a.prestamos.model.dto.comprobante;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Avance de una re-emisión masiva de comprobantes.
+ *
+ * @param total Pagos ACTIVO sin comprobante encontrados hasta ahora; crece página a página mientras está en curso.
+ * @param procesados Pagos ya intentados (emitidos + fallidos + enProceso + omitidos).
+ * @param enProceso Pagos que un worker de la bandeja ya estaba procesando; su resultado queda en la bandeja.
+ * @param omitidos Pagos que otro proceso emitió o dio por fallidos antes de que la re-emisión los tomara.
+ * @param fallos Detalle por pago de los que fallaron.
+ */
+public record ReemisionProgresoDto(
+        boolean enCurso,
+        int total,
+        int procesados,
+        int emitidos,
+        int fallidos,
+        int enProceso,
+        int omitidos,
+        int concurrencia,
+        double porSegundo,
+        Instant inicio,
+        Instant fin,
+        List<Fallo> fallos
+) {
+    public record Fallo(Long pagoId, String error) {}
+}
@@ -0,0 +1,41 @@
+package com.a.prestamos.model.dto.metricas;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estado de las llamadas HTTP salientes (APIsPERU, RENIEC, SUNAT, Mercado Pago).
+ *
+ * @param endpoints Latencia y errores por endpoint remoto.
+ * @param pools Uso de los pools de conexiones por host.
+ */
+public record HttpMetricasDto(
+        List<Endpoint> endpoints,
+        List<Pool> pools
+) {
+    /**
+     * @param histogramaMs Llamadas por cubeta: la clave es el límite superior en ms ("+Inf" para el resto).
+     */
+    public record Endpoint(
+            String endpoint,
+            long llamadas,
+            long errores,
+            double tasaError,
+            double promedioMs,
+            long p50Ms,
+            long p95Ms,
+            long p99Ms,
+            Map<String, Long> histogramaMs
+    ) {}
+
+    public record Pool(
+            String pool,
+            String host,
+            int activas,
+            int abiertas,
+            int ociosas,
+            int enEspera,
+            int maxConexiones,
+            int maxEnEspera
+    ) {}
+}
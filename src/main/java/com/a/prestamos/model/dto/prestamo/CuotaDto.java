@@ -2,13 +2,10 @@ package com.a.prestamos.model.dto.prestamo;
 
 import com.a.prestamos.model.entity.Cuota;
 import com.a.prestamos.model.entity.enums.InstallmentState;
+import com.a.prestamos.util.MoraCalculator;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.Instant;
 import java.time.LocalDate;
-import java.time.YearMonth;
-import java.time.ZoneId;
 
 public record CuotaDto(
         Long id,
@@ -26,61 +23,18 @@ public record CuotaDto(
         Boolean primerMesPerdonado
 ) {
 
-    private static final BigDecimal TASA_MORA = new BigDecimal("0.01");
-
+    /**
+     * La mora sale del cálculo guardado en la cuota (misma regla que se cobra en caja y Mercado Pago).
+     * {@code primerMesPerdonado} se mantiene por compatibilidad con el frontend: esa regla ya no aplica.
+     */
     public static CuotaDto fromEntity(Cuota entity) {
         LocalDate hoy = LocalDate.now();
 
         BigDecimal balance = entity.getBalance() != null ? entity.getBalance() : BigDecimal.ZERO;
-        BigDecimal mora = BigDecimal.ZERO;
-        int mesesMora = 0;
-        boolean primerMesPerdonado = false;
-        boolean tieneMora = false;
-
-        // 1. Si no hay saldo o aún no ha vencido -> no hay mora
-        if (hoy.isAfter(entity.getDueDate()) && balance.compareTo(BigDecimal.ZERO) > 0) {
-
-            // 2. Calcular meses de atraso entre dueDate y hoy (nivel YearMonth)
-            YearMonth venc = YearMonth.from(entity.getDueDate());
-            YearMonth actual = YearMonth.from(hoy);
-
-            mesesMora = (actual.getYear() - venc.getYear()) * 12
-                    + (actual.getMonthValue() - venc.getMonthValue());
-
-            if (mesesMora < 0) {
-                mesesMora = 0; // seguridad
-            }
-
-            // 3. Ver si hubo algún pago antes del vencimiento
-            boolean huboPagoAntesVencimiento = false;
-            if (entity.getPayments() != null && !entity.getPayments().isEmpty()) {
-                Instant limite = entity.getDueDate()
-                        .atStartOfDay(ZoneId.systemDefault())
-                        .toInstant();
-
-                huboPagoAntesVencimiento = entity.getPayments().stream()
-                        .anyMatch(p -> p.getPaymentDate() != null && p.getPaymentDate().isBefore(limite));
-            }
-
-            // 4. Si hubo pago antes del vencimiento, perdonamos el primer mes
-            if (huboPagoAntesVencimiento && mesesMora > 0) {
-                mesesMora -= 1;
-                primerMesPerdonado = true;
-            }
-
-            if (mesesMora < 0) {
-                mesesMora = 0;
-            }
-
-            // 5. Calcular mora = saldoPendiente * 1% * mesesMora
-            if (mesesMora > 0) {
-                mora = balance
-                        .multiply(TASA_MORA)
-                        .multiply(BigDecimal.valueOf(mesesMora))
-                        .setScale(2, RoundingMode.HALF_UP);
-
-                tieneMora = mora.compareTo(BigDecimal.ZERO) > 0;
-            }
+        int mesesMora = MoraCalculator.mesesAtraso(entity.getDueDate(), hoy);
+        BigDecimal mora = balance.signum() > 0 ? MoraCalculator.moraAl(entity, hoy) : BigDecimal.ZERO;
+        if (balance.signum() <= 0) {
+            mesesMora = 0;
         }
 
         BigDecimal totalConMora = balance.add(mora);
@@ -92,13 +46,12 @@ public record CuotaDto(
                 entity.getAmount(),
                 entity.getAmountPaid(),
                 balance,
-                entity.getInstallmentState(),
+                entity.estadoAl(hoy),
                 mora,
                 totalConMora,
-                tieneMora,
+                mora.compareTo(BigDecimal.ZERO) > 0,
                 mesesMora,
-                primerMesPerdonado
+                false
         );
     }
 }
-
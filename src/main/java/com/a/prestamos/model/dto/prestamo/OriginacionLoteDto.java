@@ -0,0 +1,21 @@
+package com.a.prestamos.model.dto.prestamo;
+
+/**
+ * Resultado de una fila en la originación masiva de préstamos (una línea del reporte NDJSON).
+ *
+ * @param fila Número de fila en el archivo recibido (desde 1).
+ * @param estado CREADO, INVALIDO, RECHAZADO (p. ej. ya tiene préstamo activo), CLIENTE_NO_VERIFICADO o ERROR.
+ *               Además, YA_PROCESADO al retomar una importación (filas confirmadas antes) y COMPLETADO al final.
+ * @param prestamoId ID del préstamo creado (solo si estado es CREADO).
+ */
+public record OriginacionLoteDto(
+        long fila,
+        String documentId,
+        String estado,
+        String mensaje,
+        Long prestamoId
+) {
+    public static OriginacionLoteDto de(long fila, String documentId, String estado, String mensaje) {
+        return new OriginacionLoteDto(fila, documentId, estado, mensaje, null);
+    }
+}
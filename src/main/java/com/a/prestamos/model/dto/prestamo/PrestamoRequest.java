@@ -12,6 +12,7 @@ public record PrestamoRequest(
 
         @NotNull(message = "El monto principal es requerido.")
         @Positive(message = "El monto principal debe ser mayor a cero.")
+        @Digits(integer = 10, fraction = 2, message = "El monto principal admite hasta 2 decimales.")
         BigDecimal principal,
 
         @NotNull(message = "La TEA es requerida.")
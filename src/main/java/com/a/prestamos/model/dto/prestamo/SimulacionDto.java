@@ -0,0 +1,34 @@
+package com.a.prestamos.model.dto.prestamo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Cotización de un préstamo: el cronograma que generaría {@code POST /prestamo}, sin guardar nada.
+ */
+public record SimulacionDto(
+        BigDecimal principal,
+        BigDecimal teaAnnual,
+        BigDecimal tem,
+        Integer months,
+        LocalDate startDate,
+        BigDecimal installmentAmount,
+        BigDecimal totalInteres,
+        BigDecimal totalIgv,
+        BigDecimal totalPagar,
+        List<Cuota> schedule
+) {
+    /**
+     * @param saldoCapital Capital pendiente después de pagar esta cuota.
+     */
+    public record Cuota(
+            Integer num,
+            LocalDate dueDate,
+            BigDecimal amount,
+            BigDecimal principal,
+            BigDecimal interest,
+            BigDecimal igv,
+            BigDecimal saldoCapital
+    ) {}
+}
@@ -0,0 +1,27 @@
+package com.a.prestamos.model.dto.prestamo;
+
+import jakarta.validation.constraints.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Datos de una cotización: los mismos de {@link PrestamoRequest} que intervienen en el cronograma.
+ */
+public record SimulacionRequest(
+        @NotNull(message = "El monto principal es requerido.")
+        @Positive(message = "El monto principal debe ser mayor a cero.")
+        @Digits(integer = 10, fraction = 2, message = "El monto principal admite hasta 2 decimales.")
+        BigDecimal principal,
+
+        @NotNull(message = "La TEA es requerida.")
+        @DecimalMin(value = "0.0", message = "La TEA no puede ser negativa.")
+        BigDecimal teaAnnual,
+
+        @NotNull(message = "El plazo en meses es requerido.")
+        @Min(value = 1, message = "El plazo debe ser de al menos 1 mes.")
+        @Max(value = 360, message = "El plazo no puede superar los 360 meses.")
+        Integer months,
+
+        LocalDate startDate
+) {}
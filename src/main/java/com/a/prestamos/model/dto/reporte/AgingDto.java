@@ -0,0 +1,26 @@
+package com.a.prestamos.model.dto.reporte;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Antigüedad de la cartera vencida de los préstamos ACTIVO a una fecha.
+ *
+ * @param tramos Un elemento por tramo de días de atraso ("1-30", "31-60", "61-90", "90+").
+ * @param duracionMs Tiempo que tomó calcular el reporte.
+ */
+public record AgingDto(
+        LocalDate fecha,
+        List<Tramo> tramos,
+        Tramo total,
+        long duracionMs
+) {
+    public record Tramo(
+            String tramo,
+            long cuotas,
+            BigDecimal saldo,
+            BigDecimal mora,
+            BigDecimal totalConMora
+    ) {}
+}
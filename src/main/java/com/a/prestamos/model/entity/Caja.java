@@ -8,13 +8,16 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "cajas")
+@Table(name = "cajas", indexes = {
+        // Caja abierta de cada cajero (se consulta en cada pago)
+        @Index(name = "idx_cajas_usuario_estado", columnList = "usuario, estado")
+})
 public class Caja {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    // Podrías vincularlo a un Usuario entity si tienes autenticación
+    // Usuario autenticado que abrió la caja (email); cada cajero tiene a lo sumo una caja abierta
     @Column(nullable = false)
     private String usuario;
 
@@ -7,10 +7,13 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "comprobantes")
+@Table(name = "comprobantes", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_comprobante_serie_correlativo", columnNames = {"serie", "sequential"})
+})
 public class Comprobante {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comprobantes_seq")
+    @SequenceGenerator(name = "comprobantes_seq", sequenceName = "comprobantes_seq", allocationSize = 50)
     private Long id;
 
     @OneToOne
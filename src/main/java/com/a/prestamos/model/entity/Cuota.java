@@ -11,10 +11,20 @@ import java.util.List;
 
 @Data
 @Entity
-@Table(name = "cuotas")
+@Table(name = "cuotas", indexes = {
+        // Cronograma y cuotas anteriores pendientes de un préstamo (por número)
+        @Index(name = "idx_cuotas_loan_num", columnList = "loan_id, num"),
+        // Primera cuota pendiente, conteo de vencidas y deuda total de un préstamo (filtran por estado)
+        @Index(name = "idx_cuotas_loan_estado_num", columnList = "loan_id, installment_state, num"),
+        // Paso diario a VENCIDO y devengo de mora (estado + vencimiento en toda la cartera)
+        @Index(name = "idx_cuotas_estado_vencimiento", columnList = "installment_state, due_date"),
+        // Rangos por vencimiento sin filtro de estado (job de vencidas, aging)
+        @Index(name = "idx_cuotas_vencimiento", columnList = "due_date")
+})
 public class Cuota {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cuotas_seq")
+    @SequenceGenerator(name = "cuotas_seq", sequenceName = "cuotas_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -54,6 +64,26 @@ public class Cuota {
     @Column(nullable = false, precision = 12, scale = 2)
     private BigDecimal balance;
 
+    // --- MORA (ver MoraCalculator) ---
+    /**
+     * Mora vigente de la cuota a la fecha {@code moraCalculadaAl}. La actualizan el job diario de mora
+     * y cada pago; las lecturas no la recalculan.
+     */
+    @Column(precision = 12, scale = 2)
+    private BigDecimal moraAcumulada = BigDecimal.ZERO;
+
+    private Integer mesesMora = 0;
+
+    /**
+     * Última fecha en que cambió la mora guardada (null si nunca se calculó).
+     */
+    private LocalDate moraCalculadaAl;
+    // ----------------------------------
+
+    // Control optimista: un pago que leyó una versión anterior falla y se reintenta (ReintentoOptimistaService)
+    @Version
+    private Long version;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 20)
     private InstallmentState installmentState = InstallmentState.PENDIENTE; // PENDIENTE, PAGADO, VENCIDO
@@ -64,6 +94,22 @@ public class Cuota {
     @OneToMany(mappedBy = "installment", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Pago> payments = new ArrayList<>();
 
+    /**
+     * Estado que corresponde a la cuota en la fecha dada, sin depender de que el job de vencimientos
+     * ya haya actualizado la columna. Es lo que se muestra en pantalla.
+     */
+    public InstallmentState estadoAl(LocalDate fecha) {
+        if (balance == null || balance.compareTo(BigDecimal.ZERO) <= 0) {
+            return installmentState;
+        }
+        if (fecha.isAfter(dueDate)) {
+            return InstallmentState.VENCIDO;
+        }
+        return amountPaid == null || amountPaid.compareTo(BigDecimal.ZERO) == 0
+                ? InstallmentState.PENDIENTE
+                : InstallmentState.PAGADO_PARCIAL;
+    }
+
     /**
      * Inicializa el saldo pendiente con el monto de la cuota.
      * Se llama automáticamente antes de persistir.
@@ -0,0 +1,67 @@
+package com.a.prestamos.model.entity;
+
+import com.a.prestamos.model.entity.enums.EmissionState;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Bandeja de salida (outbox) de comprobantes electrónicos.
+ * Se inserta en la MISMA transacción que confirma el pago y la drena
+ * un pool de workers acotado, con reintentos y backoff.
+ */
+@Data
+@Entity
+@Table(name = "emisiones_comprobante")
+public class EmisionComprobante {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "emisiones_comprobante_seq")
+    @SequenceGenerator(name = "emisiones_comprobante_seq", sequenceName = "emisiones_comprobante_seq", allocationSize = 50)
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "payment_id", nullable = false, unique = true)
+    private Pago payment;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EmissionState state = EmissionState.PENDIENTE;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    /**
+     * Momento a partir del cual el registro puede volver a intentarse.
+     */
+    @Column(nullable = false)
+    private Instant nextAttemptAt;
+
+    /**
+     * Lease del worker que lo reclamó. Si vence (caída del nodo), otro worker lo retoma.
+     */
+    private Instant lockedUntil;
+
+    /**
+     * Serie y correlativo reservados en el primer intento. Los reintentos reutilizan el mismo número
+     * para no dejar huecos en la serie.
+     */
+    @Column(length = 4)
+    private String serie;
+
+    private Long sequential;
+
+    @Column(length = 500)
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    private Instant updatedAt;
+
+    @PrePersist
+    public void prePersist() {
+        if (this.nextAttemptAt == null) this.nextAttemptAt = Instant.now();
+        this.updatedAt = Instant.now();
+    }
+}
@@ -10,10 +10,21 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "pagos")
+@Table(name = "pagos", indexes = {
+        // Pagos activos de una cuota
+        @Index(name = "idx_pagos_cuota_estado", columnList = "installment_id, payment_state"),
+        // Cierre y arqueo de caja (rango de fechas + estado)
+        @Index(name = "idx_pagos_fecha_estado", columnList = "payment_date, payment_state"),
+        // Verificación de los totales de caja
+        @Index(name = "idx_pagos_caja_estado", columnList = "caja_id, payment_state"),
+        // Webhook y retorno de Mercado Pago
+        @Index(name = "idx_pagos_mp_payment", columnList = "mercado_pago_payment_id"),
+        @Index(name = "idx_pagos_mp_preferencia", columnList = "mercado_pago_preference_id")
+})
 public class Pago {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pagos_seq")
+    @SequenceGenerator(name = "pagos_seq", sequenceName = "pagos_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -26,6 +37,15 @@ public class Pago {
     private Comprobante proofPayment;
     // --------------------------------
 
+    // Caja en la que se cobró (o estaba abierta al aprobarse el pago de Mercado Pago)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "caja_id")
+    private Caja caja;
+
+    // Control optimista: dos webhooks que leyeron la misma orden PENDIENTE no la aprueban ambos (ReintentoOptimistaService)
+    @Version
+    private Long version;
+
     @Column(nullable = false, precision = 12, scale = 2)
     private BigDecimal amountPaid; // Lo que reduce la deuda
 
@@ -15,7 +15,8 @@ import java.util.List;
 @Table(name = "prestamos")
 public class Prestamo {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "prestamos_seq")
+    @SequenceGenerator(name = "prestamos_seq", sequenceName = "prestamos_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -41,7 +42,12 @@ public class Prestamo {
     @Column(nullable = false, length = 10)
     private LoanState loanState = LoanState.ACTIVO;
 
+    // Control optimista: dos pagos que cancelan el préstamo a la vez no se pisan el estado
+    @Version
+    private Long version;
+
     @OneToMany(mappedBy = "loan", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @OrderBy("num ASC")
     private List<Cuota> installments = new ArrayList<>();
 
     @Column(nullable = false, updatable = false)
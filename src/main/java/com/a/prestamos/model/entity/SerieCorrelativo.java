@@ -0,0 +1,33 @@
+package com.a.prestamos.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Contador de correlativos por serie (F001, B001...).
+ * Se bloquea la fila (SELECT ... FOR UPDATE) para reservar números sin carreras entre workers/nodos.
+ */
+@Data
+@Entity
+@Table(name = "series_correlativo")
+public class SerieCorrelativo {
+    @Id
+    @Column(length = 4)
+    private String serie;
+
+    /**
+     * Último número reservado (no necesariamente emitido: puede estar en el bloque de un worker).
+     */
+    @Column(nullable = false)
+    private Long lastReserved;
+
+    private Instant updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        this.updatedAt = Instant.now();
+    }
+}
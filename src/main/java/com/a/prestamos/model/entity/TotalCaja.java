@@ -0,0 +1,44 @@
+package com.a.prestamos.model.entity;
+
+import com.a.prestamos.model.entity.enums.PaymentMethod;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Acumulado de una caja por método de pago. Cada pago ACTIVO suma aquí en su misma transacción
+ * ({@code TotalesCajaServiceImpl}), así el resumen y el cierre leen unas pocas filas en vez de agrupar
+ * todos los pagos del día.
+ */
+@Data
+@Entity
+@Table(name = "caja_totales", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_caja_totales_caja_metodo", columnNames = {"caja_id", "payment_method"})
+})
+public class TotalCaja {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "caja_id", nullable = false)
+    private Caja caja;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PaymentMethod paymentMethod;
+
+    // Suma de amountPaid de los pagos ACTIVO
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal montoPagado = BigDecimal.ZERO;
+
+    // Suma del redondeo (solo efectivo)
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal redondeo = BigDecimal.ZERO;
+
+    // El cierre lo pone en false con las filas bloqueadas: desde ahí ningún pago puede sumar
+    @Column(nullable = false)
+    private boolean abierta = true;
+}
@@ -0,0 +1,58 @@
+package com.a.prestamos.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Avance de un proceso batch incremental (p. ej. el paso de cuotas a VENCIDO).
+ * <p>
+ * {@code processedUntil} marca hasta qué fecha ya se procesó todo; la siguiente ejecución solo mira
+ * lo que cruzó desde entonces. Mientras una ejecución está en curso, {@code targetDate} y {@code lastId}
+ * permiten retomarla por donde quedó si el nodo se cae.
+ * <p>
+ * Las importaciones masivas usan una fila por importación: {@code lastId} es la última fila confirmada y
+ * {@code processedUntil} se llena al terminar.
+ */
+@Data
+@Entity
+@Table(name = "watermarks_proceso")
+public class WatermarkProceso {
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    /**
+     * Todo lo anterior a esta fecha ya fue procesado (exclusivo).
+     */
+    private LocalDate processedUntil;
+
+    /**
+     * Fecha objetivo de la ejecución en curso (null si no hay ninguna a medias).
+     */
+    private LocalDate targetDate;
+
+    /**
+     * Último ID procesado de la ejecución en curso.
+     */
+    private Long lastId;
+
+    /**
+     * Lease del nodo que ejecuta el proceso: evita dos ejecuciones simultáneas.
+     */
+    private Instant lockedUntil;
+
+    private Long lastRunRows;
+
+    private Long lastRunMillis;
+
+    private Instant updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        this.updatedAt = Instant.now();
+    }
+}
@@ -0,0 +1,8 @@
+package com.a.prestamos.model.entity.enums;
+
+public enum EmissionState {
+    PENDIENTE,   // En cola, esperando a un worker (o a su próximo reintento)
+    EN_PROCESO,  // Reclamado por un worker (con lease)
+    EMITIDO,     // Comprobante aceptado por SUNAT y guardado
+    FALLIDO      // Se agotaron los reintentos
+}
@@ -8,23 +8,36 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.CachingUserDetailsService;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.servlet.HandlerExceptionResolver;
 
 import java.io.IOException;
-
+import java.util.HashMap;
+
+/**
+ * Autentica cada petición con el JWT del header {@code Authorization}.
+ * <p>
+ * Los endpoints que devuelven {@code Mono}/{@code Flux} terminan en un dispatch ASYNC que este filtro no vuelve
+ * a procesar (OncePerRequestFilter). Por eso el contexto se guarda en la petición
+ * ({@link RequestAttributeSecurityContextRepository}, el repositorio de la cadena STATELESS): en el dispatch
+ * ASYNC lo recupera SecurityContextHolderFilter y AuthorizationFilter ve al usuario autenticado.
+ */
 @Slf4j
 public class JwtAuthFilter extends OncePerRequestFilter {
     @Autowired
     private JwtService jwtService;
     @Autowired
-    private UserDetailsService userDetailsService;
+    private CachingUserDetailsService userDetailsService;
     private HandlerExceptionResolver handlerExceptionResolver;
+    private final SecurityContextRepository securityContextRepository = new RequestAttributeSecurityContextRepository();
 
     @Autowired
     public JwtAuthFilter(HandlerExceptionResolver handlerExceptionResolver) {
@@ -62,7 +75,9 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
             jwt = authHeader.substring(7);
 
-            userEmail = jwtService.extractUsername(jwt);
+            // Una sola verificación de firma por token (las siguientes salen de la caché de JwtService)
+            JwtService.TokenJwt token = jwtService.verificar(jwt);
+            userEmail = token.username();
 
             if (userEmail == null || SecurityContextHolder.getContext().getAuthentication() != null) {
                 log.debug("The JWT doesn't contains a username");
@@ -72,9 +87,10 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
             UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
 
-            boolean isTokenValid = jwtService.isTokenValid(jwt, userDetails);
-            boolean isTokenExpired = jwtService.isTokenExpired(jwt);
-            boolean canBeRenewed = jwtService.canTokenBeRenewed(jwt);
+            long ahora = System.currentTimeMillis();
+            boolean isTokenValid = userEmail.equals(userDetails.getUsername());
+            boolean isTokenExpired = token.expirado(ahora);
+            boolean canBeRenewed = jwtService.puedeRenovarse(token, ahora);
 
             if (!isTokenValid || (isTokenExpired && !canBeRenewed)) {
                 log.debug("The JWT is not valid");
@@ -85,7 +101,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
             if (isTokenExpired) {
                 log.debug("The JWT is expired and is going to be renewed");
-                String newToken = jwtService.renewToken(jwt, userDetails);
+                String newToken = jwtService.generateToken(userDetails, new HashMap<>());
                 response.setHeader("Authorization", "Bearer " + newToken);
             }
 
@@ -99,7 +115,10 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                     new WebAuthenticationDetailsSource().buildDetails(request)
             );
 
-            SecurityContextHolder.getContext().setAuthentication(authToken);
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(authToken);
+            SecurityContextHolder.setContext(context);
+            securityContextRepository.saveContext(context, request, response);
 
         } catch (Exception e) {
             log.error("Error processing JWT: {}", e.getMessage());
@@ -0,0 +1,71 @@
+package com.a.prestamos.security;
+
+import com.a.prestamos.util.LruTtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Usuarios ya cargados, para que {@link JwtAuthFilter} no consulte {@code usuarios} en cada petición.
+ * <p>
+ * Se usa detrás de un {@code CachingUserDetailsService} (ver {@code AuthenticationConfig}). Cambiar la
+ * contraseña o el rol debe invalidar la entrada ({@link #removeUserFromCache}); en otros nodos el cambio
+ * se ve al vencer el TTL. El login no pasa por esta caché: siempre compara contra la BD.
+ */
+@Component
+public class UsuarioCache implements UserCache {
+
+    private final LruTtlCache<String, UserDetails> cache;
+
+    public UsuarioCache(@Value("${app.usuarios.cache.max-entries:1000}") int maxEntradas,
+                        @Value("${app.usuarios.cache.ttl:PT5M}") Duration ttl) {
+        this.cache = new LruTtlCache<>(maxEntradas, ttl);
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        return cache.getIfPresent(username);
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        cache.put(user.getUsername(), user);
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        cache.invalidate(username);
+    }
+
+    /**
+     * Invalida la entrada cuando se confirme la transacción en curso (o de inmediato si no hay una). Invalidar
+     * antes del commit deja una ventana en la que otra petición vuelve a cargar la fila todavía sin cambios.
+     */
+    public void removeUserFromCacheAfterCommit(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            removeUserFromCache(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                removeUserFromCache(username);
+            }
+        });
+    }
+
+    public LruTtlCache.Estadisticas estadisticas() {
+        return cache.estadisticas();
+    }
+
+    @Scheduled(fixedDelayString = "${app.usuarios.cache.ttl:PT5M}")
+    public void purgarVencidas() {
+        cache.purgarVencidas();
+    }
+}
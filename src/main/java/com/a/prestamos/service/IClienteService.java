@@ -1,8 +1,15 @@
 package com.a.prestamos.service;
 
+import com.a.prestamos.model.dto.cliente.VerificacionLoteDto;
 import com.a.prestamos.model.entity.Cliente;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 public interface IClienteService {
     void save(Cliente cliente);
     Cliente verifyByDocumentId(String dni);
+    Mono<Cliente> verifyByDocumentIdAsync(String documentId);
+    Flux<VerificacionLoteDto> verifyBatch(List<String> documentIds);
 }
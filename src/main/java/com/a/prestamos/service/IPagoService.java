@@ -8,21 +8,23 @@ import java.util.List;
 
 public interface IPagoService {
     /**
-     * Registra un nuevo pago (efectivo, Yape, Plin, Tarjeta manual).
+     * Registra un nuevo pago (efectivo, Yape, Plin, Tarjeta manual) en la caja abierta del cajero.
      *
      * @param request Datos del pago.
+     * @param usuario Cajero autenticado.
      * @return El pago registrado.
      */
-    PagoResponse registrarPago(PagoRequest request);
+    PagoResponse registrarPago(PagoRequest request, String usuario);
 
     /**
      * Crea una preferencia de pago en Mercado Pago.
      *
      * @param cuotaId ID de la cuota a pagar.
      * @param monto Monto a pagar (puede ser parcial).
+     * @param usuario Cajero autenticado; el pago cuenta en su caja al aprobarse.
      * @return Información para redirigir al checkout de Mercado Pago.
      */
-    MercadoPagoPreferenceResponse crearPreferenciaMercadoPago(Long cuotaId, java.math.BigDecimal monto);
+    MercadoPagoPreferenceResponse crearPreferenciaMercadoPago(Long cuotaId, java.math.BigDecimal monto, String usuario);
 
     /**
      * Procesa el webhook de Mercado Pago cuando se confirma un pago.
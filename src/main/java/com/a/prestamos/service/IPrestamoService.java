@@ -1,5 +1,6 @@
 package com.a.prestamos.service;
 
+import com.a.prestamos.model.dto.prestamo.DetallePrestamoDto;
 import com.a.prestamos.model.dto.prestamo.PrestamoRequest;
 import com.a.prestamos.model.entity.Prestamo;
 
@@ -19,4 +20,13 @@ public interface IPrestamoService {
      * @return La entidad Loan encontrada.
      */
     Prestamo findLoanByDocumentId(String documentId);
+
+    /**
+     * Detalle del préstamo activo del cliente (datos, cliente y cronograma con mora) armado con un
+     * número fijo de consultas, sin importar el plazo.
+     *
+     * @param documentId El DNI/RUC del cliente.
+     * @return El detalle listo para la respuesta.
+     */
+    DetallePrestamoDto findLoanDetailByDocumentId(String documentId);
 }
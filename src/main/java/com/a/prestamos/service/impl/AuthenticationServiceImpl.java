@@ -6,6 +6,7 @@ import com.a.prestamos.model.dto.authentication.AuthenticationResponse;
 import com.a.prestamos.model.dto.authentication.UpdateRequest;
 import com.a.prestamos.model.entity.Usuario;
 import com.a.prestamos.model.entity.enums.Role;
+import com.a.prestamos.security.UsuarioCache;
 import com.a.prestamos.service.IAuthenticationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -25,6 +26,7 @@ public class AuthenticationServiceImpl implements IAuthenticationService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final UsuarioCache usuarioCache;
 
     @Override
     public AuthenticationResponse register(UpdateRequest registerRequest) {
@@ -40,6 +42,7 @@ public class AuthenticationServiceImpl implements IAuthenticationService {
         // Update and persist new password
         user.setPassword(passwordEncoder.encode(registerRequest.getNewPassword()));
         usuarioDao.save(user);
+        usuarioCache.removeUserFromCache(user.getEmail());
 
         return getAuthenticationResponse(user);
     }
@@ -0,0 +1,90 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.CajaDao;
+import com.a.prestamos.model.entity.Caja;
+import com.a.prestamos.model.entity.enums.CajaState;
+import com.a.prestamos.util.LruTtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Caja abierta de cada cajero, en memoria, para no consultar {@code cajas} al inicio de cada pago.
+ * <p>
+ * Abrir y cerrar caja la actualizan al confirmarse su transacción. Solo se guardan cajas abiertas: un
+ * cajero sin caja siempre se consulta en la BD, así una caja abierta en otro nodo se ve de inmediato.
+ * Una entrada desactualizada (caja cerrada en otro nodo) no deja pasar pagos: el pago en caja suma en
+ * {@code caja_totales} solo si la caja sigue abierta ({@link TotalesCajaServiceImpl#registrar}), y si no,
+ * se rechaza y la entrada se descarta. La orden de Mercado Pago, que no suma hasta el webhook, confirma
+ * la caja en la BD antes de crearse.
+ */
+@Component
+public class CajaAbiertaCache {
+
+    private final CajaDao cajaDao;
+    private final LruTtlCache<String, Long> cache;
+
+    public CajaAbiertaCache(CajaDao cajaDao,
+                            @Value("${app.caja.cache.max-entries:1000}") int maxEntradas,
+                            @Value("${app.caja.cache.ttl:PT5M}") Duration ttl) {
+        this.cajaDao = cajaDao;
+        this.cache = new LruTtlCache<>(maxEntradas, ttl);
+    }
+
+    /**
+     * ID de la caja abierta del cajero, o vacío si no tiene ninguna.
+     */
+    public Optional<Long> cajaAbierta(String usuario) {
+        return Optional.ofNullable(cache.get(usuario, u -> cajaDao.findByUsuarioAndEstado(u, CajaState.ABIERTA)
+                .map(Caja::getId)
+                .orElse(null)));
+    }
+
+    /**
+     * Registra la caja recién abierta cuando se confirme la transacción de apertura.
+     */
+    public void abierta(String usuario, Long cajaId) {
+        alConfirmar(() -> cache.put(usuario, cajaId));
+    }
+
+    /**
+     * Olvida la caja cuando se confirme la transacción de cierre.
+     */
+    public void cerrada(String usuario) {
+        alConfirmar(() -> cache.invalidate(usuario));
+    }
+
+    /**
+     * Descarta la entrada de inmediato (la caja resultó estar cerrada).
+     */
+    public void descartar(String usuario) {
+        cache.invalidate(usuario);
+    }
+
+    public LruTtlCache.Estadisticas estadisticas() {
+        return cache.estadisticas();
+    }
+
+    @Scheduled(fixedDelayString = "${app.caja.cache.ttl:PT5M}")
+    public void purgarVencidas() {
+        cache.purgarVencidas();
+    }
+
+    private static void alConfirmar(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+}
@@ -1,20 +1,21 @@
 package com.a.prestamos.service.impl;
 
 import com.a.prestamos.model.dao.CajaDao;
-import com.a.prestamos.model.dao.PagoDao;
+import com.a.prestamos.model.dao.TotalCajaDao;
 import com.a.prestamos.model.dto.caja.AperturaCajaRequest;
 import com.a.prestamos.model.dto.caja.CierreCajaRequest;
 import com.a.prestamos.model.dto.caja.ResumenCajaDto;
 import com.a.prestamos.model.entity.Caja;
+import com.a.prestamos.model.entity.TotalCaja;
 import com.a.prestamos.model.entity.enums.CajaState;
 import com.a.prestamos.model.entity.enums.PaymentMethod;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.ZoneId; // Para convertir LocalDateTime a Instant si es necesario
 import java.util.List;
 
 @Service
@@ -22,31 +23,42 @@ import java.util.List;
 public class CajaServiceImpl {
 
     private final CajaDao cajaDao;
-    private final PagoDao pagoDao;
+    private final TotalCajaDao totalCajaDao;
+    private final TotalesCajaServiceImpl totalesCajaService;
+    private final CajaAbiertaCache cajaAbiertaCache;
 
     @Transactional
-    public Caja abrirCaja(AperturaCajaRequest req) {
-        // 1. Validar que no haya caja abierta
-        if (cajaDao.findByEstado(CajaState.ABIERTA).isPresent()) {
-            throw new IllegalStateException("Ya existe una caja abierta. Debe cerrarla primero.");
+    public Caja abrirCaja(AperturaCajaRequest req, String usuario) {
+        // 1. Validar que el cajero no tenga ya una caja abierta (otros cajeros pueden tener la suya)
+        if (cajaDao.findByUsuarioAndEstado(usuario, CajaState.ABIERTA).isPresent()) {
+            throw new IllegalStateException("Ya tiene una caja abierta. Debe cerrarla primero.");
         }
 
         // 2. Crear caja
         Caja caja = new Caja();
-        caja.setUsuario(req.usuario() != null ? req.usuario() : "CajeroPrincipal");
+        caja.setUsuario(usuario);
         caja.setSaldoInicial(req.saldoInicial());
         caja.setEstado(CajaState.ABIERTA);
 
-        return cajaDao.save(caja);
+        // El índice único de cajas abiertas (V9; V13 en H2) resuelve dos aperturas simultáneas del mismo cajero
+        Caja guardada;
+        try {
+            guardada = cajaDao.saveAndFlush(caja);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("Ya tiene una caja abierta. Debe cerrarla primero.");
+        }
+        totalesCajaService.inicializar(guardada);
+        cajaAbiertaCache.abierta(usuario, guardada.getId());
+        return guardada;
     }
 
     @Transactional(readOnly = true)
-    public ResumenCajaDto obtenerResumenActual() {
-        Caja caja = cajaDao.findByEstado(CajaState.ABIERTA)
+    public ResumenCajaDto obtenerResumenActual(String usuario) {
+        Caja caja = cajaDao.findByUsuarioAndEstado(usuario, CajaState.ABIERTA)
                 .orElseThrow(() -> new IllegalStateException("No hay caja abierta."));
 
-        // Calcular totales desde el DAO
-        TotalesCaja totales = calcularTotales(caja);
+        // Totales acumulados por cada pago (una fila por método)
+        TotalesCaja totales = calcularTotales(totalCajaDao.findByCajaId(caja.getId()));
 
         BigDecimal totalEsperadoEnCaja = caja.getSaldoInicial().add(totales.totalEfectivo);
 
@@ -61,13 +73,14 @@ public class CajaServiceImpl {
     }
 
     @Transactional
-    public Caja cerrarCaja(CierreCajaRequest req) {
-        // 1. Obtener caja
-        Caja caja = cajaDao.findByEstado(CajaState.ABIERTA)
+    public Caja cerrarCaja(CierreCajaRequest req, String usuario) {
+        // 1. Obtener la caja del cajero
+        Caja caja = cajaDao.findByUsuarioAndEstado(usuario, CajaState.ABIERTA)
                 .orElseThrow(() -> new IllegalStateException("No hay caja abierta para cerrar."));
 
-        // 2. Calcular lo que "Debería" haber (Sistema)
-        TotalesCaja totales = calcularTotales(caja);
+        // 2. Calcular lo que "Debería" haber (Sistema). Con las filas bloqueadas, un pago en curso no
+        // puede sumar entre este cálculo y el cierre
+        TotalesCaja totales = calcularTotales(totalCajaDao.findByCajaIdForUpdate(caja.getId()));
 
         BigDecimal saldoInicial = caja.getSaldoInicial();
         BigDecimal efectivoSistema = totales.totalEfectivo; // Incluye redondeo
@@ -102,24 +115,22 @@ public class CajaServiceImpl {
         caja.setDiferencia(diferencia); // Será 0.00
         caja.setEstado(CajaState.CERRADA);
 
+        // Desde aquí ningún pago suma en esta caja, aunque otro nodo aún la tenga en caché
+        totalCajaDao.cerrar(caja.getId());
+        cajaAbiertaCache.cerrada(usuario);
+
         return cajaDao.save(caja);
     }
 
     // --- Helper para calcular sumas ---
-    private TotalesCaja calcularTotales(Caja caja) {
-        // Convertir LocalDateTime a Instant porque tu Pago usa Instant
-        java.time.Instant inicio = caja.getFechaApertura().atZone(ZoneId.systemDefault()).toInstant();
-
-        List<Object[]> resultados = pagoDao.sumarPagosPorMetodoDesde(inicio);
-
+    private TotalesCaja calcularTotales(List<TotalCaja> filas) {
         BigDecimal totalEfectivo = BigDecimal.ZERO;
         BigDecimal totalDigital = BigDecimal.ZERO;
 
-        for (Object[] row : resultados) {
-            PaymentMethod metodo = (PaymentMethod) row[0];
-            BigDecimal montoPagado = (BigDecimal) row[1];
-            BigDecimal redondeo = (BigDecimal) row[2]; // Puede ser null o 0
-            if (redondeo == null) redondeo = BigDecimal.ZERO;
+        for (TotalCaja fila : filas) {
+            PaymentMethod metodo = fila.getPaymentMethod();
+            BigDecimal montoPagado = fila.getMontoPagado();
+            BigDecimal redondeo = fila.getRedondeo();
 
             if (metodo == PaymentMethod.EFECTIVO) {
                 // Efectivo en caja = Lo que pagó de deuda + el redondeo que se quedó
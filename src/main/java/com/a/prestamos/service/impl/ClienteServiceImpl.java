@@ -1,25 +1,61 @@
 package com.a.prestamos.service.impl;
 
-import com.a.prestamos.client.DocumentConsumer;
+import com.a.prestamos.client.DocumentLookupCache;
 import com.a.prestamos.model.dao.ClienteDao;
 import com.a.prestamos.model.dto.apiclient.ReniecResponseDto;
 import com.a.prestamos.model.dto.apiclient.SunatResponseDto;
+import com.a.prestamos.model.dto.cliente.ClienteDto;
+import com.a.prestamos.model.dto.cliente.VerificacionLoteDto;
 import com.a.prestamos.model.entity.Cliente;
 import com.a.prestamos.model.entity.enums.DocumentType;
 import com.a.prestamos.service.IClienteService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class ClienteServiceImpl implements IClienteService {
     @Autowired
     private ClienteDao clienteDao;
 
     @Autowired
-    private DocumentConsumer documentConsumer;
+    private DocumentLookupCache documentLookupCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.clientes.lote.max-documents:20000}")
+    private int maxDocumentosLote;
+
+    @Value("${app.clientes.lote.chunk-size:500}")
+    private int tamanioBloque;
+
+    @Value("${app.clientes.lote.concurrency:8}")
+    private int concurrenciaLote;
+
+    @Value("${app.clientes.lote.insert-batch-size:100}")
+    private int tamanioInsercion;
 
     @Override
     @Transactional
@@ -29,9 +65,7 @@ public class ClienteServiceImpl implements IClienteService {
 
     @Override
     public Cliente verifyByDocumentId(String documentId) {
-        if (documentId == null || !documentId.matches("\\d{8}|\\d{11}")) {
-            throw new IllegalArgumentException("Debe ser DNI (8 dígitos) o RUC (11 dígitos).");
-        }
+        validarDocumento(documentId);
 
         // Verificar si ya existe
         Optional<Cliente> existing = clienteDao.findById(documentId);
@@ -53,9 +87,161 @@ public class ClienteServiceImpl implements IClienteService {
         return clienteDao.save(nuevoCliente);
     }
 
+    /**
+     * Igual que {@link #verifyByDocumentId(String)} sin ocupar un hilo mientras se espera a RENIEC/SUNAT.
+     * Las consultas a BD (bloqueantes) van al scheduler boundedElastic.
+     */
+    @Override
+    public Mono<Cliente> verifyByDocumentIdAsync(String documentId) {
+        return Mono.fromRunnable(() -> validarDocumento(documentId))
+                .then(Mono.fromCallable(() -> clienteDao.findById(documentId)).subscribeOn(Schedulers.boundedElastic()))
+                .flatMap(existing -> existing.map(Mono::just).orElseGet(() -> {
+                    Mono<Cliente> nuevoCliente = documentId.length() == 8
+                            ? documentLookupCache.buscarDniAsync(documentId).map(r -> crearClienteDesdeReniec(r.orElse(null)))
+                            : documentLookupCache.buscarRucAsync(documentId).map(r -> crearClienteDesdeSunat(r.orElse(null)));
+
+                    return nuevoCliente.publishOn(Schedulers.boundedElastic()).map(clienteDao::save);
+                }));
+    }
+
+    /**
+     * Verificación masiva (campañas): por cada bloque de documentos hace un solo SELECT ... IN para
+     * descartar los que ya son clientes, consulta RENIEC/SUNAT para el resto con concurrencia acotada
+     * e inserta los nuevos en lotes. Emite un resultado por documento a medida que se resuelven.
+     */
+    @Override
+    public Flux<VerificacionLoteDto> verifyBatch(List<String> documentIds) {
+        if (documentIds == null || documentIds.isEmpty()) {
+            return Flux.error(new IllegalArgumentException("No se recibieron documentos para verificar."));
+        }
+        if (documentIds.size() > maxDocumentosLote) {
+            return Flux.error(new IllegalArgumentException(
+                    "El lote excede el máximo de " + maxDocumentosLote + " documentos."));
+        }
+
+        List<VerificacionLoteDto> invalidos = new ArrayList<>();
+        Set<String> validos = new LinkedHashSet<>();
+        for (String id : documentIds) {
+            String documento = id == null ? "" : id.trim();
+            if (documento.matches("\\d{8}|\\d{11}")) validos.add(documento); // los repetidos se verifican una sola vez
+            else invalidos.add(VerificacionLoteDto.de(documento, "INVALIDO", "Debe ser DNI (8 dígitos) o RUC (11 dígitos)."));
+        }
+
+        return Flux.fromIterable(invalidos)
+                .concatWith(Flux.fromIterable(validos)
+                        .buffer(tamanioBloque)
+                        .concatMap(this::verificarBloque));
+    }
+
+    private Flux<VerificacionLoteDto> verificarBloque(List<String> bloque) {
+        return Mono.fromCallable(() -> clienteDao.findAllById(bloque))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(existentes -> {
+                    Set<String> conocidos = existentes.stream().map(Cliente::getDocumentId).collect(Collectors.toSet());
+                    List<String> nuevos = bloque.stream().filter(id -> !conocidos.contains(id)).toList();
+
+                    Flux<VerificacionLoteDto> yaRegistrados = Flux.fromIterable(existentes)
+                            .map(c -> new VerificacionLoteDto(c.getDocumentId(), "EXISTENTE", null, ClienteDto.fromEntity(c)));
+
+                    Flux<VerificacionLoteDto> consultados = Flux.fromIterable(nuevos)
+                            .flatMap(this::consultarParaLote, concurrenciaLote)
+                            .buffer(tamanioInsercion)
+                            .concatMap(lote -> Mono.fromCallable(() -> registrarLote(lote))
+                                    .subscribeOn(Schedulers.boundedElastic())
+                                    .flatMapIterable(r -> r));
+
+                    return yaRegistrados.concatWith(consultados);
+                });
+    }
+
+    /**
+     * Resultado parcial: el cliente a insertar o el motivo por el que no se registra.
+     */
+    private record ConsultaLote(String documentId, Cliente nuevo, VerificacionLoteDto fallo) {}
+
+    private Mono<ConsultaLote> consultarParaLote(String documentId) {
+        Mono<ConsultaLote> consulta = documentId.length() == 8
+                ? documentLookupCache.buscarDniAsync(documentId).map(r -> r.isEmpty()
+                        ? noEncontrado(documentId, "DNI no encontrado en RENIEC.")
+                        : aInsertar(documentId, () -> crearClienteDesdeReniec(r.get())))
+                : documentLookupCache.buscarRucAsync(documentId).map(r -> r.isEmpty()
+                        ? noEncontrado(documentId, "RUC no encontrado en SUNAT.")
+                        : aInsertar(documentId, () -> crearClienteDesdeSunat(r.get())));
+
+        return consulta.onErrorResume(e -> Mono.just(
+                new ConsultaLote(documentId, null, VerificacionLoteDto.de(documentId, "ERROR", e.getMessage()))));
+    }
+
+    private static ConsultaLote noEncontrado(String documentId, String mensaje) {
+        return new ConsultaLote(documentId, null, VerificacionLoteDto.de(documentId, "NO_ENCONTRADO", mensaje));
+    }
+
+    private static ConsultaLote aInsertar(String documentId, Supplier<Cliente> crear) {
+        try {
+            return new ConsultaLote(documentId, crear.get(), null);
+        } catch (RuntimeException e) {
+            // p. ej. RUC no activo
+            return new ConsultaLote(documentId, null, VerificacionLoteDto.de(documentId, "RECHAZADO", e.getMessage()));
+        }
+    }
+
+    /**
+     * Inserta los clientes nuevos del lote con persist (INSERT en batch JDBC, sin el SELECT previo que
+     * haría save() con ID asignado). Si el lote falla (p. ej. otro proceso registró uno de ellos),
+     * se reintenta fila por fila.
+     */
+    private List<VerificacionLoteDto> registrarLote(List<ConsultaLote> lote) {
+        List<VerificacionLoteDto> resultados = new ArrayList<>(lote.size());
+        List<Cliente> nuevos = new ArrayList<>();
+        for (ConsultaLote c : lote) {
+            if (c.nuevo() != null) nuevos.add(c.nuevo());
+            else resultados.add(c.fallo());
+        }
+        if (nuevos.isEmpty()) {
+            return resultados;
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        try {
+            tx.executeWithoutResult(status -> {
+                nuevos.forEach(entityManager::persist);
+                entityManager.flush();
+            });
+            nuevos.forEach(c -> resultados.add(
+                    new VerificacionLoteDto(c.getDocumentId(), "CREADO", null, ClienteDto.fromEntity(c))));
+        } catch (RuntimeException e) {
+            log.warn("Falló la inserción en lote de {} clientes, se reintenta uno por uno: {}", nuevos.size(), e.getMessage());
+            for (Cliente c : nuevos) {
+                resultados.add(registrarUno(tx, c));
+            }
+        }
+        return resultados;
+    }
+
+    private VerificacionLoteDto registrarUno(TransactionTemplate tx, Cliente cliente) {
+        try {
+            return tx.execute(status -> clienteDao.findById(cliente.getDocumentId())
+                    .map(c -> new VerificacionLoteDto(c.getDocumentId(), "EXISTENTE", null, ClienteDto.fromEntity(c)))
+                    .orElseGet(() -> {
+                        Cliente guardado = clienteDao.save(cliente);
+                        return new VerificacionLoteDto(guardado.getDocumentId(), "CREADO", null, ClienteDto.fromEntity(guardado));
+                    }));
+        } catch (RuntimeException e) {
+            return VerificacionLoteDto.de(cliente.getDocumentId(), "ERROR", e.getMessage());
+        }
+    }
+
+    private void validarDocumento(String documentId) {
+        if (documentId == null || !documentId.matches("\\d{8}|\\d{11}")) {
+            throw new IllegalArgumentException("Debe ser DNI (8 dígitos) o RUC (11 dígitos).");
+        }
+    }
+
     private Cliente crearClienteDesdeReniec(String dni) {
-        ReniecResponseDto data = documentConsumer.verifyByDni(dni);
+        return crearClienteDesdeReniec(documentLookupCache.buscarDni(dni).orElse(null));
+    }
 
+    private Cliente crearClienteDesdeReniec(ReniecResponseDto data) {
         if (data == null || data.documentNumber() == null) {
             throw new RuntimeException("DNI no encontrado en RENIEC.");
         }
@@ -73,8 +259,10 @@ public class ClienteServiceImpl implements IClienteService {
     }
 
     private Cliente crearClienteDesdeSunat(String ruc) {
-        SunatResponseDto data = documentConsumer.verifyByRuc(ruc);
+        return crearClienteDesdeSunat(documentLookupCache.buscarRuc(ruc).orElse(null));
+    }
 
+    private Cliente crearClienteDesdeSunat(SunatResponseDto data) {
         if (data == null || data.numeroDocumento() == null) {
             throw new RuntimeException("RUC no encontrado en SUNAT.");
         }
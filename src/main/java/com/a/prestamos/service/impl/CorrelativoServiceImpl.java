@@ -0,0 +1,123 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.ComprobanteDao;
+import com.a.prestamos.model.dao.EmisionComprobanteDao;
+import com.a.prestamos.model.dao.SerieCorrelativoDao;
+import com.a.prestamos.model.entity.EmisionComprobante;
+import com.a.prestamos.model.entity.SerieCorrelativo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Asignador de correlativos por serie.
+ * <p>
+ * Cada nodo reserva bloques de {@code block-size} números bloqueando la fila de la serie en
+ * {@code series_correlativo} y los reparte en memoria. Con block-size = 1 (por defecto) la serie no
+ * tiene huecos; con bloques mayores los números no usados de un bloque se pierden si el nodo se reinicia.
+ */
+@Service
+@Slf4j
+public class CorrelativoServiceImpl {
+
+    private final SerieCorrelativoDao serieDao;
+    private final ComprobanteDao comprobanteDao;
+    private final EmisionComprobanteDao emisionDao;
+    private final TransactionTemplate nuevaTransaccion;
+
+    private final Map<String, Bloque> bloques = new ConcurrentHashMap<>();
+
+    @Value("${app.facturacion.correlativo.block-size:1}")
+    private int tamanioBloque;
+
+    public CorrelativoServiceImpl(SerieCorrelativoDao serieDao,
+                                  ComprobanteDao comprobanteDao,
+                                  EmisionComprobanteDao emisionDao,
+                                  PlatformTransactionManager transactionManager) {
+        this.serieDao = serieDao;
+        this.comprobanteDao = comprobanteDao;
+        this.emisionDao = emisionDao;
+        this.nuevaTransaccion = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Devuelve el correlativo del comprobante de un pago. Si el pago ya tenía un número reservado en
+     * la bandeja de emisión (intento anterior fallido) lo reutiliza; si no, toma uno nuevo y lo guarda.
+     * Tanto la reserva como el guardado se confirman en transacciones propias para que sobrevivan a un
+     * rollback de la emisión. Se llama sin transacción abierta: cada paso usa una sola conexión del pool.
+     */
+    public long asignar(Long pagoId, String serie) {
+        EmisionComprobante emision = emisionDao.findByPaymentId(pagoId).orElse(null);
+
+        if (emision != null && serie.equals(emision.getSerie()) && emision.getSequential() != null) {
+            return emision.getSequential();
+        }
+
+        long numero = siguiente(serie);
+        if (emision != null) {
+            emisionDao.asignarCorrelativo(emision.getId(), serie, numero);
+        }
+        return numero;
+    }
+
+    private long siguiente(String serie) {
+        Bloque bloque = bloques.computeIfAbsent(serie, s -> new Bloque());
+        synchronized (bloque) {
+            if (bloque.siguiente > bloque.fin) {
+                long fin;
+                try {
+                    fin = nuevaTransaccion.execute(status -> reservarBloque(serie, tamanioBloque));
+                } catch (DataIntegrityViolationException e) {
+                    // Primer uso de la serie: otro nodo insertó la fila a la vez; ya existe y se bloquea normalmente
+                    log.debug("Serie {} inicializada en paralelo por otro nodo; se reintenta la reserva", serie);
+                    fin = nuevaTransaccion.execute(status -> reservarBloque(serie, tamanioBloque));
+                }
+                bloque.siguiente = fin - tamanioBloque + 1;
+                bloque.fin = fin;
+            }
+            return bloque.siguiente++;
+        }
+    }
+
+    /**
+     * Avanza el contador de la serie en {@code cantidad} con la fila bloqueada y devuelve el último
+     * número del bloque reservado. La primera vez inicializa el contador con lo ya emitido.
+     */
+    private long reservarBloque(String serie, int cantidad) {
+        SerieCorrelativo contador = serieDao.findForUpdate(serie)
+                .orElseGet(() -> inicializarSerie(serie));
+
+        long fin = contador.getLastReserved() + cantidad;
+        contador.setLastReserved(fin);
+        serieDao.saveAndFlush(contador);
+
+        log.debug("Serie {}: reservado bloque {}-{}", serie, fin - cantidad + 1, fin);
+        return fin;
+    }
+
+    /**
+     * Si otro nodo inicializa la misma serie en paralelo, el INSERT falla por PK duplicada y
+     * {@link #siguiente} repite la reserva, ya con la fila existente.
+     */
+    private SerieCorrelativo inicializarSerie(String serie) {
+        serieDao.insertar(serie, comprobanteDao.findMaxSequentialBySerie(serie));
+        // La fila recién insertada ya está bloqueada por esta transacción
+        return serieDao.findForUpdate(serie).orElseThrow();
+    }
+
+    /**
+     * Rango [siguiente, fin] de números ya reservados por este nodo.
+     */
+    private static final class Bloque {
+        private long siguiente = 1;
+        private long fin = 0;
+    }
+}
@@ -0,0 +1,374 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.exception.prestamo.ResourceNotFoundException;
+import com.a.prestamos.model.dao.EmisionComprobanteDao;
+import com.a.prestamos.model.dao.PagoDao;
+import com.a.prestamos.model.dto.comprobante.ReemisionProgresoDto;
+import com.a.prestamos.model.entity.EmisionComprobante;
+import com.a.prestamos.model.entity.Pago;
+import com.a.prestamos.model.entity.enums.EmissionState;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pipeline de emisión de comprobantes: bandeja persistente (outbox) + pool acotado de workers.
+ * El pago solo inserta una fila; el envío a APIsPERU/SUNAT y la subida del PDF ocurren fuera del hilo HTTP.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmisionComprobanteServiceImpl {
+
+    private final EmisionComprobanteDao emisionDao;
+    private final PagoDao pagoDao;
+    private final FacturacionServiceImpl facturacionService;
+    private final ThreadPoolTaskExecutor emisionExecutor;
+
+    @Value("${app.facturacion.emision.max-attempts:8}")
+    private int maxIntentos;
+
+    @Value("${app.facturacion.emision.backoff-base:PT10S}")
+    private Duration backoffBase;
+
+    @Value("${app.facturacion.emision.backoff-max:PT30M}")
+    private Duration backoffMax;
+
+    @Value("${app.facturacion.emision.lease:PT5M}")
+    private Duration lease;
+
+    @Value("${app.facturacion.reemision.concurrency:4}")
+    private int reemisionConcurrencia;
+
+    @Value("${app.facturacion.reemision.max-concurrency:8}")
+    private int reemisionMaxConcurrencia;
+
+    @Value("${app.facturacion.reemision.per-second:5}")
+    private double reemisionPorSegundo;
+
+    @Value("${app.facturacion.reemision.page-size:500}")
+    private int reemisionPagina;
+
+    private final AtomicReference<Reemision> reemision = new AtomicReference<>();
+
+    /**
+     * Registra el pago en la bandeja de emisión dentro de la transacción del pago.
+     * Tras el commit intenta despacharlo de inmediato; si el pool está lleno lo recoge el poller.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void encolar(Pago pago) {
+        if (emisionDao.existsByPaymentId(pago.getId())) {
+            return;
+        }
+
+        EmisionComprobante emision = new EmisionComprobante();
+        emision.setPayment(pago);
+        Long emisionId = emisionDao.save(emision).getId();
+
+        TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        log.info("✅ Post-commit: comprobante del pago {} en cola (emisión {})", pago.getId(), emisionId);
+                        despachar(emisionId);
+                    }
+                }
+        );
+    }
+
+    /**
+     * Poller: toma los registros vencidos que quepan en el pool y los despacha.
+     */
+    @Scheduled(fixedDelayString = "${app.facturacion.emision.poll-interval:PT5S}")
+    public void drenar() {
+        int libres = capacidadLibre();
+        if (libres <= 0) {
+            return;
+        }
+
+        List<Long> ids = emisionDao.findIdsListos(Instant.now(), PageRequest.of(0, libres));
+        for (Long id : ids) {
+            despachar(id);
+        }
+    }
+
+    private void despachar(Long emisionId) {
+        try {
+            emisionExecutor.execute(() -> {
+                Integer intento = reclamar(emisionId);
+                if (intento != null) {
+                    procesar(emisionId, intento);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.debug("Pool de emisión lleno. La emisión {} queda para el siguiente ciclo.", emisionId);
+        }
+    }
+
+    /**
+     * Reclama el registro con el lease configurado.
+     *
+     * @return el intento reclamado (token del lease), o null si otro worker se adelantó.
+     */
+    private Integer reclamar(Long emisionId) {
+        Integer intentos = emisionDao.findAttemptsById(emisionId);
+        Instant ahora = Instant.now();
+        if (intentos == null || emisionDao.reclamar(emisionId, intentos, ahora, ahora.plus(lease)) != 1) {
+            return null;
+        }
+        return intentos + 1;
+    }
+
+    /**
+     * Emite el comprobante de un registro ya reclamado en el intento {@code intento}.
+     *
+     * @return null si se emitió, o el mensaje de error si falló (queda reprogramado o FALLIDO).
+     */
+    private String procesar(Long emisionId, int intento) {
+        Long pagoId = emisionDao.findPaymentIdById(emisionId);
+        try {
+            facturacionService.emitirComprobante(pagoId);
+            if (emisionDao.marcarEmitido(emisionId, intento, Instant.now()) == 0) {
+                log.warn("Emisión {} (pago {}): el lease del intento {} venció y otro worker la retomó", emisionId, pagoId, intento);
+            }
+            return null;
+        } catch (Exception e) {
+            return registrarFallo(emisionId, intento, pagoId, e);
+        }
+    }
+
+    private String registrarFallo(Long emisionId, int intento, Long pagoId, Exception e) {
+        String error = truncar(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        Instant ahora = Instant.now();
+
+        if (intento >= maxIntentos) {
+            if (emisionDao.marcarFallido(emisionId, intento, error, ahora) == 1) {
+                log.error("❌ Emisión del pago {} agotó {} intentos: {}", pagoId, intento, error, e);
+            }
+            return error;
+        }
+
+        Duration espera = calcularBackoff(intento);
+        if (emisionDao.reprogramar(emisionId, intento, ahora.plus(espera), error, ahora) == 0) {
+            // Otro worker retomó el registro al vencer el lease: su resultado manda
+            log.warn("Emisión {} (pago {}): fallo del intento {} descartado, el lease venció: {}", emisionId, pagoId, intento, error);
+            return error;
+        }
+        log.warn("Emisión del pago {} falló (intento {}/{}). Reintento en {}s: {}",
+                pagoId, intento, maxIntentos, espera.toSeconds(), error);
+        return error;
+    }
+
+    // ==================== RE-EMISIÓN MASIVA ====================
+
+    /**
+     * Lanza en segundo plano la re-emisión de todos los pagos ACTIVO sin comprobante
+     * (p. ej. tras una caída de SUNAT/APIsPERU). Solo puede haber una en curso.
+     *
+     * @param concurrencia Emisiones simultáneas (acotado por app.facturacion.reemision.max-concurrency).
+     * @param porSegundo Máximo de emisiones iniciadas por segundo hacia APIsPERU.
+     * @return El avance inicial.
+     */
+    public ReemisionProgresoDto reemitirPendientes(Integer concurrencia, Double porSegundo) {
+        int hilos = Math.max(1, Math.min(concurrencia != null ? concurrencia : reemisionConcurrencia, reemisionMaxConcurrencia));
+        double tasa = porSegundo != null && porSegundo > 0 ? porSegundo : reemisionPorSegundo;
+
+        Reemision nueva = new Reemision(hilos, tasa);
+        Reemision actual = reemision.get();
+        if ((actual != null && actual.enCurso) || !reemision.compareAndSet(actual, nueva)) {
+            throw new IllegalStateException("Ya hay una re-emisión masiva en curso.");
+        }
+
+        Thread.ofVirtual().name("reemision-coordinador").start(() -> ejecutarReemision(nueva));
+        return nueva.snapshot();
+    }
+
+    public ReemisionProgresoDto obtenerProgresoReemision() {
+        Reemision actual = reemision.get();
+        if (actual == null) {
+            throw new ResourceNotFoundException("No se ha ejecutado ninguna re-emisión masiva.");
+        }
+        return actual.snapshot();
+    }
+
+    private void ejecutarReemision(Reemision job) {
+        try {
+            log.info("Re-emisión masiva iniciada (concurrencia={}, {}/s)", job.concurrencia, job.porSegundo);
+
+            long intervaloNanos = (long) (1_000_000_000L / job.porSegundo);
+            long siguienteSlot = System.nanoTime();
+
+            try (ExecutorService pool = Executors.newFixedThreadPool(job.concurrencia,
+                    Thread.ofPlatform().name("reemision-", 0).factory())) {
+                Semaphore cupos = new Semaphore(job.concurrencia);
+
+                // Página a página por ID: nunca se cargan todos los IDs del atraso a la vez y cada página
+                // se prepara en la bandeja justo antes de despacharla
+                long ultimo = 0;
+                List<Long> pagina;
+                do {
+                    pagina = pagoDao.findIdsActivosSinComprobanteDesde(ultimo, PageRequest.of(0, reemisionPagina));
+                    if (pagina.isEmpty()) {
+                        break;
+                    }
+                    ultimo = pagina.get(pagina.size() - 1);
+                    Map<Long, Long> emisionPorPago = prepararBandeja(pagina);
+                    job.total += emisionPorPago.size();
+
+                    for (Map.Entry<Long, Long> entry : emisionPorPago.entrySet()) {
+                        // Limitador de tasa: una emisión cada intervaloNanos
+                        long espera = siguienteSlot - System.nanoTime();
+                        if (espera > 0) {
+                            Thread.sleep(espera / 1_000_000, (int) (espera % 1_000_000));
+                        }
+                        siguienteSlot = Math.max(siguienteSlot, System.nanoTime()) + intervaloNanos;
+
+                        cupos.acquire();
+                        pool.execute(() -> {
+                            try {
+                                reemitir(job, entry.getKey(), entry.getValue());
+                            } finally {
+                                cupos.release();
+                            }
+                        });
+                    }
+                } while (pagina.size() == reemisionPagina);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Re-emisión masiva interrumpida");
+        } catch (Exception e) {
+            log.error("Re-emisión masiva abortada: {}", e.getMessage(), e);
+        } finally {
+            job.finalizar();
+            log.info("Re-emisión masiva finalizada: {} emitidos, {} fallidos, {} en proceso por la bandeja, {} omitidos de {}",
+                    job.emitidos.get(), job.fallidos.get(), job.enProceso.get(), job.omitidos.get(), job.total);
+        }
+    }
+
+    private void reemitir(Reemision job, Long pagoId, Long emisionId) {
+        Integer intento = reclamar(emisionId);
+        if (intento == null) {
+            if (emisionDao.findStateById(emisionId) == EmissionState.EN_PROCESO) {
+                // Un worker de la bandeja ya lo está procesando
+                job.enProceso.incrementAndGet();
+            } else {
+                // Otro proceso lo emitió (o lo dio por fallido) entre la preparación y este punto
+                job.omitidos.incrementAndGet();
+            }
+            return;
+        }
+
+        String error = procesar(emisionId, intento);
+        if (error == null) {
+            job.emitidos.incrementAndGet();
+        } else {
+            job.fallidos.incrementAndGet();
+            job.fallos.add(new ReemisionProgresoDto.Fallo(pagoId, error));
+        }
+    }
+
+    /**
+     * Garantiza que cada pago de la página tenga su fila en la bandeja (las crea en lote si faltan), reactiva
+     * las que habían agotado reintentos y adelanta las pendientes que esperaban su backoff: tras una caída casi
+     * todo el atraso está PENDIENTE con el próximo intento hasta backoff-max en el futuro. Devuelve pagoId → emisionId.
+     */
+    private Map<Long, Long> prepararBandeja(List<Long> pagoIds) {
+        Map<Long, Long> existentes = new HashMap<>();
+        for (Object[] fila : emisionDao.findIdsByPaymentIdIn(pagoIds)) {
+            existentes.put((Long) fila[0], (Long) fila[1]);
+        }
+
+        List<EmisionComprobante> nuevas = new ArrayList<>();
+        for (Long pagoId : pagoIds) {
+            if (!existentes.containsKey(pagoId)) {
+                EmisionComprobante emision = new EmisionComprobante();
+                emision.setPayment(pagoDao.getReferenceById(pagoId));
+                nuevas.add(emision);
+            }
+        }
+        for (EmisionComprobante emision : emisionDao.saveAll(nuevas)) {
+            existentes.put(emision.getPayment().getId(), emision.getId());
+        }
+
+        Instant ahora = Instant.now();
+        emisionDao.reactivarFallidos(existentes.values(), ahora);
+        emisionDao.adelantarPendientes(existentes.values(), ahora);
+
+        Map<Long, Long> emisionPorPago = new LinkedHashMap<>();
+        for (Long pagoId : pagoIds) {
+            emisionPorPago.put(pagoId, existentes.get(pagoId));
+        }
+        return emisionPorPago;
+    }
+
+    /**
+     * Backoff exponencial con jitter: base * 2^(intento-1), con tope en backoffMax.
+     */
+    private Duration calcularBackoff(int intentos) {
+        long baseMs = backoffBase.toMillis();
+        long maxMs = backoffMax.toMillis();
+        long exp = baseMs << Math.min(intentos - 1, 20);
+        long esperaMs = Math.min(exp, maxMs);
+        long jitter = ThreadLocalRandom.current().nextLong(esperaMs / 4 + 1);
+        return Duration.ofMillis(esperaMs - jitter);
+    }
+
+    private int capacidadLibre() {
+        int capacidad = emisionExecutor.getMaxPoolSize() + emisionExecutor.getQueueCapacity();
+        return capacidad - emisionExecutor.getActiveCount() - emisionExecutor.getQueueSize();
+    }
+
+    private String truncar(String texto) {
+        return texto.length() > 500 ? texto.substring(0, 500) : texto;
+    }
+
+    /**
+     * Estado mutable de una re-emisión masiva; se expone como {@link ReemisionProgresoDto}.
+     */
+    private static final class Reemision {
+        private final int concurrencia;
+        private final double porSegundo;
+        private final Instant inicio = Instant.now();
+        private final AtomicInteger emitidos = new AtomicInteger();
+        private final AtomicInteger fallidos = new AtomicInteger();
+        private final AtomicInteger enProceso = new AtomicInteger();
+        private final AtomicInteger omitidos = new AtomicInteger();
+        private final Queue<ReemisionProgresoDto.Fallo> fallos = new ConcurrentLinkedQueue<>();
+        private volatile int total;
+        private volatile boolean enCurso = true;
+        private volatile Instant fin;
+
+        private Reemision(int concurrencia, double porSegundo) {
+            this.concurrencia = concurrencia;
+            this.porSegundo = porSegundo;
+        }
+
+        private void finalizar() {
+            this.fin = Instant.now();
+            this.enCurso = false;
+        }
+
+        private ReemisionProgresoDto snapshot() {
+            int e = emitidos.get(), f = fallidos.get(), p = enProceso.get(), o = omitidos.get();
+            return new ReemisionProgresoDto(enCurso, total, e + f + p + o, e, f, p, o,
+                    concurrencia, porSegundo, inicio, fin, List.copyOf(fallos));
+        }
+    }
+}
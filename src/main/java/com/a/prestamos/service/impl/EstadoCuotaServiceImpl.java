@@ -0,0 +1,150 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.CuotaDao;
+import com.a.prestamos.model.dao.WatermarkProcesoDao;
+import com.a.prestamos.model.entity.WatermarkProceso;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Avanza el estado persistido de las cuotas (PENDIENTE / PAGADO_PARCIAL → VENCIDO) fuera del camino
+ * de lectura. Las consultas de préstamos calculan el estado al vuelo; este job mantiene la columna al
+ * día para los reportes y consultas agregadas que filtran por estado.
+ * <p>
+ * Es incremental: el watermark guarda hasta qué fecha de vencimiento ya se procesó, así cada ejecución
+ * solo recorre las cuotas que vencieron desde la anterior. El trabajo se parte en bloques de IDs, cada
+ * uno con un UPDATE por conjunto en su propia transacción junto con el avance, de modo que una ejecución
+ * interrumpida se retoma desde el último bloque confirmado.
+ */
+@Service
+@Slf4j
+public class EstadoCuotaServiceImpl {
+
+    private static final String PROCESO = "cuotas-vencidas";
+
+    /**
+     * Límite inferior de la primera ejecución (sin watermark): procesa todo lo vencido.
+     */
+    private static final LocalDate SIN_WATERMARK = LocalDate.of(1900, 1, 1);
+
+    private final CuotaDao cuotaDao;
+    private final WatermarkProcesoDao watermarkDao;
+    private final TransactionTemplate transaccion;
+
+    @Value("${app.cuotas.estado.chunk-size:50000}")
+    private int tamanioBloque;
+
+    @Value("${app.cuotas.estado.lease:PT30M}")
+    private Duration lease;
+
+    public EstadoCuotaServiceImpl(CuotaDao cuotaDao,
+                                  WatermarkProcesoDao watermarkDao,
+                                  PlatformTransactionManager transactionManager) {
+        this.cuotaDao = cuotaDao;
+        this.watermarkDao = watermarkDao;
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Al arrancar se pone al día por si el nodo estuvo apagado a la hora programada
+     * (o retoma una ejecución que quedó a medias).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        try {
+            actualizarVencidas();
+        } catch (RuntimeException e) {
+            log.error("No se pudo ejecutar el paso de cuotas vencidas al iniciar: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${app.cuotas.estado.cron:0 5 0 * * *}")
+    public void actualizarVencidas() {
+        asegurarWatermark();
+
+        if (watermarkDao.reclamar(PROCESO, Instant.now(), Instant.now().plus(lease)) == 0) {
+            log.info("El paso de cuotas vencidas ya se está ejecutando en otro nodo");
+            return;
+        }
+        try {
+            ejecutar();
+        } finally {
+            watermarkDao.liberar(PROCESO);
+        }
+    }
+
+    private void ejecutar() {
+        WatermarkProceso marca = watermarkDao.findById(PROCESO).orElseThrow();
+
+        LocalDate desde = marca.getProcessedUntil() != null ? marca.getProcessedUntil() : SIN_WATERMARK;
+        // Si quedó una ejecución a medias, se termina con su misma fecha objetivo
+        LocalDate hasta = marca.getTargetDate() != null ? marca.getTargetDate() : LocalDate.now();
+        if (!desde.isBefore(hasta)) {
+            return;
+        }
+
+        long inicio = System.nanoTime();
+        long filas = 0;
+
+        List<Object[]> rango = cuotaDao.findRangoIdsPorVencimiento(desde, hasta);
+        Object[] minMax = rango.isEmpty() ? null : rango.get(0);
+
+        if (minMax != null && minMax[0] != null) {
+            long minId = (Long) minMax[0];
+            long maxId = (Long) minMax[1];
+            long ultimo = marca.getLastId() != null ? marca.getLastId() : minId - 1;
+
+            if (ultimo >= minId) {
+                log.info("Retomando paso de cuotas vencidas ({} → {}) desde el ID {}", desde, hasta, ultimo);
+            }
+
+            while (ultimo < maxId) {
+                long desdeId = ultimo;
+                long hastaId = Math.min(ultimo + tamanioBloque, maxId);
+
+                Integer actualizadas = transaccion.execute(status -> {
+                    int n = cuotaDao.marcarVencidasEnBloque(desdeId, hastaId, desde, hasta);
+                    watermarkDao.registrarAvance(PROCESO, hasta, hastaId, Instant.now());
+                    return n;
+                });
+
+                filas += actualizadas != null ? actualizadas : 0;
+                ultimo = hastaId;
+            }
+        }
+
+        long millis = Duration.ofNanos(System.nanoTime() - inicio).toMillis();
+        watermarkDao.completar(PROCESO, hasta, filas, millis, Instant.now());
+
+        log.info("Cuotas marcadas como VENCIDO (vencimiento {} → {}): {} filas en {} ms ({} filas/s)",
+                desde, hasta.minusDays(1), filas, millis, millis == 0 ? filas : filas * 1000 / millis);
+    }
+
+    /**
+     * Crea la fila del watermark la primera vez. Si otro nodo la crea en paralelo, basta con la suya.
+     */
+    private void asegurarWatermark() {
+        if (watermarkDao.existsById(PROCESO)) {
+            return;
+        }
+        try {
+            WatermarkProceso marca = new WatermarkProceso();
+            marca.setName(PROCESO);
+            watermarkDao.saveAndFlush(marca);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Watermark {} creado por otro nodo", PROCESO);
+        }
+    }
+}
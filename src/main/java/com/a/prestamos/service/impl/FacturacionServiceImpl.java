@@ -7,42 +7,85 @@ import com.a.prestamos.model.entity.Cliente;
 import com.a.prestamos.model.entity.Comprobante;
 import com.a.prestamos.model.entity.Cuota;
 import com.a.prestamos.model.entity.Pago;
+import com.a.prestamos.util.MoneyMath;
 import com.a.prestamos.util.NumberToLetterConverter;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.ObjectCannedACL;
-import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.BlockingInputStreamAsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
-
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Emisión de comprobantes electrónicos en APIsPERU/SUNAT.
+ * <p>
+ * Ninguna transacción queda abierta durante la reserva del correlativo ni durante las llamadas HTTP: cada paso
+ * toma una sola conexión del pool y la devuelve antes del siguiente. Así cada worker de emisión ocupa como mucho
+ * una conexión a la vez y no puede quedarse esperando una segunda con la primera tomada.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class FacturacionServiceImpl {
 
     private final ComprobanteDao comprobanteDao;
     private final PagoDao pagoDao; // <--- AGREGAR ESTO (Inyeccción)
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final S3Client s3;
+    private final CorrelativoServiceImpl correlativoService;
+    private final RestTemplate restTemplate;
+    private final S3AsyncClient s3;
+    private final ThreadPoolTaskExecutor pdfExecutor;
+    private final TransactionTemplate lectura;
+    private final TransactionTemplate transaccion;
+
+    /**
+     * Tamaño de cada parte del multipart upload (mínimo de S3: 5 MB). Es lo máximo que se retiene
+     * en memoria por PDF cuando APIsPERU no informa el Content-Length.
+     */
+    private static final int TAMANIO_PARTE = 5 * 1024 * 1024;
+
+    /**
+     * La proporción pagada de la cuota se expresa con 10 decimales (10^10 = 1).
+     */
+    private static final long PROPORCION_ESCALA = 10_000_000_000L;
+
+    public FacturacionServiceImpl(ComprobanteDao comprobanteDao,
+                                  PagoDao pagoDao,
+                                  CorrelativoServiceImpl correlativoService,
+                                  RestTemplate restTemplate,
+                                  S3AsyncClient s3,
+                                  ThreadPoolTaskExecutor pdfExecutor,
+                                  PlatformTransactionManager transactionManager) {
+        this.comprobanteDao = comprobanteDao;
+        this.pagoDao = pagoDao;
+        this.correlativoService = correlativoService;
+        this.restTemplate = restTemplate;
+        this.s3 = s3;
+        this.pdfExecutor = pdfExecutor;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
 
     @Value("${app.apisperu.api-url}")
     private String apiUrl;
@@ -77,158 +120,191 @@ public class FacturacionServiceImpl {
     @Value("${app.do.spaces.endpoint-url}")
     private String spacesEndpoint;
 
-    // CAMBIO CLAVE: Recibe ID, no Entidad. Y crea su propia transacción.
-    @Async // Opcional si usas el ejecutor de Spring, pero con tu new Thread funciona igual
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    // CAMBIO CLAVE: Recibe ID, no Entidad.
+    // La invoca el worker de EmisionComprobanteServiceImpl: si falla, LANZA la excepción para que se reintente.
     public void emitirComprobante(Long pagoId) {
-        try {
-            if (comprobanteDao.existsByPaymentId(pagoId)) {
-                log.info("Ya existe comprobante para el pago {}. Omitiendo.", pagoId);
-                return;
-            }
+        // 1. Leer el pago y armar el comprobante (transacción de solo lectura, se cierra al terminar)
+        InvoiceRequest invoice = lectura.execute(status -> armarComprobante(pagoId));
+        if (invoice == null) {
+            log.info("Ya existe comprobante para el pago {}. Omitiendo.", pagoId);
+            return;
+        }
 
-            Pago pago = pagoDao.findById(pagoId)
-                    .orElseThrow(() -> new RuntimeException("Pago no encontrado para facturar"));
-
-            Cuota cuota = pago.getInstallment();
-            Cliente cliente = cuota.getLoan().getCustomer();
-
-            // 1. Determinar Tipo y Serie
-            boolean esRuc = cliente.getDocumentId().length() == 11;
-            String tipoDoc = esRuc ? "01" : "03"; // 01 Factura, 03 Boleta
-            String serie = esRuc ? "F001" : "B001";
-
-            long ultimoCorrelativo = comprobanteDao.countComprobantesBySerie(serie);
-            String correlativo = String.format("%08d", ultimoCorrelativo + 1);
-
-            // =================================================================================
-            // LÓGICA DE MONTOS (CAPITAL + INTERÉS DE CUOTA)
-            // =================================================================================
-            BigDecimal montoPagadoCuota = pago.getAmountPaid(); // Esto es SOLO lo que amortiza la cuota
-            BigDecimal totalCuota = cuota.getAmount();
-
-            // Proporción pagada (ej: si paga media cuota)
-            BigDecimal proporcion = montoPagadoCuota.divide(totalCuota, 10, RoundingMode.HALF_UP);
-
-            BigDecimal interesProporcional = cuota.getInterest().multiply(proporcion).setScale(2, RoundingMode.HALF_UP);
-            BigDecimal igvProporcional = cuota.getIgv().multiply(proporcion).setScale(2, RoundingMode.HALF_UP);
-            BigDecimal capitalProporcional = cuota.getPrincipal().multiply(proporcion).setScale(2, RoundingMode.HALF_UP);
-
-            // Ajuste por redondeo para que sume exactamente montoPagadoCuota
-            BigDecimal sumaParcial = interesProporcional.add(igvProporcional).add(capitalProporcional);
-            BigDecimal diferencia = montoPagadoCuota.subtract(sumaParcial);
-            capitalProporcional = capitalProporcional.add(diferencia);
-
-            // =================================================================================
-            // LÓGICA DE MORA (NUEVO)
-            // =================================================================================
-            BigDecimal montoMora = pago.getMontMora() != null ? pago.getMontMora() : BigDecimal.ZERO;
-            BigDecimal baseMora = BigDecimal.ZERO;
-            BigDecimal igvMora = BigDecimal.ZERO;
-
-            if (montoMora.compareTo(BigDecimal.ZERO) > 0) {
-                // La mora incluye IGV (precio final), así que desglosamos:
-                // Base = Mora / 1.18
-                baseMora = montoMora.divide(new BigDecimal("1.18"), 2, RoundingMode.HALF_UP);
-                igvMora = montoMora.subtract(baseMora);
-            }
+        // 2. Correlativo reservado por serie (sin COUNT y sin carreras entre workers), en sus propias transacciones
+        long numero = correlativoService.asignar(pagoId, invoice.getSerie());
+        invoice.setCorrelativo(String.format("%08d", numero));
 
-            // =================================================================================
-            // CONSTRUCCIÓN DE DETALLES
-            // =================================================================================
-            List<InvoiceRequest.Detail> detalles = new ArrayList<>();
-            BigDecimal totalGravadas = BigDecimal.ZERO;
-            BigDecimal totalInafectas = BigDecimal.ZERO;
-            BigDecimal totalIgv = BigDecimal.ZERO;
-
-            // ITEM 1: Intereses Compensatorios (Gravado)
-            if (interesProporcional.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal precioUnitario = interesProporcional.add(igvProporcional);
-                detalles.add(crearDetalle("INT-001", "INTERESES CUOTA " + cuota.getNum(),
-                        interesProporcional, igvProporcional, precioUnitario, 10)); // 10 = Gravado
-
-                totalGravadas = totalGravadas.add(interesProporcional);
-                totalIgv = totalIgv.add(igvProporcional);
-            }
+        // 3. Enviar a SUNAT sin transacción abierta
+        enviarASunat(invoice, pagoId);
+    }
 
-            // ITEM 2: Amortización Capital (Inafecto)
-            if (capitalProporcional.compareTo(BigDecimal.ZERO) > 0) {
-                detalles.add(crearDetalle("CAP-001", "CAPITAL CUOTA " + cuota.getNum(),
-                        capitalProporcional, BigDecimal.ZERO, capitalProporcional, 30)); // 30 = Inafecto
+    /**
+     * Arma el comprobante del pago, todavía sin correlativo.
+     *
+     * @return null si el pago ya tiene comprobante.
+     */
+    private InvoiceRequest armarComprobante(Long pagoId) {
+        if (comprobanteDao.existsByPaymentId(pagoId)) {
+            return null;
+        }
 
-                totalInafectas = totalInafectas.add(capitalProporcional);
-            }
+        Pago pago = pagoDao.findById(pagoId)
+                .orElseThrow(() -> new RuntimeException("Pago no encontrado para facturar"));
+
+        Cuota cuota = pago.getInstallment();
+        Cliente cliente = cuota.getLoan().getCustomer();
+
+        // Determinar Tipo y Serie
+        boolean esRuc = cliente.getDocumentId().length() == 11;
+        String tipoDoc = esRuc ? "01" : "03"; // 01 Factura, 03 Boleta
+        String serie = esRuc ? "F001" : "B001";
+
+        // =================================================================================
+        // LÓGICA DE MONTOS (CAPITAL + INTERÉS DE CUOTA)
+        // =================================================================================
+        // En céntimos (MoneyMath); mismos redondeos HALF_UP que con BigDecimal
+        Desglose desglose = desglosar(
+                MoneyMath.aCentimos(pago.getAmountPaid()), // Esto es SOLO lo que amortiza la cuota
+                MoneyMath.aCentimos(cuota.getAmount()),
+                MoneyMath.aCentimos(cuota.getInterest()),
+                MoneyMath.aCentimos(cuota.getIgv()),
+                MoneyMath.aCentimos(cuota.getPrincipal()));
+
+        BigDecimal interesProporcional = MoneyMath.aSoles(desglose.interes());
+        BigDecimal igvProporcional = MoneyMath.aSoles(desglose.igv());
+        BigDecimal capitalProporcional = MoneyMath.aSoles(desglose.capital());
+
+        // =================================================================================
+        // LÓGICA DE MORA (NUEVO)
+        // =================================================================================
+        BigDecimal montoMora = pago.getMontMora() != null ? pago.getMontMora() : BigDecimal.ZERO;
+        BigDecimal baseMora = BigDecimal.ZERO;
+        BigDecimal igvMora = BigDecimal.ZERO;
+
+        if (montoMora.compareTo(BigDecimal.ZERO) > 0) {
+            // La mora incluye IGV (precio final), así que desglosamos:
+            // Base = Mora / 1.18
+            long moraCentimos = MoneyMath.aCentimos(montoMora);
+            long baseCentimos = baseSinIgv(moraCentimos);
+            baseMora = MoneyMath.aSoles(baseCentimos);
+            igvMora = MoneyMath.aSoles(moraCentimos - baseCentimos);
+        }
 
-            // ITEM 3: Mora (Gravado) - NUEVO BLOQUE
-            if (montoMora.compareTo(BigDecimal.ZERO) > 0) {
-                detalles.add(crearDetalle("MORA-001", "INTERESES MORATORIOS POR RETRASO",
-                        baseMora, igvMora, montoMora, 10)); // 10 = Gravado
+        // =================================================================================
+        // CONSTRUCCIÓN DE DETALLES
+        // =================================================================================
+        List<InvoiceRequest.Detail> detalles = new ArrayList<>();
+        BigDecimal totalGravadas = BigDecimal.ZERO;
+        BigDecimal totalInafectas = BigDecimal.ZERO;
+        BigDecimal totalIgv = BigDecimal.ZERO;
+
+        // ITEM 1: Intereses Compensatorios (Gravado)
+        if (interesProporcional.compareTo(BigDecimal.ZERO) > 0) {
+            BigDecimal precioUnitario = interesProporcional.add(igvProporcional);
+            detalles.add(crearDetalle("INT-001", "INTERESES CUOTA " + cuota.getNum(),
+                    interesProporcional, igvProporcional, precioUnitario, 10)); // 10 = Gravado
+
+            totalGravadas = totalGravadas.add(interesProporcional);
+            totalIgv = totalIgv.add(igvProporcional);
+        }
 
-                totalGravadas = totalGravadas.add(baseMora);
-                totalIgv = totalIgv.add(igvMora);
-            }
+        // ITEM 2: Amortización Capital (Inafecto)
+        if (capitalProporcional.compareTo(BigDecimal.ZERO) > 0) {
+            detalles.add(crearDetalle("CAP-001", "CAPITAL CUOTA " + cuota.getNum(),
+                    capitalProporcional, BigDecimal.ZERO, capitalProporcional, 30)); // 30 = Inafecto
 
-            // TOTAL FINAL (Cuota + Mora)
-            BigDecimal totalVenta = montoPagadoCuota.add(montoMora);
-
-            // Validación de seguridad (Opcional)
-            BigDecimal checkTotal = totalGravadas.add(totalInafectas).add(totalIgv);
-            // checkTotal debería ser igual a totalVenta (con diff de 0.01 max por redondeos)
-
-            // =================================================================================
-            // CONSTRUIR INVOICE
-            // =================================================================================
-            String fechaEmision = LocalDate.now().atStartOfDay().atZone(ZoneId.of("America/Lima"))
-                    .format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX"));
-
-            InvoiceRequest invoice = InvoiceRequest.builder()
-                    .ublVersion("2.1")
-                    .tipoOperacion("0101")
-                    .tipoDoc(tipoDoc)
-                    .serie(serie)
-                    .correlativo(correlativo)
-                    .fechaEmision(fechaEmision)
-                    .tipoMoneda("PEN")
-                    .formaPago(InvoiceRequest.FormaPago.builder().moneda("PEN").tipo("Contado").build())
-                    .client(InvoiceRequest.Client.builder()
-                            .tipoDoc(esRuc ? "6" : "1")
-                            .numDoc(cliente.getDocumentId())
-                            .rznSocial(cliente.getFullName())
-                            .build())
-                    .company(InvoiceRequest.Company.builder()
-                            .ruc(emisorRuc)
-                            .razonSocial(emisorRazonSocial)
-                            .nombreComercial(emisorRazonSocial)
-                            .address(InvoiceRequest.Address.builder()
-                                    .ubigueo(emisorUbigueo)
-                                    .departamento(emisorDepartamento)
-                                    .provincia(emisorProvincia)
-                                    .distrito(emisorDistrito)
-                                    .direccion(emisorDireccion)
-                                    .build())
-                            .build())
-                    .mtoOperGravadas(totalGravadas)
-                    .mtoOperExoneradas(BigDecimal.ZERO)
-                    .mtoOperInafectas(totalInafectas)
-                    .mtoIGV(totalIgv)
-                    .totalImpuestos(totalIgv)
-                    .valorVenta(totalGravadas.add(totalInafectas))
-                    .subTotal(totalVenta)
-                    .mtoImpVenta(totalVenta)
-                    .details(detalles)
-                    .legends(List.of(InvoiceRequest.Legend.builder()
-                            .code("1000")
-                            .value(NumberToLetterConverter.convert(totalVenta).toUpperCase())
-                            .build()))
-                    .build();
+            totalInafectas = totalInafectas.add(capitalProporcional);
+        }
 
-            enviarASunat(invoice, pago, serie, correlativo, tipoDoc);
+        // ITEM 3: Mora (Gravado) - NUEVO BLOQUE
+        if (montoMora.compareTo(BigDecimal.ZERO) > 0) {
+            detalles.add(crearDetalle("MORA-001", "INTERESES MORATORIOS POR RETRASO",
+                    baseMora, igvMora, montoMora, 10)); // 10 = Gravado
 
-        } catch (Exception e) {
-            log.error("Error emitiendo comprobante para pago " + pagoId, e);
+            totalGravadas = totalGravadas.add(baseMora);
+            totalIgv = totalIgv.add(igvMora);
         }
+
+        // TOTAL FINAL (Cuota + Mora)
+        BigDecimal totalVenta = pago.getAmountPaid().add(montoMora);
+
+        // Validación de seguridad (Opcional)
+        BigDecimal checkTotal = totalGravadas.add(totalInafectas).add(totalIgv);
+        // checkTotal debería ser igual a totalVenta (con diff de 0.01 max por redondeos)
+
+        // =================================================================================
+        // CONSTRUIR INVOICE
+        // =================================================================================
+        String fechaEmision = LocalDate.now().atStartOfDay().atZone(ZoneId.of("America/Lima"))
+                .format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX"));
+
+        return InvoiceRequest.builder()
+                .ublVersion("2.1")
+                .tipoOperacion("0101")
+                .tipoDoc(tipoDoc)
+                .serie(serie)
+                .fechaEmision(fechaEmision)
+                .tipoMoneda("PEN")
+                .formaPago(InvoiceRequest.FormaPago.builder().moneda("PEN").tipo("Contado").build())
+                .client(InvoiceRequest.Client.builder()
+                        .tipoDoc(esRuc ? "6" : "1")
+                        .numDoc(cliente.getDocumentId())
+                        .rznSocial(cliente.getFullName())
+                        .build())
+                .company(InvoiceRequest.Company.builder()
+                        .ruc(emisorRuc)
+                        .razonSocial(emisorRazonSocial)
+                        .nombreComercial(emisorRazonSocial)
+                        .address(InvoiceRequest.Address.builder()
+                                .ubigueo(emisorUbigueo)
+                                .departamento(emisorDepartamento)
+                                .provincia(emisorProvincia)
+                                .distrito(emisorDistrito)
+                                .direccion(emisorDireccion)
+                                .build())
+                        .build())
+                .mtoOperGravadas(totalGravadas)
+                .mtoOperExoneradas(BigDecimal.ZERO)
+                .mtoOperInafectas(totalInafectas)
+                .mtoIGV(totalIgv)
+                .totalImpuestos(totalIgv)
+                .valorVenta(totalGravadas.add(totalInafectas))
+                .subTotal(totalVenta)
+                .mtoImpVenta(totalVenta)
+                .details(detalles)
+                .legends(List.of(InvoiceRequest.Legend.builder()
+                        .code("1000")
+                        .value(NumberToLetterConverter.convert(totalVenta).toUpperCase())
+                        .build()))
+                .build();
     }
 
+    /**
+     * Parte lo pagado de una cuota en interés, IGV y capital, en la misma proporción que la cuota completa.
+     * Todo en céntimos; el capital absorbe el redondeo para que la suma sea exactamente {@code montoPagado}.
+     */
+    static Desglose desglosar(long montoPagado, long totalCuota, long interesCuota, long igvCuota, long capitalCuota) {
+        // Proporción pagada (ej: si paga media cuota), con 10 decimales
+        long proporcion = MoneyMath.multiplicarDividir(montoPagado, PROPORCION_ESCALA, totalCuota);
+
+        long interes = MoneyMath.multiplicarDividir(interesCuota, proporcion, PROPORCION_ESCALA);
+        long igv = MoneyMath.multiplicarDividir(igvCuota, proporcion, PROPORCION_ESCALA);
+        long capital = MoneyMath.multiplicarDividir(capitalCuota, proporcion, PROPORCION_ESCALA);
+
+        // Ajuste por redondeo para que sume exactamente montoPagado
+        capital += montoPagado - (interes + igv + capital);
+        return new Desglose(interes, igv, capital);
+    }
+
+    /**
+     * Valor de venta de un precio con IGV incluido: Precio / 1.18, en céntimos y con redondeo HALF_UP.
+     */
+    static long baseSinIgv(long precioCentimos) {
+        return MoneyMath.multiplicarDividir(precioCentimos, 100, 118);
+    }
+
+    record Desglose(long interes, long igv, long capital) {}
+
     // Helper para reducir código repetitivo
     private InvoiceRequest.Detail crearDetalle(String codigo, String desc, BigDecimal valorUnitario,
                                                BigDecimal igv, BigDecimal precioUnitario, int tipoAfe) {
@@ -248,7 +324,10 @@ public class FacturacionServiceImpl {
                 .build();
     }
 
-    private void enviarASunat(InvoiceRequest invoice, Pago pago, String serie, String correlativo, String tipoDoc) {
+    private void enviarASunat(InvoiceRequest invoice, Long pagoId) {
+        String serie = invoice.getSerie();
+        String correlativo = invoice.getCorrelativo();
+
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.setBearerAuth(apiToken);
@@ -257,14 +336,22 @@ public class FacturacionServiceImpl {
 
         try {
             log.info("Request a SUNAT: {}", new ObjectMapper().writeValueAsString(invoice));
+        } catch (JsonProcessingException e) {
+            log.warn("No se pudo serializar el request para el log: {}", e.getMessage());
+        }
 
-            // Llamada POST a /invoice/send
-            JsonNode response = restTemplate.postForObject(apiUrl + "/invoice/send", request, JsonNode.class);
-
+        // El PDF se genera y sube en paralelo al envío a SUNAT, pero como objeto privado: solo se hace
+        // público si SUNAT acepta. Si rechaza (o el envío falla) se borra del bucket.
+        CompletableFuture<String> pdf = CompletableFuture.supplyAsync(
+                () -> obtenerPdf(invoice, serie, correlativo), pdfExecutor);
 
-            // Leer respuesta
-            String xmlUrl = response.path("xml").asText();
-            String hash = response.path("hash").asText();
+        JsonNode response;
+        try {
+            // Llamada POST a /invoice/send (si APIsPERU no responde, la excepción sube al worker y se reintenta)
+            response = restTemplate.postForObject(apiUrl + "/invoice/send", request, JsonNode.class);
+            if (response == null) {
+                throw new IllegalStateException("APIsPERU devolvió una respuesta vacía");
+            }
 
             // Verificar respuesta SUNAT
             JsonNode sunatResponse = response.path("sunatResponse");
@@ -273,30 +360,41 @@ public class FacturacionServiceImpl {
             if (!success) {
                 String error = sunatResponse.path("error").path("message").asText();
                 log.error("SUNAT rechazó el comprobante: {}", error);
-                return;
+                throw new IllegalStateException("SUNAT rechazó el comprobante " + serie + "-" + correlativo + ": " + error);
             }
+        } catch (RuntimeException e) {
+            pdf.thenAccept(this::descartarPdf);
+            throw e;
+        }
 
-            // 2. Obtener PDF
-            String pdfUrl = obtenerPdf(invoice, serie, correlativo);
+        // Leer respuesta
+        String xmlUrl = response.path("xml").asText();
+        String hash = response.path("hash").asText();
 
-            // 6. Guardar Comprobante en BD
-            Comprobante comprobante = new Comprobante();
-            comprobante.setPayment(pago);
-            comprobante.setSerie(serie);
-            comprobante.setSequential(Long.valueOf(correlativo));
-            comprobante.setProofType(tipoDoc);
-            comprobante.setUrlXml(xmlUrl);
-            comprobante.setUrlPdf(pdfUrl);
-            comprobante.setHash(hash);  // Útil para consultas
+        // 2. Esperar el PDF y publicarlo (null si falló: el comprobante se guarda igual, sin URL de PDF)
+        String pdfUrl = publicarPdf(pdf.join());
 
-            comprobanteDao.save(comprobante);
-            log.info("Comprobante emitido: {}-{}", serie, correlativo);
+        // 6. Guardar Comprobante en BD
+        Comprobante comprobante = new Comprobante();
+        comprobante.setSerie(serie);
+        comprobante.setSequential(Long.valueOf(correlativo));
+        comprobante.setProofType(invoice.getTipoDoc());
+        comprobante.setUrlXml(xmlUrl);
+        comprobante.setUrlPdf(pdfUrl);
+        comprobante.setHash(hash);  // Útil para consultas
 
-        } catch (Exception e) {
-            log.error("Error conectando con APIsPERU", e);
-        }
+        transaccion.executeWithoutResult(status -> {
+            comprobante.setPayment(pagoDao.getReferenceById(pagoId));
+            comprobanteDao.save(comprobante);
+        });
+        log.info("Comprobante emitido: {}-{}", serie, correlativo);
     }
 
+    /**
+     * Genera el PDF en APIsPERU y lo sube a Spaces como objeto privado.
+     *
+     * @return La key del objeto, o null si no se pudo obtener o subir.
+     */
     private String obtenerPdf(InvoiceRequest invoice, String serie, String correlativo) {
         try {
             HttpHeaders headers = new HttpHeaders();
@@ -306,34 +404,144 @@ public class FacturacionServiceImpl {
             // 🔥 Aquí enviamos el MISMO objeto invoice que se usó en /invoice/send
             HttpEntity<InvoiceRequest> request = new HttpEntity<>(invoice, headers);
 
-            // Endpoint /invoice/pdf → retorna PDF en byte[]
-            byte[] pdfBytes = restTemplate.postForObject(apiUrl + "/invoice/pdf", request, byte[].class);
+            String fileName = "comprobantes/" + serie + "-" + correlativo + ".pdf";
 
-            if (pdfBytes == null || pdfBytes.length == 0)
-                return null;
+            // Endpoint /invoice/pdf → el cuerpo se pasa a Spaces mientras se lee, sin cargarlo entero
+            Boolean subido = restTemplate.execute(apiUrl + "/invoice/pdf", HttpMethod.POST,
+                    restTemplate.httpEntityCallback(request),
+                    response -> subirPdf(fileName, response.getBody(), response.getHeaders().getContentLength()));
 
-            String fileName = "comprobantes/" + serie + "-" + correlativo + ".pdf";
+            return Boolean.TRUE.equals(subido) ? fileName : null;
 
-            // SUBIR A SPACE
+        } catch (Exception e) {
+            log.error("Error obteniendo PDF: {}", e.getMessage());
+        }
+
+        return null;
+    }
+
+    /**
+     * Hace público el PDF de un comprobante aceptado por SUNAT y devuelve su URL pública.
+     */
+    private String publicarPdf(String fileName) {
+        if (fileName == null)
+            return null;
+
+        try {
+            s3.putObjectAcl(PutObjectAclRequest.builder()
+                    .bucket(bucket)
+                    .key(fileName)
+                    .acl(ObjectCannedACL.PUBLIC_READ)
+                    .build()).join();
+        } catch (RuntimeException e) {
+            log.error("No se pudo publicar el PDF {}: {}", fileName, e.getMessage());
+            return null;
+        }
+
+        // URL PÚBLICA
+        return spacesEndpoint.replace("https://", "https://" + bucket + ".") + "/" + fileName;
+    }
+
+    /**
+     * Borra el PDF (privado) de un comprobante que SUNAT no aceptó.
+     */
+    private void descartarPdf(String fileName) {
+        if (fileName == null)
+            return;
+
+        s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(fileName).build())
+                .whenComplete((r, e) -> {
+                    if (e != null) {
+                        log.warn("No se pudo borrar el PDF {} del comprobante no emitido: {}", fileName, e.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Sube el PDF a Spaces leyendo directamente el stream de la respuesta. Con Content-Length se hace
+     * un único PUT en streaming; sin él, un multipart upload por partes de {@link #TAMANIO_PARTE}.
+     * Devuelve false si el PDF vino vacío.
+     */
+    private boolean subirPdf(String fileName, InputStream pdf, long longitud) throws IOException {
+        if (longitud == 0)
+            return false;
+
+        if (longitud > 0) {
             PutObjectRequest put = PutObjectRequest.builder()
                     .bucket(bucket)
                     .key(fileName)
                     .contentType("application/pdf")
-                    .acl(ObjectCannedACL.PUBLIC_READ) // si quieres acceso directo
+                    .contentLength(longitud)
+                    .acl(ObjectCannedACL.PRIVATE) // se publica cuando SUNAT acepta
                     .build();
 
-            s3.putObject(put, RequestBody.fromBytes(pdfBytes));
+            BlockingInputStreamAsyncRequestBody body = AsyncRequestBody.forBlockingInputStream(longitud);
+            CompletableFuture<PutObjectResponse> subida = s3.putObject(put, body);
+            body.writeInputStream(pdf);
+            subida.join();
+            return true;
+        }
 
-            // URL PÚBLICA
-            String publicUrl = spacesEndpoint.replace("https://", "https://" + bucket + ".")
-                    + "/" + fileName;
+        return subirPorPartes(fileName, pdf);
+    }
 
-            return publicUrl;
+    private boolean subirPorPartes(String fileName, InputStream pdf) throws IOException {
+        byte[] parte = pdf.readNBytes(TAMANIO_PARTE);
+        if (parte.length == 0)
+            return false;
 
-        } catch (Exception e) {
-            log.error("Error obteniendo PDF: {}", e.getMessage());
+        // Cabe en una sola parte: PUT directo
+        if (parte.length < TAMANIO_PARTE) {
+            PutObjectRequest put = PutObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(fileName)
+                    .contentType("application/pdf")
+                    .acl(ObjectCannedACL.PRIVATE)
+                    .build();
+            s3.putObject(put, AsyncRequestBody.fromBytes(parte)).join();
+            return true;
         }
 
-        return null;
+        String uploadId = s3.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(fileName)
+                .contentType("application/pdf")
+                .acl(ObjectCannedACL.PRIVATE)
+                .build()).join().uploadId();
+
+        try {
+            List<CompletedPart> partes = new ArrayList<>();
+            int numero = 1;
+
+            // Mientras se sube una parte se lee la siguiente: como máximo dos partes en memoria
+            while (parte.length > 0) {
+                int n = numero++;
+                CompletableFuture<UploadPartResponse> subida = s3.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucket)
+                        .key(fileName)
+                        .uploadId(uploadId)
+                        .partNumber(n)
+                        .build(), AsyncRequestBody.fromBytes(parte));
+
+                parte = pdf.readNBytes(TAMANIO_PARTE);
+                partes.add(CompletedPart.builder().partNumber(n).eTag(subida.join().eTag()).build());
+            }
+
+            s3.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(fileName)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(partes).build())
+                    .build()).join();
+            return true;
+
+        } catch (RuntimeException | IOException e) {
+            s3.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(fileName)
+                    .uploadId(uploadId)
+                    .build());
+            throw e;
+        }
     }
 }
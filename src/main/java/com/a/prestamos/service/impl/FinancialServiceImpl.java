@@ -3,6 +3,7 @@ package com.a.prestamos.service.impl;
 import com.a.prestamos.model.entity.Cuota;
 import com.a.prestamos.model.entity.Prestamo;
 import com.a.prestamos.service.IFinancialService;
+import com.a.prestamos.util.MoneyMath;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -11,86 +12,81 @@ import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Cálculos del cronograma. Los montos se operan en céntimos ({@link MoneyMath}) y se convierten a
+ * BigDecimal solo al llenar las entidades; el redondeo es el mismo HALF_UP a 2 decimales de siempre.
+ */
 @Service
 public class FinancialServiceImpl implements IFinancialService {
-    private static final int FINANCIAL_SCALE = 2; // 2 decimales para montos monetarios
-    private static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_UP;
-    private static final MathContext MC = new MathContext(18, RoundingMode.HALF_UP); // Alta precisión para cálculos
-    // intermedios
+    private static final MathContext MC = new MathContext(18, RoundingMode.HALF_UP); // Alta precisión para el factor de la cuota
 
-    // Constantes para IGV (18%)
-    private static final BigDecimal IGV_RATE = new BigDecimal("0.18");
-    private static final BigDecimal DIVISOR_IGV = new BigDecimal("1.18");
+    // IGV (18%): Valor Venta = Precio / 1.18 → en céntimos, Precio × 100 / 118
+    private static final long IGV_NUMERADOR = 100;
+    private static final long IGV_DIVISOR = 118;
 
     @Override
     public BigDecimal calculateTem(BigDecimal tea) {
         // Fórmula: TEM = (1 + TEA)^(1/12) - 1
-        BigDecimal base = BigDecimal.ONE.add(tea);
-        BigDecimal exponent = BigDecimal.ONE.divide(new BigDecimal("12"), MC);
-        BigDecimal result = base.pow(exponent.intValue(), MC); // Esta implementación de pow no es ideal para exponentes
-        // fraccionarios.
-        // Una mejor aproximación es usar raíces o logaritmos.
-        // Para simplificar, vamos a usar una aproximación con double.
-        double baseDouble = base.doubleValue();
-        double exponentDouble = 1.0 / 12.0;
-        BigDecimal monthlyFactor = BigDecimal.valueOf(Math.pow(baseDouble, exponentDouble));
+        // BigDecimal no tiene potencias fraccionarias: se usa double para la raíz doceava.
+        double baseDouble = BigDecimal.ONE.add(tea).doubleValue();
+        BigDecimal monthlyFactor = BigDecimal.valueOf(Math.pow(baseDouble, 1.0 / 12.0));
 
         return monthlyFactor.subtract(BigDecimal.ONE);
     }
 
     @Override
     public BigDecimal calculateInstallmentAmount(BigDecimal principal, BigDecimal tem, int months) {
+        long principalCentimos = MoneyMath.aCentimos(principal);
+
         // Si la tasa es 0, la cuota es simplemente principal / meses
         if (tem.compareTo(BigDecimal.ZERO) == 0) {
-            return principal.divide(new BigDecimal(months), FINANCIAL_SCALE, ROUNDING_MODE);
+            return MoneyMath.aSoles(MoneyMath.dividir(principalCentimos, months));
         }
 
         // Fórmula: Cuota = P * [i * (1+i)^n] / [(1+i)^n - 1]
-        BigDecimal i = tem;
-        BigDecimal n = new BigDecimal(months);
-
-        BigDecimal factorBase = BigDecimal.ONE.add(i);
-        BigDecimal factor = factorBase.pow(months, MC); // (1+i)^n
-
-        BigDecimal numerator = i.multiply(factor, MC); // i * (1+i)^n
+        // El factor se calcula una vez por préstamo con 18 dígitos, como antes; el producto por P va en céntimos.
+        BigDecimal factor = BigDecimal.ONE.add(tem).pow(months, MC); // (1+i)^n
+        BigDecimal numerator = tem.multiply(factor, MC); // i * (1+i)^n
         BigDecimal denominator = factor.subtract(BigDecimal.ONE); // (1+i)^n - 1
-
         BigDecimal rateFactor = numerator.divide(denominator, MC);
-        return principal.multiply(rateFactor).setScale(FINANCIAL_SCALE, ROUNDING_MODE);
+
+        return MoneyMath.aSoles(MoneyMath.multiplicar(principalCentimos, MoneyMath.Tasa.de(rateFactor)));
     }
 
     @Override
     public List<Cuota> generateSchedule(Prestamo prestamo, BigDecimal tem) {
-        List<Cuota> schedule = new ArrayList<>();
+        int months = prestamo.getMonths();
+        List<Cuota> schedule = new ArrayList<>(months);
 
-        BigDecimal currentBalance = prestamo.getPrincipal(); // Saldo inicial
-        BigDecimal fixedInstallment = prestamo.getInstallmentAmount(); // Cuota fija
+        MoneyMath.Tasa tasa = MoneyMath.Tasa.de(tem);
+        long currentBalance = MoneyMath.aCentimos(prestamo.getPrincipal()); // Saldo inicial
+        long fixedInstallment = MoneyMath.aCentimos(prestamo.getInstallmentAmount()); // Cuota fija
 
-        for (int i = 1; i <= prestamo.getMonths(); i++) {
+        for (int i = 1; i <= months; i++) {
 
             // 1. Calcular Interés Global del periodo (Saldo * Tasa)
-            BigDecimal interesTotalMes = currentBalance.multiply(tem).setScale(2, RoundingMode.HALF_UP);
+            long interesTotalMes = MoneyMath.multiplicar(currentBalance, tasa);
 
             // 2. Desglosar IGV del Interés (SUNAT)
             // Fórmula: Valor Venta = Precio / 1.18
-            BigDecimal interesBase = interesTotalMes.divide(DIVISOR_IGV, 2, RoundingMode.HALF_UP);
-            BigDecimal igvMes = interesTotalMes.subtract(interesBase);
+            long interesBase = MoneyMath.multiplicarDividir(interesTotalMes, IGV_NUMERADOR, IGV_DIVISOR);
+            long igvMes = interesTotalMes - interesBase;
 
             // 3. Calcular Amortización de Capital
             // Capital = Cuota Fija - Interés Total
-            BigDecimal capitalMes = fixedInstallment.subtract(interesTotalMes);
+            long capitalMes = fixedInstallment - interesTotalMes;
 
             // 4. Actualizar Saldo Deudor
-            currentBalance = currentBalance.subtract(capitalMes);
+            currentBalance -= capitalMes;
 
             // Ajuste por si el saldo se vuelve negativo por centavos en la última cuota
-            if (i == prestamo.getMonths() && currentBalance.compareTo(BigDecimal.ZERO) != 0) {
+            if (i == months && currentBalance != 0) {
                 // En la ultima cuota, ajustamos el capital para que el saldo quede en 0
                 // perfecto
-                capitalMes = capitalMes.add(currentBalance);
-                currentBalance = BigDecimal.ZERO;
+                capitalMes += currentBalance;
+                currentBalance = 0;
                 // Recalculamos la cuota fija final solo para este mes (ajuste de centavos)
-                fixedInstallment = capitalMes.add(interesTotalMes);
+                fixedInstallment = capitalMes + interesTotalMes;
             }
 
             // 5. Crear Entidad Cuota
@@ -100,13 +96,14 @@ public class FinancialServiceImpl implements IFinancialService {
             installment.setDueDate(prestamo.getStartDate().plusMonths(i));
 
             // --- DATOS FINANCIEROS CLAVE ---
-            installment.setPrincipal(capitalMes); // Va al JSON como Inafecto
-            installment.setInterest(interesBase); // Va al JSON como Gravado
-            installment.setIgv(igvMes); // Va al JSON como Impuesto
-            installment.setAmount(fixedInstallment); // Total a pagar
+            BigDecimal amount = MoneyMath.aSoles(fixedInstallment);
+            installment.setPrincipal(MoneyMath.aSoles(capitalMes)); // Va al JSON como Inafecto
+            installment.setInterest(MoneyMath.aSoles(interesBase)); // Va al JSON como Gravado
+            installment.setIgv(MoneyMath.aSoles(igvMes)); // Va al JSON como Impuesto
+            installment.setAmount(amount); // Total a pagar
             // -------------------------------
 
-            installment.setBalance(fixedInstallment); // Inicialmente debe todo
+            installment.setBalance(amount); // Inicialmente debe todo
             installment.setAmountPaid(BigDecimal.ZERO);
 
             schedule.add(installment);
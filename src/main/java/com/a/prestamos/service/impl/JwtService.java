@@ -1,31 +1,80 @@
 package com.a.prestamos.service.impl;
 
+import com.a.prestamos.util.LruTtlCache;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.time.Duration;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
 
+/**
+ * Emite y verifica los JWT (HS256).
+ * <p>
+ * La clave y el parser se arman una sola vez al iniciar. {@link #verificar(String)} parsea y comprueba la
+ * firma una vez y devuelve lo que el filtro necesita ({@link TokenJwt}); los tokens ya verificados se
+ * recuerdan en una caché acotada, así un cliente que repite su token no vuelve a pagar el HMAC ni el
+ * parseo. Lo que depende de la hora (expirado, renovable) se evalúa en cada consulta, no se guarda.
+ */
 @Service
 public class JwtService {
-    @Value("${app.jwt.secret}")
-    private String secretKey;
 
-    @Value("${app.jwt.expiration}")
-    private long jwtExpiration;
+    private final long jwtExpiration;
+    private final long refreshExpiration;
+    private final Key signInKey;
+    private final JwtParser parser;
+    private final LruTtlCache<String, TokenJwt> verificados;
+
+    public JwtService(@Value("${app.jwt.secret}") String secretKey,
+                      @Value("${app.jwt.expiration}") long jwtExpiration,
+                      @Value("${app.jwt.refresh-token.expiration}") long refreshExpiration,
+                      @Value("${app.jwt.cache.max-entries:10000}") int maxEntradas,
+                      @Value("${app.jwt.cache.ttl:PT10M}") Duration ttl) {
+        this.jwtExpiration = jwtExpiration;
+        this.refreshExpiration = refreshExpiration;
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+        this.verificados = new LruTtlCache<>(maxEntradas, ttl);
+    }
+
+    /**
+     * Verifica firma y formato del token una sola vez. Un token expirado pero bien firmado se devuelve
+     * igual (puede renovarse); uno inválido lanza excepción y no se guarda en la caché.
+     */
+    public TokenJwt verificar(String token) {
+        return verificados.get(token, t -> {
+            Claims claims = extractAllClaims(t);
+            Date expiration = claims.getExpiration();
+            return new TokenJwt(claims.getSubject(), expiration != null ? expiration.getTime() : Long.MAX_VALUE);
+        });
+    }
+
+    /**
+     * Expirado, pero todavía dentro de la ventana de renovación.
+     */
+    public boolean puedeRenovarse(TokenJwt token, long ahora) {
+        return token.expirado(ahora) && token.expiraEn() + refreshExpiration > ahora;
+    }
+
+    public LruTtlCache.Estadisticas estadisticas() {
+        return verificados.estadisticas();
+    }
 
-    @Value("${app.jwt.refresh-token.expiration}")
-    private long refreshExpiration;
+    @Scheduled(fixedDelayString = "${app.jwt.cache.ttl:PT10M}")
+    public void purgarVencidas() {
+        verificados.purgarVencidas();
+    }
 
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verificar(token).username();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -72,19 +121,12 @@ public class JwtService {
     }
 
     public boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return verificar(token).expirado(System.currentTimeMillis());
     }
 
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts
-                    .parserBuilder()
-                    .setSigningKey(getSignInKey())
-                    .build()
+            return parser
                     .parseClaimsJws(token)
                     .getBody();
 
@@ -96,17 +138,12 @@ public class JwtService {
     }
 
     private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signInKey;
     }
 
     public boolean canTokenBeRenewed(String token) {
         try {
-            Claims claims = extractAllClaims(token);
-            Date expiration = claims.getExpiration();
-            long currentTime = System.currentTimeMillis();
-            return expiration.before(new Date(currentTime)) &&
-                    expiration.getTime() + refreshExpiration > currentTime;
+            return puedeRenovarse(verificar(token), System.currentTimeMillis());
         } catch (Exception e) {
             return false;
         }
@@ -119,4 +156,14 @@ public class JwtService {
         return generateToken(userDetails, new HashMap<>());
     }
 
+    /**
+     * Datos de un token con la firma ya verificada.
+     *
+     * @param expiraEn Expiración en epoch millis.
+     */
+    public record TokenJwt(String username, long expiraEn) {
+        public boolean expirado(long ahora) {
+            return expiraEn < ahora;
+        }
+    }
 }
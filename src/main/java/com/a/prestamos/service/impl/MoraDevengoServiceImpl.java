@@ -0,0 +1,99 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.CuotaDao;
+import com.a.prestamos.util.MoraCalculator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Devengo diario de mora: deja guardada en cada cuota vencida la mora a la fecha
+ * ({@link MoraCalculator}), para que pantallas y cobros la lean sin recalcular.
+ * <p>
+ * Recorre las cuotas vencidas con saldo en bloques por ID y solo escribe las que cambiaron (la mora
+ * sube una vez por mes de atraso, así que la mayoría de días casi no hay escrituras). Cada bloque va en su
+ * propia transacción. Es idempotente: si se ejecuta dos veces el mismo día, la segunda no escribe nada.
+ */
+@Service
+@Slf4j
+public class MoraDevengoServiceImpl {
+
+    private final CuotaDao cuotaDao;
+    private final TransactionTemplate transaccion;
+
+    @Value("${app.mora.chunk-size:1000}")
+    private int tamanioBloque;
+
+    public MoraDevengoServiceImpl(CuotaDao cuotaDao, PlatformTransactionManager transactionManager) {
+        this.cuotaDao = cuotaDao;
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Al arrancar se pone al día por si el nodo estuvo apagado a la hora programada.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        try {
+            devengar();
+        } catch (RuntimeException e) {
+            log.error("No se pudo devengar la mora al iniciar: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${app.mora.cron:0 10 0 * * *}")
+    public void devengar() {
+        LocalDate hoy = LocalDate.now();
+        long inicio = System.nanoTime();
+        long revisadas = 0;
+        long actualizadas = 0;
+        long ultimoId = 0;
+
+        while (true) {
+            List<Object[]> bloque = cuotaDao.findMoraVencidasDesde(ultimoId, hoy, PageRequest.of(0, tamanioBloque));
+            if (bloque.isEmpty()) {
+                break;
+            }
+
+            Integer escritas = transaccion.execute(status -> {
+                int n = 0;
+                for (Object[] fila : bloque) {
+                    Long id = (Long) fila[0];
+                    LocalDate dueDate = (LocalDate) fila[1];
+                    BigDecimal saldo = (BigDecimal) fila[2];
+                    Integer mesesGuardados = (Integer) fila[3];
+                    BigDecimal moraGuardada = (BigDecimal) fila[4];
+
+                    int meses = MoraCalculator.mesesAtraso(dueDate, hoy);
+                    BigDecimal mora = MoraCalculator.mora(saldo, meses);
+                    if (Objects.equals(mesesGuardados, meses)
+                            && moraGuardada != null && moraGuardada.compareTo(mora) == 0) {
+                        continue;
+                    }
+                    n += cuotaDao.devengarMora(id, saldo, meses, mora, hoy);
+                }
+                return n;
+            });
+
+            revisadas += bloque.size();
+            actualizadas += escritas != null ? escritas : 0;
+            ultimoId = (Long) bloque.get(bloque.size() - 1)[0];
+        }
+
+        long millis = Duration.ofNanos(System.nanoTime() - inicio).toMillis();
+        log.info("Mora devengada al {}: {} cuotas vencidas revisadas, {} actualizadas en {} ms",
+                hoy, revisadas, actualizadas, millis);
+    }
+}
@@ -3,19 +3,15 @@ package com.a.prestamos.service.impl;
 import com.a.prestamos.model.dto.mora.ResultadoMora;
 import com.a.prestamos.model.entity.Cuota;
 import com.a.prestamos.service.IMoraService;
+import com.a.prestamos.util.MoraCalculator;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 
 @Service
 public class MoraServiceImpl implements IMoraService {
 
-    // Tasa mensual del 1% (0.01)
-    private static final BigDecimal TASA_MORA = new BigDecimal("0.01");
-
     @Override
     public ResultadoMora calcularDistribucionMora(Cuota cuota, BigDecimal montoPagado) {
         BigDecimal moraCalculada = BigDecimal.ZERO;
@@ -25,20 +21,9 @@ public class MoraServiceImpl implements IMoraService {
         boolean cuotaVencida = hoy.isAfter(cuota.getDueDate());
 
         if (cuotaVencida) {
-            // 1. Calcular la diferencia de meses (Septiembre a Diciembre = 3 meses)
-            long mesesRetraso = ChronoUnit.MONTHS.between(cuota.getDueDate(), hoy);
-
-            // Regla de negocio: Si está vencida, al menos cobramos 1 mes de mora
-            // aunque no haya pasado un mes completo cronológico desde el vencimiento.
-            if (mesesRetraso < 1) {
-                mesesRetraso = 1;
-            }
-
-            // 2. Calcular Mora: SaldoPendiente * 0.01 * CantidadMeses
-            // Ejemplo: 3.07 * 0.01 = 0.0307 -> 0.0307 * 3 = 0.0921 -> Redondeado: 0.09
-            BigDecimal moraMensual = cuota.getBalance().multiply(TASA_MORA);
-            moraCalculada = moraMensual.multiply(new BigDecimal(mesesRetraso))
-                    .setScale(2, RoundingMode.HALF_UP);
+            // Mora ya devengada en la cuota (job diario / último pago); solo se recalcula si cambió el
+            // número de meses de atraso desde entonces. Regla: SaldoPendiente * 1% * meses (mínimo 1).
+            moraCalculada = MoraCalculator.moraAl(cuota, hoy);
         }
 
         // Deuda Total = Capital Pendiente + Mora Calculada
@@ -0,0 +1,347 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.ClienteDao;
+import com.a.prestamos.model.dao.PrestamoDao;
+import com.a.prestamos.model.dao.WatermarkProcesoDao;
+import com.a.prestamos.model.dto.cliente.VerificacionLoteDto;
+import com.a.prestamos.model.dto.prestamo.OriginacionLoteDto;
+import com.a.prestamos.model.dto.prestamo.PrestamoRequest;
+import com.a.prestamos.model.entity.Cliente;
+import com.a.prestamos.model.entity.Cuota;
+import com.a.prestamos.model.entity.Prestamo;
+import com.a.prestamos.model.entity.WatermarkProceso;
+import com.a.prestamos.service.IClienteService;
+import com.a.prestamos.service.IFinancialService;
+import com.a.prestamos.util.MoraCalculator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Originación masiva de préstamos (migración de cartera desde el sistema anterior).
+ * <p>
+ * Lee las solicitudes como un stream y las procesa por bloques: valida cada fila, resuelve los clientes
+ * del bloque con una sola consulta (los que faltan pasan por la verificación masiva de RENIEC/SUNAT),
+ * calcula los cronogramas en paralelo y guarda el bloque en una transacción con INSERT en batch JDBC.
+ * Una fila con error se reporta y no detiene el resto.
+ * <p>
+ * Cada importación tiene un identificador y un watermark ({@link WatermarkProceso}) con la última fila
+ * confirmada, que se guarda en la misma transacción que el bloque. Si el proceso se cae, reenviar el mismo
+ * archivo con el mismo identificador retoma desde la fila siguiente sin duplicar préstamos.
+ */
+@Service
+@Slf4j
+public class OriginacionLoteServiceImpl {
+
+    private static final String PREFIJO_PROCESO = "originacion:";
+
+    private final ClienteDao clienteDao;
+    private final PrestamoDao prestamoDao;
+    private final WatermarkProcesoDao watermarkDao;
+    private final IClienteService clienteService;
+    private final IFinancialService financialService;
+    private final Validator validator;
+    private final TransactionTemplate transaccion;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.prestamos.lote.chunk-size:500}")
+    private int tamanioBloque;
+
+    @Value("${app.prestamos.lote.lease:PT10M}")
+    private Duration lease;
+
+    public OriginacionLoteServiceImpl(ClienteDao clienteDao,
+                                      PrestamoDao prestamoDao,
+                                      WatermarkProcesoDao watermarkDao,
+                                      IClienteService clienteService,
+                                      IFinancialService financialService,
+                                      Validator validator,
+                                      PlatformTransactionManager transactionManager) {
+        this.clienteDao = clienteDao;
+        this.prestamoDao = prestamoDao;
+        this.watermarkDao = watermarkDao;
+        this.clienteService = clienteService;
+        this.financialService = financialService;
+        this.validator = validator;
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    private record Fila(long numero, PrestamoRequest request) {}
+
+    /**
+     * Fila lista para guardar: el préstamo armado con su cronograma, o el error al armarlo.
+     */
+    private record Armado(Fila fila, Prestamo prestamo, String error) {}
+
+    /**
+     * @param importacion Identificador de la importación (letras, números, "-" o "_"), el mismo para retomarla.
+     * @param solicitudes Solicitudes en el orden del archivo; se leen a medida que se procesan.
+     */
+    public Flux<OriginacionLoteDto> originarLote(String importacion, Iterator<PrestamoRequest> solicitudes) {
+        if (importacion == null || !importacion.matches("[A-Za-z0-9_-]{1,38}")) {
+            return Flux.error(new IllegalArgumentException(
+                    "El identificador de importación debe tener de 1 a 38 letras, números, '-' o '_'."));
+        }
+        String proceso = PREFIJO_PROCESO + importacion;
+
+        return Flux.defer(() -> {
+            long confirmadas = reclamar(proceso);
+            long inicio = System.nanoTime();
+            AtomicLong leidas = new AtomicLong(confirmadas);
+            AtomicLong creados = new AtomicLong();
+
+            Flux<OriginacionLoteDto> resultados = Flux.fromIterable(() -> solicitudes)
+                    .index((i, request) -> new Fila(i + 1, request))
+                    .skip(confirmadas)
+                    .doOnNext(f -> leidas.set(f.numero()))
+                    .buffer(tamanioBloque)
+                    .concatMap(bloque -> Mono.fromCallable(() -> procesarBloque(proceso, bloque))
+                            .flatMapIterable(r -> r))
+                    .doOnNext(r -> {
+                        if ("CREADO".equals(r.estado())) creados.incrementAndGet();
+                    })
+                    .concatWith(Mono.fromCallable(() -> {
+                        long millis = Duration.ofNanos(System.nanoTime() - inicio).toMillis();
+                        watermarkDao.completar(proceso, LocalDate.now(), creados.get(), millis, Instant.now());
+                        log.info("Importación {} completada: {} filas, {} préstamos creados en {} ms",
+                                importacion, leidas.get(), creados.get(), millis);
+                        return OriginacionLoteDto.de(leidas.get(), null, "COMPLETADO",
+                                "Préstamos creados en esta ejecución: " + creados.get());
+                    }))
+                    // Archivo mal formado o caída de BD: lo confirmado queda, se retoma reenviando el archivo
+                    .onErrorResume(e -> {
+                        log.error("Importación {} interrumpida después de la fila {}: {}", importacion, leidas.get(), e.getMessage());
+                        return Mono.just(OriginacionLoteDto.de(leidas.get(), null, "ERROR",
+                                "Importación interrumpida después de leer esta fila: " + e.getMessage()
+                                        + ". Reenvíe el archivo con el mismo identificador para retomarla."));
+                    });
+
+            Flux<OriginacionLoteDto> salida = confirmadas == 0 ? resultados
+                    : Flux.just(OriginacionLoteDto.de(confirmadas, null, "YA_PROCESADO",
+                            "Filas 1 a " + confirmadas + " confirmadas en una ejecución anterior; se retoma desde la siguiente."))
+                    .concatWith(resultados);
+            // También si el cliente corta la conexión: otra solicitud puede retomarla de inmediato
+            return salida.doFinally(s -> watermarkDao.liberar(proceso));
+        }).subscribeOn(Schedulers.boundedElastic()); // lectura del archivo y JDBC bloqueantes
+    }
+
+    /**
+     * Toma la importación para esta ejecución y devuelve cuántas filas ya están confirmadas.
+     */
+    private long reclamar(String proceso) {
+        if (!watermarkDao.existsById(proceso)) {
+            try {
+                WatermarkProceso marca = new WatermarkProceso();
+                marca.setName(proceso);
+                watermarkDao.saveAndFlush(marca);
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Watermark {} creado por otra solicitud", proceso);
+            }
+        }
+
+        WatermarkProceso marca = watermarkDao.findById(proceso).orElseThrow();
+        if (marca.getProcessedUntil() != null) {
+            throw new IllegalStateException("La importación " + proceso.substring(PREFIJO_PROCESO.length())
+                    + " ya se completó. Use otro identificador para una nueva importación.");
+        }
+        if (watermarkDao.reclamar(proceso, Instant.now(), Instant.now().plus(lease)) == 0) {
+            throw new IllegalStateException("La importación " + proceso.substring(PREFIJO_PROCESO.length())
+                    + " se está procesando en este momento.");
+        }
+        return marca.getLastId() != null ? marca.getLastId() : 0;
+    }
+
+    private List<OriginacionLoteDto> procesarBloque(String proceso, List<Fila> bloque) {
+        Map<Long, OriginacionLoteDto> resultados = new HashMap<>();
+
+        // 1. Validación por fila (mismas reglas que POST /prestamo) y un solo préstamo por cliente en el bloque
+        List<Fila> validas = new ArrayList<>();
+        Set<String> documentos = new LinkedHashSet<>();
+        for (Fila f : bloque) {
+            String error = validar(f.request());
+            if (error != null) {
+                resultados.put(f.numero(), OriginacionLoteDto.de(f.numero(), documento(f), "INVALIDO", error));
+            } else if (!documentos.add(f.request().documentId())) {
+                resultados.put(f.numero(), OriginacionLoteDto.de(f.numero(), documento(f), "RECHAZADO",
+                        "El cliente ya tiene otro préstamo en este lote."));
+            } else {
+                validas.add(f);
+            }
+        }
+
+        // 2. Clientes: una consulta por bloque; los que no están se verifican en RENIEC/SUNAT en lote
+        Map<String, Cliente> clientes = new HashMap<>();
+        Map<String, String> sinVerificar = new HashMap<>();
+        if (!documentos.isEmpty()) {
+            clienteDao.findAllById(documentos).forEach(c -> clientes.put(c.getDocumentId(), c));
+            List<String> faltantes = documentos.stream().filter(id -> !clientes.containsKey(id)).toList();
+            if (!faltantes.isEmpty()) {
+                List<VerificacionLoteDto> verificados = clienteService.verifyBatch(faltantes).collectList().block();
+                List<String> registrados = new ArrayList<>();
+                for (VerificacionLoteDto v : verificados != null ? verificados : List.<VerificacionLoteDto>of()) {
+                    if (v.cliente() != null) registrados.add(v.documentId());
+                    else sinVerificar.put(v.documentId(), v.mensaje());
+                }
+                clienteDao.findAllById(registrados).forEach(c -> clientes.put(c.getDocumentId(), c));
+            }
+        }
+        Set<String> conPrestamoActivo = documentos.isEmpty()
+                ? Set.of()
+                : new HashSet<>(prestamoDao.findDocumentIdsConPrestamoActivo(documentos));
+
+        List<Fila> candidatas = new ArrayList<>();
+        for (Fila f : validas) {
+            String documentId = f.request().documentId();
+            if (!clientes.containsKey(documentId)) {
+                resultados.put(f.numero(), OriginacionLoteDto.de(f.numero(), documentId, "CLIENTE_NO_VERIFICADO",
+                        sinVerificar.getOrDefault(documentId, "No se pudo verificar el DNI/RUC.")));
+            } else if (conPrestamoActivo.contains(documentId)) {
+                resultados.put(f.numero(), OriginacionLoteDto.de(f.numero(), documentId, "RECHAZADO",
+                        "El cliente ya tiene un préstamo en curso. Debe cancelarlo primero."));
+            } else {
+                candidatas.add(f);
+            }
+        }
+
+        // 3. Cronogramas en paralelo: solo cálculo en memoria, sin BD
+        List<Armado> armados = candidatas.parallelStream()
+                .map(f -> armar(f, clientes.get(f.request().documentId())))
+                .toList();
+
+        // 4. Guardar el bloque y el avance en la misma transacción
+        long ultimaFila = bloque.get(bloque.size() - 1).numero();
+        try {
+            transaccion.executeWithoutResult(status -> {
+                guardar(armados, resultados);
+                watermarkDao.avanzar(proceso, ultimaFila, Instant.now().plus(lease), Instant.now());
+            });
+        } catch (RuntimeException e) {
+            log.warn("Falló el guardado del bloque hasta la fila {}, se reintenta fila por fila: {}", ultimaFila, e.getMessage());
+            entityManager.clear();
+            for (Fila f : candidatas) {
+                resultados.put(f.numero(), guardarUna(armar(f, clientes.get(f.request().documentId()))));
+            }
+            transaccion.executeWithoutResult(status ->
+                    watermarkDao.avanzar(proceso, ultimaFila, Instant.now().plus(lease), Instant.now()));
+        }
+
+        return bloque.stream().map(f -> resultados.get(f.numero())).toList();
+    }
+
+    /**
+     * Persiste con INSERT en batch (IDs de secuencia); no se agregan resultados si la transacción falla.
+     */
+    private void guardar(List<Armado> armados, Map<Long, OriginacionLoteDto> resultados) {
+        Map<Long, OriginacionLoteDto> parciales = new HashMap<>();
+        for (Armado a : armados) {
+            if (a.error() != null) {
+                parciales.put(a.fila().numero(), OriginacionLoteDto.de(a.fila().numero(), documento(a.fila()), "ERROR", a.error()));
+                continue;
+            }
+            actualizarPep(a);
+            entityManager.persist(a.prestamo());
+        }
+        entityManager.flush();
+        for (Armado a : armados) {
+            if (a.error() == null) {
+                parciales.put(a.fila().numero(), new OriginacionLoteDto(a.fila().numero(), documento(a.fila()),
+                        "CREADO", null, a.prestamo().getId()));
+            }
+        }
+        entityManager.clear();
+        resultados.putAll(parciales);
+    }
+
+    private OriginacionLoteDto guardarUna(Armado a) {
+        if (a.error() != null) {
+            return OriginacionLoteDto.de(a.fila().numero(), documento(a.fila()), "ERROR", a.error());
+        }
+        try {
+            return transaccion.execute(status -> {
+                actualizarPep(a);
+                entityManager.persist(a.prestamo());
+                entityManager.flush();
+                entityManager.clear();
+                return new OriginacionLoteDto(a.fila().numero(), documento(a.fila()), "CREADO", null, a.prestamo().getId());
+            });
+        } catch (RuntimeException e) {
+            entityManager.clear();
+            return OriginacionLoteDto.de(a.fila().numero(), documento(a.fila()), "ERROR", e.getMessage());
+        }
+    }
+
+    private void actualizarPep(Armado a) {
+        Cliente cliente = a.prestamo().getCustomer();
+        if (cliente.isPep() != a.fila().request().pep()) {
+            Cliente gestionado = entityManager.merge(cliente);
+            gestionado.setPep(a.fila().request().pep());
+            a.prestamo().setCustomer(gestionado);
+        }
+    }
+
+    /**
+     * Mismos cálculos que {@code PrestamoServiceImpl.createLoan}, sin tocar la BD.
+     */
+    private Armado armar(Fila fila, Cliente cliente) {
+        try {
+            PrestamoRequest request = fila.request();
+            BigDecimal tem = financialService.calculateTem(request.teaAnnual());
+            BigDecimal installmentAmount = financialService.calculateInstallmentAmount(request.principal(), tem, request.months());
+
+            Prestamo loan = new Prestamo();
+            loan.setCustomer(cliente);
+            loan.setPrincipal(request.principal());
+            loan.setTeaAnnual(request.teaAnnual());
+            loan.setMonths(request.months());
+            loan.setStartDate(request.startDate() != null ? request.startDate() : LocalDate.now());
+            loan.setInstallmentAmount(installmentAmount);
+
+            LocalDate hoy = LocalDate.now();
+            List<Cuota> schedule = financialService.generateSchedule(loan, tem);
+            for (Cuota c : schedule) {
+                c.setInstallmentState(c.estadoAl(hoy));
+                MoraCalculator.actualizar(c, hoy);
+            }
+            loan.getInstallments().addAll(schedule); // se insertan en cascada con el préstamo
+
+            return new Armado(fila, loan, null);
+        } catch (RuntimeException e) {
+            return new Armado(fila, null, e.getMessage());
+        }
+    }
+
+    private String validar(PrestamoRequest request) {
+        if (request == null) {
+            return "Fila vacía.";
+        }
+        Set<ConstraintViolation<PrestamoRequest>> errores = validator.validate(request);
+        if (errores.isEmpty()) {
+            return null;
+        }
+        return errores.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(" "));
+    }
+
+    private static String documento(Fila f) {
+        return f.request() != null ? f.request().documentId() : null;
+    }
+}
@@ -9,12 +9,14 @@ import com.a.prestamos.model.dto.mercadoPago.MercadoPagoPreferenceResponse;
 import com.a.prestamos.model.dto.mora.ResultadoMora;
 import com.a.prestamos.model.dto.pago.PagoRequest;
 import com.a.prestamos.model.dto.pago.PagoResponse;
+import com.a.prestamos.model.entity.Caja;
 import com.a.prestamos.model.entity.Cuota;
 import com.a.prestamos.model.entity.Pago;
 import com.a.prestamos.model.entity.Prestamo;
 import com.a.prestamos.model.entity.enums.*;
 import com.a.prestamos.service.IMoraService;
 import com.a.prestamos.service.IPagoService;
+import com.a.prestamos.util.MoraCalculator;
 import com.mercadopago.MercadoPagoConfig;
 import com.mercadopago.client.payment.PaymentClient;
 import com.mercadopago.client.preference.PreferenceBackUrlsRequest;
@@ -28,8 +30,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.support.TransactionSynchronization;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -48,7 +48,10 @@ public class PagoServiceImpl implements IPagoService {
     private final CuotaDao cuotaDao;
     private final PrestamoDao prestamoDao;
     private final IMoraService moraService;
-    private final FacturacionServiceImpl facturacionService;
+    private final EmisionComprobanteServiceImpl emisionComprobanteService;
+    private final ReintentoOptimistaService reintentoOptimista;
+    private final TotalesCajaServiceImpl totalesCajaService;
+    private final CajaAbiertaCache cajaAbiertaCache;
 
     @Value("${app.mercado-pago.access-token}")
     private String mercadoPagoAccessToken;
@@ -63,16 +66,22 @@ public class PagoServiceImpl implements IPagoService {
      * Redondeo para pagos en efectivo (0.05 céntimos).
      */
     private static final BigDecimal REDONDEO_EFECTIVO = new BigDecimal("0.05");
-    private static final BigDecimal TASA_MORA = new BigDecimal("0.01"); // 1%
 
     private final CajaDao cajaDao; // <--- AGREGAR ESTO
 
+    /**
+     * Un pago en caja y un webhook de Mercado Pago pueden llegar a la vez sobre la misma cuota: la cuota
+     * está versionada y, si otra transacción la modificó primero, el pago se vuelve a calcular desde cero
+     * con el saldo nuevo en vez de pisarlo.
+     */
     @Override
-    @Transactional
-    public PagoResponse registrarPago(PagoRequest request) {
+    public PagoResponse registrarPago(PagoRequest request, String usuario) {
+        return reintentoOptimista.ejecutar("Pago de la cuota " + request.cuotaId(), () -> aplicarPago(request, usuario));
+    }
+
+    private PagoResponse aplicarPago(PagoRequest request, String usuario) {
 
-        cajaDao.findByEstado(CajaState.ABIERTA)
-                .orElseThrow(() -> new IllegalStateException("⛔ NO SE PUEDE PAGAR: La caja está cerrada. Abra caja para realizar operaciones."));
+        Caja caja = cajaAbierta(usuario);
 
         // 1. Obtener la cuota
         Cuota cuota = cuotaDao.findById(request.cuotaId())
@@ -120,6 +129,7 @@ public class PagoServiceImpl implements IPagoService {
         // 6. Crear el registro de pago
         Pago pago = new Pago();
         pago.setInstallment(cuota);
+        pago.setCaja(caja);
 
         // Solo capitalAmortizado va contra el capital de la cuota
         pago.setAmountPaid(capitalAmortizado);
@@ -146,6 +156,7 @@ public class PagoServiceImpl implements IPagoService {
 
         cuota.setAmountPaid(nuevoMontoPagado);
         cuota.setBalance(nuevoSaldoPendiente);
+        MoraCalculator.actualizar(cuota, LocalDate.now()); // la mora guardada sigue al nuevo saldo
 
         // 8. Actualizar estado de la cuota
         if (nuevoSaldoPendiente.compareTo(BigDecimal.ZERO) == 0) {
@@ -161,22 +172,18 @@ public class PagoServiceImpl implements IPagoService {
         // 9. Guardar cambios
         cuotaDao.save(cuota);
         Pago pagoGuardado = pagoDao.save(pago);
+        if (!totalesCajaService.registrar(pagoGuardado)) {
+            // La caja se cerró (quizá en otro nodo) después de leerla de la caché
+            cajaAbiertaCache.descartar(usuario);
+            throw new IllegalStateException("⛔ NO SE PUEDE PAGAR: Su caja está cerrada. Abra caja para realizar operaciones.");
+        }
 
         log.info("Pago registrado exitosamente. ID: {}, Cuota: {}, Monto: {}",
                 pagoGuardado.getId(), cuota.getNum(), request.montoPagado());
 
-        Long pagoId = pagoGuardado.getId();
-
-        // Programar la emisión del comprobante DESPUÉS del commit
-        TransactionSynchronizationManager.registerSynchronization(
-                new TransactionSynchronization() {
-                    @Override
-                    public void afterCommit() {
-                        log.info("✅ Post-commit: emitiendo comprobante para pago {}", pagoId);
-                        facturacionService.emitirComprobante(pagoId); // @Async + REQUIRES_NEW
-                    }
-                }
-        );
+        // Encolar la emisión del comprobante en la MISMA transacción (outbox).
+        // El envío a SUNAT lo hace el pool de emisión, fuera del hilo HTTP.
+        emisionComprobanteService.encolar(pagoGuardado);
 
         // 10. VERIFICAR FIN DEL PRÉSTAMO
         boolean prestamoCancelado = cuotaDao.findPrimeraCuotaPendiente(cuota.getLoan().getId())
@@ -198,10 +205,10 @@ public class PagoServiceImpl implements IPagoService {
 
     @Override
     @Transactional
-    public MercadoPagoPreferenceResponse crearPreferenciaMercadoPago(Long cuotaId, BigDecimal monto) {
+    public MercadoPagoPreferenceResponse crearPreferenciaMercadoPago(Long cuotaId, BigDecimal monto, String usuario) {
 
-        cajaDao.findByEstado(CajaState.ABIERTA)
-                .orElseThrow(() -> new IllegalStateException("⛔ NO SE PUEDE PAGAR: La caja está cerrada. Abra caja para realizar operaciones."));
+        // La orden no suma en caja hasta el webhook: aquí no hay registrar() que confirme la caja
+        Caja caja = cajaAbiertaConfirmada(usuario);
 
         // 1. Obtener la cuota
         Cuota cuota = cuotaDao.findById(cuotaId)
@@ -295,6 +302,7 @@ public class PagoServiceImpl implements IPagoService {
             // 8. Crear registro de pago pendiente usando la MISMA distribución
             Pago pagoPendiente = new Pago();
             pagoPendiente.setInstallment(cuota);
+            pagoPendiente.setCaja(caja); // cuenta en la caja del cajero que generó el cobro
 
             pagoPendiente.setAmountPaid(capitalAmortizado);
             pagoPendiente.setMontMora(moraACobrar);
@@ -334,7 +342,6 @@ public class PagoServiceImpl implements IPagoService {
 
 
     @Override
-    @Transactional
     public PagoResponse procesarWebhookMercadoPago(String paymentId) {
         try {
             // 1. Obtener información del pago desde Mercado Pago
@@ -344,120 +351,121 @@ public class PagoServiceImpl implements IPagoService {
 
             log.info("Webhook MP recibido. Payment ID: {}, Status: {}", paymentId, payment.getStatus());
 
-            // 2. Buscar el pago en NUESTRA base de datos
-            // Intentamos buscar primero por el ID de pago de MP (si ya llegó un webhook antes)
-            Pago pago = pagoDao.findByMercadoPagoPaymentId(paymentId)
-                    .orElseGet(() -> {
-                        // Si no existe con ese ID, buscamos por la referencia externa (la cuota)
-                        String externalReference = payment.getExternalReference();
-                        if (externalReference == null || !externalReference.startsWith("cuota_")) {
-                            // Si no tiene referencia nuestra, es un pago huérfano o error
-                            throw new ResourceNotFoundException("Pago sin referencia válida: " + externalReference);
-                        }
-
-                        // Parseamos "cuota_{id}_{timestamp}"
-                        String[] parts = externalReference.split("_");
-                        Long cuotaId = Long.parseLong(parts[1]);
-
-                        // Buscamos el pago PENDIENTE más reciente para esa cuota
-                        // (Asumimos que es el que el usuario acaba de intentar pagar)
-                        List<Pago> pagosPendientes = pagoDao.findByInstallmentIdAndPaymentState(cuotaId, PaymentState.PENDIENTE);
-                        if (pagosPendientes.isEmpty()) {
-                            throw new ResourceNotFoundException("No hay orden de pago pendiente local para la cuota: " + cuotaId);
-                        }
-                        // Tomamos el último generado (el más reciente)
-                        return pagosPendientes.get(pagosPendientes.size() - 1);
-                    });
-
-            // 3. Verificar estado y Actualizar
-            String status = payment.getStatus();
-
-            if ("approved".equals(status)) {
-                // EVITAR PROCESAR DOBLE: Si ya estaba activo, no hacemos nada
-                if (pago.getPaymentState() == PaymentState.ACTIVO) {
-                    log.info("El pago {} ya fue procesado anteriormente.", paymentId);
-                    return PagoResponse.fromEntity(pago);
-                }
+            // La consulta a MP queda fuera: ante un conflicto con otro pago solo se repite la parte en BD
+            return reintentoOptimista.ejecutar("Webhook MP " + paymentId, () -> aplicarWebhook(paymentId, payment));
 
-                // APROBADO: Confirmamos el pago
-                pago.setPaymentState(PaymentState.ACTIVO);
-                pago.setMercadoPagoPaymentId(paymentId);
-                pago.setOperationTrace(paymentId); // Usamos el ID de MP como traza
-                pago.setPaymentDate(Instant.now());
+        } catch (Exception e) {
+            log.error("Error procesando webhook de Mercado Pago: {}", e.getMessage(), e);
+            throw new RuntimeException("Error procesando webhook: " + e.getMessage());
+        }
+    }
 
-                // --- ACTUALIZACIÓN DE LA CUOTA ---
-                Cuota cuota = pago.getInstallment();
+    private PagoResponse aplicarWebhook(String paymentId, Payment payment) {
+        // 2. Buscar el pago en NUESTRA base de datos
+        // Intentamos buscar primero por el ID de pago de MP (si ya llegó un webhook antes)
+        Pago pago = pagoDao.findByMercadoPagoPaymentId(paymentId)
+                .orElseGet(() -> {
+                    // Si no existe con ese ID, buscamos por la referencia externa (la cuota)
+                    String externalReference = payment.getExternalReference();
+                    if (externalReference == null || !externalReference.startsWith("cuota_")) {
+                        // Si no tiene referencia nuestra, es un pago huérfano o error
+                        throw new ResourceNotFoundException("Pago sin referencia válida: " + externalReference);
+                    }
 
-                // NOTA IMPORTANTE:
-                // Aquí NO calculamos mora de nuevo. Confiamos en 'pago.getAmountPaid()'.
-                // En 'crearPreferencia' ya decidimos cuánto de ese dinero era Capital y cuánto era Mora.
-                // pago.getAmountPaid() contiene SOLO la parte que amortiza capital.
+                    // Parseamos "cuota_{id}_{timestamp}"
+                    String[] parts = externalReference.split("_");
+                    Long cuotaId = Long.parseLong(parts[1]);
 
-                BigDecimal nuevoMontoPagado = cuota.getAmountPaid().add(pago.getAmountPaid());
-                BigDecimal nuevoSaldoPendiente = cuota.getBalance().subtract(pago.getAmountPaid());
+                    // Buscamos el pago PENDIENTE más reciente para esa cuota
+                    // (Asumimos que es el que el usuario acaba de intentar pagar)
+                    List<Pago> pagosPendientes = pagoDao.findByInstallmentIdAndPaymentState(cuotaId, PaymentState.PENDIENTE);
+                    if (pagosPendientes.isEmpty()) {
+                        throw new ResourceNotFoundException("No hay orden de pago pendiente local para la cuota: " + cuotaId);
+                    }
+                    // Tomamos el último generado (el más reciente)
+                    return pagosPendientes.get(pagosPendientes.size() - 1);
+                });
+
+        // 3. Verificar estado y Actualizar
+        String status = payment.getStatus();
+        boolean aprobadoAhora = false;
+
+        if ("approved".equals(status)) {
+            // EVITAR PROCESAR DOBLE: Si ya estaba activo, no hacemos nada
+            if (pago.getPaymentState() == PaymentState.ACTIVO) {
+                log.info("El pago {} ya fue procesado anteriormente.", paymentId);
+                return PagoResponse.fromEntity(pago);
+            }
 
-                // Protección contra decimales negativos
-                if (nuevoSaldoPendiente.compareTo(BigDecimal.ZERO) < 0) {
-                    nuevoSaldoPendiente = BigDecimal.ZERO;
-                }
+            // APROBADO: Confirmamos el pago
+            pago.setPaymentState(PaymentState.ACTIVO);
+            aprobadoAhora = true;
+            pago.setMercadoPagoPaymentId(paymentId);
+            pago.setOperationTrace(paymentId); // Usamos el ID de MP como traza
+            pago.setPaymentDate(Instant.now());
 
-                cuota.setAmountPaid(nuevoMontoPagado);
-                cuota.setBalance(nuevoSaldoPendiente);
+            // --- ACTUALIZACIÓN DE LA CUOTA ---
+            Cuota cuota = pago.getInstallment();
 
-                // Definir estado de la cuota
-                if (nuevoSaldoPendiente.compareTo(BigDecimal.ZERO) == 0) {
-                    cuota.setInstallmentState(InstallmentState.PAGADO);
-                } else {
-                    // Si sobró saldo, queda como parcial (o vencido si la fecha ya pasó)
-                    if (LocalDate.now().isAfter(cuota.getDueDate())) {
-                        // Opcional: Podrías dejarlo en PAGADO_PARCIAL o regresarlo a PENDIENTE/VENCIDO
-                        // según tu lógica de negocio. Lo más seguro es PAGADO_PARCIAL.
-                        cuota.setInstallmentState(InstallmentState.PAGADO_PARCIAL);
-                    } else {
-                        cuota.setInstallmentState(InstallmentState.PAGADO_PARCIAL);
-                    }
-                }
+            // NOTA IMPORTANTE:
+            // Aquí NO calculamos mora de nuevo. Confiamos en 'pago.getAmountPaid()'.
+            // En 'crearPreferencia' ya decidimos cuánto de ese dinero era Capital y cuánto era Mora.
+            // pago.getAmountPaid() contiene SOLO la parte que amortiza capital.
 
-                cuotaDao.save(cuota);
-                log.info("Pago MP aprobado. Cuota actualizada. ID Pago: {}", pago.getId());
+            BigDecimal nuevoMontoPagado = cuota.getAmountPaid().add(pago.getAmountPaid());
+            BigDecimal nuevoSaldoPendiente = cuota.getBalance().subtract(pago.getAmountPaid());
 
-            } else if ("rejected".equals(status) || "cancelled".equals(status)) {
-                // RECHAZADO
-                pago.setPaymentState(PaymentState.ANULADO);
-                pago.setMercadoPagoPaymentId(paymentId);
-                pago.setObservations("Rechazado por MP: " + payment.getStatusDetail());
-                log.warn("Pago MP fallido: {}", status);
+            // Protección contra decimales negativos
+            if (nuevoSaldoPendiente.compareTo(BigDecimal.ZERO) < 0) {
+                nuevoSaldoPendiente = BigDecimal.ZERO;
+            }
 
+            cuota.setAmountPaid(nuevoMontoPagado);
+            cuota.setBalance(nuevoSaldoPendiente);
+            MoraCalculator.actualizar(cuota, LocalDate.now());
+
+            // Definir estado de la cuota
+            if (nuevoSaldoPendiente.compareTo(BigDecimal.ZERO) == 0) {
+                cuota.setInstallmentState(InstallmentState.PAGADO);
             } else {
-                // PENDIENTE (in_process, pending)
-                pago.setMercadoPagoPaymentId(paymentId);
-                // No actualizamos saldo de cuota todavía
-                log.info("Pago MP en estado intermedio: {}", status);
+                // Si sobró saldo, queda como parcial (o vencido si la fecha ya pasó), igual que en caja:
+                // el job de vencimientos no vuelve a pasar por cuotas que ya vencieron.
+                if (LocalDate.now().isAfter(cuota.getDueDate())) {
+                    cuota.setInstallmentState(InstallmentState.VENCIDO);
+                } else {
+                    cuota.setInstallmentState(InstallmentState.PAGADO_PARCIAL);
+                }
             }
 
-            Pago pagoGuardado = pagoDao.save(pago);
-            Long pagoId = pagoGuardado.getId();
-
-            // 4. Emitir Comprobante (Solo si se aprobó)
-            if (pagoGuardado.getPaymentState() == PaymentState.ACTIVO) {
-                TransactionSynchronizationManager.registerSynchronization(
-                        new TransactionSynchronization() {
-                            @Override
-                            public void afterCommit() {
-                                log.info("✅ Post-commit (Webhook): emitiendo comprobante para pago {}", pagoId);
-                                facturacionService.emitirComprobante(pagoId);
-                            }
-                        }
-                );
-            }
+            cuotaDao.save(cuota);
+            log.info("Pago MP aprobado. Cuota actualizada. ID Pago: {}", pago.getId());
+
+        } else if ("rejected".equals(status) || "cancelled".equals(status)) {
+            // RECHAZADO
+            pago.setPaymentState(PaymentState.ANULADO);
+            pago.setMercadoPagoPaymentId(paymentId);
+            pago.setObservations("Rechazado por MP: " + payment.getStatusDetail());
+            log.warn("Pago MP fallido: {}", status);
 
-            return PagoResponse.fromEntity(pagoGuardado);
+        } else {
+            // PENDIENTE (in_process, pending)
+            pago.setMercadoPagoPaymentId(paymentId);
+            // No actualizamos saldo de cuota todavía
+            log.info("Pago MP en estado intermedio: {}", status);
+        }
 
+        Pago pagoGuardado = pagoDao.save(pago);
 
-        } catch (Exception e) {
-            log.error("Error procesando webhook de Mercado Pago: {}", e.getMessage(), e);
-            throw new RuntimeException("Error procesando webhook: " + e.getMessage());
+        // 4. Sumar a la caja del cajero que generó el cobro (una sola vez, al pasar a ACTIVO); si ya la
+        // cerró, el pago queda fuera de los totales de caja. Encolar Comprobante (Solo si se aprobó)
+        if (aprobadoAhora && !totalesCajaService.registrar(pagoGuardado)) {
+            pagoGuardado.setCaja(null);
+        }
+        if (pagoGuardado.getPaymentState() == PaymentState.ACTIVO) {
+            emisionComprobanteService.encolar(pagoGuardado);
         }
+
+        return PagoResponse.fromEntity(pagoGuardado);
     }
 
     @Override
@@ -477,6 +485,29 @@ public class PagoServiceImpl implements IPagoService {
 
     // ==================== MÉTODOS AUXILIARES ====================
 
+    /**
+     * Caja abierta del cajero: cada uno cobra en la suya, sin pasar por una caja global. Sale de la caché
+     * (sin consulta); que siga abierta lo confirma {@link TotalesCajaServiceImpl#registrar} al sumar el pago.
+     */
+    private Caja cajaAbierta(String usuario) {
+        Long cajaId = cajaAbiertaCache.cajaAbierta(usuario)
+                .orElseThrow(() -> new IllegalStateException("⛔ NO SE PUEDE PAGAR: Su caja está cerrada. Abra caja para realizar operaciones."));
+        return cajaDao.getReferenceById(cajaId);
+    }
+
+    /**
+     * Caja abierta del cajero confirmada en la BD: para los cobros que no pasan por
+     * {@link TotalesCajaServiceImpl#registrar} en su transacción. Si otro nodo la cerró, descarta la entrada.
+     */
+    private Caja cajaAbiertaConfirmada(String usuario) {
+        Caja caja = cajaAbierta(usuario);
+        if (!cajaDao.existsByIdAndEstado(caja.getId(), CajaState.ABIERTA)) {
+            cajaAbiertaCache.descartar(usuario);
+            throw new IllegalStateException("⛔ NO SE PUEDE PAGAR: Su caja está cerrada. Abra caja para realizar operaciones.");
+        }
+        return caja;
+    }
+
     /**
      * Redondea un monto al múltiplo más cercano de 0.05 (para pagos en efectivo).
      */
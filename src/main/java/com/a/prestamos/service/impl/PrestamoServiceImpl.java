@@ -4,15 +4,16 @@ import com.a.prestamos.exception.prestamo.LoanCreationException;
 import com.a.prestamos.exception.prestamo.ResourceNotFoundException;
 import com.a.prestamos.model.dao.CuotaDao;
 import com.a.prestamos.model.dao.PrestamoDao;
+import com.a.prestamos.model.dto.prestamo.DetallePrestamoDto;
 import com.a.prestamos.model.dto.prestamo.PrestamoRequest;
 import com.a.prestamos.model.entity.Cliente;
 import com.a.prestamos.model.entity.Cuota;
 import com.a.prestamos.model.entity.Prestamo;
-import com.a.prestamos.model.entity.enums.InstallmentState;
 import com.a.prestamos.model.entity.enums.LoanState;
 import com.a.prestamos.service.IClienteService;
 import com.a.prestamos.service.IFinancialService;
 import com.a.prestamos.service.IPrestamoService;
+import com.a.prestamos.util.MoraCalculator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -70,6 +71,13 @@ public class PrestamoServiceImpl implements IPrestamoService {
 
         // 6. Generar y guardar el cronograma de pagos
         List<Cuota> schedule = financialService.generateSchedule(savedLoan, tem);
+        // Con fecha de inicio pasada, las cuotas ya vencidas nacen como VENCIDO: el job de vencimientos
+        // solo recorre lo que vence después de su última ejecución. Igual con la mora ya devengada.
+        LocalDate hoy = LocalDate.now();
+        schedule.forEach(c -> {
+            c.setInstallmentState(c.estadoAl(hoy));
+            MoraCalculator.actualizar(c, hoy);
+        });
         installmentRepository.saveAll(schedule);
 
         // 7. Registrar acción en auditoría (ejemplo básico)
@@ -78,38 +86,24 @@ public class PrestamoServiceImpl implements IPrestamoService {
         return savedLoan;
     }
 
+    /**
+     * Solo lectura: el estado de cada cuota se calcula al mostrarla ({@link Cuota#estadoAl}) y la columna
+     * la avanza {@link EstadoCuotaServiceImpl}, así una consulta no bloquea filas que un pago esté actualizando.
+     */
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public Prestamo findLoanByDocumentId(String documentId) {
-        Prestamo prestamo = loanRepository.findByCustomerDocumentIdAndLoanState(documentId, LoanState.ACTIVO)
+        return loanRepository.findDetalleByDocumentIdAndLoanState(documentId, LoanState.ACTIVO)
                 .orElseThrow(() -> new ResourceNotFoundException("No se encontró un préstamo para el DNI/RUC: " + documentId));
+    }
 
-        // ================================
-        // 🔥 ACTUALIZAR AUTOMÁTICAMENTE CUOTAS VENCIDAS
-        // ================================
-        LocalDate hoy = LocalDate.now();
-
-        for (Cuota cuota : prestamo.getInstallments()) {
-            // Sólo interesa si la cuota NO está pagada
-            if (cuota.getBalance().compareTo(BigDecimal.ZERO) > 0) {
-
-                // Si la fecha ya pasó → marcar como vencida
-                if (hoy.isAfter(cuota.getDueDate())) {
-                    cuota.setInstallmentState(InstallmentState.VENCIDO);
-                } else {
-                    // Si aún no está vencida pero tampoco está pagada → pendiente
-                    if (cuota.getAmountPaid().compareTo(BigDecimal.ZERO) == 0) {
-                        cuota.setInstallmentState(InstallmentState.PENDIENTE);
-                    } else {
-                        cuota.setInstallmentState(InstallmentState.PAGADO_PARCIAL);
-                    }
-                }
-            }
-        }
-
-        // Guardar los cambios
-        installmentRepository.saveAll(prestamo.getInstallments());
-
-        return prestamo;
+    /**
+     * Una sola consulta: préstamo + cliente + cuotas (entity graph). La mora de cada cuota ya viene
+     * devengada en la propia cuota.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public DetallePrestamoDto findLoanDetailByDocumentId(String documentId) {
+        return DetallePrestamoDto.fromEntity(findLoanByDocumentId(documentId));
     }
 }
@@ -0,0 +1,82 @@
+package com.a.prestamos.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Ejecuta una operación en su propia transacción y la repite si choca con otra que modificó las mismas
+ * filas versionadas ({@code @Version} en {@code Cuota} y {@code Prestamo}).
+ * <p>
+ * Cada intento vuelve a leer las entidades desde cero, así que la operación debe leer todo lo que necesita
+ * dentro de {@code trabajo} y no tener efectos fuera de la transacción (llamadas HTTP, colas en memoria).
+ * No debe llamarse con una transacción ya abierta: el reintento necesita la suya.
+ */
+@Service
+@Slf4j
+public class ReintentoOptimistaService {
+
+    private final TransactionTemplate transaccion;
+
+    private final LongAdder conflictos = new LongAdder();
+    private final LongAdder agotados = new LongAdder();
+
+    @Value("${app.pagos.reintentos.max-attempts:5}")
+    private int maxIntentos;
+
+    @Value("${app.pagos.reintentos.backoff:PT0.02S}")
+    private Duration backoff;
+
+    public ReintentoOptimistaService(PlatformTransactionManager transactionManager) {
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    public <T> T ejecutar(String operacion, Supplier<T> trabajo) {
+        for (int intento = 1; ; intento++) {
+            try {
+                return transaccion.execute(status -> trabajo.get());
+            } catch (OptimisticLockingFailureException e) {
+                conflictos.increment();
+                if (intento >= maxIntentos) {
+                    agotados.increment();
+                    log.warn("{}: conflicto de concurrencia tras {} intentos", operacion, intento);
+                    throw new IllegalStateException(
+                            "Otra operación modificó la cuota al mismo tiempo. Intente nuevamente.", e);
+                }
+                log.debug("{}: conflicto de concurrencia (intento {}), reintentando", operacion, intento);
+                esperar(intento);
+            }
+        }
+    }
+
+    public Estadisticas estadisticas() {
+        return new Estadisticas(conflictos.sum(), agotados.sum());
+    }
+
+    /**
+     * Espera creciente con jitter para que dos operaciones que chocaron no vuelvan a coincidir.
+     */
+    private void esperar(int intento) {
+        long base = backoff.toMillis() << Math.min(intento - 1, 6);
+        try {
+            Thread.sleep(base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Operación interrumpida", e);
+        }
+    }
+
+    /**
+     * @param conflictos Intentos que fallaron por versión desactualizada.
+     * @param agotados   Operaciones que agotaron los reintentos (respondieron 409).
+     */
+    public record Estadisticas(long conflictos, long agotados) {}
+}
@@ -0,0 +1,117 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.CuotaDao;
+import com.a.prestamos.model.dto.reporte.AgingDto;
+import com.a.prestamos.util.AgingCalculator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reporte de antigüedad (aging) de toda la cartera ACTIVO: saldo vencido y mora por tramo de atraso.
+ * <p>
+ * Parte el rango de IDs de las cuotas vencidas en particiones que se leen en paralelo (cada una con su
+ * conexión) por bloques de una proyección (id, vencimiento, saldo). Cada bloque se pasa a arreglos
+ * primitivos y se acumula con {@link AgingCalculator}; al final se combinan las particiones.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ReporteAgingServiceImpl {
+
+    private final CuotaDao cuotaDao;
+    private final ThreadPoolTaskExecutor reporteExecutor;
+
+    @Value("${app.reportes.aging.paralelismo:4}")
+    private int particiones;
+
+    @Value("${app.reportes.aging.chunk-size:20000}")
+    private int tamanioBloque;
+
+    public AgingDto calcularAging() {
+        LocalDate hoy = LocalDate.now();
+        long inicio = System.nanoTime();
+        AgingCalculator total = new AgingCalculator(hoy);
+
+        List<Object[]> rango = cuotaDao.findRangoIdsAging(hoy);
+        Object[] minMax = rango.isEmpty() ? null : rango.get(0);
+
+        if (minMax != null && minMax[0] != null) {
+            long minId = (Long) minMax[0];
+            long maxId = (Long) minMax[1];
+            long ancho = Math.max(1, (maxId - minId + particiones) / particiones);
+
+            List<CompletableFuture<AgingCalculator>> tareas = new ArrayList<>();
+            for (long desde = minId - 1; desde < maxId; desde += ancho) {
+                long desdeId = desde;
+                long hastaId = Math.min(desde + ancho, maxId);
+                tareas.add(CompletableFuture.supplyAsync(() -> procesarParticion(desdeId, hastaId, hoy), reporteExecutor));
+            }
+            tareas.forEach(t -> total.combinar(t.join()));
+        }
+
+        long millis = Duration.ofNanos(System.nanoTime() - inicio).toMillis();
+        AgingDto reporte = armarReporte(hoy, total, millis);
+        log.info("Reporte de antigüedad al {}: {} cuotas vencidas en {} ms", hoy, reporte.total().cuotas(), millis);
+        return reporte;
+    }
+
+    /**
+     * Recorre (desdeId, hastaId] por bloques, reutilizando los mismos arreglos.
+     */
+    private AgingCalculator procesarParticion(long desdeId, long hastaId, LocalDate hoy) {
+        AgingCalculator calculo = new AgingCalculator(hoy);
+        int[] vencimientoDia = new int[tamanioBloque];
+        int[] vencimientoMes = new int[tamanioBloque];
+        long[] saldoCentimos = new long[tamanioBloque];
+
+        long ultimo = desdeId;
+        while (ultimo < hastaId) {
+            List<Object[]> bloque = cuotaDao.findAgingEnRango(ultimo, hastaId, hoy, PageRequest.of(0, tamanioBloque));
+            int n = bloque.size();
+            for (int i = 0; i < n; i++) {
+                Object[] fila = bloque.get(i);
+                LocalDate vencimiento = (LocalDate) fila[1];
+                vencimientoDia[i] = AgingCalculator.dia(vencimiento);
+                vencimientoMes[i] = AgingCalculator.mes(vencimiento);
+                saldoCentimos[i] = ((BigDecimal) fila[2]).movePointRight(2).longValue();
+            }
+            calculo.acumular(vencimientoDia, vencimientoMes, saldoCentimos, n);
+
+            if (n < tamanioBloque) {
+                break;
+            }
+            ultimo = (Long) bloque.get(n - 1)[0];
+        }
+        return calculo;
+    }
+
+    private AgingDto armarReporte(LocalDate hoy, AgingCalculator calculo, long millis) {
+        List<AgingDto.Tramo> tramos = new ArrayList<>();
+        long cuotas = 0, saldo = 0, mora = 0;
+        for (int t = 0; t < AgingCalculator.TRAMOS.length; t++) {
+            tramos.add(tramo(AgingCalculator.TRAMOS[t], calculo.cuotas(t), calculo.saldoCentimos(t), calculo.moraCentimos(t)));
+            cuotas += calculo.cuotas(t);
+            saldo += calculo.saldoCentimos(t);
+            mora += calculo.moraCentimos(t);
+        }
+        return new AgingDto(hoy, tramos, tramo("TOTAL", cuotas, saldo, mora), millis);
+    }
+
+    private static AgingDto.Tramo tramo(String nombre, long cuotas, long saldoCentimos, long moraCentimos) {
+        return new AgingDto.Tramo(nombre, cuotas,
+                BigDecimal.valueOf(saldoCentimos, 2),
+                BigDecimal.valueOf(moraCentimos, 2),
+                BigDecimal.valueOf(saldoCentimos + moraCentimos, 2));
+    }
+}
@@ -0,0 +1,89 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dto.prestamo.SimulacionDto;
+import com.a.prestamos.model.dto.prestamo.SimulacionRequest;
+import com.a.prestamos.model.entity.Cuota;
+import com.a.prestamos.model.entity.Prestamo;
+import com.a.prestamos.service.IFinancialService;
+import com.a.prestamos.util.LruTtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cotizaciones de préstamos para ventas: arma el cronograma con el mismo {@link IFinancialService} que
+ * {@code createLoan}, sobre un préstamo que no se guarda, y sin tocar la base de datos.
+ * <p>
+ * El resultado solo depende de (principal, TEA, meses, fecha de inicio), así que se guarda en una caché
+ * acotada: repetir la misma cotización no vuelve a calcular nada.
+ */
+@Service
+public class SimulacionServiceImpl {
+
+    private final IFinancialService financialService;
+    private final LruTtlCache<Clave, SimulacionDto> cache;
+
+    public SimulacionServiceImpl(IFinancialService financialService,
+                                 @Value("${app.prestamos.simulacion.cache.max-entries:5000}") int maxEntradas,
+                                 @Value("${app.prestamos.simulacion.cache.ttl:PT24H}") Duration ttl) {
+        this.financialService = financialService;
+        this.cache = new LruTtlCache<>(maxEntradas, ttl);
+    }
+
+    public SimulacionDto simular(SimulacionRequest request) {
+        LocalDate inicio = request.startDate() != null ? request.startDate() : LocalDate.now();
+        // 1000 y 1000.00 son la misma cotización
+        Clave clave = new Clave(request.principal().stripTrailingZeros(), request.teaAnnual().stripTrailingZeros(),
+                request.months(), inicio);
+        return cache.get(clave, k -> calcular(request.principal(), request.teaAnnual(), request.months(), inicio));
+    }
+
+    public LruTtlCache.Estadisticas estadisticas() {
+        return cache.estadisticas();
+    }
+
+    @Scheduled(fixedDelayString = "${app.prestamos.simulacion.cache.purge-interval:PT10M}")
+    public void purgarVencidas() {
+        cache.purgarVencidas();
+    }
+
+    private SimulacionDto calcular(BigDecimal principal, BigDecimal tea, int months, LocalDate inicio) {
+        // Mismos pasos que PrestamoServiceImpl.createLoan, sin persistir
+        BigDecimal tem = financialService.calculateTem(tea);
+        BigDecimal installmentAmount = financialService.calculateInstallmentAmount(principal, tem, months);
+
+        Prestamo prestamo = new Prestamo();
+        prestamo.setPrincipal(principal);
+        prestamo.setTeaAnnual(tea);
+        prestamo.setMonths(months);
+        prestamo.setStartDate(inicio);
+        prestamo.setInstallmentAmount(installmentAmount);
+
+        List<Cuota> cuotas = financialService.generateSchedule(prestamo, tem);
+
+        List<SimulacionDto.Cuota> schedule = new ArrayList<>(cuotas.size());
+        BigDecimal saldoCapital = principal;
+        BigDecimal totalInteres = BigDecimal.ZERO;
+        BigDecimal totalIgv = BigDecimal.ZERO;
+        BigDecimal totalPagar = BigDecimal.ZERO;
+        for (Cuota c : cuotas) {
+            saldoCapital = saldoCapital.subtract(c.getPrincipal());
+            totalInteres = totalInteres.add(c.getInterest());
+            totalIgv = totalIgv.add(c.getIgv());
+            totalPagar = totalPagar.add(c.getAmount());
+            schedule.add(new SimulacionDto.Cuota(c.getNum(), c.getDueDate(), c.getAmount(), c.getPrincipal(),
+                    c.getInterest(), c.getIgv(), saldoCapital));
+        }
+
+        return new SimulacionDto(principal, tea, tem, months, inicio, installmentAmount,
+                totalInteres, totalIgv, totalPagar, List.copyOf(schedule));
+    }
+
+    private record Clave(BigDecimal principal, BigDecimal tea, int months, LocalDate inicio) {}
+}
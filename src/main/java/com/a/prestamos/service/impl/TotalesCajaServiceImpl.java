@@ -0,0 +1,151 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.CajaDao;
+import com.a.prestamos.model.dao.PagoDao;
+import com.a.prestamos.model.dao.TotalCajaDao;
+import com.a.prestamos.model.entity.Caja;
+import com.a.prestamos.model.entity.Pago;
+import com.a.prestamos.model.entity.TotalCaja;
+import com.a.prestamos.model.entity.enums.CajaState;
+import com.a.prestamos.model.entity.enums.PaymentMethod;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Totales por caja y método de pago ({@link TotalCaja}), mantenidos al registrar cada pago en vez de
+ * agruparlos en cada consulta del resumen.
+ * <p>
+ * Los pagos guardan su caja, así que los totales siempre se pueden volver a derivar: la verificación
+ * periódica los compara con la suma de los pagos de cada caja abierta y corrige cualquier diferencia.
+ */
+@Service
+@Slf4j
+public class TotalesCajaServiceImpl {
+
+    private final TotalCajaDao totalCajaDao;
+    private final PagoDao pagoDao;
+    private final CajaDao cajaDao;
+    private final TransactionTemplate transaccion;
+
+    public TotalesCajaServiceImpl(TotalCajaDao totalCajaDao,
+                                  PagoDao pagoDao,
+                                  CajaDao cajaDao,
+                                  PlatformTransactionManager transactionManager) {
+        this.totalCajaDao = totalCajaDao;
+        this.pagoDao = pagoDao;
+        this.cajaDao = cajaDao;
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Crea en cero una fila por método de pago. Va en la transacción de apertura de la caja, así los pagos
+     * siempre encuentran su fila.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void inicializar(Caja caja) {
+        List<TotalCaja> filas = new ArrayList<>();
+        for (PaymentMethod metodo : PaymentMethod.values()) {
+            filas.add(nuevaFila(caja, metodo));
+        }
+        totalCajaDao.saveAll(filas);
+    }
+
+    /**
+     * Suma un pago que acaba de quedar ACTIVO al total de su caja, en la misma transacción del pago.
+     * Es además la comprobación definitiva de que la caja sigue abierta.
+     *
+     * @return {@code false} si la caja ya está cerrada; el pago no se sumó.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean registrar(Pago pago) {
+        if (pago.getCaja() == null) {
+            return true;
+        }
+        BigDecimal redondeo = pago.getRounding() != null ? pago.getRounding() : BigDecimal.ZERO;
+        return totalCajaDao.sumar(pago.getCaja().getId(), pago.getPaymentMethod(), pago.getAmountPaid(), redondeo) > 0;
+    }
+
+    /**
+     * Al arrancar adopta la caja abierta antes de este cambio (pagos sin caja) y deja sus totales al día.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void alIniciar() {
+        try {
+            verificar();
+        } catch (RuntimeException e) {
+            log.error("No se pudieron verificar los totales de caja al iniciar: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(cron = "${app.caja.totales.verificacion-cron:0 */15 * * * *}")
+    public void verificar() {
+        for (Caja caja : cajaDao.findAllByEstado(CajaState.ABIERTA)) {
+            transaccion.executeWithoutResult(status -> reconciliar(caja));
+        }
+    }
+
+    private void reconciliar(Caja caja) {
+        // Con las filas bloqueadas, los pagos en curso esperan para sumar: la suma de pagos y los totales
+        // se leen en el mismo punto y no aparecen diferencias falsas
+        List<TotalCaja> filas = totalCajaDao.findByCajaIdForUpdate(caja.getId());
+
+        if (filas.isEmpty()) {
+            Instant inicio = caja.getFechaApertura().atZone(ZoneId.systemDefault()).toInstant();
+            int adoptados = pagoDao.asignarCajaDesde(caja, inicio);
+            log.info("Caja {} sin totales: {} pagos desde la apertura asignados a la caja", caja.getId(), adoptados);
+        }
+
+        Map<PaymentMethod, TotalCaja> porMetodo = new EnumMap<>(PaymentMethod.class);
+        filas.forEach(f -> porMetodo.put(f.getPaymentMethod(), f));
+        Set<PaymentMethod> existentes = EnumSet.noneOf(PaymentMethod.class);
+        existentes.addAll(porMetodo.keySet());
+        for (PaymentMethod metodo : PaymentMethod.values()) {
+            if (!porMetodo.containsKey(metodo)) {
+                porMetodo.put(metodo, totalCajaDao.save(nuevaFila(caja, metodo)));
+            }
+        }
+
+        Map<PaymentMethod, BigDecimal[]> derivados = new EnumMap<>(PaymentMethod.class);
+        for (Object[] row : pagoDao.sumarPagosPorMetodoDeCaja(caja.getId())) {
+            derivados.put((PaymentMethod) row[0], new BigDecimal[]{
+                    row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO,
+                    row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO});
+        }
+
+        porMetodo.forEach((metodo, fila) -> {
+            BigDecimal[] esperado = derivados.getOrDefault(metodo, new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            if (fila.getMontoPagado().compareTo(esperado[0]) != 0 || fila.getRedondeo().compareTo(esperado[1]) != 0) {
+                if (existentes.contains(metodo)) {
+                    log.warn("Totales de la caja {} ({}) corregidos: monto {} → {}, redondeo {} → {}", caja.getId(), metodo,
+                            fila.getMontoPagado(), esperado[0], fila.getRedondeo(), esperado[1]);
+                }
+                fila.setMontoPagado(esperado[0]);
+                fila.setRedondeo(esperado[1]);
+            }
+        });
+    }
+
+    private static TotalCaja nuevaFila(Caja caja, PaymentMethod metodo) {
+        TotalCaja fila = new TotalCaja();
+        fila.setCaja(caja);
+        fila.setPaymentMethod(metodo);
+        return fila;
+    }
+}
@@ -2,6 +2,7 @@ package com.a.prestamos.service.impl;
 
 import com.a.prestamos.model.dao.UsuarioDao;
 import com.a.prestamos.model.entity.Usuario;
+import com.a.prestamos.security.UsuarioCache;
 import com.a.prestamos.service.IUsuarioService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -14,6 +15,8 @@ import java.util.List;
 public class UsuarioServiceImpl implements IUsuarioService {
     @Autowired
     private UsuarioDao usuarioDao;
+    @Autowired
+    private UsuarioCache usuarioCache;
 
 //    @Transactional
 //    @Override
@@ -52,8 +55,13 @@ public class UsuarioServiceImpl implements IUsuarioService {
         return usuarioDao.existsByEmail(email);
     }
 
+    @Transactional
     @Override
     public void deleteById(Long id) {
-        usuarioDao.deleteById(id);
+        usuarioDao.findById(id).ifPresent(u -> {
+            usuarioDao.delete(u);
+            // Tras el commit: una petición concurrente ya no puede volver a cargar al usuario borrado
+            usuarioCache.removeUserFromCacheAfterCommit(u.getEmail());
+        });
     }
 }
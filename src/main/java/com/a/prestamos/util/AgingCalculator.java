@@ -0,0 +1,80 @@
+package com.a.prestamos.util;
+
+import java.time.LocalDate;
+
+/**
+ * Acumula mora y saldo vencido por tramos de atraso (1–30, 31–60, 61–90 y más de 90 días) sobre
+ * arreglos primitivos, sin crear objetos por cuota. Aplica la misma regla que {@link MoraCalculator}
+ * pero en céntimos enteros: mora = saldo × 1% × meses (mínimo 1), redondeo HALF_UP.
+ * <p>
+ * No es thread-safe: cada partición usa su propia instancia y al final se combinan con {@link #combinar}.
+ */
+public final class AgingCalculator {
+
+    public static final String[] TRAMOS = {"1-30", "31-60", "61-90", "90+"};
+
+    private final int hoyDia;
+    private final int hoyMes;
+
+    private final long[] cuotas = new long[TRAMOS.length];
+    private final long[] saldoCentimos = new long[TRAMOS.length];
+    private final long[] moraCentimos = new long[TRAMOS.length];
+
+    public AgingCalculator(LocalDate hoy) {
+        this.hoyDia = dia(hoy);
+        this.hoyMes = mes(hoy);
+    }
+
+    /**
+     * Día epoch de la fecha (días de atraso = diferencia directa).
+     */
+    public static int dia(LocalDate fecha) {
+        return (int) fecha.toEpochDay();
+    }
+
+    /**
+     * Mes proléptico × 32 + día del mes: la diferencia dividida entre 32 da los meses cumplidos,
+     * igual que {@code ChronoUnit.MONTHS.between}.
+     */
+    public static int mes(LocalDate fecha) {
+        return (int) ((fecha.getYear() * 12L + fecha.getMonthValue() - 1) * 32 + fecha.getDayOfMonth());
+    }
+
+    /**
+     * Suma las primeras {@code n} cuotas. Las que aún no vencen se ignoran.
+     */
+    public void acumular(int[] vencimientoDia, int[] vencimientoMes, long[] saldo, int n) {
+        for (int i = 0; i < n; i++) {
+            int dias = hoyDia - vencimientoDia[i];
+            if (dias <= 0) continue;
+
+            int meses = Math.max((hoyMes - vencimientoMes[i]) >> 5, 1);
+            long s = saldo[i];
+            int t = dias <= 30 ? 0 : dias <= 60 ? 1 : dias <= 90 ? 2 : 3;
+
+            cuotas[t]++;
+            saldoCentimos[t] += s;
+            moraCentimos[t] += (s * meses + 50) / 100;
+        }
+    }
+
+    public void combinar(AgingCalculator otra) {
+        for (int t = 0; t < TRAMOS.length; t++) {
+            cuotas[t] += otra.cuotas[t];
+            saldoCentimos[t] += otra.saldoCentimos[t];
+            moraCentimos[t] += otra.moraCentimos[t];
+        }
+    }
+
+    public long cuotas(int tramo) {
+        return cuotas[tramo];
+    }
+
+    public long saldoCentimos(int tramo) {
+        return saldoCentimos[tramo];
+    }
+
+    public long moraCentimos(int tramo) {
+        return moraCentimos[tramo];
+    }
+}
@@ -0,0 +1,233 @@
+package com.a.prestamos.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Caché en memoria acotada: expulsa la entrada menos usada (LRU) al llenarse y descarta las que
+ * superan su TTL. El TTL puede depender del valor (p. ej. más corto para resultados negativos).
+ * <p>
+ * {@link #get(Object, Function)} deduplica cargas concurrentes de la misma clave (single-flight):
+ * si varios hilos piden una clave ausente, solo uno ejecuta el cargador y el resto espera su resultado.
+ * Los valores {@code null} y las excepciones del cargador no se guardan.
+ */
+public class LruTtlCache<K, V> {
+
+    private final int capacidad;
+    private final Function<? super V, Duration> ttl;
+
+    /**
+     * LinkedHashMap en orden de acceso; todo acceso va bajo el lock del propio mapa.
+     */
+    private final LinkedHashMap<K, Entrada<V>> entradas;
+    private final Map<K, CompletableFuture<V>> enCurso = new ConcurrentHashMap<>();
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder compartidas = new LongAdder();
+    private final LongAdder expulsadas = new LongAdder();
+
+    public LruTtlCache(int capacidad, Duration ttl) {
+        this(capacidad, v -> ttl);
+    }
+
+    public LruTtlCache(int capacidad, Function<? super V, Duration> ttl) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad de la caché debe ser positiva");
+        }
+        this.capacidad = capacidad;
+        this.ttl = ttl;
+        this.entradas = new LinkedHashMap<>(Math.min(capacidad, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> eldest) {
+                if (size() > LruTtlCache.this.capacidad) {
+                    expulsadas.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Devuelve el valor vigente o lo carga con {@code cargador}. Si otro hilo ya está cargando la
+     * misma clave, espera ese resultado en vez de repetir la carga.
+     */
+    public V get(K key, Function<? super K, ? extends V> cargador) {
+        V valor = getIfPresent(key);
+        if (valor != null) {
+            return valor;
+        }
+
+        CompletableFuture<V> propia = new CompletableFuture<>();
+        CompletableFuture<V> existente = enCurso.putIfAbsent(key, propia);
+        if (existente != null) {
+            compartidas.increment();
+            return esperar(existente);
+        }
+
+        try {
+            // Otro hilo pudo terminar de cargarla entre la consulta y el putIfAbsent
+            valor = vigente(key);
+            if (valor == null) {
+                valor = cargador.apply(key);
+                if (valor != null) put(key, valor);
+            }
+            propia.complete(valor);
+            return valor;
+        } catch (RuntimeException | Error e) {
+            propia.completeExceptionally(e);
+            throw e;
+        } finally {
+            enCurso.remove(key, propia);
+        }
+    }
+
+    /**
+     * Variante no bloqueante de {@link #get(Object, Function)}: el cargador devuelve un future y los
+     * pedidos concurrentes de la misma clave reciben el mismo future.
+     */
+    public CompletableFuture<V> getAsync(K key, Function<? super K, ? extends CompletableFuture<V>> cargador) {
+        V valor = getIfPresent(key);
+        if (valor != null) {
+            return CompletableFuture.completedFuture(valor);
+        }
+
+        CompletableFuture<V> propia = new CompletableFuture<>();
+        CompletableFuture<V> existente = enCurso.putIfAbsent(key, propia);
+        if (existente != null) {
+            compartidas.increment();
+            return existente;
+        }
+
+        valor = vigente(key);
+        if (valor != null) {
+            enCurso.remove(key, propia);
+            propia.complete(valor);
+            return propia;
+        }
+
+        CompletableFuture<V> carga;
+        try {
+            carga = cargador.apply(key);
+        } catch (RuntimeException | Error e) {
+            enCurso.remove(key, propia);
+            propia.completeExceptionally(e);
+            return propia;
+        }
+
+        carga.whenComplete((v, e) -> {
+            if (e == null && v != null) put(key, v);
+            enCurso.remove(key, propia);
+            if (e != null) propia.completeExceptionally(e instanceof CompletionException ce && ce.getCause() != null ? ce.getCause() : e);
+            else propia.complete(v);
+        });
+        return propia;
+    }
+
+    public V getIfPresent(K key) {
+        V valor = vigente(key);
+        if (valor != null) aciertos.increment();
+        else fallos.increment();
+        return valor;
+    }
+
+    public void put(K key, V valor) {
+        Duration vida = ttl.apply(valor);
+        if (vida == null || vida.isZero() || vida.isNegative()) {
+            return;
+        }
+        long expira = System.nanoTime() + vida.toNanos();
+        synchronized (entradas) {
+            entradas.put(key, new Entrada<>(valor, expira));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entradas) {
+            entradas.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entradas) {
+            entradas.clear();
+        }
+    }
+
+    /**
+     * Elimina las entradas vencidas. Las vencidas también se descartan al leerlas; esto solo libera
+     * memoria de claves que no se vuelven a pedir.
+     */
+    public void purgarVencidas() {
+        long ahora = System.nanoTime();
+        synchronized (entradas) {
+            Iterator<Entrada<V>> it = entradas.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().vencida(ahora)) it.remove();
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entradas) {
+            return entradas.size();
+        }
+    }
+
+    public Estadisticas estadisticas() {
+        long a = aciertos.sum();
+        long f = fallos.sum();
+        return new Estadisticas(a, f, compartidas.sum(), expulsadas.sum(), size(), capacidad,
+                a + f == 0 ? 0 : (double) a / (a + f));
+    }
+
+    private V vigente(K key) {
+        synchronized (entradas) {
+            Entrada<V> entrada = entradas.get(key);
+            if (entrada == null) return null;
+            if (entrada.vencida(System.nanoTime())) {
+                entradas.remove(key);
+                return null;
+            }
+            return entrada.valor();
+        }
+    }
+
+    private V esperar(CompletableFuture<V> carga) {
+        try {
+            return carga.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    private record Entrada<V>(V valor, long expiraNanos) {
+        boolean vencida(long ahora) {
+            return ahora - expiraNanos >= 0;
+        }
+    }
+
+    /**
+     * @param compartidas Consultas que esperaron la carga en curso de otro hilo en vez de repetirla.
+     * @param tasaAcierto aciertos / (aciertos + fallos).
+     */
+    public record Estadisticas(
+            long aciertos,
+            long fallos,
+            long compartidas,
+            long expulsadas,
+            int tamanio,
+            int capacidad,
+            double tasaAcierto
+    ) {}
+}
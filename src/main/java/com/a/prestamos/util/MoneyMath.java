@@ -0,0 +1,149 @@
+package com.a.prestamos.util;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Aritmética de dinero en céntimos ({@code long}) con redondeo HALF_UP explícito, sin crear objetos.
+ * <p>
+ * Reproduce céntimo a céntimo lo que daba {@link BigDecimal} con {@code setScale(2, HALF_UP)}: los productos
+ * monto × tasa se calculan exactos en 128 bits antes de redondear. {@link BigDecimal} queda solo en el borde
+ * (entrada de tasas y montos, y lo que se guarda en las entidades).
+ */
+public final class MoneyMath {
+
+    private static final long[] POTENCIAS_10 = new long[19];
+
+    static {
+        POTENCIAS_10[0] = 1;
+        for (int i = 1; i < POTENCIAS_10.length; i++) {
+            POTENCIAS_10[i] = POTENCIAS_10[i - 1] * 10;
+        }
+    }
+
+    private MoneyMath() {
+    }
+
+    /**
+     * Tasa (o factor) decimal exacta: {@code valor = unscaled / 10^scale}.
+     */
+    public record Tasa(long unscaled, int scale) {
+
+        /**
+         * Las tasas que vienen de un double o de un MathContext de 18 dígitos entran exactas; una tasa con
+         * más dígitos se redondea a 18 significativos.
+         */
+        public static Tasa de(BigDecimal valor) {
+            BigDecimal v = valor.stripTrailingZeros();
+            if (v.precision() > 18) {
+                v = v.round(new MathContext(18, RoundingMode.HALF_UP)).stripTrailingZeros();
+            }
+            if (v.scale() < 0) {
+                v = v.setScale(0);
+            }
+            if (v.scale() > 36) { // 10^18 × 10^18: límite de la división en dos pasos
+                throw new ArithmeticException("Tasa fuera de rango: " + valor);
+            }
+            return new Tasa(v.unscaledValue().longValueExact(), v.scale());
+        }
+
+        public boolean esCero() {
+            return unscaled == 0;
+        }
+    }
+
+    /**
+     * Monto con a lo sumo 2 decimales → céntimos. Lanza {@link ArithmeticException} si tiene fracciones de céntimo.
+     */
+    public static long aCentimos(BigDecimal monto) {
+        return monto.movePointRight(2).longValueExact();
+    }
+
+    public static BigDecimal aSoles(long centimos) {
+        return BigDecimal.valueOf(centimos, 2);
+    }
+
+    /**
+     * {@code centimos × tasa}, redondeado HALF_UP a céntimos.
+     */
+    public static long multiplicar(long centimos, Tasa tasa) {
+        return multiplicarDividirPotencia10(centimos, tasa.unscaled(), tasa.scale());
+    }
+
+    /**
+     * {@code a × b / divisor}, redondeado HALF_UP (simétrico en negativos, como BigDecimal).
+     */
+    public static long multiplicarDividir(long a, long b, long divisor) {
+        if (divisor <= 0) {
+            throw new ArithmeticException("Divisor no positivo: " + divisor);
+        }
+        boolean negativo = (a < 0) ^ (b < 0);
+        long ua = Math.absExact(a);
+        long ub = Math.absExact(b);
+
+        long bajo = ua * ub;
+        long cociente = dividir128(Math.multiplyHigh(ua, ub), bajo, divisor);
+        long q = redondear(cociente, bajo - cociente * divisor, divisor);
+        return negativo ? -q : q;
+    }
+
+    /**
+     * {@code numerador / divisor}, redondeado HALF_UP.
+     */
+    public static long dividir(long numerador, long divisor) {
+        return multiplicarDividir(numerador, 1, divisor);
+    }
+
+    /**
+     * {@code a × b / 10^exponente}, redondeado HALF_UP. Para exponentes mayores a 18 divide en dos pasos:
+     * el resto del primero es menor a 10^18 y no puede cambiar el redondeo del segundo.
+     */
+    private static long multiplicarDividirPotencia10(long a, long b, int exponente) {
+        if (exponente <= 18) {
+            return multiplicarDividir(a, b, POTENCIAS_10[exponente]);
+        }
+        boolean negativo = (a < 0) ^ (b < 0);
+        long ua = Math.absExact(a);
+        long ub = Math.absExact(b);
+
+        long parcial = dividir128(Math.multiplyHigh(ua, ub), ua * ub, POTENCIAS_10[18]);
+        long divisor = POTENCIAS_10[exponente - 18];
+        long q = redondear(parcial / divisor, parcial % divisor, divisor);
+        return negativo ? -q : q;
+    }
+
+    private static long redondear(long cociente, long resto, long divisor) {
+        // HALF_UP: sube si resto ≥ divisor / 2 (comparado sin desbordar)
+        return Long.compareUnsigned(resto, divisor - resto) >= 0 ? cociente + 1 : cociente;
+    }
+
+    /**
+     * Cociente sin signo de (alto:bajo) entre {@code divisor} (&lt; 2^63). El resto es
+     * {@code bajo - cociente * divisor} (los 64 bits bajos bastan porque es menor al divisor).
+     */
+    private static long dividir128(long alto, long bajo, long divisor) {
+        if (Long.compareUnsigned(alto, divisor) >= 0) {
+            throw new ArithmeticException("Desborde en aritmética de céntimos");
+        }
+        long q = 0;
+        if (alto == 0) {
+            q = Long.divideUnsigned(bajo, divisor);
+        } else {
+            for (int i = 0; i < 64; i++) {
+                boolean acarreo = alto < 0;
+                alto = (alto << 1) | (bajo >>> 63);
+                bajo <<= 1;
+                q <<= 1;
+                if (acarreo || Long.compareUnsigned(alto, divisor) >= 0) {
+                    alto -= divisor;
+                    q |= 1;
+                }
+            }
+        }
+        if (q < 0) {
+            throw new ArithmeticException("Desborde en aritmética de céntimos");
+        }
+        return q;
+    }
+}
@@ -0,0 +1,77 @@
+package com.a.prestamos.util;
+
+import com.a.prestamos.model.entity.Cuota;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+
+/**
+ * Única regla de mora del sistema: 1% mensual sobre el saldo pendiente por cada mes de atraso,
+ * cobrando al menos un mes apenas la cuota vence.
+ * <p>
+ * El resultado se guarda en la propia cuota (moraAcumulada, mesesMora, moraCalculadaAl): lo actualiza el
+ * job diario de mora y cada pago. Pantallas y cobros leen ese valor en vez de recalcularlo.
+ */
+public final class MoraCalculator {
+
+    public static final BigDecimal TASA_MORA = new BigDecimal("0.01"); // 1% mensual
+
+    private MoraCalculator() {
+    }
+
+    /**
+     * Meses de atraso a la fecha: 0 si aún no vence; si venció, los meses cumplidos desde el
+     * vencimiento con un mínimo de 1.
+     */
+    public static int mesesAtraso(LocalDate dueDate, LocalDate fecha) {
+        if (!fecha.isAfter(dueDate)) {
+            return 0;
+        }
+        long meses = ChronoUnit.MONTHS.between(dueDate, fecha);
+        return (int) Math.max(meses, 1);
+    }
+
+    public static BigDecimal mora(BigDecimal saldo, int meses) {
+        if (meses <= 0 || saldo == null || saldo.signum() <= 0) {
+            return BigDecimal.ZERO.setScale(2);
+        }
+        return saldo.multiply(TASA_MORA)
+                .multiply(BigDecimal.valueOf(meses))
+                .setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Mora vigente de la cuota a la fecha. Usa lo guardado si corresponde a los mismos meses de atraso
+     * (el saldo solo cambia con pagos, que actualizan la cuota); si no, la calcula sin persistir.
+     */
+    public static BigDecimal moraAl(Cuota cuota, LocalDate fecha) {
+        int meses = mesesAtraso(cuota.getDueDate(), fecha);
+        if (cuota.getMoraCalculadaAl() != null && cuota.getMoraAcumulada() != null
+                && Objects.equals(cuota.getMesesMora(), meses)) {
+            return cuota.getMoraAcumulada();
+        }
+        return mora(cuota.getBalance(), meses);
+    }
+
+    /**
+     * Recalcula la mora guardada en la cuota. Devuelve true si cambió (solo entonces hay que escribirla).
+     */
+    public static boolean actualizar(Cuota cuota, LocalDate fecha) {
+        int meses = mesesAtraso(cuota.getDueDate(), fecha);
+        BigDecimal mora = mora(cuota.getBalance(), meses);
+
+        if (cuota.getMoraCalculadaAl() != null
+                && Objects.equals(cuota.getMesesMora(), meses)
+                && cuota.getMoraAcumulada() != null && cuota.getMoraAcumulada().compareTo(mora) == 0) {
+            return false;
+        }
+
+        cuota.setMesesMora(meses);
+        cuota.setMoraAcumulada(mora);
+        cuota.setMoraCalculadaAl(fecha);
+        return true;
+    }
+}
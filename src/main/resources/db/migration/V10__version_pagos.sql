@@ -0,0 +1,3 @@
+-- Columna de versión para el control de concurrencia optimista (@Version en Pago): dos webhooks de
+-- Mercado Pago que toman la misma orden PENDIENTE ya no la aprueban (ni suman a la cuota) dos veces.
+ALTER TABLE pagos ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL;
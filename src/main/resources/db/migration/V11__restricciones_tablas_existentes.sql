@@ -0,0 +1,6 @@
+-- V1 crea las tablas con IF NOT EXISTS: en las bases que ya las tenían (creadas con ddl-auto=update) se
+-- saltaron las restricciones que no existían entonces. Se agregan aquí por nombre, igual en bases nuevas
+-- y existentes. Si la única de comprobantes falla por correlativos repetidos, ya hay comprobantes duplicados
+-- enviados a SUNAT: se resuelven a mano (anulación o baja) antes de volver a arrancar.
+ALTER TABLE comprobantes DROP CONSTRAINT IF EXISTS uk_comprobante_serie_correlativo;
+ALTER TABLE comprobantes ADD CONSTRAINT uk_comprobante_serie_correlativo UNIQUE (serie, sequential);
@@ -0,0 +1,17 @@
+-- migracion: solo-postgresql
+-- Cuotas, pagos, préstamos y comprobantes pasaron de IDENTITY a secuencias con bloques de 50 (allocationSize):
+-- en una base con filas previas la secuencia nueva arranca en 1 y chocaría con los IDs existentes.
+-- Se deja cada secuencia por delante del MAX(id) de su tabla (el optimizador pooled de Hibernate usa los 50 IDs
+-- anteriores al valor que devuelve nextval) y GREATEST evita retrocederla si ya había avanzado. Corre una sola
+-- vez, bajo el advisory lock del migrador y antes de que JPA pida IDs; antes lo hacía SecuenciasIdInitializer en
+-- cada arranque. En H2 (desarrollo y pruebas) la base siempre parte vacía.
+SELECT setval('prestamos_seq', GREATEST(t.maximo + 50, (SELECT last_value FROM prestamos_seq)))
+FROM (SELECT MAX(id) AS maximo FROM prestamos) t WHERE t.maximo IS NOT NULL;
+SELECT setval('cuotas_seq', GREATEST(t.maximo + 50, (SELECT last_value FROM cuotas_seq)))
+FROM (SELECT MAX(id) AS maximo FROM cuotas) t WHERE t.maximo IS NOT NULL;
+SELECT setval('pagos_seq', GREATEST(t.maximo + 50, (SELECT last_value FROM pagos_seq)))
+FROM (SELECT MAX(id) AS maximo FROM pagos) t WHERE t.maximo IS NOT NULL;
+SELECT setval('comprobantes_seq', GREATEST(t.maximo + 50, (SELECT last_value FROM comprobantes_seq)))
+FROM (SELECT MAX(id) AS maximo FROM comprobantes) t WHERE t.maximo IS NOT NULL;
+SELECT setval('emisiones_comprobante_seq', GREATEST(t.maximo + 50, (SELECT last_value FROM emisiones_comprobante_seq)))
+FROM (SELECT MAX(id) AS maximo FROM emisiones_comprobante) t WHERE t.maximo IS NOT NULL;
@@ -0,0 +1,7 @@
+-- migracion: solo-h2
+-- V9 en H2: H2 no soporta índices parciales, así que la caja ABIERTA de cada cajero se expone en una columna
+-- generada (NULL en las cerradas) con índice único; un índice único admite varios NULL. Dos aperturas
+-- simultáneas del mismo usuario fallan igual que en PostgreSQL y se informan "Ya tiene una caja abierta".
+ALTER TABLE cajas ADD COLUMN IF NOT EXISTS usuario_abierta varchar(255)
+    GENERATED ALWAYS AS (CASE WHEN estado = 'ABIERTA' THEN usuario END);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_cajas_usuario_abierta ON cajas (usuario_abierta);
@@ -0,0 +1,162 @@
+-- Esquema base: las tablas tal como las generaba Hibernate con ddl-auto=update.
+-- Es re-ejecutable (IF NOT EXISTS) para que en una base existente solo quede registrada como aplicada.
+
+CREATE TABLE IF NOT EXISTS clientes (
+    document_id      varchar(15) NOT NULL,
+    document_type    varchar(255) NOT NULL,
+    full_name        varchar(255) NOT NULL,
+    address          varchar(255),
+    first_name       varchar(255),
+    first_last_name  varchar(255),
+    second_last_name varchar(255),
+    pep              boolean NOT NULL,
+    created_at       timestamp(6) with time zone NOT NULL,
+    CONSTRAINT clientes_pkey PRIMARY KEY (document_id)
+);
+
+CREATE TABLE IF NOT EXISTS usuarios (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY,
+    email      varchar(255) NOT NULL,
+    password   varchar(255) NOT NULL,
+    role       varchar(255) NOT NULL,
+    firstname  varchar(255),
+    lastname   varchar(255),
+    phone      varchar(255),
+    zone       varchar(255),
+    birth_date date,
+    created_at timestamp(6) with time zone,
+    updated_at timestamp(6) with time zone,
+    CONSTRAINT usuarios_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_usuarios_email UNIQUE (email)
+);
+
+CREATE TABLE IF NOT EXISTS cajas (
+    id                     bigint GENERATED BY DEFAULT AS IDENTITY,
+    usuario                varchar(255) NOT NULL,
+    fecha_apertura         timestamp(6) NOT NULL,
+    fecha_cierre           timestamp(6),
+    saldo_inicial          numeric(12,2) NOT NULL,
+    total_efectivo_sistema numeric(12,2),
+    total_digital_sistema  numeric(12,2),
+    saldo_final_real       numeric(12,2),
+    diferencia             numeric(12,2),
+    estado                 varchar(20) NOT NULL,
+    observaciones          varchar(255),
+    CONSTRAINT cajas_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS prestamos (
+    id                 bigint NOT NULL,
+    customer_dni       varchar(15) NOT NULL,
+    start_date         date NOT NULL,
+    principal          numeric(12,2) NOT NULL,
+    tea_annual         numeric(6,4) NOT NULL,
+    months             integer NOT NULL,
+    installment_amount numeric(12,2) NOT NULL,
+    loan_state         varchar(10) NOT NULL,
+    created_at         timestamp(6) with time zone NOT NULL,
+    CONSTRAINT prestamos_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_prestamos_cliente FOREIGN KEY (customer_dni) REFERENCES clientes (document_id)
+);
+
+CREATE TABLE IF NOT EXISTS cuotas (
+    id                bigint NOT NULL,
+    loan_id           bigint NOT NULL,
+    num               integer NOT NULL,
+    due_date          date NOT NULL,
+    principal         numeric(12,2) NOT NULL,
+    interest          numeric(12,2) NOT NULL,
+    igv               numeric(12,2) NOT NULL,
+    amount            numeric(12,2) NOT NULL,
+    amount_paid       numeric(12,2) NOT NULL,
+    balance           numeric(12,2) NOT NULL,
+    installment_state varchar(20) NOT NULL,
+    CONSTRAINT cuotas_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_cuotas_prestamo FOREIGN KEY (loan_id) REFERENCES prestamos (id)
+);
+
+-- Columnas del ledger de mora: las bases creadas antes de ese cambio no las tienen
+ALTER TABLE cuotas ADD COLUMN IF NOT EXISTS mora_acumulada numeric(12,2);
+ALTER TABLE cuotas ADD COLUMN IF NOT EXISTS meses_mora integer;
+ALTER TABLE cuotas ADD COLUMN IF NOT EXISTS mora_calculada_al date;
+
+CREATE TABLE IF NOT EXISTS pagos (
+    id                         bigint NOT NULL,
+    installment_id             bigint NOT NULL,
+    amount_paid                numeric(12,2) NOT NULL,
+    amount_received            numeric(12,2) NOT NULL,
+    change                     numeric(12,2),
+    rounding                   numeric(12,2) NOT NULL,
+    mont_mora                  numeric(12,2) NOT NULL,
+    mora_perdonada             boolean NOT NULL,
+    payment_method             varchar(20) NOT NULL,
+    payment_date               timestamp(6) with time zone NOT NULL,
+    payment_state              varchar(20) NOT NULL,
+    operation_trace            varchar(50),
+    mercado_pago_preference_id varchar(100),
+    mercado_pago_payment_id    varchar(100),
+    observations               varchar(500),
+    created_at                 timestamp(6) with time zone NOT NULL,
+    CONSTRAINT pagos_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_pagos_cuota FOREIGN KEY (installment_id) REFERENCES cuotas (id)
+);
+
+CREATE TABLE IF NOT EXISTS comprobantes (
+    id         bigint NOT NULL,
+    payment_id bigint NOT NULL,
+    serie      varchar(4) NOT NULL,
+    sequential bigint NOT NULL,
+    proof_type varchar(10) NOT NULL,
+    url_xml    text,
+    url_cdr    text,
+    url_pdf    varchar(500),
+    hash       varchar(100),
+    issue_date timestamp(6) with time zone NOT NULL,
+    CONSTRAINT comprobantes_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_comprobantes_payment UNIQUE (payment_id),
+    CONSTRAINT uk_comprobante_serie_correlativo UNIQUE (serie, sequential),
+    CONSTRAINT fk_comprobantes_pago FOREIGN KEY (payment_id) REFERENCES pagos (id)
+);
+
+CREATE TABLE IF NOT EXISTS emisiones_comprobante (
+    id              bigint NOT NULL,
+    payment_id      bigint NOT NULL,
+    state           varchar(20) NOT NULL,
+    attempts        integer NOT NULL,
+    next_attempt_at timestamp(6) with time zone NOT NULL,
+    locked_until    timestamp(6) with time zone,
+    serie           varchar(4),
+    sequential      bigint,
+    last_error      varchar(500),
+    created_at      timestamp(6) with time zone NOT NULL,
+    updated_at      timestamp(6) with time zone,
+    CONSTRAINT emisiones_comprobante_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_emisiones_payment UNIQUE (payment_id),
+    CONSTRAINT fk_emisiones_pago FOREIGN KEY (payment_id) REFERENCES pagos (id)
+);
+
+CREATE TABLE IF NOT EXISTS series_correlativo (
+    serie         varchar(4) NOT NULL,
+    last_reserved bigint NOT NULL,
+    updated_at    timestamp(6) with time zone,
+    CONSTRAINT series_correlativo_pkey PRIMARY KEY (serie)
+);
+
+CREATE TABLE IF NOT EXISTS watermarks_proceso (
+    name            varchar(50) NOT NULL,
+    processed_until date,
+    target_date     date,
+    last_id         bigint,
+    locked_until    timestamp(6) with time zone,
+    last_run_rows   bigint,
+    last_run_millis bigint,
+    updated_at      timestamp(6) with time zone,
+    CONSTRAINT watermarks_proceso_pkey PRIMARY KEY (name)
+);
+
+-- Secuencias de IDs (allocationSize = 50). SecuenciasIdInitializer las adelanta si hay datos previos.
+CREATE SEQUENCE IF NOT EXISTS prestamos_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS cuotas_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS pagos_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS comprobantes_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS emisiones_comprobante_seq START WITH 1 INCREMENT BY 50;
@@ -0,0 +1,14 @@
+-- migracion: sin-transaccion
+-- Índices de las consultas frecuentes de cuotas y pagos (ver @Table(indexes) en Cuota y Pago).
+-- CONCURRENTLY no bloquea escrituras mientras se construye, pero no puede correr dentro de una transacción.
+-- Si una construcción falla queda un índice INVALID: borrarlo con DROP INDEX CONCURRENTLY y reiniciar.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cuotas_loan_num ON cuotas (loan_id, num);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cuotas_loan_estado_num ON cuotas (loan_id, installment_state, num);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cuotas_estado_vencimiento ON cuotas (installment_state, due_date);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cuotas_vencimiento ON cuotas (due_date);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pagos_cuota_estado ON pagos (installment_id, payment_state);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pagos_fecha_estado ON pagos (payment_date, payment_state);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pagos_mp_payment ON pagos (mercado_pago_payment_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pagos_mp_preferencia ON pagos (mercado_pago_preference_id);
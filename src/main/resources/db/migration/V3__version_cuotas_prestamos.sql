@@ -0,0 +1,3 @@
+-- Columnas de versión para el control de concurrencia optimista (@Version en Cuota y Prestamo).
+ALTER TABLE cuotas ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL;
+ALTER TABLE prestamos ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL;
@@ -0,0 +1,17 @@
+-- Totales por caja y método de pago, mantenidos con cada pago (TotalesCajaServiceImpl).
+CREATE TABLE IF NOT EXISTS caja_totales (
+    id             bigint GENERATED BY DEFAULT AS IDENTITY,
+    caja_id        bigint NOT NULL,
+    payment_method varchar(20) NOT NULL,
+    monto_pagado   numeric(14,2) NOT NULL,
+    redondeo       numeric(14,2) NOT NULL,
+    CONSTRAINT caja_totales_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_caja_totales_caja_metodo UNIQUE (caja_id, payment_method),
+    CONSTRAINT fk_caja_totales_caja FOREIGN KEY (caja_id) REFERENCES cajas (id)
+);
+
+-- Caja en la que se cobró cada pago. Nullable y sin default: no reescribe la tabla.
+-- Los pagos de la caja abierta al desplegar los asigna la verificación de totales al iniciar.
+ALTER TABLE pagos ADD COLUMN IF NOT EXISTS caja_id bigint;
+ALTER TABLE pagos DROP CONSTRAINT IF EXISTS fk_pagos_caja;
+ALTER TABLE pagos ADD CONSTRAINT fk_pagos_caja FOREIGN KEY (caja_id) REFERENCES cajas (id);
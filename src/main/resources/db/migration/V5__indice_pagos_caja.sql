@@ -0,0 +1,3 @@
+-- migracion: sin-transaccion
+-- Pagos activos de una caja (verificación de totales de caja).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pagos_caja_estado ON pagos (caja_id, payment_state);
@@ -0,0 +1,2 @@
+-- Caja abierta de cada cajero (una por usuario en vez de una caja global).
+CREATE INDEX IF NOT EXISTS idx_cajas_usuario_estado ON cajas (usuario, estado);
@@ -0,0 +1,3 @@
+-- Marca de caja abierta en sus totales: el cierre la apaga y los pagos solo suman si sigue encendida.
+ALTER TABLE caja_totales ADD COLUMN IF NOT EXISTS abierta boolean DEFAULT true NOT NULL;
+UPDATE caja_totales SET abierta = false WHERE caja_id IN (SELECT id FROM cajas WHERE estado = 'CERRADA');
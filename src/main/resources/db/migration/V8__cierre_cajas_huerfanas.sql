@@ -0,0 +1,47 @@
+-- Cajas abiertas que ningún cajero puede cerrar desde que cada usuario trabaja con su propia caja:
+--  * la caja global de antes de ese cambio, abierta con un usuario libre (por defecto 'CajeroPrincipal')
+--    que no coincide con ningún usuario del sistema;
+--  * las cajas abiertas de más de un mismo cajero (aperturas simultáneas); se conserva la más reciente.
+-- Se cierran sin arqueo: saldo_final_real y diferencia quedan en NULL, los totales del sistema se calculan
+-- de sus pagos y la observación indica el cierre automático. Deben quedar cerradas antes del índice único de V9.
+-- La nota del cierre se agrega al final de las observaciones que ya tuviera la caja (varchar(255): se conservan
+-- sus primeros 188 caracteres) y sirve de marca para las sentencias siguientes.
+
+UPDATE cajas SET observaciones = CASE WHEN observaciones IS NULL OR observaciones = '' THEN ''
+                                      ELSE LEFT(observaciones, 188) || ' | ' END
+                                 || 'Cierre automatico al migrar a cajas por cajero (V8). Sin arqueo.'
+WHERE estado = 'ABIERTA'
+  AND (usuario NOT IN (SELECT u.email FROM usuarios u)
+       OR id < (SELECT MAX(c2.id) FROM cajas c2 WHERE c2.usuario = cajas.usuario AND c2.estado = 'ABIERTA'));
+
+-- La caja global abierta antes de los totales por caja no tiene pagos asignados: adopta los cobrados desde
+-- su apertura, como hace la verificación de totales con una caja abierta
+UPDATE pagos SET caja_id = (
+        SELECT MAX(c.id) FROM cajas c
+        WHERE c.estado = 'ABIERTA'
+          AND c.observaciones LIKE '%(V8). Sin arqueo.'
+          AND c.fecha_apertura <= pagos.payment_date
+          AND NOT EXISTS (SELECT 1 FROM caja_totales t WHERE t.caja_id = c.id))
+WHERE caja_id IS NULL
+  AND payment_state = 'ACTIVO'
+  AND EXISTS (
+        SELECT 1 FROM cajas c
+        WHERE c.estado = 'ABIERTA'
+          AND c.observaciones LIKE '%(V8). Sin arqueo.'
+          AND c.fecha_apertura <= pagos.payment_date
+          AND NOT EXISTS (SELECT 1 FROM caja_totales t WHERE t.caja_id = c.id));
+
+UPDATE cajas SET
+    fecha_cierre = LOCALTIMESTAMP,
+    total_efectivo_sistema = COALESCE((SELECT SUM(p.amount_paid + p.rounding) FROM pagos p
+                                       WHERE p.caja_id = cajas.id AND p.payment_state = 'ACTIVO'
+                                         AND p.payment_method = 'EFECTIVO'), 0),
+    total_digital_sistema = COALESCE((SELECT SUM(p.amount_paid) FROM pagos p
+                                      WHERE p.caja_id = cajas.id AND p.payment_state = 'ACTIVO'
+                                        AND p.payment_method <> 'EFECTIVO'), 0),
+    estado = 'CERRADA'
+WHERE estado = 'ABIERTA'
+  AND observaciones LIKE '%(V8). Sin arqueo.';
+
+UPDATE caja_totales SET abierta = false
+WHERE abierta = true AND caja_id IN (SELECT id FROM cajas WHERE estado = 'CERRADA');
@@ -0,0 +1,5 @@
+-- migracion: solo-postgresql
+-- Una sola caja ABIERTA por cajero, garantizada por la base: dos aperturas simultáneas del mismo usuario
+-- no pueden crear dos filas (la segunda falla y se informa "Ya tiene una caja abierta").
+-- H2 no soporta índices parciales; en desarrollo queda solo la validación de CajaServiceImpl.
+CREATE UNIQUE INDEX IF NOT EXISTS uk_cajas_usuario_abierta ON cajas (usuario) WHERE estado = 'ABIERTA';
@@ -0,0 +1,106 @@
+package com.a.prestamos.client;
+
+import com.a.prestamos.model.dto.apiclient.ReniecResponseDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link DocumentConsumer} con el transporte del WebClient reemplazado por un {@link ExchangeFunction} que
+ * responde siempre el mismo status: qué se traduce a vacío, qué se reintenta y cuándo se abre el circuito.
+ */
+class DocumentConsumerTest {
+
+    private static final int REINTENTOS = 2;
+    private static final int UMBRAL_FALLOS = 2;
+
+    private final AtomicInteger llamadas = new AtomicInteger();
+
+    @Test
+    void documentoInexistenteDevuelveVacioSinReintentar() {
+        DocumentConsumer consumer = consumer(HttpStatus.NOT_FOUND);
+
+        StepVerifier.create(consumer.verifyByDniAsync("12345678")).verifyComplete();
+
+        assertEquals(1, llamadas.get());
+        assertEquals(CircuitBreaker.Estado.CERRADO, consumer.estadoCircuitoReniec());
+    }
+
+    @Test
+    void errorDelServidorSeReintentaYAbreElCircuito() {
+        DocumentConsumer consumer = consumer(HttpStatus.SERVICE_UNAVAILABLE);
+
+        // Cada consulta: el intento original más REINTENTOS, y cuenta como un solo fallo del circuito
+        for (int consulta = 1; consulta <= UMBRAL_FALLOS; consulta++) {
+            StepVerifier.create(consumer.verifyByDniAsync("12345678"))
+                    .verifyError(DocumentConsumer.ApiDocumentoException.class);
+            assertEquals(consulta * (1 + REINTENTOS), llamadas.get());
+        }
+        assertEquals(CircuitBreaker.Estado.ABIERTO, consumer.estadoCircuitoReniec());
+
+        // Con el circuito abierto se rechaza sin llamar a RENIEC; SUNAT tiene su propio circuito
+        StepVerifier.create(consumer.verifyByDniAsync("12345678")).verifyError(IllegalStateException.class);
+        assertEquals(UMBRAL_FALLOS * (1 + REINTENTOS), llamadas.get());
+        assertEquals(CircuitBreaker.Estado.CERRADO, consumer.estadoCircuitoSunat());
+    }
+
+    @Test
+    void errorDelClienteNoSeReintentaNiCuentaParaElCircuito() {
+        DocumentConsumer consumer = consumer(HttpStatus.UNAUTHORIZED);
+
+        for (int consulta = 1; consulta <= UMBRAL_FALLOS + 1; consulta++) {
+            StepVerifier.create(consumer.verifyByDniAsync("12345678"))
+                    .verifyError(DocumentConsumer.ApiDocumentoException.class);
+            assertEquals(consulta, llamadas.get());
+        }
+        assertEquals(CircuitBreaker.Estado.CERRADO, consumer.estadoCircuitoReniec());
+    }
+
+    @Test
+    void respuestaCorrectaSeDeserializa() {
+        DocumentConsumer consumer = consumer(HttpStatus.OK);
+
+        StepVerifier.create(consumer.verifyByDniAsync("12345678"))
+                .assertNext(dto -> assertEquals(ReniecResponseDto.class, dto.getClass()))
+                .verifyComplete();
+        assertEquals(1, llamadas.get());
+    }
+
+    // ==================== AUXILIARES ====================
+
+    private DocumentConsumer consumer(HttpStatus status) {
+        ExchangeFunction transporte = request -> {
+            llamadas.incrementAndGet();
+            return Mono.just(ClientResponse.create(status)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(status.is2xxSuccessful() ? "{}" : "{\"message\": \"" + status.getReasonPhrase() + "\"}")
+                    .build());
+        };
+        DocumentConsumer consumer = new DocumentConsumer(WebClient.builder().exchangeFunction(transporte), new HttpClientMetrics());
+        ReflectionTestUtils.setField(consumer, "reniecApiUrl", "http://reniec.test/dni");
+        ReflectionTestUtils.setField(consumer, "reniecApiKey", "token");
+        ReflectionTestUtils.setField(consumer, "sunatApiUrl", "http://sunat.test/ruc");
+        ReflectionTestUtils.setField(consumer, "sunatApiKey", "token");
+        ReflectionTestUtils.setField(consumer, "timeout", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(consumer, "reintentos", REINTENTOS);
+        ReflectionTestUtils.setField(consumer, "backoff", Duration.ofMillis(1));
+        ReflectionTestUtils.setField(consumer, "umbralFallos", UMBRAL_FALLOS);
+        ReflectionTestUtils.setField(consumer, "tiempoAbierto", Duration.ofMinutes(1));
+        // Sin hedging, cada intento es exactamente una llamada
+        ReflectionTestUtils.setField(consumer, "hedging", false);
+        consumer.init();
+        return consumer;
+    }
+}
@@ -0,0 +1,152 @@
+package com.a.prestamos.client;
+
+import com.a.prestamos.model.dto.apiclient.ReniecResponseDto;
+import com.a.prestamos.model.dto.apiclient.SunatResponseDto;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link DocumentLookupCache} delante de un {@link DocumentConsumer} simulado: los resultados positivos y
+ * negativos se reutilizan (los negativos con un TTL corto), los errores de la API no se guardan y las
+ * consultas simultáneas del mismo documento hacen una sola llamada remota.
+ */
+class DocumentLookupCacheTest {
+
+    private static final Duration TTL_NEGATIVO = Duration.ofMillis(200);
+    private static final String DNI = "12345678";
+    private static final String RUC = "20123456789";
+
+    private final DocumentConsumer consumer = mock(DocumentConsumer.class);
+    private final DocumentLookupCache cache = new DocumentLookupCache(consumer, 100, Duration.ofHours(1), TTL_NEGATIVO);
+
+    @Test
+    void dniEncontradoSeConsultaUnaSolaVez() throws Exception {
+        when(consumer.verifyByDni(DNI)).thenReturn(reniec(DNI));
+
+        assertEquals(DNI, cache.buscarDni(DNI).orElseThrow().documentNumber());
+        Thread.sleep(TTL_NEGATIVO.toMillis() * 2);
+        assertEquals(DNI, cache.buscarDni(DNI).orElseThrow().documentNumber());
+
+        verify(consumer, times(1)).verifyByDni(DNI);
+        assertEquals(1, cache.estadisticasReniec().aciertos());
+    }
+
+    @Test
+    void resultadosNegativosSeGuardanConElTtlCorto() throws Exception {
+        SunatResponseDto baja = sunat(RUC, "BAJA DE OFICIO");
+        when(consumer.verifyByDni(DNI)).thenReturn(null);
+        when(consumer.verifyByRuc(RUC)).thenReturn(baja);
+
+        assertEquals(Optional.empty(), cache.buscarDni(DNI));
+        assertEquals(Optional.empty(), cache.buscarDni(DNI));
+        assertEquals(Optional.of(baja), cache.buscarRuc(RUC));
+        assertEquals(Optional.of(baja), cache.buscarRuc(RUC));
+        verify(consumer, times(1)).verifyByDni(DNI);
+        verify(consumer, times(1)).verifyByRuc(RUC);
+
+        // Vencido el TTL negativo se vuelve a consultar (el documento pudo corregirse o reactivarse)
+        Thread.sleep(TTL_NEGATIVO.toMillis() * 2);
+        cache.buscarDni(DNI);
+        cache.buscarRuc(RUC);
+        verify(consumer, times(2)).verifyByDni(DNI);
+        verify(consumer, times(2)).verifyByRuc(RUC);
+    }
+
+    @Test
+    void erroresDeLaApiNoSeGuardan() {
+        when(consumer.verifyByDni(DNI))
+                .thenThrow(new IllegalStateException("RENIEC no responde"))
+                .thenReturn(reniec(DNI));
+
+        assertThrows(IllegalStateException.class, () -> cache.buscarDni(DNI));
+        assertEquals(DNI, cache.buscarDni(DNI).orElseThrow().documentNumber());
+
+        verify(consumer, times(2)).verifyByDni(DNI);
+    }
+
+    @Test
+    void consultasSimultaneasCompartenUnaLlamada() throws Exception {
+        CountDownLatch enRemoto = new CountDownLatch(1);
+        CountDownLatch responder = new CountDownLatch(1);
+        when(consumer.verifyByDni(DNI)).thenAnswer(inv -> {
+            enRemoto.countDown();
+            assertTrue(responder.await(10, TimeUnit.SECONDS));
+            return reniec(DNI);
+        });
+
+        int hilos = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<Optional<ReniecResponseDto>>> consultas = new ArrayList<>();
+            consultas.add(pool.submit(() -> cache.buscarDni(DNI)));
+            assertTrue(enRemoto.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < hilos; i++) {
+                consultas.add(pool.submit(() -> cache.buscarDni(DNI)));
+            }
+            await().atMost(Duration.ofSeconds(5)).until(() -> cache.estadisticasReniec().compartidas() == hilos - 1);
+            responder.countDown();
+
+            for (Future<Optional<ReniecResponseDto>> consulta : consultas) {
+                assertEquals(DNI, consulta.get(10, TimeUnit.SECONDS).orElseThrow().documentNumber());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(consumer, times(1)).verifyByDni(DNI);
+    }
+
+    @Test
+    void consultasAsincronasSimultaneasCompartenUnaLlamada() {
+        Sinks.One<ReniecResponseDto> respuesta = Sinks.one();
+        when(consumer.verifyByDniAsync(DNI)).thenReturn(respuesta.asMono());
+
+        List<Mono<Optional<ReniecResponseDto>>> consultas = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Mono<Optional<ReniecResponseDto>> consulta = cache.buscarDniAsync(DNI).cache();
+            consulta.subscribe();
+            consultas.add(consulta);
+        }
+        respuesta.tryEmitValue(reniec(DNI));
+
+        for (Mono<Optional<ReniecResponseDto>> consulta : consultas) {
+            StepVerifier.create(consulta)
+                    .assertNext(r -> assertEquals(DNI, r.orElseThrow().documentNumber()))
+                    .verifyComplete();
+        }
+        // Ya guardado: la siguiente no llama a RENIEC
+        StepVerifier.create(cache.buscarDniAsync(DNI)).expectNextCount(1).verifyComplete();
+        verify(consumer, times(1)).verifyByDniAsync(DNI);
+    }
+
+    // ==================== AUXILIARES ====================
+
+    private static ReniecResponseDto reniec(String dni) {
+        return new ReniecResponseDto("PERSONA", "DE", "PRUEBA", "PERSONA DE PRUEBA", dni);
+    }
+
+    private static SunatResponseDto sunat(String ruc, String estado) {
+        return new SunatResponseDto(ruc, "EMPRESA DE PRUEBA SAC", estado, "HABIDO", "AV. PRUEBA 123",
+                "LIMA", "LIMA", "LIMA", false, false);
+    }
+}
@@ -0,0 +1,134 @@
+package com.a.prestamos.config;
+
+import com.a.prestamos.client.HttpClientMetrics;
+import com.a.prestamos.model.dto.metricas.HttpMetricasDto;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Capa HTTP saliente ({@link HttpClientConfig}) contra un servidor HTTP local: RestTemplate y WebClient
+ * comparten un solo pool keep-alive por host (muchas llamadas, pocas conexiones) y cada llamada queda en
+ * {@link HttpClientMetrics} bajo su endpoint normalizado.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class HttpClientConfigTest {
+
+    private static HttpServer servidor;
+    private static String base;
+    private static String host;
+    private static final Set<Integer> puertosCliente = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    private RestTemplate restTemplate;
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+    @Autowired
+    private HttpClientMetrics metrics;
+
+    @BeforeAll
+    static void iniciarServidor() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        servidor.createContext("/", exchange -> {
+            puertosCliente.add(exchange.getRemoteAddress().getPort());
+            boolean falla = exchange.getRequestURI().getPath().startsWith("/fallo");
+            byte[] cuerpo = "{\"ok\": true}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(falla ? 503 : 200, cuerpo.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(cuerpo);
+            }
+        });
+        servidor.start();
+        host = "127.0.0.1:" + servidor.getAddress().getPort();
+        base = "http://" + host;
+    }
+
+    @AfterAll
+    static void detenerServidor() {
+        servidor.stop(0);
+    }
+
+    @Test
+    void restTemplateYWebClientReutilizanLasConexionesDelMismoPool() {
+        puertosCliente.clear();
+        WebClient webClient = webClientBuilder.baseUrl(base).build();
+
+        int rondas = 10;
+        for (int i = 1; i <= rondas; i++) {
+            restTemplate.getForObject(base + "/pool/" + i, String.class);
+            webClient.get().uri("/pool/{id}", i).retrieve().bodyToMono(String.class).block(Duration.ofSeconds(10));
+        }
+
+        // Un solo pool para el host, con el límite configurado, y sus conexiones son las que vio el servidor.
+        // La conexión vuelve al pool de forma asíncrona, así que una llamada inmediata puede abrir una segunda
+        List<HttpMetricasDto.Pool> pools = metrics.snapshot().pools().stream()
+                .filter(p -> p.host().endsWith(host))
+                .toList();
+        assertEquals(1, pools.size(), () -> "pools del host: " + pools);
+        assertEquals(50, pools.get(0).maxConexiones());
+        assertEquals(puertosCliente.size(), pools.get(0).abiertas());
+        assertTrue(puertosCliente.size() <= 2,
+                () -> (2 * rondas) + " llamadas secuenciales abrieron " + puertosCliente.size() + " conexiones");
+    }
+
+    @Test
+    void cadaLlamadaSeMidePorEndpointNormalizado() {
+        WebClient webClient = webClientBuilder.baseUrl(base).build();
+
+        restTemplate.getForObject(base + "/clientes/12345678?token=x", String.class);
+        restTemplate.getForObject(base + "/clientes/87654321", String.class);
+        assertThrows(HttpServerErrorException.class, () -> restTemplate.getForObject(base + "/fallo/1", String.class));
+        webClient.get().uri("/documentos/{id}/estado", 42).retrieve().bodyToMono(String.class).block(Duration.ofSeconds(10));
+        assertThrows(WebClientResponseException.class, () ->
+                webClient.get().uri("/fallo/2").retrieve().bodyToMono(String.class).block(Duration.ofSeconds(10)));
+
+        HttpMetricasDto.Endpoint clientes = endpoint("GET 127.0.0.1/clientes/{id}");
+        assertEquals(2, clientes.llamadas());
+        assertEquals(0, clientes.errores());
+        assertEquals(2, clientes.histogramaMs().values().stream().mapToLong(Long::longValue).sum());
+        assertTrue(clientes.p99Ms() > 0);
+
+        HttpMetricasDto.Endpoint documentos = endpoint("GET 127.0.0.1/documentos/{id}/estado");
+        assertEquals(1, documentos.llamadas());
+        assertEquals(0, documentos.errores());
+
+        // El 503 se cuenta como error, venga de RestTemplate o de WebClient
+        HttpMetricasDto.Endpoint fallos = endpoint("GET 127.0.0.1/fallo/{id}");
+        assertEquals(2, fallos.llamadas());
+        assertEquals(2, fallos.errores());
+        assertEquals(1.0, fallos.tasaError());
+    }
+
+    // ==================== AUXILIARES ====================
+
+    private HttpMetricasDto.Endpoint endpoint(String nombre) {
+        return metrics.snapshot().endpoints().stream()
+                .filter(e -> e.endpoint().equals(nombre))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("sin métricas de " + nombre + ": " + metrics.snapshot().endpoints()));
+    }
+}
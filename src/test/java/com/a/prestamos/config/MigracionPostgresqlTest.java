@@ -0,0 +1,62 @@
+package com.a.prestamos.config;
+
+import com.a.prestamos.support.PostgresqlPrueba;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * La aplicación arranca como en producción ({@code ddl-auto: validate}) sobre una copia del esquema
+ * anterior a las migraciones en PostgreSQL: las migraciones dejan el esquema que esperan las entidades.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DirtiesContext
+@EnabledIfSystemProperty(named = PostgresqlPrueba.PROPIEDAD, matches = ".+")
+class MigracionPostgresqlTest {
+
+    private static PostgresqlPrueba pg;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @DynamicPropertySource
+    static void baseAnterior(DynamicPropertyRegistry registro) throws Exception {
+        pg = PostgresqlPrueba.crear();
+        try (Connection c = pg.dataSource().getConnection()) {
+            ScriptUtils.executeSqlScript(c, new ClassPathResource("db/esquema-anterior.sql"));
+        }
+        registro.add("spring.datasource.url", pg::url);
+        registro.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registro.add("spring.datasource.username", pg::usuario);
+        registro.add("spring.datasource.password", pg::clave);
+        registro.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registro.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+    }
+
+    @AfterAll
+    static void borrarBase() throws Exception {
+        pg.close();
+    }
+
+    @Test
+    void arrancaConValidateSobreElEsquemaAnteriorMigrado() {
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM pg_constraint "
+                + "WHERE conname = 'uk_comprobante_serie_correlativo'", Integer.class));
+        assertEquals(1, jdbc.queryForObject("SELECT MAX(n) FROM (SELECT COUNT(*) AS n FROM cajas "
+                + "WHERE estado = 'ABIERTA' GROUP BY usuario) abiertas", Integer.class));
+    }
+}
@@ -0,0 +1,152 @@
+package com.a.prestamos.config;
+
+import com.a.prestamos.support.PostgresqlPrueba;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Migraciones reales sobre una base vacía y sobre el esquema de producción anterior a ellas
+ * ({@code db/esquema-anterior.sql}, con las tablas creadas por ddl-auto=update), en H2 y en PostgreSQL.
+ */
+class MigradorEsquemaTest {
+
+    private static final String NOTA_V8 = "Cierre automatico al migrar a cajas por cajero (V8). Sin arqueo.";
+
+    @Test
+    void migraUnaBaseNuevaEnH2() throws Exception {
+        DataSource ds = h2();
+        migrar(ds);
+
+        verificarRestricciones(new JdbcTemplate(ds));
+        // Una segunda pasada no aplica nada
+        int aplicadas = new JdbcTemplate(ds).queryForObject("SELECT COUNT(*) FROM esquema_migraciones", Integer.class);
+        migrar(ds);
+        assertEquals(aplicadas, new JdbcTemplate(ds).queryForObject("SELECT COUNT(*) FROM esquema_migraciones", Integer.class));
+    }
+
+    @Test
+    void migraElEsquemaAnteriorEnH2() throws Exception {
+        DataSource ds = h2();
+        cargarEsquemaAnterior(ds);
+        migrar(ds);
+
+        verificarEsquemaAnteriorMigrado(new JdbcTemplate(ds));
+    }
+
+    @Test
+    void fallaSiUnaMigracionAplicadaCambio() throws Exception {
+        DataSource ds = h2();
+        migrar(ds);
+        new JdbcTemplate(ds).update("UPDATE esquema_migraciones SET checksum = checksum + 1 WHERE version = 3");
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> migrar(ds));
+        assertTrue(error.getMessage().contains("V3"), error.getMessage());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = PostgresqlPrueba.PROPIEDAD, matches = ".+")
+    void migraUnaBaseNuevaEnPostgresql() throws Exception {
+        try (PostgresqlPrueba pg = PostgresqlPrueba.crear()) {
+            migrar(pg.dataSource());
+
+            JdbcTemplate jdbc = new JdbcTemplate(pg.dataSource());
+            verificarRestricciones(jdbc);
+            assertEquals(1, jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM pg_indexes WHERE indexname = 'uk_cajas_usuario_abierta'", Integer.class));
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = PostgresqlPrueba.PROPIEDAD, matches = ".+")
+    void migraElEsquemaAnteriorEnPostgresql() throws Exception {
+        try (PostgresqlPrueba pg = PostgresqlPrueba.crear()) {
+            cargarEsquemaAnterior(pg.dataSource());
+            migrar(pg.dataSource());
+
+            JdbcTemplate jdbc = new JdbcTemplate(pg.dataSource());
+            verificarEsquemaAnteriorMigrado(jdbc);
+            // V12: el primer bloque de IDs de cada secuencia queda por encima de los IDs existentes
+            for (String tabla : new String[]{"prestamos", "cuotas", "pagos", "comprobantes"}) {
+                long maximo = jdbc.queryForObject("SELECT MAX(id) FROM " + tabla, Long.class);
+                long siguiente = jdbc.queryForObject("SELECT nextval('" + tabla + "_seq')", Long.class);
+                assertTrue(siguiente - 49 > maximo, tabla + ": bloque desde " + (siguiente - 49) + ", MAX(id) " + maximo);
+            }
+        }
+    }
+
+    // ==================== AUXILIARES ====================
+
+    private static DataSource h2() {
+        return new DriverManagerDataSource("jdbc:h2:mem:migracion-" + UUID.randomUUID()
+                + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", "");
+    }
+
+    private static void migrar(DataSource ds) throws Exception {
+        MigradorEsquema migrador = new MigradorEsquema(ds);
+        ReflectionTestUtils.setField(migrador, "habilitado", true);
+        migrador.afterPropertiesSet();
+    }
+
+    private static void cargarEsquemaAnterior(DataSource ds) throws Exception {
+        try (Connection c = ds.getConnection()) {
+            ScriptUtils.executeSqlScript(c, new ClassPathResource("db/esquema-anterior.sql"));
+        }
+    }
+
+    /**
+     * Restricciones que V1 declara en las tablas y que en una base existente agregan las migraciones posteriores.
+     */
+    private static void verificarRestricciones(JdbcTemplate jdbc) {
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM information_schema.table_constraints "
+                + "WHERE LOWER(constraint_name) = 'uk_comprobante_serie_correlativo'", Integer.class));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM information_schema.columns "
+                + "WHERE LOWER(table_name) = 'pagos' AND LOWER(column_name) = 'version'", Integer.class));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM information_schema.columns "
+                + "WHERE LOWER(table_name) = 'cuotas' AND LOWER(column_name) = 'mora_acumulada'", Integer.class));
+    }
+
+    private static void verificarEsquemaAnteriorMigrado(JdbcTemplate jdbc) {
+        verificarRestricciones(jdbc);
+
+        // La restricción existe de verdad en la tabla que ya tenía datos
+        assertThrows(Exception.class, () -> jdbc.update("INSERT INTO comprobantes "
+                + "(id, payment_id, serie, sequential, proof_type, issue_date) VALUES (99, 1, 'B001', 1, '03', CURRENT_TIMESTAMP)"));
+
+        // V8: la caja global se cerró con el pago cobrado desde su apertura y conserva la observación del cajero
+        assertEquals("CERRADA", jdbc.queryForObject("SELECT estado FROM cajas WHERE id = 1", String.class));
+        assertEquals("Turno de la mañana | " + NOTA_V8,
+                jdbc.queryForObject("SELECT observaciones FROM cajas WHERE id = 1", String.class));
+        assertEquals(0, new BigDecimal("345.00").compareTo(
+                jdbc.queryForObject("SELECT total_efectivo_sistema FROM cajas WHERE id = 1", BigDecimal.class)));
+        assertEquals(1L, jdbc.queryForObject("SELECT caja_id FROM pagos WHERE id = 1", Long.class));
+
+        // De las dos aperturas simultáneas queda abierta la más reciente
+        assertEquals(NOTA_V8, jdbc.queryForObject("SELECT observaciones FROM cajas WHERE id = 2", String.class));
+        assertEquals("CERRADA", jdbc.queryForObject("SELECT estado FROM cajas WHERE id = 2", String.class));
+        assertEquals("ABIERTA", jdbc.queryForObject("SELECT estado FROM cajas WHERE id = 3", String.class));
+        assertNull(jdbc.queryForObject("SELECT observaciones FROM cajas WHERE id = 3", String.class));
+
+        // V9 (V13 en H2): ya no cabe una segunda caja abierta del mismo cajero; cerradas puede tener varias
+        assertThrows(DuplicateKeyException.class, () -> jdbc.update(
+                "INSERT INTO cajas (usuario, fecha_apertura, saldo_inicial, estado) "
+                        + "VALUES ('cajero@prestamos.pe', LOCALTIMESTAMP, 0, 'ABIERTA')"));
+        jdbc.update("INSERT INTO cajas (usuario, fecha_apertura, saldo_inicial, estado) "
+                + "VALUES ('cajero@prestamos.pe', LOCALTIMESTAMP, 0, 'CERRADA')");
+    }
+}
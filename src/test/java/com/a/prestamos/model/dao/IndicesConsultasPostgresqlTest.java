@@ -0,0 +1,220 @@
+package com.a.prestamos.model.dao;
+
+import com.a.prestamos.config.MigradorEsquema;
+import com.a.prestamos.model.entity.enums.InstallmentState;
+import com.a.prestamos.model.entity.enums.PaymentState;
+import com.a.prestamos.support.PostgresqlPrueba;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plan de PostgreSQL de las consultas calientes de {@link CuotaDao} y {@link PagoDao} sobre una cartera de
+ * 72 000 cuotas: cada consulta usa el índice de V2/V5 que le corresponde y ninguna recorre entera
+ * {@code cuotas} ni {@code pagos}. Se explica el SQL que genera Hibernate (capturado con un
+ * {@link StatementInspector}), no una copia escrita a mano.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DirtiesContext
+@EnabledIfSystemProperty(named = PostgresqlPrueba.PROPIEDAD, matches = ".+")
+class IndicesConsultasPostgresqlTest {
+
+    private static final long PRESTAMO = 1000L;
+    /** Cuota 3 del préstamo 1001, pagada por Mercado Pago (ver db/datos-indices.sql). */
+    private static final long CUOTA_MP = 36_003L;
+    private static final LocalDate DIA = LocalDate.of(2025, 6, 13);
+
+    private static final Set<String> POR_PRESTAMO = Set.of("idx_cuotas_loan_num", "idx_cuotas_loan_estado_num");
+
+    private static PostgresqlPrueba pg;
+
+    @Autowired
+    private CuotaDao cuotaDao;
+    @Autowired
+    private PagoDao pagoDao;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper json = new ObjectMapper();
+
+    @DynamicPropertySource
+    static void cartera(DynamicPropertyRegistry registro) throws Exception {
+        pg = PostgresqlPrueba.crear();
+        MigradorEsquema migrador = new MigradorEsquema(pg.dataSource());
+        ReflectionTestUtils.setField(migrador, "habilitado", true);
+        migrador.afterPropertiesSet();
+        try (Connection c = pg.dataSource().getConnection()) {
+            ScriptUtils.executeSqlScript(c, new ClassPathResource("db/datos-indices.sql"));
+        }
+        registro.add("spring.datasource.url", pg::url);
+        registro.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registro.add("spring.datasource.username", pg::usuario);
+        registro.add("spring.datasource.password", pg::clave);
+        registro.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registro.add("spring.jpa.properties.hibernate.session_factory.statement_inspector",
+                SentenciasCapturadas.class::getName);
+    }
+
+    @AfterAll
+    static void borrarBase() throws Exception {
+        pg.close();
+    }
+
+    // ==================== CUOTAS ====================
+
+    @Test
+    void cronogramaDeUnPrestamo() throws Exception {
+        assertUsaIndice(() -> cuotaDao.findByLoanIdOrderByNumAsc(PRESTAMO), POR_PRESTAMO, PRESTAMO);
+    }
+
+    @Test
+    void cuotasDeUnPrestamoPorEstado() throws Exception {
+        assertUsaIndice(() -> cuotaDao.findByLoanIdAndInstallmentStateOrderByNumAsc(PRESTAMO, InstallmentState.PENDIENTE),
+                Set.of("idx_cuotas_loan_estado_num"), PRESTAMO, InstallmentState.PENDIENTE.name());
+    }
+
+    @Test
+    void primeraCuotaPendiente() throws Exception {
+        assertUsaIndice(() -> cuotaDao.findPrimeraCuotaPendiente(PRESTAMO), POR_PRESTAMO, PRESTAMO);
+    }
+
+    @Test
+    void cuotasAnterioresPendientes() throws Exception {
+        assertUsaIndice(() -> cuotaDao.existenCuotasAnterioresPendientes(PRESTAMO, 20), POR_PRESTAMO,
+                PRESTAMO, 20, InstallmentState.PAGADO.name(), 1);
+    }
+
+    @Test
+    void conteoDeVencidasYDeudaTotal() throws Exception {
+        assertUsaIndice(() -> cuotaDao.countCuotasVencidas(PRESTAMO, DIA), POR_PRESTAMO, PRESTAMO, DIA);
+        assertUsaIndice(() -> cuotaDao.sumBalanceByLoanId(PRESTAMO), POR_PRESTAMO, PRESTAMO);
+    }
+
+    @Test
+    void rangoDeIdsPorVencimiento() throws Exception {
+        assertUsaIndice(() -> cuotaDao.findRangoIdsPorVencimiento(DIA, DIA.plusDays(1)),
+                Set.of("idx_cuotas_vencimiento"), DIA, DIA.plusDays(1));
+    }
+
+    // ==================== PAGOS ====================
+
+    @Test
+    void pagosActivosDeUnaCuota() throws Exception {
+        assertUsaIndice(() -> pagoDao.findByInstallmentIdAndPaymentState(CUOTA_MP, PaymentState.ACTIVO),
+                Set.of("idx_pagos_cuota_estado"), CUOTA_MP, PaymentState.ACTIVO.name());
+    }
+
+    @Test
+    void pagoPorIdsDeMercadoPago() throws Exception {
+        assertUsaIndice(() -> pagoDao.findByMercadoPagoPaymentId("mp-" + CUOTA_MP),
+                Set.of("idx_pagos_mp_payment"), "mp-" + CUOTA_MP);
+        assertUsaIndice(() -> pagoDao.findByMercadoPagoPreferenceId("pref-" + CUOTA_MP),
+                Set.of("idx_pagos_mp_preferencia"), "pref-" + CUOTA_MP);
+    }
+
+    @Test
+    void pagosDeUnDia() throws Exception {
+        Instant inicio = DIA.atStartOfDay(ZoneOffset.UTC).toInstant();
+        Instant fin = inicio.plus(1, ChronoUnit.DAYS).minusSeconds(1);
+        assertUsaIndice(() -> pagoDao.findByFechaPagoBetweenAndEstado(inicio, fin, PaymentState.ACTIVO),
+                Set.of("idx_pagos_fecha_estado"), inicio, fin, PaymentState.ACTIVO.name());
+        assertUsaIndice(() -> pagoDao.sumMontoPagadoByFechaBetween(inicio, fin),
+                Set.of("idx_pagos_fecha_estado"), inicio, fin);
+    }
+
+    @Test
+    void totalesDeUnaCaja() throws Exception {
+        long caja = jdbc.queryForObject("SELECT MIN(id) FROM cajas", Long.class);
+        assertUsaIndice(() -> pagoDao.sumarPagosPorMetodoDeCaja(caja), Set.of("idx_pagos_caja_estado"), caja);
+    }
+
+    // ==================== AUXILIARES ====================
+
+    /**
+     * Ejecuta la consulta del DAO, toma el SQL que generó Hibernate y lo explica con los mismos parámetros
+     * (en el orden en que aparecen en el SQL).
+     */
+    private void assertUsaIndice(Runnable consulta, Set<String> esperados, Object... parametros) throws Exception {
+        SentenciasCapturadas.SQL.clear();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            consulta.run();
+            status.setRollbackOnly();
+        });
+        assertFalse(SentenciasCapturadas.SQL.isEmpty(), "no se capturó la consulta");
+        String sql = SentenciasCapturadas.SQL.get(0);
+        assertEquals(parametros.length, sql.chars().filter(ch -> ch == '?').count(), sql);
+
+        // El driver JDBC no recibe Instant: va como timestamptz, igual que lo envía Hibernate
+        Object[] valores = Arrays.stream(parametros)
+                .map(p -> p instanceof Instant i ? i.atOffset(ZoneOffset.UTC) : p)
+                .toArray();
+        JsonNode plan = json.readTree(jdbc.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, valores))
+                .get(0).get("Plan");
+        List<String> recorridos = new ArrayList<>();
+        Set<String> indices = new HashSet<>();
+        recorrer(plan, recorridos, indices);
+
+        String detalle = sql + "\n" + plan.toPrettyString();
+        assertTrue(recorridos.isEmpty(), "recorrido secuencial de " + recorridos + "\n" + detalle);
+        assertTrue(indices.stream().anyMatch(esperados::contains), "índices usados " + indices + "\n" + detalle);
+    }
+
+    private static void recorrer(JsonNode nodo, List<String> recorridos, Set<String> indices) {
+        if (nodo.has("Index Name")) {
+            indices.add(nodo.get("Index Name").asText());
+        }
+        if ("Seq Scan".equals(nodo.path("Node Type").asText())) {
+            recorridos.add(nodo.path("Relation Name").asText());
+        }
+        for (JsonNode hijo : nodo.path("Plans")) {
+            recorrer(hijo, recorridos, indices);
+        }
+    }
+
+    /**
+     * Guarda el SQL de cada sentencia que prepara Hibernate, sin modificarlo.
+     */
+    public static class SentenciasCapturadas implements StatementInspector {
+        static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+}
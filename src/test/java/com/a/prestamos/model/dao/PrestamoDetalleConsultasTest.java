@@ -0,0 +1,112 @@
+package com.a.prestamos.model.dao;
+
+import com.a.prestamos.config.MigradorEsquema;
+import com.a.prestamos.config.MigradorEsquemaDependsOnPostProcessor;
+import com.a.prestamos.model.dto.prestamo.CuotaDto;
+import com.a.prestamos.model.dto.prestamo.DetallePrestamoDto;
+import com.a.prestamos.model.entity.Cliente;
+import com.a.prestamos.model.entity.Cuota;
+import com.a.prestamos.model.entity.Pago;
+import com.a.prestamos.model.entity.Prestamo;
+import com.a.prestamos.model.entity.enums.DocumentType;
+import com.a.prestamos.model.entity.enums.PaymentMethod;
+import com.a.prestamos.model.entity.enums.PaymentState;
+import com.a.prestamos.service.IClienteService;
+import com.a.prestamos.service.impl.FinancialServiceImpl;
+import com.a.prestamos.service.impl.PrestamoServiceImpl;
+import com.a.prestamos.support.DatosPrueba;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Regresión del N+1 del detalle de préstamo: préstamo, cliente y las 36 cuotas salen en una sola sentencia
+ * (entity graph), y armar el DTO no dispara cargas perezosas de pagos ni de cuotas.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({MigradorEsquema.class, MigradorEsquemaDependsOnPostProcessor.class})
+class PrestamoDetalleConsultasTest {
+
+    private static final int MESES = 36;
+
+    @Autowired
+    private TestEntityManager em;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PrestamoDao prestamoDao;
+    @Autowired
+    private CuotaDao cuotaDao;
+
+    @Test
+    void detalleDeUnPrestamoDe36CuotasUsaUnaSolaSentencia() {
+        String dni = prestamoConPagos();
+
+        PrestamoServiceImpl servicio = new PrestamoServiceImpl(prestamoDao, cuotaDao,
+                mock(IClienteService.class), new FinancialServiceImpl());
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        DetallePrestamoDto detalle = servicio.findLoanDetailByDocumentId(dni);
+
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getCollectionFetchCount());
+        assertEquals(0, estadisticas.getEntityFetchCount());
+        assertEquals(dni, detalle.customer().documentId());
+        assertEquals(MESES, detalle.schedule().size());
+        assertEquals(List.of(1, 2, 3), detalle.schedule().stream().limit(3).map(CuotaDto::num).toList());
+    }
+
+    /**
+     * Préstamo que empezó hace un año (cuotas vencidas con mora) y con pagos en las primeras cuotas.
+     */
+    private String prestamoConPagos() {
+        Cliente cliente = new Cliente();
+        cliente.setDocumentId(DatosPrueba.nuevoDni());
+        cliente.setDocumentType(DocumentType.DNI);
+        cliente.setFullName("CLIENTE DE PRUEBA " + cliente.getDocumentId());
+        em.persist(cliente);
+
+        FinancialServiceImpl financiero = new FinancialServiceImpl();
+        BigDecimal tem = financiero.calculateTem(new BigDecimal("0.25"));
+        Prestamo prestamo = new Prestamo();
+        prestamo.setCustomer(cliente);
+        prestamo.setPrincipal(new BigDecimal("10000.00"));
+        prestamo.setTeaAnnual(new BigDecimal("0.25"));
+        prestamo.setMonths(MESES);
+        prestamo.setStartDate(LocalDate.now().minusMonths(12));
+        prestamo.setInstallmentAmount(financiero.calculateInstallmentAmount(prestamo.getPrincipal(), tem, MESES));
+        em.persist(prestamo);
+
+        List<Cuota> cuotas = financiero.generateSchedule(prestamo, tem);
+        cuotas.forEach(em::persist);
+        for (Cuota cuota : cuotas.subList(0, 3)) {
+            Pago pago = new Pago();
+            pago.setInstallment(cuota);
+            pago.setAmountPaid(cuota.getAmount());
+            pago.setAmountReceived(cuota.getAmount());
+            pago.setPaymentMethod(PaymentMethod.EFECTIVO);
+            pago.setPaymentState(PaymentState.ACTIVO);
+            em.persist(pago);
+        }
+        em.flush();
+        em.clear();
+        return cliente.getDocumentId();
+    }
+}
@@ -0,0 +1,76 @@
+package com.a.prestamos.security;
+
+import com.a.prestamos.config.SecurityConfig;
+import com.a.prestamos.controller.ClienteController;
+import com.a.prestamos.model.entity.Cliente;
+import com.a.prestamos.service.IClienteService;
+import com.a.prestamos.service.impl.JwtService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.CachingUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Los endpoints Mono/Flux se completan en un dispatch ASYNC: la autenticación del JWT tiene que
+ * seguir presente ahí, aunque {@link JwtAuthFilter} no vuelva a ejecutarse.
+ */
+@WebMvcTest(ClienteController.class)
+@Import(SecurityConfig.class)
+class JwtAuthFilterAsyncDispatchTest {
+
+    private static final String TOKEN = "token-de-prueba";
+    private static final String USUARIO = "cajero@prestamos.pe";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private IClienteService clienteService;
+
+    @MockitoBean
+    private JwtService jwtService;
+
+    @MockitoBean
+    private CachingUserDetailsService userDetailsService;
+
+    @MockitoBean
+    private AuthenticationProvider authenticationProvider;
+
+    @Test
+    void verificarClienteAutenticadoRespondeOkEnElDispatchAsync() throws Exception {
+        when(jwtService.verificar(TOKEN)).thenReturn(new JwtService.TokenJwt(USUARIO, Long.MAX_VALUE));
+        when(userDetailsService.loadUserByUsername(USUARIO))
+                .thenReturn(User.withUsername(USUARIO).password("x").authorities("USER").build());
+
+        Cliente cliente = new Cliente();
+        cliente.setDocumentId("12345678");
+        cliente.setFullName("PEREZ GOMEZ JUAN");
+        when(clienteService.verifyByDocumentIdAsync("12345678")).thenReturn(Mono.just(cliente));
+
+        MvcResult resultado = mockMvc.perform(post("/api/v1/cliente/verificar")
+                        .header("Authorization", "Bearer " + TOKEN)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"documentId\":\"12345678\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.documentId").value("12345678"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.a.prestamos.security;
+
+import com.a.prestamos.model.dao.UsuarioDao;
+import com.a.prestamos.model.entity.Usuario;
+import com.a.prestamos.model.entity.enums.Role;
+import com.a.prestamos.service.IUsuarioService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.CachingUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@link UsuarioCache} detrás del {@link CachingUserDetailsService} del filtro JWT: un usuario borrado no se
+ * sigue sirviendo desde la caché, aunque otra petición lo cargue mientras la transacción del borrado sigue abierta.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class UsuarioCacheTest {
+
+    @Autowired
+    private CachingUserDetailsService usuarios;
+    @Autowired
+    private UsuarioCache usuarioCache;
+    @Autowired
+    private IUsuarioService usuarioService;
+    @Autowired
+    private UsuarioDao usuarioDao;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void usuarioBorradoNoSeSirveDesdeLaCacheTrasElCommit() {
+        Usuario usuario = usuario("borrado@prestamos.pe");
+        usuarios.loadUserByUsername(usuario.getEmail());
+        assertNotNull(usuarioCache.getUserFromCache(usuario.getEmail()));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            usuarioService.deleteById(usuario.getId());
+            // Una petición de otro hilo todavía ve la fila (el borrado no se confirmó) y la deja en la caché
+            UserDetails concurrente = enOtroHilo(usuario.getEmail());
+            assertEquals(usuario.getEmail(), concurrente.getUsername());
+        });
+
+        assertNull(usuarioCache.getUserFromCache(usuario.getEmail()));
+        assertThrows(UsernameNotFoundException.class, () -> usuarios.loadUserByUsername(usuario.getEmail()));
+    }
+
+    @Test
+    void siElBorradoHaceRollbackLaEntradaSigue() {
+        Usuario usuario = usuario("borrado-revertido@prestamos.pe");
+        usuarios.loadUserByUsername(usuario.getEmail());
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            usuarioService.deleteById(usuario.getId());
+            status.setRollbackOnly();
+        });
+
+        assertNotNull(usuarioCache.getUserFromCache(usuario.getEmail()));
+        assertEquals(usuario.getEmail(), usuarios.loadUserByUsername(usuario.getEmail()).getUsername());
+    }
+
+    // ==================== AUXILIARES ====================
+
+    private Usuario usuario(String email) {
+        return usuarioDao.save(Usuario.builder()
+                .email(email)
+                .password("$2a$10$abcdefghijklmnopqrstuv")
+                .role(Role.ADMIN)
+                .build());
+    }
+
+    private UserDetails enOtroHilo(String email) {
+        try {
+            return CompletableFuture.supplyAsync(() -> usuarios.loadUserByUsername(email)).get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
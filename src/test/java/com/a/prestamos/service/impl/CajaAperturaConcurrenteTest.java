@@ -0,0 +1,160 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.exception.prestamo.GlobalExceptionHandler;
+import com.a.prestamos.model.dao.CajaDao;
+import com.a.prestamos.model.dao.TotalCajaDao;
+import com.a.prestamos.model.dto.caja.AperturaCajaRequest;
+import com.a.prestamos.model.entity.Caja;
+import com.a.prestamos.model.entity.enums.CajaState;
+import com.a.prestamos.model.entity.enums.PaymentMethod;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Aperturas simultáneas de caja del mismo cajero contra H2, con el índice único de cajas abiertas de V13
+ * (V9 en PostgreSQL): una sola queda abierta y las demás reciben 409.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CajaAperturaConcurrenteTest {
+
+    private static final AperturaCajaRequest APERTURA = new AperturaCajaRequest(new BigDecimal("100.00"));
+
+    @Autowired
+    private CajaServiceImpl cajaService;
+    @Autowired
+    private CajaDao cajaDao;
+    @Autowired
+    private TotalCajaDao totalCajaDao;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void aperturasSimultaneasDejanUnaSolaCaja() throws Exception {
+        String cajero = "apertura-simultanea@prestamos.pe";
+        int hilos = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Caja> abiertas = new ArrayList<>();
+        List<Throwable> rechazos = new ArrayList<>();
+        try {
+            List<Future<Caja>> aperturas = new ArrayList<>();
+            for (int i = 0; i < hilos; i++) {
+                aperturas.add(pool.submit(() -> {
+                    salida.await();
+                    return cajaService.abrirCaja(APERTURA, cajero);
+                }));
+            }
+            salida.countDown();
+            for (Future<Caja> apertura : aperturas) {
+                try {
+                    abiertas.add(apertura.get(30, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    rechazos.add(e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, abiertas.size());
+        assertEquals(hilos - 1, rechazos.size());
+        rechazos.forEach(this::assertConflicto);
+        assertUnaCajaAbierta(cajero, abiertas.get(0).getId());
+    }
+
+    @Test
+    void laAperturaQueNoVeLaOtraChocaConElIndice() throws Exception {
+        String cajero = "apertura-indice@prestamos.pe";
+        CountDownLatch primeraGuardada = new CountDownLatch(1);
+        CountDownLatch confirmarPrimera = new CountDownLatch(1);
+        Thread[] segundaHilo = new Thread[1];
+
+        // La primera apertura queda sin confirmar mientras la segunda pasa la validación (no la ve) e inserta
+        CompletableFuture<Caja> primera = CompletableFuture.supplyAsync(() ->
+                new TransactionTemplate(transactionManager).execute(status -> {
+                    Caja caja = cajaService.abrirCaja(APERTURA, cajero);
+                    primeraGuardada.countDown();
+                    try {
+                        confirmarPrimera.await(30, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return caja;
+                }));
+        assertTrue(primeraGuardada.await(30, TimeUnit.SECONDS));
+
+        CompletableFuture<Caja> segunda = CompletableFuture.supplyAsync(() -> {
+            segundaHilo[0] = Thread.currentThread();
+            return cajaService.abrirCaja(APERTURA, cajero);
+        });
+        // Se confirma la primera recién cuando la segunda ya está insertando (sin el índice, ya habría terminado)
+        await().atMost(Duration.ofSeconds(10)).until(() -> segunda.isDone() || insertando(segundaHilo[0]));
+        confirmarPrimera.countDown();
+
+        Caja abierta = primera.get(30, TimeUnit.SECONDS);
+        ExecutionException rechazo = assertThrows(ExecutionException.class,
+                () -> segunda.get(30, TimeUnit.SECONDS));
+        assertConflicto(rechazo.getCause());
+        assertUnaCajaAbierta(cajero, abierta.getId());
+    }
+
+    // ==================== AUXILIARES ====================
+
+    /**
+     * H2 no deja el hilo esperando un bloqueo: reintenta la verificación del índice único hasta que la otra
+     * transacción termina (o vence LOCK_TIMEOUT), así que se mira la pila en vez del estado del hilo.
+     */
+    private static boolean insertando(Thread hilo) {
+        if (hilo == null) {
+            return false;
+        }
+        for (StackTraceElement marco : hilo.getStackTrace()) {
+            if (marco.getClassName().equals("org.h2.command.dml.Insert")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void assertConflicto(Throwable rechazo) {
+        IllegalStateException error = assertInstanceOf(IllegalStateException.class, rechazo);
+        assertEquals("Ya tiene una caja abierta. Debe cerrarla primero.", error.getMessage());
+        assertEquals(HttpStatus.CONFLICT, new GlobalExceptionHandler().handleIllegalState(error).getStatusCode());
+    }
+
+    /**
+     * Una sola caja ABIERTA del cajero y solo ella con sus filas de totales (las aperturas rechazadas
+     * hicieron rollback completo).
+     */
+    private void assertUnaCajaAbierta(String cajero, Long cajaId) {
+        List<Caja> delCajero = cajaDao.findAll().stream().filter(c -> c.getUsuario().equals(cajero)).toList();
+        assertEquals(1, delCajero.size());
+        assertEquals(cajaId, delCajero.get(0).getId());
+        assertEquals(CajaState.ABIERTA, delCajero.get(0).getEstado());
+        assertEquals(PaymentMethod.values().length, totalCajaDao.findByCajaId(cajaId).size());
+    }
+}
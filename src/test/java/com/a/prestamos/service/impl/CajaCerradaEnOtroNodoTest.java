@@ -0,0 +1,150 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.CajaDao;
+import com.a.prestamos.model.dao.PagoDao;
+import com.a.prestamos.model.dao.TotalCajaDao;
+import com.a.prestamos.model.dto.caja.AperturaCajaRequest;
+import com.a.prestamos.model.dto.caja.CierreCajaRequest;
+import com.a.prestamos.model.dto.pago.PagoRequest;
+import com.a.prestamos.model.entity.Cuota;
+import com.a.prestamos.model.entity.Pago;
+import com.a.prestamos.model.entity.TotalCaja;
+import com.a.prestamos.model.entity.enums.CajaState;
+import com.a.prestamos.model.entity.enums.PaymentMethod;
+import com.a.prestamos.model.entity.enums.PaymentState;
+import com.a.prestamos.service.IPagoService;
+import com.a.prestamos.support.DatosPrueba;
+import com.a.prestamos.support.MercadoPagoSimulado;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link CajaAbiertaCache} solo se invalida en el nodo que cierra la caja. Con la caja cerrada por otro nodo
+ * (otra instancia de {@link CajaServiceImpl} con su propia caché) y la entrada todavía en la caché de este,
+ * ninguna entrada de cobro deja pasar dinero a la caja cerrada.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DatosPrueba.class)
+class CajaCerradaEnOtroNodoTest {
+
+    private static final BigDecimal DIEZ = new BigDecimal("10.00");
+
+    @Autowired
+    private IPagoService pagoService;
+    @Autowired
+    private CajaServiceImpl cajaService;
+    @Autowired
+    private CajaAbiertaCache cajaAbiertaCache;
+    @Autowired
+    private CajaDao cajaDao;
+    @Autowired
+    private TotalCajaDao totalCajaDao;
+    @Autowired
+    private TotalesCajaServiceImpl totalesCajaService;
+    @Autowired
+    private PagoDao pagoDao;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DatosPrueba datos;
+
+    private MercadoPagoSimulado mercadoPago;
+
+    @BeforeEach
+    void setUp() {
+        mercadoPago = MercadoPagoSimulado.instalar();
+    }
+
+    @Test
+    void pagoEnCajaSeRechazaYDescartaLaEntrada() {
+        String cajero = "otro-nodo-caja@prestamos.pe";
+        Long cajaId = abrirAquiYCerrarEnOtroNodo(cajero);
+        Cuota cuota = datos.cuotaUnica("100.00");
+
+        assertThrows(IllegalStateException.class,
+                () -> pagoService.registrarPago(new PagoRequest(cuota.getId(), DIEZ, DIEZ, PaymentMethod.EFECTIVO,
+                        null, null, true, "BOLETA", null, null), cajero));
+
+        assertEquals(List.of(), pagoDao.findByInstallmentIdAndPaymentState(cuota.getId(), PaymentState.ACTIVO));
+        assertEquals(0, totalCaja(cajaId, PaymentMethod.EFECTIVO).signum());
+        assertEquals(Optional.empty(), cajaAbiertaCache.cajaAbierta(cajero));
+    }
+
+    @Test
+    void ordenDeMercadoPagoSeRechazaYDescartaLaEntrada() {
+        String cajero = "otro-nodo-mp@prestamos.pe";
+        abrirAquiYCerrarEnOtroNodo(cajero);
+        Cuota cuota = datos.cuotaUnica("100.00");
+
+        assertThrows(IllegalStateException.class,
+                () -> pagoService.crearPreferenciaMercadoPago(cuota.getId(), DIEZ, cajero));
+
+        assertEquals(List.of(), pagoDao.findByInstallmentIdAndPaymentState(cuota.getId(), PaymentState.PENDIENTE));
+        assertEquals(Optional.empty(), cajaAbiertaCache.cajaAbierta(cajero));
+    }
+
+    @Test
+    void webhookDeUnaOrdenPreviaAlCierreNoSumaEnLaCajaCerrada() {
+        String cajero = "otro-nodo-webhook@prestamos.pe";
+        Long cajaId = cajaService.abrirCaja(new AperturaCajaRequest(BigDecimal.ZERO), cajero).getId();
+        Cuota cuota = datos.cuotaUnica("100.00");
+        pagoService.crearPreferenciaMercadoPago(cuota.getId(), DIEZ, cajero);
+        cerrarEnOtroNodo(cajero);
+
+        mercadoPago.pago("9300001", "approved", cuota.getId());
+        pagoService.procesarWebhookMercadoPago("9300001");
+
+        // El pago de MP se acepta (el cliente ya pagó), pero queda fuera de la caja cerrada
+        Pago pago = pagoDao.findByMercadoPagoPaymentId("9300001").orElseThrow();
+        assertEquals(PaymentState.ACTIVO, pago.getPaymentState());
+        assertNull(pago.getCaja());
+        assertEquals(0, totalCaja(cajaId, PaymentMethod.MERCADO_PAGO).signum());
+    }
+
+    // ==================== AUXILIARES ====================
+
+    /**
+     * Abre la caja en este nodo (queda en su caché) y la cierra en otro.
+     */
+    private Long abrirAquiYCerrarEnOtroNodo(String cajero) {
+        Long cajaId = cajaService.abrirCaja(new AperturaCajaRequest(BigDecimal.ZERO), cajero).getId();
+        assertEquals(Optional.of(cajaId), cajaAbiertaCache.cajaAbierta(cajero));
+        cerrarEnOtroNodo(cajero);
+        assertTrue(cajaDao.findByUsuarioAndEstado(cajero, CajaState.ABIERTA).isEmpty());
+        // Este nodo no se enteró del cierre
+        assertEquals(Optional.of(cajaId), cajaAbiertaCache.cajaAbierta(cajero));
+        return cajaId;
+    }
+
+    private void cerrarEnOtroNodo(String cajero) {
+        CajaServiceImpl otroNodo = new CajaServiceImpl(cajaDao, totalCajaDao, totalesCajaService,
+                new CajaAbiertaCache(cajaDao, 10, Duration.ofMinutes(5)));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                otroNodo.cerrarCaja(new CierreCajaRequest(BigDecimal.ZERO, true, null), cajero));
+    }
+
+    private BigDecimal totalCaja(Long cajaId, PaymentMethod metodo) {
+        return totalCajaDao.findByCajaId(cajaId).stream()
+                .filter(t -> t.getPaymentMethod() == metodo)
+                .map(TotalCaja::getMontoPagado)
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,161 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.client.DocumentLookupCache;
+import com.a.prestamos.model.dao.ClienteDao;
+import com.a.prestamos.model.dto.apiclient.ReniecResponseDto;
+import com.a.prestamos.model.dto.cliente.VerificacionLoteDto;
+import com.a.prestamos.model.entity.Cliente;
+import com.a.prestamos.model.entity.enums.DocumentType;
+import com.a.prestamos.support.DatosPrueba;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verificación masiva de clientes ({@link ClienteServiceImpl#verifyBatch}) contra H2, con RENIEC simulado y
+ * el {@link ClienteDao} real envuelto para contar llamadas: los documentos ya registrados se descartan con una
+ * sola consulta IN por bloque (sin consultar RENIEC) y, si la inserción en lote falla, se reintenta fila por fila.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DatosPrueba.class)
+class ClienteVerificacionLoteTest {
+
+    @Autowired
+    private ClienteDao clienteDaoReal;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private DatosPrueba datos;
+
+    private ClienteDao clienteDao;
+    private DocumentLookupCache documentLookupCache;
+    private ClienteServiceImpl clienteService;
+
+    @BeforeEach
+    void setUp() {
+        clienteDao = mock(ClienteDao.class, delegatesTo(clienteDaoReal));
+        documentLookupCache = mock(DocumentLookupCache.class);
+        clienteService = new ClienteServiceImpl();
+        ReflectionTestUtils.setField(clienteService, "clienteDao", clienteDao);
+        ReflectionTestUtils.setField(clienteService, "documentLookupCache", documentLookupCache);
+        ReflectionTestUtils.setField(clienteService, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(clienteService, "entityManager", entityManager);
+        ReflectionTestUtils.setField(clienteService, "maxDocumentosLote", 100);
+        ReflectionTestUtils.setField(clienteService, "tamanioBloque", 500);
+        ReflectionTestUtils.setField(clienteService, "concurrenciaLote", 4);
+        ReflectionTestUtils.setField(clienteService, "tamanioInsercion", 100);
+    }
+
+    @Test
+    void existentesSeDescartanConUnaSolaConsultaIn() {
+        List<String> existentes = List.of(datos.cliente().getDocumentId(), datos.cliente().getDocumentId(),
+                datos.cliente().getDocumentId());
+        List<String> nuevos = List.of(DatosPrueba.nuevoDni(), DatosPrueba.nuevoDni(), DatosPrueba.nuevoDni(),
+                DatosPrueba.nuevoDni());
+        nuevos.forEach(this::enReniec);
+
+        List<String> documentos = new ArrayList<>(existentes);
+        documentos.addAll(nuevos);
+        documentos.add(nuevos.get(0)); // repetido: se verifica una vez
+        documentos.add("123");
+
+        Map<String, String> estados = estados(clienteService.verifyBatch(documentos).collectList().block());
+
+        existentes.forEach(id -> assertEquals("EXISTENTE", estados.get(id)));
+        nuevos.forEach(id -> assertEquals("CREADO", estados.get(id)));
+        assertEquals("INVALIDO", estados.get("123"));
+        assertEquals(existentes.size() + nuevos.size() + 1, estados.size());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Iterable<String>> consulta = ArgumentCaptor.forClass(Iterable.class);
+        verify(clienteDao, times(1)).findAllById(consulta.capture());
+        Set<String> consultados = new HashSet<>();
+        consulta.getValue().forEach(consultados::add);
+        Set<String> esperados = new HashSet<>(existentes);
+        esperados.addAll(nuevos);
+        assertEquals(esperados, consultados);
+
+        // Ni consultas por documento ni a RENIEC para los que ya eran clientes
+        verify(clienteDao, never()).findById(anyString());
+        existentes.forEach(id -> verify(documentLookupCache, never()).buscarDniAsync(id));
+        nuevos.forEach(id -> assertEquals(1, clienteDaoReal.findAllById(List.of(id)).size()));
+    }
+
+    @Test
+    void loteFallidoSeReintentaFilaPorFila() {
+        String antes = DatosPrueba.nuevoDni();
+        String registradoPorOtro = DatosPrueba.nuevoDni();
+        String despues = DatosPrueba.nuevoDni();
+        enReniec(antes);
+        enReniec(despues);
+        // Mientras se consulta RENIEC, otro proceso registra el documento: el INSERT en lote choca con la PK
+        when(documentLookupCache.buscarDniAsync(registradoPorOtro)).thenReturn(Mono.fromCallable(() -> {
+            clienteDaoReal.save(cliente(registradoPorOtro, "REGISTRADO POR OTRO PROCESO"));
+            return Optional.of(reniec(registradoPorOtro));
+        }));
+
+        Map<String, String> estados = estados(
+                clienteService.verifyBatch(List.of(antes, registradoPorOtro, despues)).collectList().block());
+
+        assertEquals(Map.of(antes, "CREADO", registradoPorOtro, "EXISTENTE", despues, "CREADO"), estados);
+        // Uno por uno: cada fila vuelve a mirar si el cliente existe antes de insertarlo
+        verify(clienteDao).findById(antes);
+        verify(clienteDao).findById(registradoPorOtro);
+        verify(clienteDao).findById(despues);
+        assertEquals("REGISTRADO POR OTRO PROCESO",
+                clienteDaoReal.findById(registradoPorOtro).orElseThrow().getFullName());
+        assertEquals(1, clienteDaoReal.findAllById(List.of(antes)).size());
+        assertEquals(1, clienteDaoReal.findAllById(List.of(despues)).size());
+    }
+
+    // ==================== AUXILIARES ====================
+
+    private void enReniec(String dni) {
+        when(documentLookupCache.buscarDniAsync(dni)).thenReturn(Mono.just(Optional.of(reniec(dni))));
+    }
+
+    private static ReniecResponseDto reniec(String dni) {
+        return new ReniecResponseDto("PERSONA", "DE", "RENIEC", "PERSONA DE RENIEC " + dni, dni);
+    }
+
+    private static Cliente cliente(String dni, String nombre) {
+        Cliente cliente = new Cliente();
+        cliente.setDocumentId(dni);
+        cliente.setDocumentType(DocumentType.DNI);
+        cliente.setFullName(nombre);
+        cliente.setFirstName(nombre);
+        return cliente;
+    }
+
+    private static Map<String, String> estados(List<VerificacionLoteDto> resultados) {
+        return resultados.stream().collect(Collectors.toMap(VerificacionLoteDto::documentId, VerificacionLoteDto::estado));
+    }
+}
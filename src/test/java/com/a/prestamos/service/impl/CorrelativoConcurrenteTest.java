@@ -0,0 +1,144 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.ComprobanteDao;
+import com.a.prestamos.model.dao.EmisionComprobanteDao;
+import com.a.prestamos.model.dao.SerieCorrelativoDao;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * {@link CorrelativoServiceImpl#asignar} desde varios hilos y varios "nodos" (instancias con su propio bloque
+ * en memoria) sobre la misma serie en H2: ningún número se repite y, con block-size 1, la serie no tiene huecos.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CorrelativoConcurrenteTest {
+
+    private static final int HILOS = 8;
+    private static final int PAGOS = 400;
+    private static final AtomicLong PAGO_IDS = new AtomicLong(-1_000_000); // pagos sin emisión en la bandeja
+
+    @Autowired
+    private SerieCorrelativoDao serieDao;
+    @Autowired
+    private ComprobanteDao comprobanteDao;
+    @Autowired
+    private EmisionComprobanteDao emisionDao;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void bloqueDeUnoNoRepiteNiDejaHuecosEntreNodos() throws Exception {
+        List<CorrelativoServiceImpl> nodos = List.of(nodo(serieDao, 1), nodo(serieDao, 1));
+
+        List<Long> numeros = asignarALaVez(nodos, "K001", PAGOS);
+
+        assertEquals(PAGOS, new TreeSet<>(numeros).size(), "números repetidos");
+        assertEquals(LongStream.rangeClosed(1, PAGOS).boxed().collect(Collectors.toSet()), Set.copyOf(numeros));
+        assertEquals(PAGOS, serieDao.findById("K001").orElseThrow().getLastReserved());
+    }
+
+    @Test
+    void bloquesMayoresNoRepitenEntreNodos() throws Exception {
+        int bloque = 20;
+        List<CorrelativoServiceImpl> nodos = List.of(nodo(serieDao, bloque), nodo(serieDao, bloque), nodo(serieDao, bloque));
+
+        List<Long> numeros = asignarALaVez(nodos, "K002", PAGOS);
+
+        assertEquals(PAGOS, new TreeSet<>(numeros).size(), "números repetidos");
+        long reservado = serieDao.findById("K002").orElseThrow().getLastReserved();
+        assertEquals(0, reservado % bloque);
+        // Los huecos son solo el resto de los bloques en uso de cada nodo
+        assertTrue(reservado >= PAGOS && reservado < PAGOS + (long) nodos.size() * bloque, "reservado: " + reservado);
+        assertTrue(numeros.stream().allMatch(n -> n >= 1 && n <= reservado));
+    }
+
+    @Test
+    void primerUsoSimultaneoDeLaSerieReintentaTrasLaPkDuplicada() throws Exception {
+        // Los dos nodos leen la serie inexistente antes de que cualquiera la inserte
+        CyclicBarrier ambosLeyeron = new CyclicBarrier(2);
+        AtomicInteger lecturas = new AtomicInteger();
+        SerieCorrelativoDao dao = mock(SerieCorrelativoDao.class, delegatesTo(serieDao));
+        doAnswer(inv -> {
+            Optional<?> fila = serieDao.findForUpdate(inv.getArgument(0));
+            if (lecturas.incrementAndGet() <= 2) {
+                ambosLeyeron.await(10, TimeUnit.SECONDS);
+            }
+            return fila;
+        }).when(dao).findForUpdate(anyString());
+
+        List<CorrelativoServiceImpl> nodos = List.of(nodo(dao, 1), nodo(dao, 1));
+        List<Long> numeros = asignarALaVez(nodos, "K003", 2);
+
+        assertEquals(Set.of(1L, 2L), Set.copyOf(numeros));
+        // Dos lecturas vacías, la del nodo que insertó y la del que perdió el INSERT, ya con la fila
+        assertEquals(4, lecturas.get());
+        assertEquals(2, serieDao.findById("K003").orElseThrow().getLastReserved());
+    }
+
+    // ==================== AUXILIARES ====================
+
+    private CorrelativoServiceImpl nodo(SerieCorrelativoDao dao, int tamanioBloque) {
+        CorrelativoServiceImpl nodo = new CorrelativoServiceImpl(dao, comprobanteDao, emisionDao, transactionManager);
+        ReflectionTestUtils.setField(nodo, "tamanioBloque", tamanioBloque);
+        return nodo;
+    }
+
+    /**
+     * Reparte {@code pagos} asignaciones entre los nodos y las lanza a la vez desde {@link #HILOS} hilos.
+     */
+    private static List<Long> asignarALaVez(List<CorrelativoServiceImpl> nodos, String serie, int pagos)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(HILOS, pagos));
+        CountDownLatch salida = new CountDownLatch(1);
+        try {
+            List<Future<Long>> futuros = new ArrayList<>();
+            for (int i = 0; i < pagos; i++) {
+                CorrelativoServiceImpl nodo = nodos.get(i % nodos.size());
+                long pagoId = PAGO_IDS.decrementAndGet();
+                Callable<Long> tarea = () -> {
+                    salida.await();
+                    return nodo.asignar(pagoId, serie);
+                };
+                futuros.add(pool.submit(tarea));
+            }
+            salida.countDown();
+
+            List<Long> numeros = new ArrayList<>();
+            for (Future<Long> futuro : futuros) {
+                numeros.add(futuro.get(60, TimeUnit.SECONDS));
+            }
+            return numeros;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.EmisionComprobanteDao;
+import com.a.prestamos.model.dao.PagoDao;
+import com.a.prestamos.model.dto.comprobante.ReemisionProgresoDto;
+import com.a.prestamos.model.entity.EmisionComprobante;
+import com.a.prestamos.model.entity.Pago;
+import com.a.prestamos.model.entity.enums.EmissionState;
+import com.a.prestamos.model.entity.enums.PaymentState;
+import com.a.prestamos.support.DatosPrueba;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Bandeja de emisión ({@link EmisionComprobanteServiceImpl}) contra H2, con la emisión a APIsPERU/SUNAT
+ * reemplazada por un mock: reclamo atómico, lease cercado por el intento, backoff, rechazo del pool, outbox
+ * y re-emisión masiva. Salvo la re-emisión masiva, cada prueba despacha solo sus propios registros.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DatosPrueba.class)
+class EmisionComprobanteBandejaTest {
+
+    private static final int MAX_INTENTOS = 3;
+
+    @Autowired
+    private EmisionComprobanteDao emisionDao;
+    @Autowired
+    private PagoDao pagoDao;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DatosPrueba datos;
+
+    private final FacturacionServiceImpl facturacion = mock(FacturacionServiceImpl.class);
+    private final List<ThreadPoolTaskExecutor> pools = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        pools.forEach(ThreadPoolTaskExecutor::shutdown);
+    }
+
+    @Test
+    void reclamosSimultaneosDejanUnSoloGanador() throws Exception {
+        Long emisionId = emisionEnBandeja();
+        int hilos = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> reclamos = new ArrayList<>();
+            for (int i = 0; i < hilos; i++) {
+                reclamos.add(pool.submit(() -> {
+                    salida.await();
+                    Instant ahora = Instant.now();
+                    return emisionDao.reclamar(emisionId, 0, ahora, ahora.plus(Duration.ofMinutes(5)));
+                }));
+            }
+            salida.countDown();
+
+            int ganadores = 0;
+            for (Future<Integer> reclamo : reclamos) {
+                ganadores += reclamo.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(1, ganadores);
+        } finally {
+            pool.shutdownNow();
+        }
+        EmisionComprobante emision = emisionDao.findById(emisionId).orElseThrow();
+        assertEquals(EmissionState.EN_PROCESO, emision.getState());
+        assertEquals(1, emision.getAttempts());
+    }
+
+    @Test
+    void workerConLeaseVencidoNoPisaElResultadoDelQueLoRetomo() throws Exception {
+        Long emisionId = emisionEnBandeja();
+        EmisionComprobanteServiceImpl bandeja = bandeja(pool(2), Duration.ofMillis(300));
+
+        // El primer worker se queda colgado en SUNAT más allá de su lease y luego falla
+        CountDownLatch primeroEnSunat = new CountDownLatch(1);
+        CountDownLatch soltarPrimero = new CountDownLatch(1);
+        doAnswer(inv -> {
+            primeroEnSunat.countDown();
+            soltarPrimero.await(30, TimeUnit.SECONDS);
+            throw new IllegalStateException("timeout de SUNAT");
+        }).doNothing().when(facturacion).emitirComprobante(anyLong());
+
+        despachar(bandeja, emisionId);
+        assertTrue(primeroEnSunat.await(10, TimeUnit.SECONDS));
+        Thread.sleep(400); // vence el lease
+
+        // Un segundo worker lo retoma (intento 2) y lo emite
+        despachar(bandeja, emisionId);
+        await().atMost(Duration.ofSeconds(10)).until(() -> emisionDao.findStateById(emisionId) == EmissionState.EMITIDO);
+
+        // El fallo tardío del intento 1 ya no lo devuelve a PENDIENTE (lo que provocaría otra emisión)
+        soltarPrimero.countDown();
+        await().atMost(Duration.ofSeconds(10)).until(() -> pools.get(0).getActiveCount() == 0);
+        EmisionComprobante emision = emisionDao.findById(emisionId).orElseThrow();
+        assertEquals(EmissionState.EMITIDO, emision.getState());
+        assertEquals(2, emision.getAttempts());
+        assertNull(emision.getLastError());
+        verify(facturacion, times(2)).emitirComprobante(anyLong());
+    }
+
+    @Test
+    void fallosSeReprogramanConBackoffExponencialHastaQuedarFallido() {
+        Long emisionId = emisionEnBandeja();
+        EmisionComprobanteServiceImpl bandeja = bandeja(pool(1), Duration.ofMinutes(5));
+        doThrow(new IllegalStateException("APIsPERU no responde")).when(facturacion).emitirComprobante(anyLong());
+
+        // backoff-base 1s: 1s, 2s (menos hasta un 25 % de jitter)
+        for (int intento = 1; intento < MAX_INTENTOS; intento++) {
+            despachar(bandeja, emisionId);
+            int esperado = intento;
+            await().atMost(Duration.ofSeconds(10)).until(() -> {
+                EmisionComprobante e = emisionDao.findById(emisionId).orElseThrow();
+                return e.getState() == EmissionState.PENDIENTE && e.getAttempts() == esperado;
+            });
+            EmisionComprobante emision = emisionDao.findById(emisionId).orElseThrow();
+            long esperaMs = Duration.between(emision.getUpdatedAt(), emision.getNextAttemptAt()).toMillis();
+            long backoffMs = 1000L << (intento - 1);
+            assertTrue(esperaMs > backoffMs * 3 / 4 - 1 && esperaMs <= backoffMs,
+                    "intento " + intento + ": espera de " + esperaMs + " ms");
+            assertEquals("APIsPERU no responde", emision.getLastError());
+
+            // Mientras corre el backoff no se puede reclamar; la re-emisión masiva lo adelanta
+            assertEquals(0, emisionDao.reclamar(emisionId, intento, Instant.now(), Instant.now().plusSeconds(60)));
+            emisionDao.adelantarPendientes(List.of(emisionId), Instant.now());
+        }
+
+        despachar(bandeja, emisionId);
+        await().atMost(Duration.ofSeconds(10)).until(() -> emisionDao.findStateById(emisionId) == EmissionState.FALLIDO);
+        assertEquals(MAX_INTENTOS, emisionDao.findAttemptsById(emisionId));
+        verify(facturacion, times(MAX_INTENTOS)).emitirComprobante(anyLong());
+    }
+
+    @Test
+    void conElPoolLlenoLaEmisionQuedaEnLaBandeja() throws Exception {
+        ThreadPoolTaskExecutor pool = pool(1);
+        pool.setQueueCapacity(0);
+        EmisionComprobanteServiceImpl bandeja = bandeja(pool, Duration.ofMinutes(5));
+        CountDownLatch ocupado = new CountDownLatch(1);
+        pool.execute(() -> {
+            try {
+                ocupado.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // Tras el commit el despacho inmediato es rechazado: el registro sigue PENDIENTE y sin intentos
+        Pago pago = pagoSinEmision();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> bandeja.encolar(pagoDao.getReferenceById(pago.getId())));
+        EmisionComprobante emision = emisionDao.findByPaymentId(pago.getId()).orElseThrow();
+        assertEquals(EmissionState.PENDIENTE, emision.getState());
+        assertEquals(0, emision.getAttempts());
+        verify(facturacion, never()).emitirComprobante(anyLong());
+
+        ocupado.countDown();
+        await().atMost(Duration.ofSeconds(10)).until(() -> pool.getActiveCount() == 0);
+        despachar(bandeja, emision.getId());
+        await().atMost(Duration.ofSeconds(10)).until(() -> emisionDao.findStateById(emision.getId()) == EmissionState.EMITIDO);
+    }
+
+    @Test
+    void encolarVaEnLaTransaccionDelPagoYUnaSolaVezPorPago() {
+        EmisionComprobanteServiceImpl bandeja = bandeja(pool(1), Duration.ofMinutes(5));
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        // Si el pago hace rollback, no queda nada en la bandeja ni se despacha
+        Pago revertido = pagoSinEmision();
+        tx.executeWithoutResult(status -> {
+            bandeja.encolar(pagoDao.getReferenceById(revertido.getId()));
+            status.setRollbackOnly();
+        });
+        assertFalse(emisionDao.existsByPaymentId(revertido.getId()));
+
+        Pago pago = pagoSinEmision();
+        tx.executeWithoutResult(status -> {
+            bandeja.encolar(pagoDao.getReferenceById(pago.getId()));
+            bandeja.encolar(pagoDao.getReferenceById(pago.getId()));
+        });
+        Long emisionId = emisionDao.findByPaymentId(pago.getId()).orElseThrow().getId();
+        await().atMost(Duration.ofSeconds(10)).until(() -> emisionDao.findStateById(emisionId) == EmissionState.EMITIDO);
+        verify(facturacion, times(1)).emitirComprobante(pago.getId());
+    }
+
+    @Test
+    void laReemisionMasivaRecorreElAtrasoPorPaginasSinTocarLoQueTieneLease() {
+        EmisionComprobanteServiceImpl bandeja = bandeja(pool(1), Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(bandeja, "reemisionMaxConcurrencia", 2);
+        ReflectionTestUtils.setField(bandeja, "reemisionPagina", 2);
+
+        // Sin fila en la bandeja
+        Pago sinFila = pagoSinEmision();
+        Long fallido = emisionEnBandeja();
+        Long enBackoff = emisionEnBandeja();
+        Long conLease = emisionEnBandeja();
+        Instant ahora = Instant.now();
+        // Agotó sus reintentos
+        assertEquals(1, emisionDao.reclamar(fallido, 0, ahora, ahora.plusSeconds(60)));
+        assertEquals(1, emisionDao.marcarFallido(fallido, 1, "APIsPERU no responde", ahora));
+        // Esperando su backoff una hora más
+        assertEquals(1, emisionDao.reclamar(enBackoff, 0, ahora, ahora.plusSeconds(60)));
+        assertEquals(1, emisionDao.reprogramar(enBackoff, 1, ahora.plus(Duration.ofHours(1)), "APIsPERU no responde", ahora));
+        // Con el lease vigente de un worker de la bandeja
+        assertEquals(1, emisionDao.reclamar(conLease, 0, ahora, ahora.plus(Duration.ofHours(1))));
+
+        bandeja.reemitirPendientes(2, 1_000_000.0);
+        await().atMost(Duration.ofSeconds(30)).until(() -> !bandeja.obtenerProgresoReemision().enCurso());
+        ReemisionProgresoDto progreso = bandeja.obtenerProgresoReemision();
+
+        // El atraso de las demás pruebas también entra: se verifica por registro, no por totales
+        assertTrue(progreso.total() >= 4, "total " + progreso.total());
+        assertEquals(progreso.total(), progreso.procesados());
+        assertTrue(progreso.enProceso() >= 1);
+
+        Long nueva = emisionDao.findByPaymentId(sinFila.getId()).orElseThrow().getId();
+        assertEquals(EmissionState.EMITIDO, emisionDao.findStateById(nueva));
+        assertEquals(EmissionState.EMITIDO, emisionDao.findStateById(fallido));
+        assertEquals(1, emisionDao.findAttemptsById(fallido));
+        assertEquals(EmissionState.EMITIDO, emisionDao.findStateById(enBackoff));
+        assertEquals(2, emisionDao.findAttemptsById(enBackoff));
+        assertEquals(EmissionState.EN_PROCESO, emisionDao.findStateById(conLease));
+        assertEquals(1, emisionDao.findAttemptsById(conLease));
+
+        // Cada pago una sola vez aunque el recorrido cruce varias páginas
+        verify(facturacion, times(1)).emitirComprobante(sinFila.getId());
+        verify(facturacion, times(1)).emitirComprobante(emisionDao.findPaymentIdById(fallido));
+        verify(facturacion, times(1)).emitirComprobante(emisionDao.findPaymentIdById(enBackoff));
+        verify(facturacion, never()).emitirComprobante(emisionDao.findPaymentIdById(conLease));
+    }
+
+    // ==================== AUXILIARES ====================
+
+    private Pago pagoSinEmision() {
+        return datos.pago(datos.cuotaUnica("100.00"), "10.00", PaymentState.ACTIVO);
+    }
+
+    private Long emisionEnBandeja() {
+        EmisionComprobante emision = new EmisionComprobante();
+        emision.setPayment(pagoSinEmision());
+        return emisionDao.save(emision).getId();
+    }
+
+    private ThreadPoolTaskExecutor pool(int hilos) {
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(hilos);
+        pool.setMaxPoolSize(hilos);
+        pool.setThreadNamePrefix("emision-prueba-");
+        pools.add(pool);
+        return pool;
+    }
+
+    private EmisionComprobanteServiceImpl bandeja(ThreadPoolTaskExecutor pool, Duration lease) {
+        pool.initialize();
+        EmisionComprobanteServiceImpl bandeja = new EmisionComprobanteServiceImpl(emisionDao, pagoDao, facturacion, pool);
+        ReflectionTestUtils.setField(bandeja, "maxIntentos", MAX_INTENTOS);
+        ReflectionTestUtils.setField(bandeja, "backoffBase", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(bandeja, "backoffMax", Duration.ofMinutes(30));
+        ReflectionTestUtils.setField(bandeja, "lease", lease);
+        return bandeja;
+    }
+
+    /**
+     * Despacha un registro concreto (lo que hacen el poller y el post-commit), sin recorrer la bandeja compartida.
+     */
+    private static void despachar(EmisionComprobanteServiceImpl bandeja, Long emisionId) {
+        ReflectionTestUtils.invokeMethod(bandeja, "despachar", emisionId);
+    }
+}
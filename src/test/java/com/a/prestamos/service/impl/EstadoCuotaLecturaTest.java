@@ -0,0 +1,84 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.CuotaDao;
+import com.a.prestamos.model.dao.WatermarkProcesoDao;
+import com.a.prestamos.model.dto.prestamo.CuotaDto;
+import com.a.prestamos.model.dto.prestamo.DetallePrestamoDto;
+import com.a.prestamos.model.entity.Cuota;
+import com.a.prestamos.model.entity.Prestamo;
+import com.a.prestamos.model.entity.enums.InstallmentState;
+import com.a.prestamos.service.IPrestamoService;
+import com.a.prestamos.support.DatosPrueba;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Estado de las cuotas fuera del camino de lectura: consultar un préstamo muestra el estado a la fecha
+ * ({@link Cuota#estadoAl}) sin escribir la cuota, y es el job de vencimientos ({@link EstadoCuotaServiceImpl})
+ * el que lo deja guardado.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DatosPrueba.class)
+class EstadoCuotaLecturaTest {
+
+    private static final String PROCESO = "cuotas-vencidas";
+
+    @Autowired
+    private IPrestamoService prestamoService;
+    @Autowired
+    private EstadoCuotaServiceImpl estadoCuotaService;
+    @Autowired
+    private CuotaDao cuotaDao;
+    @Autowired
+    private WatermarkProcesoDao watermarkDao;
+    @Autowired
+    private DatosPrueba datos;
+
+    @Test
+    void laConsultaMuestraElEstadoALaFechaYElJobLoGuarda() {
+        LocalDate hoy = LocalDate.now();
+        // Cuotas de 100 que vencieron hace 1 mes y 5 días y hace 5 días, y una que vence en unos 25 días
+        Prestamo prestamo = datos.prestamo(new BigDecimal("300.00"), BigDecimal.ZERO, 3, hoy.minusMonths(2).minusDays(5));
+        List<Cuota> cuotas = datos.cuotas(prestamo);
+
+        // Las dos primeras quedaron guardadas como PENDIENTE y el job corrió por última vez cuando venció la primera
+        for (Cuota cuota : cuotas.subList(0, 2)) {
+            cuota.setInstallmentState(InstallmentState.PENDIENTE);
+            cuotaDao.save(cuota);
+        }
+        watermarkDao.completar(PROCESO, cuotas.get(0).getDueDate(), 0L, 0L, Instant.now());
+        List<Cuota> antes = datos.cuotas(prestamo);
+
+        DetallePrestamoDto detalle = prestamoService.findLoanDetailByDocumentId(prestamo.getCustomer().getDocumentId());
+
+        assertEquals(List.of(InstallmentState.VENCIDO, InstallmentState.VENCIDO, InstallmentState.PENDIENTE),
+                detalle.schedule().stream().map(CuotaDto::state).toList());
+        // La lectura no escribió nada
+        List<Cuota> leidas = datos.cuotas(prestamo);
+        for (int i = 0; i < leidas.size(); i++) {
+            assertEquals(antes.get(i).getVersion(), leidas.get(i).getVersion());
+            assertEquals(antes.get(i).getInstallmentState(), leidas.get(i).getInstallmentState());
+        }
+
+        estadoCuotaService.actualizarVencidas();
+
+        List<Cuota> despues = datos.cuotas(prestamo);
+        assertEquals(List.of(InstallmentState.VENCIDO, InstallmentState.VENCIDO, InstallmentState.PENDIENTE),
+                despues.stream().map(Cuota::getInstallmentState).toList());
+        assertEquals(antes.get(0).getVersion() + 1, despues.get(0).getVersion());
+        assertEquals(antes.get(1).getVersion() + 1, despues.get(1).getVersion());
+        assertEquals(antes.get(2).getVersion(), despues.get(2).getVersion());
+        assertEquals(hoy, watermarkDao.findById(PROCESO).orElseThrow().getProcessedUntil());
+    }
+}
@@ -0,0 +1,147 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.CuotaDao;
+import com.a.prestamos.model.dao.WatermarkProcesoDao;
+import com.a.prestamos.model.entity.Cuota;
+import com.a.prestamos.model.entity.WatermarkProceso;
+import com.a.prestamos.model.entity.enums.InstallmentState;
+import com.a.prestamos.support.DatosPrueba;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Paso de cuotas vencidas ({@link EstadoCuotaServiceImpl}) en bloques de 2 IDs, con una caída a mitad de la
+ * ejecución: lo confirmado queda con su avance en el watermark y la siguiente ejecución retoma desde el último
+ * bloque confirmado, con la misma fecha objetivo, sin volver a escribir lo ya hecho.
+ * <p>
+ * Usa un contexto propio (base H2 aparte) para que el rango de IDs sea solo el de sus cuotas.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DatosPrueba.class)
+@TestPropertySource(properties = "app.cuotas.estado.chunk-size=2")
+class EstadoCuotaReanudacionTest {
+
+    private static final String PROCESO = "cuotas-vencidas";
+
+    @Autowired
+    private EstadoCuotaServiceImpl estadoCuotaService;
+    @Autowired
+    private CuotaDao cuotaDao;
+    @Autowired
+    private WatermarkProcesoDao watermarkDao;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DatosPrueba datos;
+
+    @Test
+    void ejecucionInterrumpidaSeRetomaDesdeElUltimoBloqueConfirmado() {
+        LocalDate hoy = LocalDate.now();
+        // Tres préstamos con dos cuotas vencidas cada uno, guardadas como PENDIENTE y por delante del watermark
+        List<Cuota> cuotas = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            cuotas.addAll(datos.cuotas(datos.prestamo(new BigDecimal("200.00"), BigDecimal.ZERO, 2, hoy.minusMonths(3))));
+        }
+        for (Cuota cuota : cuotas) {
+            cuota.setInstallmentState(InstallmentState.PENDIENTE);
+            cuotaDao.save(cuota);
+        }
+        LocalDate ultimaCorrida = cuotas.stream().map(Cuota::getDueDate).min(Comparator.naturalOrder()).orElseThrow();
+        watermarkDao.completar(PROCESO, ultimaCorrida, 0L, 0L, Instant.now());
+        long minId = cuotas.stream().mapToLong(Cuota::getId).min().orElseThrow();
+
+        // El segundo bloque falla: el primero ya quedó confirmado junto con su avance
+        assertThrows(QueryTimeoutException.class, () -> servicioQueFallaEnElBloque(2).actualizarVencidas());
+
+        WatermarkProceso interrumpido = watermarkDao.findById(PROCESO).orElseThrow();
+        assertEquals(ultimaCorrida, interrumpido.getProcessedUntil());
+        assertEquals(hoy, interrumpido.getTargetDate());
+        assertEquals(minId + 1, interrumpido.getLastId());
+        assertNull(interrumpido.getLockedUntil());
+
+        Map<Long, Cuota> trasLaCaida = porId();
+        for (Cuota cuota : cuotas) {
+            InstallmentState esperado = cuota.getId() <= interrumpido.getLastId()
+                    ? InstallmentState.VENCIDO : InstallmentState.PENDIENTE;
+            assertEquals(esperado, trasLaCaida.get(cuota.getId()).getInstallmentState(), "cuota " + cuota.getId());
+        }
+
+        estadoCuotaService.actualizarVencidas();
+
+        Map<Long, Cuota> retomadas = porId();
+        for (Cuota cuota : cuotas) {
+            Cuota retomada = retomadas.get(cuota.getId());
+            assertEquals(InstallmentState.VENCIDO, retomada.getInstallmentState());
+            // Lo del primer bloque no se volvió a escribir
+            if (cuota.getId() <= interrumpido.getLastId()) {
+                assertEquals(trasLaCaida.get(cuota.getId()).getVersion(), retomada.getVersion());
+            }
+        }
+        WatermarkProceso completado = watermarkDao.findById(PROCESO).orElseThrow();
+        assertEquals(hoy, completado.getProcessedUntil());
+        assertNull(completado.getTargetDate());
+        assertNull(completado.getLastId());
+        assertEquals(cuotas.size() - 2, completado.getLastRunRows());
+
+        // Ya al día: otra ejecución no recorre nada
+        estadoCuotaService.actualizarVencidas();
+        assertEquals(retomadas.values().stream().map(Cuota::getVersion).toList(),
+                porId().values().stream().map(Cuota::getVersion).toList());
+    }
+
+    // ==================== AUXILIARES ====================
+
+    /**
+     * Mismo job sobre el {@link CuotaDao} real, salvo que el bloque número {@code bloque} falla.
+     */
+    private EstadoCuotaServiceImpl servicioQueFallaEnElBloque(int bloque) {
+        CuotaDao conFalla = mock(CuotaDao.class, delegatesTo(cuotaDao));
+        AtomicInteger bloques = new AtomicInteger();
+        doAnswer(inv -> {
+            if (bloques.incrementAndGet() == bloque) {
+                throw new QueryTimeoutException("caída simulada en el bloque " + bloque);
+            }
+            return cuotaDao.marcarVencidasEnBloque(inv.getArgument(0), inv.getArgument(1), inv.getArgument(2), inv.getArgument(3));
+        }).when(conFalla).marcarVencidasEnBloque(anyLong(), anyLong(), any(), any());
+
+        EstadoCuotaServiceImpl servicio = new EstadoCuotaServiceImpl(conFalla, watermarkDao, transactionManager);
+        ReflectionTestUtils.setField(servicio, "tamanioBloque", 2);
+        ReflectionTestUtils.setField(servicio, "lease", Duration.ofMinutes(30));
+        return servicio;
+    }
+
+    private Map<Long, Cuota> porId() {
+        return cuotaDao.findAll().stream()
+                .collect(Collectors.toMap(Cuota::getId, Function.identity(), (a, b) -> a, TreeMap::new));
+    }
+}
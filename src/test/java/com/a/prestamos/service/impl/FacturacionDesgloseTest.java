@@ -0,0 +1,73 @@
+package com.a.prestamos.service.impl;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Desglose del comprobante en céntimos contra valores fijos y contra el cálculo anterior con BigDecimal.
+ */
+class FacturacionDesgloseTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            // pagado, cuota,  interés, igv,  capital, → interés, igv,  capital
+            "93846,    93846,  15906,   2863, 75077,     15906,   2863, 75077",  // cuota completa
+            "46923,    93846,  15906,   2863, 75077,     7953,    1432, 37538",  // media cuota: el capital absorbe el céntimo
+            "1,        93846,  15906,   2863, 75077,     0,       0,    1",      // un céntimo
+            "33333,    100000, 12345,   2222, 85433,     4115,    741,  28477",
+            "100,      300,    101,     18,   181,       34,      6,    60",     // proporción periódica (1/3)
+            "582748,   582748, 15329,   2759, 564660,    15329,   2759, 564660"  // última cuota ajustada
+    })
+    void desglosePagoCoincideConValoresFijos(long pagado, long cuota, long interes, long igv, long capital,
+                                             long interesEsperado, long igvEsperado, long capitalEsperado) {
+        FacturacionServiceImpl.Desglose desglose = FacturacionServiceImpl.desglosar(pagado, cuota, interes, igv, capital);
+
+        assertEquals(interesEsperado, desglose.interes());
+        assertEquals(igvEsperado, desglose.igv());
+        assertEquals(capitalEsperado, desglose.capital());
+        assertEquals(pagado, desglose.interes() + desglose.igv() + desglose.capital());
+
+        BigDecimal[] referencia = desgloseReferencia(pagado, cuota, interes, igv, capital);
+        assertEquals(referencia[0], BigDecimal.valueOf(desglose.interes(), 2));
+        assertEquals(referencia[1], BigDecimal.valueOf(desglose.igv(), 2));
+        assertEquals(referencia[2], BigDecimal.valueOf(desglose.capital(), 2));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            // mora (con IGV), base esperada
+            "118,   100",
+            "1,     1",
+            "2,     2",
+            "59,    50",
+            "100,   85",
+            "12345, 10462"
+    })
+    void baseSinIgvCoincideConDivisionEntre118(long mora, long baseEsperada) {
+        long base = FacturacionServiceImpl.baseSinIgv(mora);
+        assertEquals(baseEsperada, base);
+
+        BigDecimal referencia = BigDecimal.valueOf(mora, 2).divide(new BigDecimal("1.18"), 2, RoundingMode.HALF_UP);
+        assertEquals(referencia, BigDecimal.valueOf(base, 2));
+    }
+
+    /**
+     * Cálculo anterior a MoneyMath, tal como estaba en FacturacionServiceImpl: {interés, IGV, capital}.
+     */
+    private static BigDecimal[] desgloseReferencia(long pagado, long cuota, long interes, long igv, long capital) {
+        BigDecimal montoPagado = BigDecimal.valueOf(pagado, 2);
+        BigDecimal proporcion = montoPagado.divide(BigDecimal.valueOf(cuota, 2), 10, RoundingMode.HALF_UP);
+
+        BigDecimal interesProporcional = BigDecimal.valueOf(interes, 2).multiply(proporcion).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal igvProporcional = BigDecimal.valueOf(igv, 2).multiply(proporcion).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal capitalProporcional = BigDecimal.valueOf(capital, 2).multiply(proporcion).setScale(2, RoundingMode.HALF_UP);
+
+        BigDecimal diferencia = montoPagado.subtract(interesProporcional.add(igvProporcional).add(capitalProporcional));
+        return new BigDecimal[]{interesProporcional, igvProporcional, capitalProporcional.add(diferencia)};
+    }
+}
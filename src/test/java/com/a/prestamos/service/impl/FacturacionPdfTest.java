@@ -0,0 +1,210 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.ComprobanteDao;
+import com.a.prestamos.model.dao.PagoDao;
+import com.a.prestamos.model.dto.sunat.InvoiceRequest;
+import com.a.prestamos.model.entity.Comprobante;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.ObjectCannedACL;
+import software.amazon.awssdk.services.s3.model.PutObjectAclRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectAclResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * PDF del comprobante contra un {@link S3AsyncClient} simulado: se sube privado en paralelo al envío a
+ * SUNAT; si SUNAT acepta se publica (ACL public-read) y si rechaza o el envío falla se borra del bucket.
+ */
+class FacturacionPdfTest {
+
+    private static final String API = "https://apisperu.test/api/v1";
+    private static final String BUCKET = "comprobantes-test";
+    private static final String KEY = "comprobantes/B001-00000042.pdf";
+    private static final byte[] PDF = "%PDF-1.4 comprobante".getBytes(StandardCharsets.US_ASCII);
+
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final S3AsyncClient s3 = mock(S3AsyncClient.class);
+    private final ComprobanteDao comprobanteDao = mock(ComprobanteDao.class);
+    private final PagoDao pagoDao = mock(PagoDao.class);
+    private final ByteArrayOutputStream subido = new ByteArrayOutputStream();
+    private final ThreadPoolTaskExecutor pdfExecutor = new ThreadPoolTaskExecutor();
+    private FacturacionServiceImpl facturacion;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pdfExecutor.setCorePoolSize(1);
+        pdfExecutor.initialize();
+        facturacion = new FacturacionServiceImpl(comprobanteDao, pagoDao, mock(CorrelativoServiceImpl.class),
+                restTemplate, s3, pdfExecutor, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(facturacion, "apiUrl", API);
+        ReflectionTestUtils.setField(facturacion, "apiToken", "token");
+        ReflectionTestUtils.setField(facturacion, "bucket", BUCKET);
+        ReflectionTestUtils.setField(facturacion, "spacesEndpoint", "https://nyc3.digitaloceanspaces.test");
+
+        // /invoice/pdf responde el PDF con Content-Length: va por el PUT en streaming
+        ClientHttpResponse respuestaPdf = mock(ClientHttpResponse.class);
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.setContentLength(PDF.length);
+        when(respuestaPdf.getHeaders()).thenReturn(cabeceras);
+        when(respuestaPdf.getBody()).thenReturn(new ByteArrayInputStream(PDF));
+        doAnswer(inv -> inv.<ResponseExtractor<?>>getArgument(3).extractData(respuestaPdf))
+                .when(restTemplate).execute(eq(API + "/invoice/pdf"), eq(HttpMethod.POST), any(), any());
+
+        when(s3.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenAnswer(inv -> leer(inv.getArgument(1)));
+        when(s3.putObjectAcl(any(PutObjectAclRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectAclResponse.builder().build()));
+        when(s3.deleteObject(any(DeleteObjectRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(DeleteObjectResponse.builder().build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pdfExecutor.shutdown();
+    }
+
+    @Test
+    void comprobanteAceptadoPublicaElPdf() throws Exception {
+        respuestaSunat(true);
+
+        enviarASunat();
+
+        PutObjectRequest put = capturarPut();
+        assertEquals(KEY, put.key());
+        assertEquals(ObjectCannedACL.PRIVATE, put.acl());
+        assertArrayEquals(PDF, subido.toByteArray());
+
+        ArgumentCaptor<PutObjectAclRequest> acl = ArgumentCaptor.forClass(PutObjectAclRequest.class);
+        verify(s3).putObjectAcl(acl.capture());
+        assertEquals(BUCKET, acl.getValue().bucket());
+        assertEquals(KEY, acl.getValue().key());
+        assertEquals(ObjectCannedACL.PUBLIC_READ, acl.getValue().acl());
+        verify(s3, never()).deleteObject(any(DeleteObjectRequest.class));
+
+        ArgumentCaptor<Comprobante> comprobante = ArgumentCaptor.forClass(Comprobante.class);
+        verify(comprobanteDao).save(comprobante.capture());
+        assertEquals("https://" + BUCKET + ".nyc3.digitaloceanspaces.test/" + KEY, comprobante.getValue().getUrlPdf());
+    }
+
+    @Test
+    void comprobanteRechazadoBorraElPdfSinPublicarlo() throws Exception {
+        respuestaSunat(false);
+
+        assertThrows(IllegalStateException.class, this::enviarASunat);
+
+        assertEquals(ObjectCannedACL.PRIVATE, capturarPut().acl());
+        verifyBorrado();
+    }
+
+    @Test
+    void envioFallidoBorraElPdfSinPublicarlo() {
+        when(restTemplate.postForObject(eq(API + "/invoice/send"), any(), eq(JsonNode.class)))
+                .thenThrow(new ResourceAccessException("APIsPERU no responde"));
+
+        assertThrows(ResourceAccessException.class, this::enviarASunat);
+
+        verifyBorrado();
+    }
+
+    // ==================== AUXILIARES ====================
+
+    private void enviarASunat() {
+        InvoiceRequest invoice = InvoiceRequest.builder().tipoDoc("03").serie("B001").correlativo("00000042").build();
+        ReflectionTestUtils.invokeMethod(facturacion, "enviarASunat", invoice, 7L);
+    }
+
+    private void respuestaSunat(boolean aceptado) throws Exception {
+        JsonNode respuesta = new ObjectMapper().readTree("""
+                {"xml": "https://apisperu.test/xml/42", "hash": "abc",
+                 "sunatResponse": {"success": %s, "error": {"message": "El RUC no existe"}}}
+                """.formatted(aceptado));
+        when(restTemplate.postForObject(eq(API + "/invoice/send"), any(), eq(JsonNode.class))).thenReturn(respuesta);
+    }
+
+    private PutObjectRequest capturarPut() {
+        ArgumentCaptor<PutObjectRequest> put = ArgumentCaptor.forClass(PutObjectRequest.class);
+        verify(s3, timeout(5_000)).putObject(put.capture(), any(AsyncRequestBody.class));
+        return put.getValue();
+    }
+
+    /**
+     * El borrado corre cuando termina la subida, en el hilo del PDF.
+     */
+    private void verifyBorrado() {
+        ArgumentCaptor<DeleteObjectRequest> borrado = ArgumentCaptor.forClass(DeleteObjectRequest.class);
+        verify(s3, timeout(5_000)).deleteObject(borrado.capture());
+        assertEquals(BUCKET, borrado.getValue().bucket());
+        assertEquals(KEY, borrado.getValue().key());
+        verify(s3, never()).putObjectAcl(any(PutObjectAclRequest.class));
+        verify(comprobanteDao, never()).save(any());
+    }
+
+    /**
+     * Consume el cuerpo como lo haría el cliente HTTP del SDK y completa la subida al terminar.
+     */
+    private CompletableFuture<PutObjectResponse> leer(AsyncRequestBody cuerpo) {
+        CompletableFuture<PutObjectResponse> subida = new CompletableFuture<>();
+        cuerpo.subscribe(new Subscriber<>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ByteBuffer bytes) {
+                byte[] copia = new byte[bytes.remaining()];
+                bytes.get(copia);
+                subido.writeBytes(copia);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                subida.completeExceptionally(t);
+            }
+
+            @Override
+            public void onComplete() {
+                subida.complete(PutObjectResponse.builder().build());
+            }
+        });
+        return subida;
+    }
+}
@@ -0,0 +1,150 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.entity.Cuota;
+import com.a.prestamos.model.entity.Prestamo;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cronograma en céntimos ({@link com.a.prestamos.util.MoneyMath}) contra valores fijos y contra el cálculo
+ * anterior con BigDecimal, que se conserva aquí como referencia.
+ */
+class FinancialServiceImplTest {
+
+    private final FinancialServiceImpl financialService = new FinancialServiceImpl();
+
+    /**
+     * Cuota fija, primera cuota y última cuota (que absorbe los céntimos de diferencia del saldo).
+     */
+    @ParameterizedTest
+    @CsvSource({
+            // principal, tea,  meses, cuota,   1ª capital, 1ª interés, 1ª igv, última capital, última interés, última igv, última cuota
+            "10000.00,   0.25,   12,   938.46,  750.77,  159.06,  28.63,  921.21,  14.65,  2.64,   938.50",
+            "5000.00,    0.35,   24,   280.57,  153.95,  107.31,  19.31,  273.53,  5.87,   1.06,   280.46",
+            "1500.00,    0.12,   6,    258.37,  244.14,  12.06,   2.17,   255.93,  2.06,   0.37,   258.36",
+            "123456.78,  0.4599, 36,   5827.63, 1872.94, 3351.43, 603.26, 5646.60, 153.29, 27.59,  5827.48",
+            "1000.00,    0,      7,    142.86,  142.86,  0.00,    0.00,   142.84,  0.00,   0.00,   142.84",
+            "999.99,     0.9999, 1,    1059.45, 999.99,  50.39,   9.07,   999.99,  50.39,  9.07,   1059.45",
+            "50.00,      0.60,   48,   2.36,    0.36,    1.69,    0.31,   1.85,    0.06,   0.01,   1.92",
+            "0.01,       0.25,   3,    0.00,    0.00,    0.00,    0.00,   0.01,    0.00,   0.00,   0.01",
+            "2500.00,    0.0001, 60,   41.68,   41.66,   0.02,    0.00,   41.51,   0.00,   0.00,   41.51"
+    })
+    void cronogramaCoincideConValoresFijos(String principal, String tea, int meses, String cuota,
+                                           String capital1, String interes1, String igv1,
+                                           String capitalN, String interesN, String igvN, String cuotaN) {
+        BigDecimal tem = financialService.calculateTem(new BigDecimal(tea));
+        BigDecimal montoCuota = financialService.calculateInstallmentAmount(new BigDecimal(principal), tem, meses);
+        assertEquals(new BigDecimal(cuota), montoCuota);
+
+        List<Cuota> cronograma = financialService.generateSchedule(prestamo(principal, meses, montoCuota), tem);
+        assertEquals(meses, cronograma.size());
+
+        Cuota primera = cronograma.get(0);
+        assertEquals(new BigDecimal(capital1), primera.getPrincipal());
+        assertEquals(new BigDecimal(interes1), primera.getInterest());
+        assertEquals(new BigDecimal(igv1), primera.getIgv());
+
+        Cuota ultima = cronograma.get(meses - 1);
+        assertEquals(new BigDecimal(capitalN), ultima.getPrincipal());
+        assertEquals(new BigDecimal(interesN), ultima.getInterest());
+        assertEquals(new BigDecimal(igvN), ultima.getIgv());
+        assertEquals(new BigDecimal(cuotaN), ultima.getAmount());
+
+        // La última cuota deja el saldo en cero: el capital suma exactamente el principal
+        BigDecimal capitalTotal = cronograma.stream().map(Cuota::getPrincipal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(new BigDecimal(principal), capitalTotal);
+    }
+
+    /**
+     * Cada cuota, céntimo a céntimo, igual a la implementación anterior con BigDecimal.
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "10000.00,   0.25,   12",
+            "5000.00,    0.35,   24",
+            "123456.78,  0.4599, 36",
+            "750000.00,  0.9999, 120",
+            "1000.00,    0,      7",
+            "333.33,     0.0001, 9",
+            "50.00,      0.60,   48",
+            "99999.99,   0.1899, 60"
+    })
+    void cronogramaCoincideConBigDecimal(String principal, String tea, int meses) {
+        BigDecimal tem = financialService.calculateTem(new BigDecimal(tea));
+        BigDecimal montoCuota = financialService.calculateInstallmentAmount(new BigDecimal(principal), tem, meses);
+        assertEquals(Referencia.cuota(new BigDecimal(principal), tem, meses), montoCuota);
+
+        List<Cuota> cronograma = financialService.generateSchedule(prestamo(principal, meses, montoCuota), tem);
+        List<BigDecimal[]> esperado = Referencia.cronograma(new BigDecimal(principal), montoCuota, tem, meses);
+
+        for (int i = 0; i < meses; i++) {
+            Cuota cuota = cronograma.get(i);
+            BigDecimal[] fila = esperado.get(i);
+            String mensaje = "cuota " + (i + 1);
+            assertEquals(fila[0], cuota.getPrincipal(), mensaje);
+            assertEquals(fila[1], cuota.getInterest(), mensaje);
+            assertEquals(fila[2], cuota.getIgv(), mensaje);
+            assertEquals(fila[3], cuota.getAmount(), mensaje);
+            assertEquals(fila[3], cuota.getBalance(), mensaje);
+        }
+    }
+
+    private static Prestamo prestamo(String principal, int meses, BigDecimal cuota) {
+        Prestamo prestamo = new Prestamo();
+        prestamo.setPrincipal(new BigDecimal(principal));
+        prestamo.setMonths(meses);
+        prestamo.setInstallmentAmount(cuota);
+        prestamo.setStartDate(LocalDate.of(2026, 1, 15));
+        return prestamo;
+    }
+
+    /**
+     * Cálculo anterior a MoneyMath, tal como estaba en FinancialServiceImpl.
+     */
+    private static final class Referencia {
+        private static final MathContext MC = new MathContext(18, RoundingMode.HALF_UP);
+        private static final BigDecimal DIVISOR_IGV = new BigDecimal("1.18");
+
+        static BigDecimal cuota(BigDecimal principal, BigDecimal tem, int meses) {
+            if (tem.compareTo(BigDecimal.ZERO) == 0) {
+                return principal.divide(new BigDecimal(meses), 2, RoundingMode.HALF_UP);
+            }
+            BigDecimal factor = BigDecimal.ONE.add(tem).pow(meses, MC);
+            BigDecimal numerador = tem.multiply(factor, MC);
+            BigDecimal denominador = factor.subtract(BigDecimal.ONE);
+            return principal.multiply(numerador.divide(denominador, MC)).setScale(2, RoundingMode.HALF_UP);
+        }
+
+        /**
+         * Filas {capital, interés sin IGV, IGV, cuota}.
+         */
+        static List<BigDecimal[]> cronograma(BigDecimal principal, BigDecimal cuotaFija, BigDecimal tem, int meses) {
+            List<BigDecimal[]> filas = new ArrayList<>();
+            BigDecimal saldo = principal;
+            BigDecimal cuota = cuotaFija;
+            for (int i = 1; i <= meses; i++) {
+                BigDecimal interesTotal = saldo.multiply(tem).setScale(2, RoundingMode.HALF_UP);
+                BigDecimal interesBase = interesTotal.divide(DIVISOR_IGV, 2, RoundingMode.HALF_UP);
+                BigDecimal igv = interesTotal.subtract(interesBase);
+                BigDecimal capital = cuota.subtract(interesTotal);
+                saldo = saldo.subtract(capital);
+                if (i == meses && saldo.compareTo(BigDecimal.ZERO) != 0) {
+                    capital = capital.add(saldo);
+                    saldo = BigDecimal.ZERO;
+                    cuota = capital.add(interesTotal);
+                }
+                filas.add(new BigDecimal[]{capital, interesBase, igv, cuota});
+            }
+            return filas;
+        }
+    }
+}
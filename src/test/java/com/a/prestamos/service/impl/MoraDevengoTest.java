@@ -0,0 +1,86 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.CuotaDao;
+import com.a.prestamos.model.entity.Cuota;
+import com.a.prestamos.model.entity.Prestamo;
+import com.a.prestamos.support.DatosPrueba;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Devengo diario de mora ({@link MoraDevengoServiceImpl}): la mora guardada es siempre la de la regla a la
+ * fecha (1% del saldo por mes de atraso), no se suma a la que ya estaba y repetir el job el mismo día no
+ * escribe nada.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DatosPrueba.class)
+class MoraDevengoTest {
+
+    @Autowired
+    private MoraDevengoServiceImpl moraDevengo;
+    @Autowired
+    private CuotaDao cuotaDao;
+    @Autowired
+    private DatosPrueba datos;
+
+    @Test
+    void laMoraSeDevengaUnaVezYNoSeDuplicaAlRepetir() {
+        LocalDate hoy = LocalDate.now();
+        // Tres cuotas de 1000 sin interés que vencieron hace 2 meses y 5 días, 1 mes y 5 días, y 5 días
+        Prestamo prestamo = datos.prestamo(new BigDecimal("3000.00"), BigDecimal.ZERO, 3,
+                hoy.minusMonths(3).minusDays(5));
+
+        // La primera quedó con la mora de hace un mes (como si el job no hubiera corrido desde entonces)
+        Cuota primera = datos.cuotas(prestamo).get(0);
+        primera.setMesesMora(1);
+        primera.setMoraAcumulada(new BigDecimal("10.00"));
+        primera.setMoraCalculadaAl(hoy.minusMonths(1));
+        cuotaDao.save(primera);
+
+        moraDevengo.devengar();
+
+        List<Cuota> devengadas = datos.cuotas(prestamo);
+        assertMora(devengadas.get(0), 2, "20.00", hoy);
+        assertMora(devengadas.get(1), 1, "10.00", hoy);
+        assertMora(devengadas.get(2), 1, "10.00", hoy);
+
+        moraDevengo.devengar();
+
+        List<Cuota> repetidas = datos.cuotas(prestamo);
+        for (int i = 0; i < repetidas.size(); i++) {
+            assertEquals(devengadas.get(i).getVersion(), repetidas.get(i).getVersion());
+            assertEquals(0, devengadas.get(i).getMoraAcumulada().compareTo(repetidas.get(i).getMoraAcumulada()));
+        }
+    }
+
+    @Test
+    void cuotaSinVencerNoDevengaMora() {
+        Cuota cuota = datos.cuotaUnica("500.00");
+        Long version = cuota.getVersion();
+
+        moraDevengo.devengar();
+
+        Cuota leida = cuotaDao.findById(cuota.getId()).orElseThrow();
+        assertEquals(version, leida.getVersion());
+        assertEquals(0, leida.getMoraAcumulada().signum());
+        assertEquals(0, leida.getMesesMora());
+    }
+
+    // ==================== AUXILIARES ====================
+
+    private static void assertMora(Cuota cuota, int meses, String mora, LocalDate fecha) {
+        assertEquals(meses, cuota.getMesesMora());
+        assertEquals(0, new BigDecimal(mora).compareTo(cuota.getMoraAcumulada()), "mora de la cuota " + cuota.getNum());
+        assertEquals(fecha, cuota.getMoraCalculadaAl());
+    }
+}
@@ -0,0 +1,137 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.PrestamoDao;
+import com.a.prestamos.model.dto.prestamo.OriginacionLoteDto;
+import com.a.prestamos.model.dto.prestamo.PrestamoRequest;
+import com.a.prestamos.model.entity.Prestamo;
+import com.a.prestamos.support.DatosPrueba;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Originación masiva ({@link OriginacionLoteServiceImpl}) interrumpida a mitad del archivo: al reenviarlo con
+ * el mismo identificador se retoma desde la última fila confirmada y ningún cliente queda con dos préstamos.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DatosPrueba.class)
+class OriginacionLoteTest {
+
+    private static final int BLOQUE = 2;
+
+    @Autowired
+    private OriginacionLoteServiceImpl originacion;
+    @Autowired
+    private PrestamoDao prestamoDao;
+    @Autowired
+    private DatosPrueba datos;
+
+    private int bloqueOriginal;
+
+    @BeforeEach
+    void setUp() {
+        bloqueOriginal = (int) ReflectionTestUtils.getField(originacion, "tamanioBloque");
+        ReflectionTestUtils.setField(originacion, "tamanioBloque", BLOQUE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(originacion, "tamanioBloque", bloqueOriginal);
+    }
+
+    @Test
+    void importacionRetomadaNoDuplicaPrestamos() {
+        List<PrestamoRequest> archivo = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            archivo.add(new PrestamoRequest(datos.cliente().getDocumentId(), new BigDecimal("1000.00"),
+                    new BigDecimal("0.20"), 6, false, LocalDate.now()));
+        }
+
+        // Primera ejecución: el archivo se corta al leer la fila 4; solo el bloque 1-2 llegó a confirmarse
+        List<OriginacionLoteDto> primera = originacion.originarLote("retomada", cortadoEn(archivo, 3))
+                .collectList().block();
+        assertNotNull(primera);
+        assertEquals(List.of("CREADO", "CREADO", "ERROR"), primera.stream().map(OriginacionLoteDto::estado).toList());
+        // El reporte indica hasta qué fila se leyó; la 3 se leyó pero su bloque no llegó a guardarse
+        assertEquals(3, primera.get(2).fila());
+
+        // Segunda ejecución con el archivo completo: las filas 1-2 no se vuelven a procesar
+        List<OriginacionLoteDto> segunda = originacion.originarLote("retomada", archivo.iterator())
+                .collectList().block();
+        assertNotNull(segunda);
+        assertEquals(List.of("YA_PROCESADO", "CREADO", "CREADO", "CREADO", "COMPLETADO"),
+                segunda.stream().map(OriginacionLoteDto::estado).toList());
+        assertEquals(List.of(2L, 3L, 4L, 5L, 5L), segunda.stream().map(OriginacionLoteDto::fila).toList());
+
+        Map<String, Long> prestamosPorCliente = prestamoDao.findAll().stream()
+                .map(p -> p.getCustomer().getDocumentId())
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        for (PrestamoRequest fila : archivo) {
+            assertEquals(1L, prestamosPorCliente.get(fila.documentId()), "préstamos de " + fila.documentId());
+        }
+
+        // Una importación completada no se vuelve a ejecutar
+        assertThrows(IllegalStateException.class,
+                () -> originacion.originarLote("retomada", archivo.iterator()).collectList().block());
+    }
+
+    @Test
+    void filaRepetidaDeUnClienteSeRechazaEnElMismoLote() {
+        String documentId = datos.cliente().getDocumentId();
+        PrestamoRequest solicitud = new PrestamoRequest(documentId, new BigDecimal("500.00"),
+                new BigDecimal("0.20"), 3, false, LocalDate.now());
+
+        List<OriginacionLoteDto> reporte = originacion.originarLote("repetida", List.of(solicitud, solicitud).iterator())
+                .collectList().block();
+
+        assertNotNull(reporte);
+        assertEquals(List.of("CREADO", "RECHAZADO", "COMPLETADO"), reporte.stream().map(OriginacionLoteDto::estado).toList());
+        List<Prestamo> delCliente = prestamoDao.findAll().stream()
+                .filter(p -> p.getCustomer().getDocumentId().equals(documentId))
+                .toList();
+        assertEquals(1, delCliente.size());
+        assertEquals(reporte.get(0).prestamoId(), delCliente.get(0).getId());
+    }
+
+    // ==================== AUXILIARES ====================
+
+    /**
+     * Entrega las primeras {@code filas} solicitudes y falla al leer la siguiente, como un archivo truncado.
+     */
+    private static Iterator<PrestamoRequest> cortadoEn(List<PrestamoRequest> archivo, int filas) {
+        Iterator<PrestamoRequest> filasLeidas = archivo.subList(0, filas).iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public PrestamoRequest next() {
+                if (!filasLeidas.hasNext()) {
+                    throw new IllegalStateException("Conexión cerrada por el cliente");
+                }
+                return filasLeidas.next();
+            }
+        };
+    }
+}
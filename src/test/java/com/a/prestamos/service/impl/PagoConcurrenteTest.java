@@ -0,0 +1,247 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.CuotaDao;
+import com.a.prestamos.model.dao.PagoDao;
+import com.a.prestamos.model.dao.PrestamoDao;
+import com.a.prestamos.model.dao.TotalCajaDao;
+import com.a.prestamos.model.dto.caja.AperturaCajaRequest;
+import com.a.prestamos.model.dto.pago.PagoRequest;
+import com.a.prestamos.model.entity.Cuota;
+import com.a.prestamos.model.entity.Pago;
+import com.a.prestamos.model.entity.TotalCaja;
+import com.a.prestamos.model.entity.enums.InstallmentState;
+import com.a.prestamos.model.entity.enums.LoanState;
+import com.a.prestamos.model.entity.enums.PaymentMethod;
+import com.a.prestamos.model.entity.enums.PaymentState;
+import com.a.prestamos.service.IPagoService;
+import com.a.prestamos.support.DatosPrueba;
+import com.a.prestamos.support.MercadoPagoSimulado;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pagos en caja y webhooks de Mercado Pago simultáneos sobre la misma cuota, contra H2: con {@code @Version}
+ * en la cuota y los reintentos de {@link ReintentoOptimistaService}, ningún pago aceptado se pierde.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DatosPrueba.class)
+class PagoConcurrenteTest {
+
+    private static final BigDecimal DIEZ = new BigDecimal("10.00");
+
+    @Autowired
+    private IPagoService pagoService;
+    @Autowired
+    private CajaServiceImpl cajaService;
+    @Autowired
+    private ReintentoOptimistaService reintentoOptimista;
+    @Autowired
+    private CuotaDao cuotaDao;
+    @Autowired
+    private PagoDao pagoDao;
+    @Autowired
+    private PrestamoDao prestamoDao;
+    @Autowired
+    private TotalCajaDao totalCajaDao;
+    @Autowired
+    private DatosPrueba datos;
+
+    private MercadoPagoSimulado mercadoPago;
+
+    @BeforeEach
+    void setUp() {
+        mercadoPago = MercadoPagoSimulado.instalar();
+    }
+
+    @Test
+    void pagosEnCajaYWebhooksSimultaneosNoPierdenActualizaciones() throws Exception {
+        String cajero = "estres-mixto@prestamos.pe";
+        Long cajaId = cajaService.abrirCaja(new AperturaCajaRequest(BigDecimal.ZERO), cajero).getId();
+        Cuota cuota = datos.cuotaUnica("500.00");
+        long versionInicial = cuota.getVersion();
+
+        // Órdenes de Mercado Pago pendientes, creadas por el flujo normal
+        int webhooks = 6;
+        List<String> pagosMp = new ArrayList<>();
+        for (int i = 0; i < webhooks; i++) {
+            pagoService.crearPreferenciaMercadoPago(cuota.getId(), DIEZ, cajero);
+            String paymentId = String.valueOf(9_100_000 + i);
+            mercadoPago.pago(paymentId, "approved", cuota.getId());
+            pagosMp.add(paymentId);
+        }
+
+        int pagosCaja = 6;
+        List<Callable<PaymentMethod>> tareas = new ArrayList<>();
+        for (int i = 0; i < pagosCaja; i++) {
+            tareas.add(() -> {
+                pagoService.registrarPago(efectivo(cuota.getId(), DIEZ), cajero);
+                return PaymentMethod.EFECTIVO;
+            });
+        }
+        for (String paymentId : pagosMp) {
+            tareas.add(() -> {
+                pagoService.procesarWebhookMercadoPago(paymentId);
+                return PaymentMethod.MERCADO_PAGO;
+            });
+        }
+
+        Resultados resultados = ejecutarALaVez(tareas);
+
+        // Con reintentos suficientes todos entran (la cuota tiene saldo para todos)
+        assertEquals(List.of(), resultados.errores);
+        assertEquals(pagosCaja, resultados.aceptados(PaymentMethod.EFECTIVO));
+        assertEquals(webhooks, resultados.aceptados(PaymentMethod.MERCADO_PAGO));
+
+        int aceptados = pagosCaja + webhooks;
+        Cuota despues = cuotaDao.findById(cuota.getId()).orElseThrow();
+        BigDecimal sumaPagos = sumaPagosActivos(cuota.getId());
+        assertEquals(DIEZ.multiply(BigDecimal.valueOf(aceptados)), sumaPagos);
+        assertEquals(sumaPagos, despues.getAmountPaid());
+        assertEquals(new BigDecimal("500.00").subtract(sumaPagos), despues.getBalance());
+        // Una escritura de la cuota por cada pago aceptado: ninguna se pisó con otra
+        assertEquals(versionInicial + aceptados, despues.getVersion());
+
+        assertEquals(DIEZ.multiply(BigDecimal.valueOf(pagosCaja)), totalCaja(cajaId, PaymentMethod.EFECTIVO));
+        assertEquals(DIEZ.multiply(BigDecimal.valueOf(webhooks)), totalCaja(cajaId, PaymentMethod.MERCADO_PAGO));
+    }
+
+    @Test
+    void pagosSimultaneosQueSuperanLaCuotaSoloAceptanElSaldo() throws Exception {
+        String cajero = "estres-saldo@prestamos.pe";
+        cajaService.abrirCaja(new AperturaCajaRequest(BigDecimal.ZERO), cajero);
+        Cuota cuota = datos.cuotaUnica("60.00");
+
+        List<Callable<PaymentMethod>> tareas = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            tareas.add(() -> {
+                pagoService.registrarPago(efectivo(cuota.getId(), DIEZ), cajero);
+                return PaymentMethod.EFECTIVO;
+            });
+        }
+
+        Resultados resultados = ejecutarALaVez(tareas);
+
+        // Solo caben seis pagos de 10.00; el resto ve la cuota pagada (o el monto mayor que la deuda)
+        assertEquals(6, resultados.aceptados(PaymentMethod.EFECTIVO));
+        assertEquals(6, resultados.errores.size());
+        resultados.errores.forEach(e -> assertTrue(e instanceof IllegalStateException || e instanceof IllegalArgumentException,
+                () -> "rechazo inesperado: " + e));
+
+        Cuota despues = cuotaDao.findById(cuota.getId()).orElseThrow();
+        assertEquals(new BigDecimal("60.00"), sumaPagosActivos(cuota.getId()));
+        assertEquals(new BigDecimal("60.00"), despues.getAmountPaid());
+        assertEquals(0, despues.getBalance().signum());
+        assertEquals(InstallmentState.PAGADO, despues.getInstallmentState());
+        assertEquals(LoanState.CANCELADO, prestamoDao.findById(prestamoId(cuota)).orElseThrow().getLoanState());
+    }
+
+    @Test
+    void conflictosDeVersionSeReintentanConLosDatosNuevos() throws Exception {
+        String cajero = "estres-conflictos@prestamos.pe";
+        cajaService.abrirCaja(new AperturaCajaRequest(BigDecimal.ZERO), cajero);
+        long conflictosAntes = reintentoOptimista.estadisticas().conflictos();
+
+        // Varias rondas hasta observar al menos un conflicto; cada ronda verifica que no se perdió nada
+        for (int ronda = 0; ronda < 10 && reintentoOptimista.estadisticas().conflictos() == conflictosAntes; ronda++) {
+            Cuota cuota = datos.cuotaUnica("100.00");
+            List<Callable<PaymentMethod>> tareas = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                tareas.add(() -> {
+                    pagoService.registrarPago(efectivo(cuota.getId(), DIEZ), cajero);
+                    return PaymentMethod.EFECTIVO;
+                });
+            }
+            Resultados resultados = ejecutarALaVez(tareas);
+
+            assertEquals(List.of(), resultados.errores);
+            assertEquals(new BigDecimal("80.00"), cuotaDao.findById(cuota.getId()).orElseThrow().getAmountPaid());
+            assertEquals(new BigDecimal("80.00"), sumaPagosActivos(cuota.getId()));
+        }
+
+        assertTrue(reintentoOptimista.estadisticas().conflictos() > conflictosAntes,
+                "ninguna ronda produjo un conflicto de versión");
+    }
+
+    // ==================== AUXILIARES ====================
+
+    private static PagoRequest efectivo(Long cuotaId, BigDecimal monto) {
+        return new PagoRequest(cuotaId, monto, monto, PaymentMethod.EFECTIVO, null, null, true, "BOLETA", null, null);
+    }
+
+    private BigDecimal sumaPagosActivos(Long cuotaId) {
+        return pagoDao.findByInstallmentIdAndPaymentState(cuotaId, PaymentState.ACTIVO).stream()
+                .map(Pago::getAmountPaid)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private BigDecimal totalCaja(Long cajaId, PaymentMethod metodo) {
+        return totalCajaDao.findByCajaId(cajaId).stream()
+                .filter(t -> t.getPaymentMethod() == metodo)
+                .map(TotalCaja::getMontoPagado)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private Long prestamoId(Cuota cuota) {
+        return cuotaDao.findById(cuota.getId()).map(c -> c.getLoan().getId()).orElseThrow();
+    }
+
+    /**
+     * Lanza todas las tareas en hilos propios y las suelta a la vez.
+     */
+    private static Resultados ejecutarALaVez(List<Callable<PaymentMethod>> tareas) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(tareas.size());
+        CountDownLatch salida = new CountDownLatch(1);
+        try {
+            List<Future<PaymentMethod>> futuros = new ArrayList<>();
+            for (Callable<PaymentMethod> tarea : tareas) {
+                futuros.add(pool.submit(() -> {
+                    salida.await();
+                    return tarea.call();
+                }));
+            }
+            salida.countDown();
+
+            Resultados resultados = new Resultados();
+            for (Future<PaymentMethod> futuro : futuros) {
+                try {
+                    resultados.metodos.add(futuro.get(60, TimeUnit.SECONDS));
+                } catch (java.util.concurrent.ExecutionException e) {
+                    resultados.errores.add(e.getCause());
+                } catch (java.util.concurrent.TimeoutException e) {
+                    throw new AssertionError("un pago no terminó en 60 s", e);
+                }
+            }
+            return resultados;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static final class Resultados {
+        private final List<PaymentMethod> metodos = new ArrayList<>();
+        private final List<Throwable> errores = new ArrayList<>();
+
+        private long aceptados(PaymentMethod metodo) {
+            return metodos.stream().filter(m -> m == metodo).count();
+        }
+    }
+}
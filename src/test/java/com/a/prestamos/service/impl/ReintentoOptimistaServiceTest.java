@@ -0,0 +1,108 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.entity.Cuota;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Bucle de reintentos de {@link ReintentoOptimistaService}, con un gestor de transacciones en memoria.
+ */
+class ReintentoOptimistaServiceTest {
+
+    private static final int MAX_INTENTOS = 3;
+
+    private final TransaccionesEnMemoria transacciones = new TransaccionesEnMemoria();
+    private ReintentoOptimistaService reintentos;
+
+    @BeforeEach
+    void setUp() {
+        reintentos = new ReintentoOptimistaService(transacciones);
+        ReflectionTestUtils.setField(reintentos, "maxIntentos", MAX_INTENTOS);
+        ReflectionTestUtils.setField(reintentos, "backoff", Duration.ZERO);
+    }
+
+    @Test
+    void reintentaTrasConflictoDeVersionEnUnaTransaccionNueva() {
+        AtomicInteger intentos = new AtomicInteger();
+
+        String resultado = reintentos.ejecutar("pago", () -> {
+            if (intentos.incrementAndGet() < MAX_INTENTOS) {
+                throw new ObjectOptimisticLockingFailureException(Cuota.class, 1L);
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", resultado);
+        assertEquals(MAX_INTENTOS, intentos.get());
+        assertEquals(MAX_INTENTOS - 1, transacciones.rollbacks.get());
+        assertEquals(1, transacciones.commits.get());
+        assertEquals(new ReintentoOptimistaService.Estadisticas(MAX_INTENTOS - 1, 0), reintentos.estadisticas());
+    }
+
+    @Test
+    void agotaLosIntentosYLanzaIllegalStateException() {
+        AtomicInteger intentos = new AtomicInteger();
+
+        // IllegalStateException → 409 en GlobalExceptionHandler
+        IllegalStateException error = assertThrows(IllegalStateException.class, () ->
+                reintentos.ejecutar("pago", () -> {
+                    intentos.incrementAndGet();
+                    throw new OptimisticLockingFailureException("versión desactualizada");
+                }));
+
+        assertInstanceOf(OptimisticLockingFailureException.class, error.getCause());
+        assertEquals(MAX_INTENTOS, intentos.get());
+        assertEquals(MAX_INTENTOS, transacciones.rollbacks.get());
+        assertEquals(0, transacciones.commits.get());
+        assertEquals(new ReintentoOptimistaService.Estadisticas(MAX_INTENTOS, 1), reintentos.estadisticas());
+    }
+
+    @Test
+    void noReintentaOtrasExcepciones() {
+        AtomicInteger intentos = new AtomicInteger();
+
+        assertThrows(IllegalArgumentException.class, () ->
+                reintentos.ejecutar("pago", () -> {
+                    intentos.incrementAndGet();
+                    throw new IllegalArgumentException("monto inválido");
+                }));
+
+        assertEquals(1, intentos.get());
+        assertEquals(1, transacciones.rollbacks.get());
+        assertEquals(new ReintentoOptimistaService.Estadisticas(0, 0), reintentos.estadisticas());
+    }
+
+    private static final class TransaccionesEnMemoria implements PlatformTransactionManager {
+        private final AtomicInteger commits = new AtomicInteger();
+        private final AtomicInteger rollbacks = new AtomicInteger();
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            commits.incrementAndGet();
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            rollbacks.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dto.prestamo.SimulacionDto;
+import com.a.prestamos.model.dto.prestamo.SimulacionRequest;
+import com.a.prestamos.model.entity.Cuota;
+import com.a.prestamos.model.entity.Prestamo;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Cotizaciones ({@link SimulacionServiceImpl}) sobre el {@link FinancialServiceImpl} real: el cronograma es
+ * el mismo que generaría {@code createLoan}, y las cotizaciones iguales (aunque difiera la escala de los
+ * montos) se calculan una sola vez, también cuando llegan a la vez.
+ */
+class SimulacionServiceTest {
+
+    private static final LocalDate INICIO = LocalDate.of(2026, 1, 15);
+
+    private final FinancialServiceImpl financialService = spy(new FinancialServiceImpl());
+    private final SimulacionServiceImpl simulacion = new SimulacionServiceImpl(financialService, 100, Duration.ofHours(1));
+
+    @Test
+    void cotizacionCoincideConElCronogramaDelPrestamo() {
+        SimulacionDto cotizacion = simulacion.simular(new SimulacionRequest(new BigDecimal("5000.00"),
+                new BigDecimal("0.35"), 12, INICIO));
+
+        // Lo que haría createLoan con los mismos datos
+        FinancialServiceImpl financiero = new FinancialServiceImpl();
+        BigDecimal tem = financiero.calculateTem(new BigDecimal("0.35"));
+        Prestamo prestamo = new Prestamo();
+        prestamo.setPrincipal(new BigDecimal("5000.00"));
+        prestamo.setTeaAnnual(new BigDecimal("0.35"));
+        prestamo.setMonths(12);
+        prestamo.setStartDate(INICIO);
+        prestamo.setInstallmentAmount(financiero.calculateInstallmentAmount(new BigDecimal("5000.00"), tem, 12));
+        List<Cuota> cronograma = financiero.generateSchedule(prestamo, tem);
+
+        assertEquals(prestamo.getInstallmentAmount(), cotizacion.installmentAmount());
+        assertEquals(cronograma.size(), cotizacion.schedule().size());
+        BigDecimal totalPagar = BigDecimal.ZERO;
+        for (int i = 0; i < cronograma.size(); i++) {
+            Cuota cuota = cronograma.get(i);
+            SimulacionDto.Cuota cotizada = cotizacion.schedule().get(i);
+            assertEquals(cuota.getNum(), cotizada.num());
+            assertEquals(cuota.getDueDate(), cotizada.dueDate());
+            assertEquals(cuota.getAmount(), cotizada.amount());
+            assertEquals(cuota.getPrincipal(), cotizada.principal());
+            assertEquals(cuota.getInterest(), cotizada.interest());
+            assertEquals(cuota.getIgv(), cotizada.igv());
+            totalPagar = totalPagar.add(cuota.getAmount());
+        }
+        assertEquals(totalPagar, cotizacion.totalPagar());
+        assertEquals(0, cotizacion.schedule().get(11).saldoCapital().signum());
+    }
+
+    @Test
+    void cotizacionesIgualesSeCalculanUnaVez() {
+        SimulacionDto primera = simulacion.simular(new SimulacionRequest(new BigDecimal("1000"), new BigDecimal("0.2"), 6, INICIO));
+        SimulacionDto misma = simulacion.simular(new SimulacionRequest(new BigDecimal("1000.00"), new BigDecimal("0.200"), 6, INICIO));
+        SimulacionDto otroInicio = simulacion.simular(new SimulacionRequest(new BigDecimal("1000"), new BigDecimal("0.2"), 6,
+                INICIO.plusDays(1)));
+
+        assertSame(primera, misma);
+        assertNotSame(primera, otroInicio);
+        verify(financialService, times(2)).generateSchedule(any(), any());
+        assertEquals(1, simulacion.estadisticas().aciertos());
+
+        // La entrada compartida no se puede modificar
+        assertThrows(UnsupportedOperationException.class, () -> primera.schedule().clear());
+    }
+
+    @Test
+    void cotizacionesSimultaneasCompartenElCalculo() throws Exception {
+        CountDownLatch calculando = new CountDownLatch(1);
+        CountDownLatch continuar = new CountDownLatch(1);
+        doAnswer(inv -> {
+            calculando.countDown();
+            assertTrue(continuar.await(10, TimeUnit.SECONDS));
+            return inv.callRealMethod();
+        }).when(financialService).generateSchedule(any(), any());
+        SimulacionRequest request = new SimulacionRequest(new BigDecimal("2400.00"), new BigDecimal("0.30"), 24, INICIO);
+
+        int hilos = 6;
+        ExecutorService pool = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<SimulacionDto>> cotizaciones = new ArrayList<>();
+            cotizaciones.add(pool.submit(() -> simulacion.simular(request)));
+            assertTrue(calculando.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < hilos; i++) {
+                cotizaciones.add(pool.submit(() -> simulacion.simular(request)));
+            }
+            await().atMost(Duration.ofSeconds(5)).until(() -> simulacion.estadisticas().compartidas() == hilos - 1);
+            continuar.countDown();
+
+            SimulacionDto primera = cotizaciones.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<SimulacionDto> cotizacion : cotizaciones) {
+                assertSame(primera, cotizacion.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(financialService, times(1)).generateSchedule(any(), any());
+    }
+}
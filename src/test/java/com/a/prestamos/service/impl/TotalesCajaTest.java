@@ -0,0 +1,221 @@
+package com.a.prestamos.service.impl;
+
+import com.a.prestamos.model.dao.PagoDao;
+import com.a.prestamos.model.dao.TotalCajaDao;
+import com.a.prestamos.model.dto.caja.AperturaCajaRequest;
+import com.a.prestamos.model.dto.caja.CierreCajaRequest;
+import com.a.prestamos.model.dto.caja.ResumenCajaDto;
+import com.a.prestamos.model.dto.pago.PagoRequest;
+import com.a.prestamos.model.entity.Caja;
+import com.a.prestamos.model.entity.Cuota;
+import com.a.prestamos.model.entity.TotalCaja;
+import com.a.prestamos.model.entity.enums.PaymentMethod;
+import com.a.prestamos.model.entity.enums.PaymentState;
+import com.a.prestamos.service.IPagoService;
+import com.a.prestamos.support.DatosPrueba;
+import com.a.prestamos.support.MercadoPagoSimulado;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Totales por caja ({@link TotalesCajaServiceImpl}): después de pagos en caja y webhooks de Mercado Pago
+ * simultáneos, con órdenes rechazadas que quedan anuladas, cada total es la suma de los pagos activos de la
+ * caja; el resumen y el cierre salen de esos totales, y la verificación periódica corrige una diferencia.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(DatosPrueba.class)
+class TotalesCajaTest {
+
+    private static final BigDecimal DIEZ = new BigDecimal("10.00");
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("200.00");
+
+    @Autowired
+    private IPagoService pagoService;
+    @Autowired
+    private CajaServiceImpl cajaService;
+    @Autowired
+    private TotalesCajaServiceImpl totalesCajaService;
+    @Autowired
+    private TotalCajaDao totalCajaDao;
+    @Autowired
+    private PagoDao pagoDao;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DatosPrueba datos;
+
+    private MercadoPagoSimulado mercadoPago;
+
+    @BeforeEach
+    void setUp() {
+        mercadoPago = MercadoPagoSimulado.instalar();
+    }
+
+    @Test
+    void totalesIgualanLaSumaDePagosTrasPagosSimultaneosYAnulaciones() throws Exception {
+        String cajero = "totales-simultaneos@prestamos.pe";
+        Long cajaId = cajaService.abrirCaja(new AperturaCajaRequest(SALDO_INICIAL), cajero).getId();
+        Cuota enCaja = datos.cuotaUnica("500.00");
+
+        // Una orden de Mercado Pago por cuota: 4 se aprueban y 3 se rechazan (el pago queda ANULADO)
+        List<String> aprobados = new ArrayList<>();
+        List<String> rechazados = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Cuota cuota = datos.cuotaUnica("100.00");
+            pagoService.crearPreferenciaMercadoPago(cuota.getId(), DIEZ, cajero);
+            String paymentId = String.valueOf(9_200_000 + i);
+            boolean aprobado = i < 4;
+            mercadoPago.pago(paymentId, aprobado ? "approved" : "rejected", cuota.getId());
+            (aprobado ? aprobados : rechazados).add(paymentId);
+        }
+
+        List<Callable<Void>> tareas = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            tareas.add(() -> {
+                pagoService.registrarPago(new PagoRequest(enCaja.getId(), DIEZ, DIEZ, PaymentMethod.EFECTIVO,
+                        null, null, true, "BOLETA", null, null), cajero);
+                return null;
+            });
+        }
+        for (String paymentId : aprobados) {
+            tareas.add(() -> {
+                pagoService.procesarWebhookMercadoPago(paymentId);
+                return null;
+            });
+        }
+        for (String paymentId : rechazados) {
+            tareas.add(() -> {
+                pagoService.procesarWebhookMercadoPago(paymentId);
+                return null;
+            });
+        }
+        assertEquals(List.of(), ejecutarALaVez(tareas));
+
+        for (String paymentId : rechazados) {
+            assertEquals(PaymentState.ANULADO, pagoDao.findByMercadoPagoPaymentId(paymentId).orElseThrow().getPaymentState());
+        }
+
+        Map<PaymentMethod, BigDecimal> totales = totales(cajaId);
+        assertEquals(sumaPagos(cajaId), totales);
+        assertEquals(0, new BigDecimal("60.00").compareTo(totales.get(PaymentMethod.EFECTIVO)));
+        assertEquals(0, new BigDecimal("40.00").compareTo(totales.get(PaymentMethod.MERCADO_PAGO)));
+
+        ResumenCajaDto resumen = cajaService.obtenerResumenActual(cajero);
+        assertEquals(0, totales.get(PaymentMethod.EFECTIVO).compareTo(resumen.ingresosEfectivo()));
+        assertEquals(0, SALDO_INICIAL.add(totales.get(PaymentMethod.EFECTIVO)).compareTo(resumen.totalEsperadoEnCaja()));
+
+        // La verificación periódica no encuentra nada que corregir
+        totalesCajaService.verificar();
+        assertEquals(totales, totales(cajaId));
+
+        // El cierre cuadra con el efectivo contado sin confirmar descuadre
+        Caja cerrada = cajaService.cerrarCaja(new CierreCajaRequest(resumen.totalEsperadoEnCaja(), false, null), cajero);
+        assertEquals(0, cerrada.getDiferencia().signum());
+        assertEquals(0, totales.get(PaymentMethod.EFECTIVO).compareTo(cerrada.getTotalEfectivoSistema()));
+    }
+
+    @Test
+    void laVerificacionCorrigeUnTotalQueSeDesvio() {
+        String cajero = "totales-desvio@prestamos.pe";
+        Long cajaId = cajaService.abrirCaja(new AperturaCajaRequest(BigDecimal.ZERO), cajero).getId();
+        Cuota cuota = datos.cuotaUnica("100.00");
+        pagoService.registrarPago(new PagoRequest(cuota.getId(), DIEZ, DIEZ, PaymentMethod.EFECTIVO,
+                null, null, true, "BOLETA", null, null), cajero);
+
+        // Una suma que no corresponde a ningún pago
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                totalCajaDao.sumar(cajaId, PaymentMethod.EFECTIVO, new BigDecimal("5.00"), BigDecimal.ZERO));
+        assertEquals(0, new BigDecimal("15.00").compareTo(totales(cajaId).get(PaymentMethod.EFECTIVO)));
+
+        totalesCajaService.verificar();
+
+        assertEquals(sumaPagos(cajaId), totales(cajaId));
+        assertEquals(0, DIEZ.compareTo(totales(cajaId).get(PaymentMethod.EFECTIVO)));
+    }
+
+    // ==================== AUXILIARES ====================
+
+    /**
+     * Monto más redondeo por método, de las filas de totales (sin los métodos en cero).
+     */
+    private Map<PaymentMethod, BigDecimal> totales(Long cajaId) {
+        Map<PaymentMethod, BigDecimal> totales = new EnumMap<>(PaymentMethod.class);
+        for (TotalCaja fila : totalCajaDao.findByCajaId(cajaId)) {
+            BigDecimal total = fila.getMontoPagado().add(fila.getRedondeo());
+            if (total.signum() != 0) {
+                totales.put(fila.getPaymentMethod(), total.setScale(2));
+            }
+        }
+        return totales;
+    }
+
+    /**
+     * Lo mismo derivado de los pagos activos de la caja.
+     */
+    private Map<PaymentMethod, BigDecimal> sumaPagos(Long cajaId) {
+        Map<PaymentMethod, BigDecimal> suma = new EnumMap<>(PaymentMethod.class);
+        for (Object[] row : pagoDao.sumarPagosPorMetodoDeCaja(cajaId)) {
+            BigDecimal monto = row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO;
+            BigDecimal redondeo = row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO;
+            BigDecimal total = monto.add(redondeo);
+            if (total.signum() != 0) {
+                suma.put((PaymentMethod) row[0], total.setScale(2));
+            }
+        }
+        return suma;
+    }
+
+    /**
+     * Lanza todas las tareas en hilos propios, las suelta a la vez y devuelve los errores.
+     */
+    private static List<Throwable> ejecutarALaVez(List<Callable<Void>> tareas) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(tareas.size());
+        CountDownLatch salida = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futuros = new ArrayList<>();
+            for (Callable<Void> tarea : tareas) {
+                futuros.add(pool.submit(() -> {
+                    salida.await();
+                    return tarea.call();
+                }));
+            }
+            salida.countDown();
+
+            List<Throwable> errores = new ArrayList<>();
+            for (Future<Void> futuro : futuros) {
+                try {
+                    futuro.get(60, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    errores.add(e.getCause());
+                } catch (java.util.concurrent.TimeoutException e) {
+                    throw new AssertionError("un pago no terminó en 60 s", e);
+                }
+            }
+            return errores;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
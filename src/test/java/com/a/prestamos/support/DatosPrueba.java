@@ -0,0 +1,93 @@
+package com.a.prestamos.support;
+
+import com.a.prestamos.model.dao.ClienteDao;
+import com.a.prestamos.model.dao.CuotaDao;
+import com.a.prestamos.model.dao.PagoDao;
+import com.a.prestamos.model.dto.prestamo.PrestamoRequest;
+import com.a.prestamos.model.entity.Cliente;
+import com.a.prestamos.model.entity.Cuota;
+import com.a.prestamos.model.entity.Pago;
+import com.a.prestamos.model.entity.Prestamo;
+import com.a.prestamos.model.entity.enums.DocumentType;
+import com.a.prestamos.model.entity.enums.PaymentMethod;
+import com.a.prestamos.model.entity.enums.PaymentState;
+import com.a.prestamos.service.IPrestamoService;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clientes y préstamos para las pruebas de integración. Cada llamada usa un documento nuevo, así las pruebas
+ * que comparten contexto (y base H2) no chocan entre sí.
+ */
+@TestComponent
+public class DatosPrueba {
+
+    private static final AtomicLong DOCUMENTOS = new AtomicLong(40_000_000);
+
+    private final ClienteDao clienteDao;
+    private final CuotaDao cuotaDao;
+    private final PagoDao pagoDao;
+    private final IPrestamoService prestamoService;
+
+    public DatosPrueba(ClienteDao clienteDao, CuotaDao cuotaDao, PagoDao pagoDao, IPrestamoService prestamoService) {
+        this.clienteDao = clienteDao;
+        this.cuotaDao = cuotaDao;
+        this.pagoDao = pagoDao;
+        this.prestamoService = prestamoService;
+    }
+
+    /**
+     * DNI de 8 dígitos que no existe todavía en la base.
+     */
+    public static String nuevoDni() {
+        return String.valueOf(DOCUMENTOS.incrementAndGet());
+    }
+
+    public Cliente cliente() {
+        Cliente cliente = new Cliente();
+        cliente.setDocumentId(nuevoDni());
+        cliente.setDocumentType(DocumentType.DNI);
+        cliente.setFullName("CLIENTE DE PRUEBA " + cliente.getDocumentId());
+        cliente.setFirstName("CLIENTE");
+        cliente.setFirstLastName("DE");
+        cliente.setSecondLastName("PRUEBA");
+        return clienteDao.save(cliente);
+    }
+
+    /**
+     * Préstamo por el flujo normal ({@link IPrestamoService#createLoan}) para un cliente nuevo.
+     */
+    public Prestamo prestamo(BigDecimal principal, BigDecimal tea, int meses, LocalDate inicio) {
+        Cliente cliente = cliente();
+        return prestamoService.createLoan(new PrestamoRequest(cliente.getDocumentId(), principal, tea, meses, false, inicio));
+    }
+
+    /**
+     * Préstamo sin interés de una sola cuota por {@code monto}, que vence dentro de un mes.
+     */
+    public Cuota cuotaUnica(String monto) {
+        Prestamo prestamo = prestamo(new BigDecimal(monto), BigDecimal.ZERO, 1, LocalDate.now());
+        return cuotas(prestamo).get(0);
+    }
+
+    public List<Cuota> cuotas(Prestamo prestamo) {
+        return cuotaDao.findByLoanIdOrderByNumAsc(prestamo.getId());
+    }
+
+    /**
+     * Pago en efectivo guardado directamente, sin pasar por caja ni por la bandeja de emisión (la cuota no cambia).
+     */
+    public Pago pago(Cuota cuota, String monto, PaymentState estado) {
+        Pago pago = new Pago();
+        pago.setInstallment(cuota);
+        pago.setAmountPaid(new BigDecimal(monto));
+        pago.setAmountReceived(new BigDecimal(monto));
+        pago.setPaymentMethod(PaymentMethod.EFECTIVO);
+        pago.setPaymentState(estado);
+        return pagoDao.save(pago);
+    }
+}
@@ -0,0 +1,61 @@
+package com.a.prestamos.support;
+
+import com.mercadopago.MercadoPagoConfig;
+import com.mercadopago.net.HttpMethod;
+import com.mercadopago.net.MPHttpClient;
+import com.mercadopago.net.MPRequest;
+import com.mercadopago.net.MPResponse;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reemplaza el cliente HTTP del SDK de Mercado Pago: responde los pagos registrados con {@link #pago} y crea
+ * preferencias con IDs correlativos, sin salir a la red.
+ */
+public class MercadoPagoSimulado implements MPHttpClient {
+
+    private final Map<String, String> pagos = new ConcurrentHashMap<>();
+    private final AtomicLong preferencias = new AtomicLong();
+
+    /**
+     * Instala el simulador en {@link MercadoPagoConfig} (es estático: cada prueba lo vuelve a instalar).
+     */
+    public static MercadoPagoSimulado instalar() {
+        MercadoPagoSimulado simulado = new MercadoPagoSimulado();
+        MercadoPagoConfig.setHttpClient(simulado);
+        return simulado;
+    }
+
+    /**
+     * Registra el pago {@code paymentId} de Mercado Pago con su estado y la referencia externa de la cuota.
+     */
+    public void pago(String paymentId, String status, Long cuotaId) {
+        pagos.put(paymentId, """
+                {"id": %s, "status": "%s", "status_detail": "accredited", "external_reference": "cuota_%d_0"}
+                """.formatted(paymentId, status, cuotaId));
+    }
+
+    @Override
+    public MPResponse send(MPRequest request) {
+        String ruta = URI.create(request.getUri()).getPath();
+        if (request.getMethod() == HttpMethod.GET && ruta.startsWith("/v1/payments/")) {
+            String pago = pagos.get(ruta.substring("/v1/payments/".length()));
+            return pago != null ? respuesta(200, pago) : respuesta(404, "{\"message\": \"Payment not found\"}");
+        }
+        if (request.getMethod() == HttpMethod.POST && ruta.equals("/checkout/preferences")) {
+            String id = "pref-" + preferencias.incrementAndGet();
+            return respuesta(201, """
+                    {"id": "%s", "init_point": "https://mp.test/%s", "sandbox_init_point": "https://sandbox.mp.test/%s"}
+                    """.formatted(id, id, id));
+        }
+        return respuesta(404, "{\"message\": \"no simulado: " + request.getMethod() + " " + ruta + "\"}");
+    }
+
+    private static MPResponse respuesta(int status, String json) {
+        return new MPResponse(status, Map.of("Content-Type", List.of("application/json")), json);
+    }
+}
@@ -0,0 +1,82 @@
+package com.a.prestamos.support;
+
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Base PostgreSQL desechable para las pruebas que necesitan el motor real (índices parciales, EXPLAIN).
+ * Se activan con {@code -Dpruebas.postgresql.url=jdbc:postgresql://host:puerto/postgres?user=...}: cada
+ * instancia crea una base nueva en ese servidor y la borra al cerrarse. Sin la propiedad esas pruebas se omiten.
+ */
+public final class PostgresqlPrueba implements AutoCloseable {
+
+    public static final String PROPIEDAD = "pruebas.postgresql.url";
+
+    private final String urlAdmin;
+    private final String nombre;
+    private final DriverManagerDataSource dataSource;
+
+    private PostgresqlPrueba(String urlAdmin, String nombre) {
+        this.urlAdmin = urlAdmin;
+        this.nombre = nombre;
+        this.dataSource = new DriverManagerDataSource(urlAdmin.replaceFirst("/[^/?]*(\\?|$)", "/" + nombre + "$1"));
+    }
+
+    public static PostgresqlPrueba crear() throws SQLException {
+        String urlAdmin = System.getProperty(PROPIEDAD);
+        if (urlAdmin == null || urlAdmin.isBlank()) {
+            throw new IllegalStateException("Falta -D" + PROPIEDAD);
+        }
+        String nombre = "prueba_" + UUID.randomUUID().toString().replace("-", "");
+        ejecutar(urlAdmin, "CREATE DATABASE " + nombre);
+        return new PostgresqlPrueba(urlAdmin, nombre);
+    }
+
+    public DataSource dataSource() {
+        return dataSource;
+    }
+
+    public String url() {
+        return dataSource.getUrl();
+    }
+
+    /**
+     * Parámetro {@code user} de la URL (para configurar {@code spring.datasource.username}).
+     */
+    public String usuario() {
+        return parametro("user", "postgres");
+    }
+
+    public String clave() {
+        return parametro("password", "");
+    }
+
+    private String parametro(String nombre, String porDefecto) {
+        int inicio = urlAdmin.indexOf('?');
+        if (inicio >= 0) {
+            for (String par : urlAdmin.substring(inicio + 1).split("&")) {
+                if (par.startsWith(nombre + "=")) {
+                    return par.substring(nombre.length() + 1);
+                }
+            }
+        }
+        return porDefecto;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        ejecutar(urlAdmin, "DROP DATABASE IF EXISTS " + nombre + " WITH (FORCE)");
+    }
+
+    private static void ejecutar(String url, String sql) throws SQLException {
+        try (Connection c = DriverManager.getConnection(url); Statement st = c.createStatement()) {
+            st.execute(sql);
+        }
+    }
+}
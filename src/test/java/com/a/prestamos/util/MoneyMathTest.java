@@ -0,0 +1,68 @@
+package com.a.prestamos.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Redondeos de {@link MoneyMath} contra {@code BigDecimal.setScale(2, HALF_UP)}.
+ */
+class MoneyMathTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            // a, b, divisor, esperado
+            "5,     1,   10,  1",    // 0.5 → 1
+            "-5,    1,   10,  -1",   // simétrico en negativos
+            "4,     1,   10,  0",
+            "15,    1,   10,  2",
+            "-15,   1,   10,  -2",
+            "1,     100, 118, 1",    // 0.847
+            "59,    100, 118, 50"    // 50.0
+    })
+    void multiplicarDividirRedondeaHalfUp(long a, long b, long divisor, long esperado) {
+        assertEquals(esperado, MoneyMath.multiplicarDividir(a, b, divisor));
+    }
+
+    @Test
+    void multiplicarDividirUsa128BitsSinPerderPrecision() {
+        // a × b no cabe en un long
+        long a = 123_456_789_012L;
+        long b = 9_876_543_210_987L;
+        long divisor = 1_000_000_007L;
+
+        BigDecimal esperado = BigDecimal.valueOf(a).multiply(BigDecimal.valueOf(b))
+                .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP);
+        assertEquals(esperado.longValueExact(), MoneyMath.multiplicarDividir(a, b, divisor));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1000000.00, 0.0187692651215061",
+            "12345.67,   0.032033018982187812345",  // más de 18 decimales: división en dos pasos
+            "0.01,       0.5",
+            "999999.99,  1.000000000000000001"
+    })
+    void multiplicarCoincideConBigDecimal(String monto, String tasa) {
+        MoneyMath.Tasa t = MoneyMath.Tasa.de(new BigDecimal(tasa));
+        BigDecimal esperado = new BigDecimal(monto).multiply(new BigDecimal(BigInteger.valueOf(t.unscaled()), t.scale()))
+                .setScale(2, RoundingMode.HALF_UP);
+
+        long centimos = MoneyMath.multiplicar(MoneyMath.aCentimos(new BigDecimal(monto)), t);
+        assertEquals(esperado, MoneyMath.aSoles(centimos));
+    }
+
+    @Test
+    void aCentimosRechazaFraccionesDeCentimo() {
+        assertEquals(12345, MoneyMath.aCentimos(new BigDecimal("123.45")));
+        assertEquals(100, MoneyMath.aCentimos(new BigDecimal("1")));
+        assertThrows(ArithmeticException.class, () -> MoneyMath.aCentimos(new BigDecimal("0.005")));
+    }
+}
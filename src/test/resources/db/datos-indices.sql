@@ -0,0 +1,48 @@
+-- Cartera sintética para IndicesConsultasPostgresqlTest: 2000 préstamos de 36 cuotas (72 000 cuotas) con
+-- las 12 primeras pagadas (24 000 pagos). Inicios repartidos en dos años, así un día de vencimiento o de
+-- pago es una fracción pequeña de la tabla y el planificador elige índice si lo hay.
+INSERT INTO clientes (document_id, document_type, full_name, pep, created_at)
+SELECT lpad(g::text, 8, '0'), 'DNI', 'CLIENTE ' || g, false, now()
+FROM generate_series(1, 2000) g;
+
+INSERT INTO prestamos (id, customer_dni, start_date, principal, tea_annual, months, installment_amount,
+                       loan_state, created_at, version)
+SELECT g, lpad(g::text, 8, '0'), DATE '2024-01-01' + (g % 730), 10000.00, 0.2500, 36, 400.00,
+       'ACTIVO', now(), 0
+FROM generate_series(1, 2000) g;
+
+INSERT INTO cuotas (id, loan_id, num, due_date, principal, interest, igv, amount, amount_paid, balance,
+                    installment_state, mora_acumulada, meses_mora, version)
+SELECT (p.id - 1) * 36 + n, p.id, n, (p.start_date + make_interval(months => n))::date,
+       300.00, 84.75, 15.25, 400.00,
+       CASE WHEN n <= 12 THEN 400.00 ELSE 0 END,
+       CASE WHEN n <= 12 THEN 0 ELSE 400.00 END,
+       CASE WHEN n <= 12 THEN 'PAGADO' ELSE 'PENDIENTE' END,
+       0, 0, 0
+FROM prestamos p CROSS JOIN generate_series(1, 36) n;
+
+INSERT INTO cajas (usuario, fecha_apertura, fecha_cierre, saldo_inicial, estado)
+SELECT 'cajero' || g || '@prestamos.pe', TIMESTAMP '2024-01-01 08:00', TIMESTAMP '2024-01-01 18:00', 0, 'CERRADA'
+FROM generate_series(1, 50) g;
+
+-- Un tercio por Mercado Pago (con IDs de pago y preferencia), el resto en efectivo en alguna caja
+INSERT INTO pagos (id, installment_id, amount_paid, amount_received, rounding, mont_mora, mora_perdonada,
+                   payment_method, payment_date, payment_state, mercado_pago_preference_id,
+                   mercado_pago_payment_id, created_at, caja_id, version)
+SELECT c.id, c.id, 400.00, 400.00, 0, 0, false,
+       CASE WHEN c.id % 3 = 0 THEN 'MERCADO_PAGO' ELSE 'EFECTIVO' END,
+       c.due_date - 2 + TIME '10:00',
+       'ACTIVO',
+       CASE WHEN c.id % 3 = 0 THEN 'pref-' || c.id END,
+       CASE WHEN c.id % 3 = 0 THEN 'mp-' || c.id END,
+       now(),
+       CASE WHEN c.id % 3 <> 0 THEN (SELECT MIN(id) FROM cajas) + c.id % 50 END,
+       0
+FROM cuotas c
+WHERE c.num <= 12;
+
+ANALYZE clientes;
+ANALYZE prestamos;
+ANALYZE cuotas;
+ANALYZE cajas;
+ANALYZE pagos;
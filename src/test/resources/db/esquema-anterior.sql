@@ -0,0 +1,134 @@
+-- Esquema de producción anterior a las migraciones (generado por ddl-auto=update, con los nombres de
+-- restricciones de Hibernate y columnas identity) y unos pocos datos. Sirve en PostgreSQL y en H2.
+
+CREATE TABLE clientes (
+    document_id      varchar(15) NOT NULL,
+    document_type    varchar(255) NOT NULL CHECK (document_type IN ('DNI', 'RUC')),
+    full_name        varchar(255) NOT NULL,
+    first_name       varchar(255),
+    first_last_name  varchar(255),
+    second_last_name varchar(255),
+    address          varchar(255),
+    pep              boolean NOT NULL,
+    created_at       timestamp(6) with time zone NOT NULL,
+    CONSTRAINT clientes_pkey PRIMARY KEY (document_id)
+);
+
+CREATE TABLE usuarios (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY,
+    birth_date date,
+    created_at timestamp(6) with time zone,
+    email      varchar(255) NOT NULL,
+    firstname  varchar(255),
+    lastname   varchar(255),
+    password   varchar(255) NOT NULL,
+    phone      varchar(255),
+    role       varchar(255) NOT NULL CHECK (role = 'ADMIN'),
+    updated_at timestamp(6) with time zone,
+    zone       varchar(255),
+    CONSTRAINT usuarios_pkey PRIMARY KEY (id),
+    CONSTRAINT ukkfsp0s1tflm1cwlj8idhqsad0 UNIQUE (email)
+);
+
+CREATE TABLE cajas (
+    id                     bigint GENERATED BY DEFAULT AS IDENTITY,
+    diferencia             numeric(12,2),
+    estado                 varchar(20) NOT NULL CHECK (estado IN ('ABIERTA', 'CERRADA')),
+    fecha_apertura         timestamp(6) NOT NULL,
+    fecha_cierre           timestamp(6),
+    observaciones          varchar(255),
+    saldo_final_real       numeric(12,2),
+    saldo_inicial          numeric(12,2) NOT NULL,
+    total_digital_sistema  numeric(12,2),
+    total_efectivo_sistema numeric(12,2),
+    usuario                varchar(255) NOT NULL,
+    CONSTRAINT cajas_pkey PRIMARY KEY (id)
+);
+
+CREATE TABLE prestamos (
+    id                 bigint GENERATED BY DEFAULT AS IDENTITY,
+    created_at         timestamp(6) with time zone NOT NULL,
+    installment_amount numeric(12,2) NOT NULL,
+    loan_state         varchar(10) NOT NULL CHECK (loan_state IN ('ACTIVO', 'CANCELADO')),
+    months             integer NOT NULL,
+    principal          numeric(12,2) NOT NULL,
+    start_date         date NOT NULL,
+    tea_annual         numeric(6,4) NOT NULL,
+    customer_dni       varchar(15) NOT NULL,
+    CONSTRAINT prestamos_pkey PRIMARY KEY (id),
+    CONSTRAINT fkl0sxhoe6r8y4cyklflva6nppp FOREIGN KEY (customer_dni) REFERENCES clientes (document_id)
+);
+
+CREATE TABLE cuotas (
+    id                bigint GENERATED BY DEFAULT AS IDENTITY,
+    amount            numeric(12,2) NOT NULL,
+    amount_paid       numeric(12,2) NOT NULL,
+    balance           numeric(12,2) NOT NULL,
+    due_date          date NOT NULL,
+    igv               numeric(12,2) NOT NULL,
+    installment_state varchar(20) NOT NULL CHECK (installment_state IN ('PENDIENTE', 'PAGADO', 'PAGADO_PARCIAL', 'VENCIDO')),
+    interest          numeric(12,2) NOT NULL,
+    num               integer NOT NULL,
+    principal         numeric(12,2) NOT NULL,
+    loan_id           bigint NOT NULL,
+    CONSTRAINT cuotas_pkey PRIMARY KEY (id),
+    CONSTRAINT fkjxjoh52jffy1gtfotjjasd0uf FOREIGN KEY (loan_id) REFERENCES prestamos (id)
+);
+
+CREATE TABLE pagos (
+    id                         bigint GENERATED BY DEFAULT AS IDENTITY,
+    amount_paid                numeric(12,2) NOT NULL,
+    amount_received            numeric(12,2) NOT NULL,
+    change                     numeric(12,2),
+    created_at                 timestamp(6) with time zone NOT NULL,
+    mercado_pago_payment_id    varchar(100),
+    mercado_pago_preference_id varchar(100),
+    mont_mora                  numeric(12,2) NOT NULL,
+    mora_perdonada             boolean NOT NULL,
+    observations               varchar(500),
+    operation_trace            varchar(50),
+    payment_date               timestamp(6) with time zone NOT NULL,
+    payment_method             varchar(20) NOT NULL
+        CHECK (payment_method IN ('EFECTIVO', 'TARJETA_CREDITO', 'TARJETA_DEBITO', 'BILLETERA_DIGITAL', 'MERCADO_PAGO')),
+    payment_state              varchar(20) NOT NULL CHECK (payment_state IN ('ACTIVO', 'ANULADO', 'PENDIENTE')),
+    rounding                   numeric(12,2) NOT NULL,
+    installment_id             bigint NOT NULL,
+    CONSTRAINT pagos_pkey PRIMARY KEY (id),
+    CONSTRAINT fkto46x4cnsf09roru4q6j7my9p FOREIGN KEY (installment_id) REFERENCES cuotas (id)
+);
+
+CREATE TABLE comprobantes (
+    id         bigint GENERATED BY DEFAULT AS IDENTITY,
+    hash       varchar(100),
+    issue_date timestamp(6) with time zone NOT NULL,
+    proof_type varchar(10) NOT NULL,
+    sequential bigint NOT NULL,
+    serie      varchar(4) NOT NULL,
+    url_cdr    text,
+    url_pdf    varchar(500),
+    url_xml    text,
+    payment_id bigint NOT NULL,
+    CONSTRAINT comprobantes_pkey PRIMARY KEY (id),
+    CONSTRAINT uk4bar7e181ejp19fvx4aexwmpr UNIQUE (payment_id),
+    CONSTRAINT fk1r932papv8xtppqrkqrlkr5nq FOREIGN KEY (payment_id) REFERENCES pagos (id)
+);
+
+INSERT INTO usuarios (email, password, role, created_at) VALUES ('cajero@prestamos.pe', 'x', 'ADMIN', CURRENT_TIMESTAMP);
+INSERT INTO clientes (document_id, document_type, full_name, pep, created_at) VALUES ('12345678', 'DNI', 'PEREZ GOMEZ JUAN', false, CURRENT_TIMESTAMP);
+INSERT INTO prestamos (customer_dni, start_date, principal, tea_annual, months, installment_amount, loan_state, created_at)
+VALUES ('12345678', '2026-01-15', 1000.00, 0.2500, 3, 345.00, 'ACTIVO', CURRENT_TIMESTAMP);
+INSERT INTO cuotas (loan_id, num, due_date, principal, interest, igv, amount, amount_paid, balance, installment_state)
+VALUES (1, 1, '2026-02-15', 326.00, 16.10, 2.90, 345.00, 345.00, 0.00, 'PAGADO');
+INSERT INTO cuotas (loan_id, num, due_date, principal, interest, igv, amount, amount_paid, balance, installment_state)
+VALUES (1, 2, '2026-03-15', 331.00, 11.86, 2.14, 345.00, 0.00, 345.00, 'VENCIDO');
+INSERT INTO cuotas (loan_id, num, due_date, principal, interest, igv, amount, amount_paid, balance, installment_state)
+VALUES (1, 3, '2026-04-15', 343.00, 1.69, 0.31, 345.00, 0.00, 345.00, 'VENCIDO');
+-- La caja global de antes de las cajas por cajero, con una observación del cajero
+INSERT INTO cajas (usuario, fecha_apertura, saldo_inicial, estado, total_efectivo_sistema, total_digital_sistema, observaciones)
+VALUES ('CajeroPrincipal', '2026-02-01 08:00', 100.00, 'ABIERTA', 0, 0, 'Turno de la mañana');
+-- Dos aperturas simultáneas del mismo cajero: queda abierta la más reciente
+INSERT INTO cajas (usuario, fecha_apertura, saldo_inicial, estado) VALUES ('cajero@prestamos.pe', '2026-02-02 08:00', 0.00, 'ABIERTA');
+INSERT INTO cajas (usuario, fecha_apertura, saldo_inicial, estado) VALUES ('cajero@prestamos.pe', '2026-02-02 08:00', 0.00, 'ABIERTA');
+INSERT INTO pagos (installment_id, amount_paid, amount_received, change, rounding, mont_mora, mora_perdonada, payment_method, payment_date, payment_state, created_at)
+VALUES (1, 345.00, 350.00, 5.00, 0.00, 0.00, false, 'EFECTIVO', '2026-02-01 10:00:00+00', 'ACTIVO', CURRENT_TIMESTAMP);
+INSERT INTO comprobantes (payment_id, serie, sequential, proof_type, issue_date) VALUES (1, 'B001', 1, '03', CURRENT_TIMESTAMP);